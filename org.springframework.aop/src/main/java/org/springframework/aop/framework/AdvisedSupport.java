@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -71,6 +71,11 @@ public class AdvisedSupport extends ProxyConfig implements Advised {
 	 */
 	public static final TargetSource EMPTY_TARGET_SOURCE = EmptyTargetSource.INSTANCE;
 
+	/**
+	 * Marker for methods that cannot be invoked through a generated invocation.
+	 */
+	private static final Object NO_GENERATED_INVOCATION = new Object();
+
 
 	/** Package-protected to allow direct access for efficiency */
 	TargetSource targetSource = EMPTY_TARGET_SOURCE;
@@ -84,6 +89,12 @@ public class AdvisedSupport extends ProxyConfig implements Advised {
 	/** Cache with Method as key and advisor chain List as value */
 	private transient Map<MethodCacheKey, List<Object>> methodCache;
 
+	/**
+	 * Cache with Method as key and GeneratedMethodInvocation prototype as value,
+	 * or {@link #NO_GENERATED_INVOCATION} for methods that are not eligible
+	 */
+	private transient Map<MethodCacheKey, Object> generatedInvocationCache;
+
 	/**
 	 * Interfaces to be implemented by the proxy. Held in List to keep the order
 	 * of registration, to create JDK proxy with specified order of interfaces.
@@ -124,6 +135,7 @@ public class AdvisedSupport extends ProxyConfig implements Advised {
 	 */
 	private void initMethodCache() {
 		this.methodCache = new ConcurrentHashMap<MethodCacheKey, List<Object>>(32);
+		this.generatedInvocationCache = new ConcurrentHashMap<MethodCacheKey, Object>(32);
 	}
 
 
@@ -486,11 +498,38 @@ public class AdvisedSupport extends ProxyConfig implements Advised {
 		return cached;
 	}
 
+	/**
+	 * Determine a {@link GeneratedMethodInvocation} prototype for the given method
+	 * and its interceptor chain, provided that this configuration is frozen and
+	 * {@link #setUseGeneratedInvocations uses generated invocations}.
+	 * @param method the proxied method
+	 * @param chain the interceptor chain for the method, as returned by
+	 * {@link #getInterceptorsAndDynamicInterceptionAdvice}
+	 * @return the prototype to create invocations from, or <code>null</code>
+	 * if a regular {@link ReflectiveMethodInvocation} needs to be used
+	 */
+	GeneratedMethodInvocation getGeneratedMethodInvocation(Method method, List<Object> chain) {
+		if (!isUseGeneratedInvocations() || !isFrozen()) {
+			return null;
+		}
+		MethodCacheKey cacheKey = new MethodCacheKey(method);
+		Object cached = this.generatedInvocationCache.get(cacheKey);
+		if (cached == null) {
+			cached = MethodInvocationGenerator.generate(method, chain);
+			if (cached == null) {
+				cached = NO_GENERATED_INVOCATION;
+			}
+			this.generatedInvocationCache.put(cacheKey, cached);
+		}
+		return (cached != NO_GENERATED_INVOCATION ? (GeneratedMethodInvocation) cached : null);
+	}
+
 	/**
 	 * Invoked when advice has changed.
 	 */
 	protected void adviceChanged() {
 		this.methodCache.clear();
+		this.generatedInvocationCache.clear();
 	}
 
 	/**
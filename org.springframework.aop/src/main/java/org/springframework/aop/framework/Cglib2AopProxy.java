@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,15 +17,20 @@
 package org.springframework.aop.framework;
 
 import java.io.Serializable;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
 
 import net.sf.cglib.core.CodeGenerationException;
+import net.sf.cglib.core.ReflectUtils;
 import net.sf.cglib.proxy.Callback;
 import net.sf.cglib.proxy.CallbackFilter;
 import net.sf.cglib.proxy.Dispatcher;
@@ -49,6 +54,7 @@ import org.springframework.core.SmartClassLoader;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ObjectUtils;
+import org.springframework.util.ReflectionUtils;
 
 /**
  * CGLIB2-based {@link AopProxy} implementation for the Spring AOP framework.
@@ -167,41 +173,65 @@ final class Cglib2AopProxy implements AopProxy, Serializable {
 			// Validate the class, writing log messages as necessary.
 			validateClassIfNecessary(proxySuperClass);
 
-			// Configure CGLIB Enhancer...
-			Enhancer enhancer = createEnhancer();
-			if (classLoader != null) {
-				enhancer.setClassLoader(classLoader);
-				if (classLoader instanceof SmartClassLoader &&
-						((SmartClassLoader) classLoader).isClassReloadable(proxySuperClass)) {
-					enhancer.setUseCache(false);
-				}
-			}
-			enhancer.setSuperclass(proxySuperClass);
-			enhancer.setStrategy(new UndeclaredThrowableStrategy(UndeclaredThrowableException.class));
-			enhancer.setInterfaces(AopProxyUtils.completeProxiedInterfaces(this.advised));
-			enhancer.setInterceptDuringConstruction(false);
-
+			Class[] proxiedInterfaces = AopProxyUtils.completeProxiedInterfaces(this.advised);
 			Callback[] callbacks = getCallbacks(rootClass);
-			enhancer.setCallbacks(callbacks);
-			enhancer.setCallbackFilter(new ProxyCallbackFilter(
-					this.advised.getConfigurationOnlyCopy(), this.fixedInterceptorMap, this.fixedInterceptorOffset));
-
 			Class[] types = new Class[callbacks.length];
 			for (int x = 0; x < types.length; x++) {
 				types[x] = callbacks[x].getClass();
 			}
-			enhancer.setCallbackTypes(types);
 
-			// Generate the proxy class and create a proxy instance.
-			Object proxy;
-			if (this.constructorArgs != null) {
-				proxy = enhancer.create(this.constructorArgTypes, this.constructorArgs);
+			// Look for a structurally identical proxy class generated before...
+			boolean useCache = !(classLoader instanceof SmartClassLoader &&
+					((SmartClassLoader) classLoader).isClassReloadable(proxySuperClass));
+			ClassLoader proxyClassLoader = (classLoader != null ? classLoader : proxySuperClass.getClassLoader());
+			ProxyClassKey cacheKey = null;
+			Class proxyClass = null;
+			if (useCache) {
+				// Determine the callbacks for all methods based on the actual configuration,
+				// reusing the advisor chains that are cached for it (per Method instance).
+				cacheKey = new ProxyClassKey(proxySuperClass, proxiedInterfaces, types,
+						new ProxyCallbackFilter(this.advised, this.fixedInterceptorMap, this.fixedInterceptorOffset));
+				proxyClass = ProxyClassCache.getProxyClass(proxyClassLoader, cacheKey);
 			}
-			else {
-				proxy = enhancer.create();
+
+			if (proxyClass == null) {
+				// Configure CGLIB Enhancer...
+				Enhancer enhancer = createEnhancer();
+				if (classLoader != null) {
+					enhancer.setClassLoader(classLoader);
+				}
+				enhancer.setUseCache(useCache);
+				enhancer.setSuperclass(proxySuperClass);
+				enhancer.setStrategy(new UndeclaredThrowableStrategy(UndeclaredThrowableException.class));
+				enhancer.setInterfaces(proxiedInterfaces);
+				enhancer.setInterceptDuringConstruction(false);
+				enhancer.setCallbackFilter(new ProxyCallbackFilter(
+						this.advised.getConfigurationOnlyCopy(), this.fixedInterceptorMap, this.fixedInterceptorOffset));
+				enhancer.setCallbackTypes(types);
+
+				// Generate the proxy class.
+				proxyClass = enhancer.createClass();
+				if (useCache) {
+					ProxyClassCache.putProxyClass(proxyClassLoader, cacheKey, proxyClass);
+				}
+			}
+			else if (logger.isDebugEnabled()) {
+				logger.debug("Reusing CGLIB2 proxy class [" + proxyClass.getName() + "]");
 			}
 
-			return proxy;
+			// Create a proxy instance with fresh callbacks.
+			Enhancer.registerCallbacks(proxyClass, callbacks);
+			try {
+				if (this.constructorArgs != null) {
+					return ReflectUtils.newInstance(proxyClass, this.constructorArgTypes, this.constructorArgs);
+				}
+				else {
+					return ReflectUtils.newInstance(proxyClass);
+				}
+			}
+			finally {
+				Enhancer.registerCallbacks(proxyClass, null);
+			}
 		}
 		catch (CodeGenerationException ex) {
 			throw new AopConfigException("Could not generate CGLIB subclass of class [" +
@@ -310,7 +340,8 @@ final class Cglib2AopProxy implements AopProxy, Serializable {
 			for (int x = 0; x < methods.length; x++) {
 				List<Object> chain = this.advised.getInterceptorsAndDynamicInterceptionAdvice(methods[x], rootClass);
 				fixedCallbacks[x] = new FixedChainStaticTargetInterceptor(
-						chain, this.advised.getTargetSource().getTarget(), this.advised.getTargetClass());
+						chain, this.advised.getGeneratedMethodInvocation(methods[x], chain),
+						this.advised.getTargetSource().getTarget(), this.advised.getTargetClass());
 				this.fixedInterceptorMap.put(methods[x].toString(), x);
 			}
 
@@ -556,19 +587,26 @@ final class Cglib2AopProxy implements AopProxy, Serializable {
 
 		private final List<Object> adviceChain;
 
+		private final transient GeneratedMethodInvocation generatedInvocation;
+
 		private final Object target;
 
 		private final Class targetClass;
 
-		public FixedChainStaticTargetInterceptor(List<Object> adviceChain, Object target, Class targetClass) {
+		public FixedChainStaticTargetInterceptor(List<Object> adviceChain,
+				GeneratedMethodInvocation generatedInvocation, Object target, Class targetClass) {
+
 			this.adviceChain = adviceChain;
+			this.generatedInvocation = generatedInvocation;
 			this.target = target;
 			this.targetClass = targetClass;
 		}
 
 		public Object intercept(Object proxy, Method method, Object[] args, MethodProxy methodProxy) throws Throwable {
-			MethodInvocation invocation = new CglibMethodInvocation(proxy, this.target, method, args,
-					this.targetClass, this.adviceChain, methodProxy);
+			MethodInvocation invocation = (this.generatedInvocation != null ?
+					this.generatedInvocation.newInvocation(proxy, this.target, method, args, this.targetClass) :
+					new CglibMethodInvocation(proxy, this.target, method, args,
+							this.targetClass, this.adviceChain, methodProxy));
 			// If we get here, we need to create a MethodInvocation.
 			Object retVal = invocation.proceed();
 			retVal = massageReturnTypeIfNecessary(proxy, this.target, method, retVal);
@@ -619,7 +657,11 @@ final class Cglib2AopProxy implements AopProxy, Serializable {
 				}
 				else {
 					// We need to create a method invocation...
-					retVal = new CglibMethodInvocation(proxy, target, method, args, targetClass, chain, methodProxy).proceed();
+					GeneratedMethodInvocation generated = this.advised.getGeneratedMethodInvocation(method, chain);
+					MethodInvocation invocation = (generated != null ?
+							generated.newInvocation(proxy, target, method, args, targetClass) :
+							new CglibMethodInvocation(proxy, target, method, args, targetClass, chain, methodProxy));
+					retVal = invocation.proceed();
 				}
 				retVal = massageReturnTypeIfNecessary(proxy, target, method, retVal);
 				return retVal;
@@ -782,16 +824,15 @@ final class Cglib2AopProxy implements AopProxy, Serializable {
 					}
 					return AOP_PROXY;
 				}
-				String key = method.toString();
 				// Check to see if we have fixed interceptor to serve this method.
 				// Else use the AOP_PROXY.
-				if (isStatic && isFrozen && this.fixedInterceptorMap.containsKey(key)) {
+				Integer index = (isStatic && isFrozen ? this.fixedInterceptorMap.get(method.toString()) : null);
+				if (index != null) {
 					if (logger.isDebugEnabled()) {
 						logger.debug("Method has advice and optimisations are enabled: " + method);
 					}
 					// We know that we are optimising so we can use the
 					// FixedStaticChainInterceptors.
-					int index = this.fixedInterceptorMap.get(key);
 					return (index + this.fixedInterceptorOffset);
 				}
 				else {
@@ -917,4 +958,97 @@ final class Cglib2AopProxy implements AopProxy, Serializable {
 		}
 	}
 
+
+	/**
+	 * Key for the {@link ProxyClassCache}: captures the structure of a proxy class,
+	 * i.e. its superclass and interfaces, the types of its callbacks and the callback
+	 * that each method is mapped to by the {@link ProxyCallbackFilter}.
+	 * <p>Classes are referred to by name, in order not to keep them (and their
+	 * ClassLoaders) from being garbage-collected.
+	 */
+	private static class ProxyClassKey {
+
+		/** Candidate methods per class, held softly since they refer to the class itself */
+		private static final Map<Class, Reference<List<Method>>> candidateMethodCache =
+				new WeakHashMap<Class, Reference<List<Method>>>();
+
+		private final String superClassName;
+
+		private final String[] interfaceNames;
+
+		private final String[] callbackTypeNames;
+
+		private final int[] callbackIndexes;
+
+		private final int hashCode;
+
+		public ProxyClassKey(Class superClass, Class[] interfaces, Class[] callbackTypes,
+				ProxyCallbackFilter callbackFilter) {
+
+			this.superClassName = superClass.getName();
+			this.interfaceNames = new String[interfaces.length];
+			for (int i = 0; i < interfaces.length; i++) {
+				this.interfaceNames[i] = interfaces[i].getName();
+			}
+			this.callbackTypeNames = new String[callbackTypes.length];
+			for (int i = 0; i < callbackTypes.length; i++) {
+				this.callbackTypeNames[i] = callbackTypes[i].getName();
+			}
+			List<Method> methods = new ArrayList<Method>(getCandidateMethods(superClass));
+			for (Class ifc : interfaces) {
+				methods.addAll(getCandidateMethods(ifc));
+			}
+			this.callbackIndexes = new int[methods.size()];
+			for (int i = 0; i < this.callbackIndexes.length; i++) {
+				this.callbackIndexes[i] = callbackFilter.accept(methods.get(i));
+			}
+			this.hashCode = this.superClassName.hashCode() * 29 + Arrays.hashCode(this.callbackIndexes);
+		}
+
+		/**
+		 * Return a superset of the methods that CGLIB may override for the given class,
+		 * in a stable order and as the same Method instances for repeated calls.
+		 */
+		private static List<Method> getCandidateMethods(Class clazz) {
+			synchronized (candidateMethodCache) {
+				Reference<List<Method>> ref = candidateMethodCache.get(clazz);
+				List<Method> methods = (ref != null ? ref.get() : null);
+				if (methods == null) {
+					methods = new ArrayList<Method>();
+					List<Method> allMethods = new ArrayList<Method>();
+					allMethods.addAll(Arrays.asList(ReflectionUtils.getAllDeclaredMethods(clazz)));
+					allMethods.addAll(Arrays.asList(clazz.getMethods()));
+					for (Method method : allMethods) {
+						int modifiers = method.getModifiers();
+						if (!Modifier.isStatic(modifiers) && !Modifier.isPrivate(modifiers)) {
+							methods.add(method);
+						}
+					}
+					candidateMethodCache.put(clazz, new SoftReference<List<Method>>(methods));
+				}
+				return methods;
+			}
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof ProxyClassKey)) {
+				return false;
+			}
+			ProxyClassKey otherKey = (ProxyClassKey) other;
+			return (this.superClassName.equals(otherKey.superClassName) &&
+					Arrays.equals(this.interfaceNames, otherKey.interfaceNames) &&
+					Arrays.equals(this.callbackTypeNames, otherKey.callbackTypeNames) &&
+					Arrays.equals(this.callbackIndexes, otherKey.callbackIndexes));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
 }
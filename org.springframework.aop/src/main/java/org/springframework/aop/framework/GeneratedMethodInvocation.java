@@ -0,0 +1,77 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Base class for {@link org.aopalliance.intercept.MethodInvocation} classes that
+ * are generated at runtime for a specific advised method, with the interceptor chain
+ * and the invocation of the target method inlined into the generated bytecode.
+ * Not intended for direct use by application code.
+ *
+ * <p>A generated class only applies to a static interceptor chain, i.e. to a chain
+ * without dynamic method matchers. Instances behave like a regular
+ * {@link ReflectiveMethodInvocation} towards interceptors.
+ *
+ * @author agent
+ * @since 3.1
+ * @see ProxyConfig#setUseGeneratedInvocations
+ */
+public abstract class GeneratedMethodInvocation extends ReflectiveMethodInvocation {
+
+	/**
+	 * Index of the current interceptor, to be maintained by the generated
+	 * {@link #proceed()} implementation. Starts with -1 and is incremented early.
+	 */
+	protected int currentInterceptorIndex = -1;
+
+
+	/**
+	 * Construct a new GeneratedMethodInvocation with the given arguments.
+	 * @see ReflectiveMethodInvocation#ReflectiveMethodInvocation
+	 */
+	protected GeneratedMethodInvocation(Object proxy, Object target, Method method, Object[] arguments,
+			Class targetClass, List<Object> interceptors) {
+
+		super(proxy, target, method, arguments, targetClass, interceptors);
+	}
+
+
+	/**
+	 * Create a new invocation of the same generated class for a specific call
+	 * of the advised method.
+	 * @param proxy the proxy object that the invocation was made on
+	 * @param target the target object to invoke
+	 * @param method the method to invoke
+	 * @param arguments the arguments to invoke the method with
+	 * @param targetClass the target class, for MethodMatcher invocations
+	 * @return the new invocation, ready to {@link #proceed()}
+	 */
+	public abstract GeneratedMethodInvocation newInvocation(
+			Object proxy, Object target, Method method, Object[] arguments, Class targetClass);
+
+	/**
+	 * Invoke the joinpoint using reflection, for targets that do not implement
+	 * the class or interface that the generated invocation has been compiled against.
+	 */
+	protected final Object invokeJoinpointUsingReflection() throws Throwable {
+		return super.invokeJoinpoint();
+	}
+
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.core.BridgeMethodResolver;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Internal helper that generates a {@link GeneratedMethodInvocation} subclass
+ * for a specific advised method and its static interceptor chain, using ASM.
+ *
+ * <p>The generated <code>proceed()</code> method dispatches to each interceptor
+ * through a call site of its own, and the generated <code>invokeJoinpoint()</code>
+ * method invokes the target method directly rather than via reflection.
+ * Only public methods declared on public classes, with public parameter types,
+ * are eligible; for any other method, and if bytecode generation fails,
+ * <code>null</code> is returned and a {@link ReflectiveMethodInvocation}
+ * is to be used instead.
+ *
+ * @author agent
+ * @since 3.1
+ * @see AdvisedSupport#getGeneratedMethodInvocation
+ */
+final class MethodInvocationGenerator implements Opcodes {
+
+	private static final Log logger = LogFactory.getLog(MethodInvocationGenerator.class);
+
+	private static final String INVOCATION_CLASS_SUFFIX = "$$MethodInvocation$$";
+
+	private static final String FALLBACK_PACKAGE = "org/springframework/aop/framework/generated/";
+
+	private static final String INTERCEPTOR_FIELD_PREFIX = "interceptor";
+
+	private static final String SUPERCLASS_NAME = Type.getInternalName(GeneratedMethodInvocation.class);
+
+	private static final String INTERCEPTOR_NAME = Type.getInternalName(MethodInterceptor.class);
+
+	private static final String OBJECT_DESCRIPTOR = Type.getDescriptor(Object.class);
+
+	private static final String CONSTRUCTOR_DESCRIPTOR = "(" + OBJECT_DESCRIPTOR + OBJECT_DESCRIPTOR +
+			Type.getDescriptor(Method.class) + Type.getDescriptor(Object[].class) +
+			Type.getDescriptor(Class.class) + Type.getDescriptor(List.class) + ")V";
+
+	private static final AtomicInteger invocationClassCount = new AtomicInteger();
+
+
+	private MethodInvocationGenerator() {
+	}
+
+
+	/**
+	 * Generate a GeneratedMethodInvocation class for the given method and chain.
+	 * @param method the advised method
+	 * @param chain the interceptor chain for the method, as determined by the
+	 * {@link AdvisorChainFactory}
+	 * @return a prototype instance of the generated class, to create actual invocations
+	 * from through {@link GeneratedMethodInvocation#newInvocation}, or <code>null</code>
+	 * if the method or the chain is not eligible
+	 */
+	static GeneratedMethodInvocation generate(Method method, List<Object> chain) {
+		if (chain.isEmpty() || System.getSecurityManager() != null) {
+			return null;
+		}
+		MethodInterceptor[] interceptors = new MethodInterceptor[chain.size()];
+		for (int i = 0; i < interceptors.length; i++) {
+			Object interceptor = chain.get(i);
+			if (!(interceptor instanceof MethodInterceptor)) {
+				// InterceptorAndDynamicMethodMatcher: needs to be evaluated per call.
+				return null;
+			}
+			interceptors[i] = (MethodInterceptor) interceptor;
+		}
+		Method methodToInvoke = BridgeMethodResolver.findBridgedMethod(method);
+		if (!isInvocable(methodToInvoke)) {
+			return null;
+		}
+		try {
+			return generateInvocation(method, methodToInvoke, interceptors, chain);
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Could not generate method invocation for [" + method +
+						"] - falling back to reflection", ex);
+			}
+			return null;
+		}
+	}
+
+	private static boolean isInvocable(Method method) {
+		if (!Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers()) ||
+				!isAccessible(method.getDeclaringClass())) {
+			return false;
+		}
+		for (Class parameterType : method.getParameterTypes()) {
+			if (!isAccessible(parameterType)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isAccessible(Class clazz) {
+		while (clazz.isArray()) {
+			clazz = clazz.getComponentType();
+		}
+		return (clazz.isPrimitive() || Modifier.isPublic(clazz.getModifiers()));
+	}
+
+	private static GeneratedMethodInvocation generateInvocation(Method method, Method methodToInvoke,
+			MethodInterceptor[] interceptors, List<Object> chain) throws Exception {
+
+		Class declaringClass = methodToInvoke.getDeclaringClass();
+		String declaringClassName = Type.getInternalName(declaringClass);
+		String className = (declaringClassName.startsWith("java/") ?
+				FALLBACK_PACKAGE + declaringClassName.replace('/', '_') : declaringClassName) +
+				INVOCATION_CLASS_SUFFIX + invocationClassCount.incrementAndGet();
+
+		ClassWriter cw = new ClassWriter(true);
+		cw.visit(V1_5, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, className, null, SUPERCLASS_NAME, null);
+		for (int i = 0; i < interceptors.length; i++) {
+			cw.visitField(ACC_PUBLIC + ACC_STATIC, INTERCEPTOR_FIELD_PREFIX + i,
+					Type.getDescriptor(MethodInterceptor.class), null, null).visitEnd();
+		}
+
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", CONSTRUCTOR_DESCRIPTOR, null, null);
+		mv.visitCode();
+		for (int i = 0; i <= 6; i++) {
+			mv.visitVarInsn(ALOAD, i);
+		}
+		mv.visitMethodInsn(INVOKESPECIAL, SUPERCLASS_NAME, "<init>", CONSTRUCTOR_DESCRIPTOR);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		// newInvocation: a plain constructor call for the given arguments,
+		// sharing the (unmodifiable) chain with this prototype instance.
+		mv = cw.visitMethod(ACC_PUBLIC, "newInvocation", "(" + OBJECT_DESCRIPTOR + OBJECT_DESCRIPTOR +
+				Type.getDescriptor(Method.class) + Type.getDescriptor(Object[].class) +
+				Type.getDescriptor(Class.class) + ")" + Type.getDescriptor(GeneratedMethodInvocation.class), null, null);
+		mv.visitCode();
+		mv.visitTypeInsn(NEW, className);
+		mv.visitInsn(DUP);
+		for (int i = 1; i <= 5; i++) {
+			mv.visitVarInsn(ALOAD, i);
+		}
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, className, "interceptorsAndDynamicMethodMatchers", Type.getDescriptor(List.class));
+		mv.visitMethodInsn(INVOKESPECIAL, className, "<init>", CONSTRUCTOR_DESCRIPTOR);
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		// proceed: one call site per interceptor, then the joinpoint.
+		mv = cw.visitMethod(ACC_PUBLIC, "proceed", "()" + OBJECT_DESCRIPTOR, null,
+				new String[] {Type.getInternalName(Throwable.class)});
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitInsn(DUP);
+		mv.visitFieldInsn(GETFIELD, className, "currentInterceptorIndex", "I");
+		mv.visitInsn(ICONST_1);
+		mv.visitInsn(IADD);
+		mv.visitInsn(DUP_X1);
+		mv.visitFieldInsn(PUTFIELD, className, "currentInterceptorIndex", "I");
+		Label[] labels = new Label[interceptors.length];
+		for (int i = 0; i < labels.length; i++) {
+			labels[i] = new Label();
+		}
+		Label joinpointLabel = new Label();
+		mv.visitTableSwitchInsn(0, labels.length - 1, joinpointLabel, labels);
+		for (int i = 0; i < labels.length; i++) {
+			mv.visitLabel(labels[i]);
+			mv.visitFieldInsn(GETSTATIC, className, INTERCEPTOR_FIELD_PREFIX + i,
+					Type.getDescriptor(MethodInterceptor.class));
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitMethodInsn(INVOKEINTERFACE, INTERCEPTOR_NAME, "invoke",
+					"(" + Type.getDescriptor(MethodInvocation.class) + ")" + OBJECT_DESCRIPTOR);
+			mv.visitInsn(ARETURN);
+		}
+		mv.visitLabel(joinpointLabel);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKEVIRTUAL, className, "invokeJoinpoint", "()" + OBJECT_DESCRIPTOR);
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		// invokeJoinpoint: direct invocation of the target method, unless the
+		// target does not implement the method's declaring class.
+		mv = cw.visitMethod(ACC_PROTECTED, "invokeJoinpoint", "()" + OBJECT_DESCRIPTOR, null,
+				new String[] {Type.getInternalName(Throwable.class)});
+		mv.visitCode();
+		Label directLabel = new Label();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, className, "target", OBJECT_DESCRIPTOR);
+		mv.visitTypeInsn(INSTANCEOF, declaringClassName);
+		mv.visitJumpInsn(IFNE, directLabel);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKEVIRTUAL, className, "invokeJoinpointUsingReflection", "()" + OBJECT_DESCRIPTOR);
+		mv.visitInsn(ARETURN);
+		mv.visitLabel(directLabel);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, className, "target", OBJECT_DESCRIPTOR);
+		mv.visitTypeInsn(CHECKCAST, declaringClassName);
+		Class[] parameterTypes = methodToInvoke.getParameterTypes();
+		for (int i = 0; i < parameterTypes.length; i++) {
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitFieldInsn(GETFIELD, className, "arguments", Type.getDescriptor(Object[].class));
+			mv.visitLdcInsn(i);
+			mv.visitInsn(AALOAD);
+			unbox(mv, parameterTypes[i]);
+		}
+		mv.visitMethodInsn((declaringClass.isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL),
+				declaringClassName, methodToInvoke.getName(), Type.getMethodDescriptor(methodToInvoke));
+		Class returnType = methodToInvoke.getReturnType();
+		if (returnType == void.class) {
+			mv.visitInsn(ACONST_NULL);
+		}
+		else {
+			box(mv, returnType);
+		}
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		cw.visitEnd();
+
+		ClassLoader parent = declaringClass.getClassLoader();
+		if (parent == null) {
+			parent = MethodInvocationGenerator.class.getClassLoader();
+		}
+		InvocationClassLoader classLoader = new InvocationClassLoader(parent);
+		Class<?> invocationClass = classLoader.defineInvocationClass(className.replace('/', '.'), cw.toByteArray());
+		for (int i = 0; i < interceptors.length; i++) {
+			invocationClass.getField(INTERCEPTOR_FIELD_PREFIX + i).set(null, interceptors[i]);
+		}
+		return (GeneratedMethodInvocation) invocationClass.getConstructor(
+				Object.class, Object.class, Method.class, Object[].class, Class.class, List.class).newInstance(
+				null, null, method, null, null, chain);
+	}
+
+	private static void box(MethodVisitor mv, Class type) {
+		if (type.isPrimitive()) {
+			Class wrapperType = ClassUtils.resolvePrimitiveIfNecessary(type);
+			mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(wrapperType), "valueOf",
+					"(" + Type.getDescriptor(type) + ")" + Type.getDescriptor(wrapperType));
+		}
+	}
+
+	private static void unbox(MethodVisitor mv, Class type) {
+		if (type.isPrimitive()) {
+			Class wrapperType = ClassUtils.resolvePrimitiveIfNecessary(type);
+			String wrapperName = Type.getInternalName(wrapperType);
+			mv.visitTypeInsn(CHECKCAST, wrapperName);
+			mv.visitMethodInsn(INVOKEVIRTUAL, wrapperName, type.getName() + "Value", "()" + Type.getDescriptor(type));
+		}
+		else if (type != Object.class) {
+			mv.visitTypeInsn(CHECKCAST, Type.getInternalName(type));
+		}
+	}
+
+
+	/**
+	 * ClassLoader for a single generated invocation class: delegates to the ClassLoader
+	 * of the advised method's declaring class, except for the AOP types that the
+	 * generated class is compiled against.
+	 */
+	private static class InvocationClassLoader extends ClassLoader {
+
+		public InvocationClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		public Class<?> defineInvocationClass(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+
+		@Override
+		protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (GeneratedMethodInvocation.class.getName().equals(name)) {
+				return GeneratedMethodInvocation.class;
+			}
+			if (MethodInterceptor.class.getName().equals(name)) {
+				return MethodInterceptor.class;
+			}
+			if (MethodInvocation.class.getName().equals(name)) {
+				return MethodInvocation.class;
+			}
+			return super.loadClass(name, resolve);
+		}
+	}
+
+}
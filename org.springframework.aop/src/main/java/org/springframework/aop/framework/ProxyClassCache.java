@@ -0,0 +1,131 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache for the proxy classes generated by CGLIB-based AOP proxies, keyed by the
+ * structure of the proxy: target class, proxied interfaces and the callbacks that
+ * the advisor chain maps each method to. Proxies for structurally identical
+ * configurations, e.g. for prototype or request-scoped beans or for the same beans
+ * in repeatedly refreshed application contexts, share a single proxy class and
+ * just receive fresh callbacks.
+ *
+ * <p>The cache itself is static; instances of this class merely expose its
+ * statistics. Since this class follows the JMX Standard MBean conventions,
+ * defining it as a bean is sufficient for exposing the statistics through
+ * Spring's MBean exporter with autodetection (e.g. <code>&lt;context:mbean-export/&gt;</code>).
+ *
+ * <p>Proxy classes are held weakly, per ClassLoader, so that neither the proxy
+ * classes nor their ClassLoaders are kept from being garbage-collected.
+ *
+ * @author agent
+ * @since 3.1
+ */
+public class ProxyClassCache implements ProxyClassCacheMBean {
+
+	private static final Map<ClassLoader, Map<Object, Reference<Class>>> proxyClasses =
+			new WeakHashMap<ClassLoader, Map<Object, Reference<Class>>>();
+
+	private static final AtomicLong hitCount = new AtomicLong();
+
+	private static final AtomicLong missCount = new AtomicLong();
+
+
+	/**
+	 * Return the cached proxy class for the given key, if any.
+	 * @param classLoader the ClassLoader that the proxy class is defined in
+	 * @param key the structural key of the proxy class (must not hold on to any
+	 * Class or ClassLoader references, since it is held strongly by the cache)
+	 * @return the proxy class, or <code>null</code> if none cached
+	 */
+	static Class getProxyClass(ClassLoader classLoader, Object key) {
+		Class proxyClass = null;
+		synchronized (proxyClasses) {
+			Map<Object, Reference<Class>> classesForLoader = proxyClasses.get(classLoader);
+			if (classesForLoader != null) {
+				Reference<Class> ref = classesForLoader.get(key);
+				if (ref != null) {
+					proxyClass = ref.get();
+					if (proxyClass == null) {
+						classesForLoader.remove(key);
+					}
+				}
+			}
+		}
+		if (proxyClass != null) {
+			hitCount.incrementAndGet();
+		}
+		else {
+			missCount.incrementAndGet();
+		}
+		return proxyClass;
+	}
+
+	/**
+	 * Cache the given proxy class under the given key.
+	 * @param classLoader the ClassLoader that the proxy class is defined in
+	 * @param key the structural key of the proxy class
+	 * @param proxyClass the generated proxy class
+	 */
+	static void putProxyClass(ClassLoader classLoader, Object key, Class proxyClass) {
+		synchronized (proxyClasses) {
+			Map<Object, Reference<Class>> classesForLoader = proxyClasses.get(classLoader);
+			if (classesForLoader == null) {
+				classesForLoader = new HashMap<Object, Reference<Class>>();
+				proxyClasses.put(classLoader, classesForLoader);
+			}
+			classesForLoader.put(key, new WeakReference<Class>(proxyClass));
+		}
+	}
+
+
+	public int getCachedClassCount() {
+		int count = 0;
+		synchronized (proxyClasses) {
+			for (Map<Object, Reference<Class>> classesForLoader : proxyClasses.values()) {
+				for (Reference<Class> ref : classesForLoader.values()) {
+					if (ref.get() != null) {
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public void clear() {
+		synchronized (proxyClasses) {
+			proxyClasses.clear();
+		}
+	}
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+/**
+ * Management interface for the {@link ProxyClassCache}, following the
+ * JMX Standard MBean conventions.
+ *
+ * @author agent
+ * @since 3.1
+ */
+public interface ProxyClassCacheMBean {
+
+	/**
+	 * Return the number of proxy classes currently held in the cache.
+	 */
+	int getCachedClassCount();
+
+	/**
+	 * Return the number of proxy creations that reused a cached proxy class.
+	 */
+	long getHitCount();
+
+	/**
+	 * Return the number of proxy creations that had to generate a new proxy class.
+	 */
+	long getMissCount();
+
+	/**
+	 * Remove all proxy classes from the cache. Existing proxy instances are not affected.
+	 */
+	void clear();
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -44,6 +44,8 @@ public class ProxyConfig implements Serializable {
 
 	private boolean frozen = false;
 
+	private boolean useGeneratedInvocations = false;
+
 
 	/**
 	 * Set whether to proxy the target class directly, instead of just proxying
@@ -146,6 +148,30 @@ public class ProxyConfig implements Serializable {
 		return this.frozen;
 	}
 
+	/**
+	 * Set whether proxies for a frozen configuration should invoke advised methods
+	 * through a {@link GeneratedMethodInvocation} class generated for each method,
+	 * with the interceptor chain and the target method invocation inlined.
+	 * Default is "false".
+	 * <p>This avoids walking the generic interceptor chain and invoking the target
+	 * method via reflection on every call, at the expense of generating a class per
+	 * advised method. It is therefore intended for long-lived singleton proxies on
+	 * hot code paths. Only takes effect if the configuration is {@link #setFrozen frozen};
+	 * methods with dynamic pointcuts, as well as non-public methods, will still be
+	 * invoked through a regular {@link ReflectiveMethodInvocation}.
+	 */
+	public void setUseGeneratedInvocations(boolean useGeneratedInvocations) {
+		this.useGeneratedInvocations = useGeneratedInvocations;
+	}
+
+	/**
+	 * Return whether proxies for a frozen configuration should invoke advised
+	 * methods through generated invocation classes.
+	 */
+	public boolean isUseGeneratedInvocations() {
+		return this.useGeneratedInvocations;
+	}
+
 
 	/**
 	 * Copy configuration from the other config object.
@@ -158,6 +184,7 @@ public class ProxyConfig implements Serializable {
 		this.exposeProxy = other.exposeProxy;
 		this.frozen = other.frozen;
 		this.opaque = other.opaque;
+		this.useGeneratedInvocations = other.useGeneratedInvocations;
 	}
 
 	@Override
@@ -167,7 +194,8 @@ public class ProxyConfig implements Serializable {
 		sb.append("optimize=").append(this.optimize).append("; ");
 		sb.append("opaque=").append(this.opaque).append("; ");
 		sb.append("exposeProxy=").append(this.exposeProxy).append("; ");
-		sb.append("frozen=").append(this.frozen);
+		sb.append("frozen=").append(this.frozen).append("; ");
+		sb.append("useGeneratedInvocations=").append(this.useGeneratedInvocations);
 		return sb.toString();
 	}
 
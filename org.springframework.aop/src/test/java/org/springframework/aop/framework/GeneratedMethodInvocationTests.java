@@ -0,0 +1,157 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.Test;
+import test.aop.NopInterceptor;
+import test.beans.ITestBean;
+import test.beans.TestBean;
+
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.DynamicMethodMatcherPointcut;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link GeneratedMethodInvocation} usage by JDK and CGLIB proxies.
+ *
+ * @author agent
+ */
+public final class GeneratedMethodInvocationTests {
+
+	@Test
+	public void testJdkProxyWithGeneratedInvocations() throws Throwable {
+		InvocationRecorder recorder = new InvocationRecorder();
+		NopInterceptor nop = new NopInterceptor();
+		ITestBean proxy = (ITestBean) createProxy(new TestBean(), true, recorder, nop).getProxy();
+		assertProxyBehavior(proxy, recorder, nop);
+		assertTrue(recorder.lastInvocation instanceof GeneratedMethodInvocation);
+	}
+
+	@Test
+	public void testCglibProxyWithGeneratedInvocations() throws Throwable {
+		InvocationRecorder recorder = new InvocationRecorder();
+		NopInterceptor nop = new NopInterceptor();
+		ProxyFactory pf = createProxy(new TestBean(), true, recorder, nop);
+		pf.setProxyTargetClass(true);
+		TestBean proxy = (TestBean) pf.getProxy();
+		assertProxyBehavior(proxy, recorder, nop);
+		assertTrue(recorder.lastInvocation instanceof GeneratedMethodInvocation);
+	}
+
+	@Test
+	public void testWithoutFrozenConfiguration() throws Throwable {
+		InvocationRecorder recorder = new InvocationRecorder();
+		NopInterceptor nop = new NopInterceptor();
+		ProxyFactory pf = createProxy(new TestBean(), true, recorder, nop);
+		pf.setFrozen(false);
+		ITestBean proxy = (ITestBean) pf.getProxy();
+		assertProxyBehavior(proxy, recorder, nop);
+		assertFalse(recorder.lastInvocation instanceof GeneratedMethodInvocation);
+	}
+
+	@Test
+	public void testWithDynamicPointcut() throws Throwable {
+		InvocationRecorder recorder = new InvocationRecorder();
+		NopInterceptor nop = new NopInterceptor();
+		ProxyFactory pf = createProxy(new TestBean(), false, recorder);
+		pf.addAdvisor(new DefaultPointcutAdvisor(new DynamicMethodMatcherPointcut() {
+			public boolean matches(Method method, Class targetClass, Object[] args) {
+				return true;
+			}
+		}, nop));
+		pf.setFrozen(true);
+		ITestBean proxy = (ITestBean) pf.getProxy();
+		assertProxyBehavior(proxy, recorder, nop);
+		assertFalse(recorder.lastInvocation instanceof GeneratedMethodInvocation);
+	}
+
+	@Test
+	public void testModifiedArgumentsAndClone() throws Throwable {
+		ProxyFactory pf = createProxy(new TestBean(), true, new MethodInterceptor() {
+			public Object invoke(MethodInvocation invocation) throws Throwable {
+				if (invocation.getMethod().getName().equals("setName")) {
+					invocation.getArguments()[0] = "modified";
+				}
+				return invocation.proceed();
+			}
+		}, new MethodInterceptor() {
+			public Object invoke(MethodInvocation invocation) throws Throwable {
+				// Proceed twice, through independent clones.
+				((ReflectiveMethodInvocation) invocation).invocableClone().proceed();
+				return ((ReflectiveMethodInvocation) invocation).invocableClone().proceed();
+			}
+		});
+		ITestBean proxy = (ITestBean) pf.getProxy();
+		proxy.setName("name");
+		assertEquals("modified", proxy.getName());
+		assertEquals(1, proxy.haveBirthday());
+		assertEquals(2, proxy.getAge());
+	}
+
+	private ProxyFactory createProxy(Object target, boolean frozen, MethodInterceptor... interceptors) {
+		ProxyFactory pf = new ProxyFactory(target);
+		for (MethodInterceptor interceptor : interceptors) {
+			pf.addAdvice(interceptor);
+		}
+		pf.setUseGeneratedInvocations(true);
+		pf.setFrozen(frozen);
+		return pf;
+	}
+
+	private void assertProxyBehavior(ITestBean proxy, InvocationRecorder recorder, NopInterceptor nop)
+			throws Throwable {
+
+		proxy.setAge(42);
+		assertEquals(42, proxy.getAge());
+		proxy.setName("name");
+		assertEquals("name", proxy.getName());
+		proxy.setStringArray(new String[] {"a", "b"});
+		assertEquals(2, proxy.getStringArray().length);
+		assertSame(proxy, proxy.returnsThis());
+		assertEquals(7, nop.getCount());
+		assertEquals("returnsThis", recorder.lastInvocation.getMethod().getName());
+		IOException ex = new IOException();
+		try {
+			proxy.exceptional(ex);
+			fail("Should have thrown IOException");
+		}
+		catch (IOException actual) {
+			assertSame(ex, actual);
+		}
+		assertEquals("exceptional", recorder.lastInvocation.getMethod().getName());
+		assertSame(proxy, recorder.lastInvocation.getProxy());
+		assertEquals(8, nop.getCount());
+	}
+
+
+	private static class InvocationRecorder implements MethodInterceptor {
+
+		private volatile ReflectiveMethodInvocation lastInvocation;
+
+		public Object invoke(MethodInvocation invocation) throws Throwable {
+			this.lastInvocation = (ReflectiveMethodInvocation) invocation;
+			return invocation.proceed();
+		}
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import org.junit.Before;
+import org.junit.Test;
+import test.aop.NopInterceptor;
+import test.beans.TestBean;
+
+import org.springframework.aop.support.NameMatchMethodPointcutAdvisor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ProxyClassCache} usage by CGLIB proxies.
+ *
+ * @author agent
+ */
+public final class ProxyClassCacheTests {
+
+	private final ProxyClassCache proxyClassCache = new ProxyClassCache();
+
+
+	@Before
+	public void clearCache() {
+		this.proxyClassCache.clear();
+	}
+
+	@Test
+	public void testProxyClassReusedForIdenticalStructure() {
+		NopInterceptor nop1 = new NopInterceptor();
+		NopInterceptor nop2 = new NopInterceptor();
+		TestBean target1 = new TestBean("tb1");
+		TestBean target2 = new TestBean("tb2");
+		long hitCount = this.proxyClassCache.getHitCount();
+		TestBean proxy1 = (TestBean) createProxyFactory(target1, nop1, false).getProxy();
+		TestBean proxy2 = (TestBean) createProxyFactory(target2, nop2, false).getProxy();
+		assertSame(proxy1.getClass(), proxy2.getClass());
+		assertEquals(hitCount + 1, this.proxyClassCache.getHitCount());
+		assertEquals(1, this.proxyClassCache.getCachedClassCount());
+
+		assertEquals("tb1", proxy1.getName());
+		assertEquals("tb2", proxy2.getName());
+		proxy2.getAge();
+		assertEquals(1, nop1.getCount());
+		assertEquals(2, nop2.getCount());
+	}
+
+	@Test
+	public void testProxyClassReusedForFrozenConfiguration() {
+		NopInterceptor nop1 = new NopInterceptor();
+		NopInterceptor nop2 = new NopInterceptor();
+		TestBean proxy1 = (TestBean) createProxyFactory(new TestBean("tb1"), nop1, true).getProxy();
+		TestBean proxy2 = (TestBean) createProxyFactory(new TestBean("tb2"), nop2, true).getProxy();
+		assertSame(proxy1.getClass(), proxy2.getClass());
+		assertEquals("tb1", proxy1.getName());
+		assertEquals("tb2", proxy2.getName());
+		assertEquals(1, nop1.getCount());
+		assertEquals(1, nop2.getCount());
+	}
+
+	@Test
+	public void testProxyClassNotReusedForDifferentStructure() {
+		TestBean proxy1 = (TestBean) createProxyFactory(new TestBean(), new NopInterceptor(), true).getProxy();
+		ProxyFactory pf = new ProxyFactory(new TestBean());
+		pf.setProxyTargetClass(true);
+		pf.addAdvisor(new NameMatchMethodPointcutAdvisor(new NopInterceptor()));
+		pf.setFrozen(true);
+		TestBean proxy2 = (TestBean) pf.getProxy();
+		assertNotSame(proxy1.getClass(), proxy2.getClass());
+		assertEquals(2, this.proxyClassCache.getCachedClassCount());
+
+		this.proxyClassCache.clear();
+		assertEquals(0, this.proxyClassCache.getCachedClassCount());
+	}
+
+	@Test
+	public void testProxyClassWithConstructorArguments() {
+		Cglib2AopProxy aopProxy = new Cglib2AopProxy(createProxyFactory(new TestBean(), new NopInterceptor(), false));
+		aopProxy.setConstructorArguments(new Object[] {"name", 42}, new Class[] {String.class, int.class});
+		TestBean proxy1 = (TestBean) aopProxy.getProxy();
+		TestBean proxy2 = (TestBean) createProxyFactory(new TestBean(), new NopInterceptor(), false).getProxy();
+		assertSame(proxy1.getClass(), proxy2.getClass());
+	}
+
+	private ProxyFactory createProxyFactory(TestBean target, NopInterceptor interceptor, boolean frozen) {
+		ProxyFactory pf = new ProxyFactory(target);
+		pf.setProxyTargetClass(true);
+		pf.addAdvice(interceptor);
+		pf.setFrozen(frozen);
+		return pf;
+	}
+
+}
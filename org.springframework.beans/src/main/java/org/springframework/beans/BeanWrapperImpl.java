@@ -122,6 +122,8 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 
 	private int autoGrowCollectionLimit = Integer.MAX_VALUE;
 
+	private boolean useGeneratedAccessors = false;
+
 
 	/**
 	 * Create new empty BeanWrapperImpl. Wrapped instance needs to be set afterwards.
@@ -187,6 +189,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 		setExtractOldValueForEditor(superBw.isExtractOldValueForEditor());
 		setAutoGrowNestedPaths(superBw.isAutoGrowNestedPaths());
 		setAutoGrowCollectionLimit(superBw.getAutoGrowCollectionLimit());
+		setUseGeneratedAccessors(superBw.isUseGeneratedAccessors());
 		setConversionService(superBw.getConversionService());
 		setSecurityContext(superBw.acc);
 	}
@@ -286,6 +289,26 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 		return this.autoGrowCollectionLimit;
 	}
 
+	/**
+	 * Set whether this BeanWrapper should invoke property read and write methods
+	 * through a class generated at runtime instead of through reflection.
+	 * <p>The generated class is created once per bean class and shared across
+	 * BeanWrapper instances. Methods that it cannot access (e.g. non-public methods)
+	 * are still invoked reflectively, as are all methods when running under a
+	 * SecurityManager.
+	 * <p>Default is "false" on a plain BeanWrapper.
+	 */
+	public void setUseGeneratedAccessors(boolean useGeneratedAccessors) {
+		this.useGeneratedAccessors = useGeneratedAccessors;
+	}
+
+	/**
+	 * Return whether generated property accessors have been activated.
+	 */
+	public boolean isUseGeneratedAccessors() {
+		return this.useGeneratedAccessors;
+	}
+
 	/**
 	 * Set the security context used during the invocation of the wrapped instance methods.
 	 * Can be null.
@@ -326,6 +349,30 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 		return this.cachedIntrospectionResults;
 	}
 
+	/**
+	 * Invoke the given read method, through the generated accessors if activated.
+	 * @see #setUseGeneratedAccessors
+	 */
+	private Object invokeReadMethod(Method readMethod, Object target) throws Exception {
+		if (this.useGeneratedAccessors) {
+			return getCachedIntrospectionResults().getGeneratedPropertyMethods().invokeReadMethod(readMethod, target);
+		}
+		return readMethod.invoke(target);
+	}
+
+	/**
+	 * Invoke the given write method, through the generated accessors if activated.
+	 * @see #setUseGeneratedAccessors
+	 */
+	private void invokeWriteMethod(Method writeMethod, Object target, Object value) throws Exception {
+		if (this.useGeneratedAccessors) {
+			getCachedIntrospectionResults().getGeneratedPropertyMethods().invokeWriteMethod(writeMethod, target, value);
+		}
+		else {
+			writeMethod.invoke(target, value);
+		}
+	}
+
 
 	public PropertyDescriptor[] getPropertyDescriptors() {
 		return getCachedIntrospectionResults().getPropertyDescriptors();
@@ -754,7 +801,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 				}
 			}
 			else {
-                value = readMethod.invoke(object, (Object[]) null);
+				value = invokeReadMethod(readMethod, object);
 			}
 			
 			if (tokens.keys != null) {				
@@ -1096,7 +1143,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 									}, acc);
 								}
 								else {
-									oldValue = readMethod.invoke(object);
+									oldValue = invokeReadMethod(readMethod, object);
 								}
 							}
 							catch (Exception ex) {
@@ -1144,7 +1191,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 					}
 				}
 				else {
-					writeMethod.invoke(this.object, value);
+					invokeWriteMethod(writeMethod, this.object, value);
 				}
 			}
 			catch (TypeMismatchException ex) {
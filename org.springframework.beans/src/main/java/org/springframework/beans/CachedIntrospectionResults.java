@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.Collections;
 import java.util.HashSet;
@@ -28,7 +29,9 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -49,6 +52,14 @@ import org.springframework.util.StringUtils;
  * implements the factory design pattern, using a private constructor and
  * a static {@link #forClass(Class)} factory method to obtain instances.
  *
+ * <p>The cache is fully concurrent: lookups of already introspected classes
+ * do not acquire any locks. Classes that are cache-safe with respect to this
+ * class's ClassLoader, or that live in an accepted ClassLoader, are held
+ * strongly; all other classes are held through weak keys, allowing their
+ * ClassLoader to be garbage-collected. Cache misses are counted and can be
+ * monitored via {@link #getCacheMissCount()}; hits are deliberately not
+ * counted, keeping shared state out of the lookup path.
+ *
  * @author Rod Johnson
  * @author Juergen Hoeller
  * @since 05 May 2001
@@ -67,11 +78,20 @@ public class CachedIntrospectionResults {
 	static final Set<ClassLoader> acceptedClassLoaders = Collections.synchronizedSet(new HashSet<ClassLoader>());
 
 	/**
-	 * Map keyed by class containing CachedIntrospectionResults.
-	 * Needs to be a WeakHashMap with WeakReferences as values to allow
-	 * for proper garbage collection in case of multiple class loaders.
+	 * Map keyed by class containing CachedIntrospectionResults, for classes
+	 * that are cache-safe or that live in an accepted ClassLoader.
+	 */
+	static final ConcurrentMap<Class, CachedIntrospectionResults> strongClassCache =
+			new ConcurrentHashMap<Class, CachedIntrospectionResults>(64);
+
+	/**
+	 * Map keyed by class containing CachedIntrospectionResults, for all other classes.
+	 * Needs weak keys and - for classes with a custom BeanInfo - WeakReferences as
+	 * values to allow for proper garbage collection in case of multiple class loaders.
 	 */
-	static final Map<Class, Object> classCache = Collections.synchronizedMap(new WeakHashMap<Class, Object>());
+	static final WeakClassCache weakClassCache = new WeakClassCache();
+
+	private static final AtomicLong cacheMissCount = new AtomicLong();
 
 
 	/**
@@ -103,14 +123,13 @@ public class CachedIntrospectionResults {
 		if (classLoader == null) {
 			return;
 		}
-		synchronized (classCache) {
-			for (Iterator<Class> it = classCache.keySet().iterator(); it.hasNext();) {
-				Class beanClass = it.next();
-				if (isUnderneathClassLoader(beanClass.getClassLoader(), classLoader)) {
-					it.remove();
-				}
+		for (Iterator<Class> it = strongClassCache.keySet().iterator(); it.hasNext();) {
+			Class beanClass = it.next();
+			if (isUnderneathClassLoader(beanClass.getClassLoader(), classLoader)) {
+				it.remove();
 			}
 		}
+		weakClassCache.removeClassesUnderneath(classLoader);
 		synchronized (acceptedClassLoaders) {
 			for (Iterator<ClassLoader> it = acceptedClassLoaders.iterator(); it.hasNext();) {
 				ClassLoader registeredLoader = it.next();
@@ -121,6 +140,34 @@ public class CachedIntrospectionResults {
 		}
 	}
 
+	/**
+	 * Return the number of {@link #forClass} calls that required the
+	 * introspection of the given class so far.
+	 */
+	public static long getCacheMissCount() {
+		return cacheMissCount.get();
+	}
+
+	/**
+	 * Return the number of classes currently held in the cache
+	 * (including weakly referenced entries that have not been purged yet).
+	 */
+	public static int getCacheSize() {
+		return strongClassCache.size() + weakClassCache.size();
+	}
+
+	/**
+	 * Check whether introspection results for the given class are currently cached.
+	 * @param beanClass the bean class to check
+	 */
+	static boolean isCached(Class beanClass) {
+		if (strongClassCache.containsKey(beanClass)) {
+			return true;
+		}
+		Object value = weakClassCache.get(beanClass);
+		return (value instanceof Reference ? ((Reference) value).get() != null : value != null);
+	}
+
 	/**
 	 * Create CachedIntrospectionResults for the given bean class.
 	 * <P>We don't want to use synchronization here. Object references are atomic,
@@ -130,33 +177,44 @@ public class CachedIntrospectionResults {
 	 * @throws BeansException in case of introspection failure
 	 */
 	static CachedIntrospectionResults forClass(Class beanClass) throws BeansException {
-		CachedIntrospectionResults results;
-		Object value = classCache.get(beanClass);
-		if (value instanceof Reference) {
-			Reference ref = (Reference) value;
-			results = (CachedIntrospectionResults) ref.get();
-		}
-		else {
-			results = (CachedIntrospectionResults) value;
-		}
+		CachedIntrospectionResults results = strongClassCache.get(beanClass);
 		if (results == null) {
-			// On JDK 1.5 and higher, it is almost always safe to cache the bean class...
-			// The sole exception is a custom BeanInfo class being provided in a non-safe ClassLoader.
-			boolean fullyCacheable =
-					ClassUtils.isCacheSafe(beanClass, CachedIntrospectionResults.class.getClassLoader()) ||
-					isClassLoaderAccepted(beanClass.getClassLoader());
-			if (fullyCacheable || !ClassUtils.isPresent(beanClass.getName() + "BeanInfo", beanClass.getClassLoader())) {
-				results = new CachedIntrospectionResults(beanClass, fullyCacheable);
-				classCache.put(beanClass, results);
+			Object value = weakClassCache.get(beanClass);
+			if (value instanceof Reference) {
+				Reference ref = (Reference) value;
+				results = (CachedIntrospectionResults) ref.get();
 			}
 			else {
-				if (logger.isDebugEnabled()) {
-					logger.debug("Not strongly caching class [" + beanClass.getName() + "] because it is not cache-safe");
-				}
-				results = new CachedIntrospectionResults(beanClass, true);
-				classCache.put(beanClass, new WeakReference<CachedIntrospectionResults>(results));
+				results = (CachedIntrospectionResults) value;
+			}
+		}
+		if (results != null) {
+			return results;
+		}
+
+		cacheMissCount.incrementAndGet();
+		// On JDK 1.5 and higher, it is almost always safe to cache the bean class...
+		// The sole exception is a custom BeanInfo class being provided in a non-safe ClassLoader.
+		boolean cacheSafe = ClassUtils.isCacheSafe(beanClass, CachedIntrospectionResults.class.getClassLoader());
+		boolean fullyCacheable = cacheSafe || isClassLoaderAccepted(beanClass.getClassLoader());
+		if (fullyCacheable) {
+			results = new CachedIntrospectionResults(beanClass, true);
+			CachedIntrospectionResults existing = strongClassCache.putIfAbsent(beanClass, results);
+			if (existing != null) {
+				results = existing;
 			}
 		}
+		else if (!ClassUtils.isPresent(beanClass.getName() + "BeanInfo", beanClass.getClassLoader())) {
+			results = new CachedIntrospectionResults(beanClass, false);
+			weakClassCache.put(beanClass, results);
+		}
+		else {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Not strongly caching class [" + beanClass.getName() + "] because it is not cache-safe");
+			}
+			results = new CachedIntrospectionResults(beanClass, true);
+			weakClassCache.put(beanClass, new WeakReference<CachedIntrospectionResults>(results));
+		}
 		return results;
 	}
 
@@ -210,6 +268,9 @@ public class CachedIntrospectionResults {
 	/** PropertyDescriptor objects keyed by property name String */
 	private final Map<String, PropertyDescriptor> propertyDescriptorCache;
 
+	/** Generated property method invoker for the introspected bean class, built lazily */
+	private volatile GeneratedPropertyMethods generatedPropertyMethods;
+
 
 	/**
 	 * Create a new CachedIntrospectionResults instance for the given class.
@@ -295,6 +356,21 @@ public class CachedIntrospectionResults {
 		return pds;
 	}
 
+	/**
+	 * Return the generated property methods for the introspected bean class,
+	 * generating them on first access.
+	 * @see BeanWrapperImpl#setUseGeneratedAccessors
+	 */
+	GeneratedPropertyMethods getGeneratedPropertyMethods() {
+		GeneratedPropertyMethods methods = this.generatedPropertyMethods;
+		if (methods == null) {
+			// Concurrent generation on first access is harmless: last one wins.
+			methods = GeneratedPropertyMethods.forClass(getBeanClass(), getPropertyDescriptors());
+			this.generatedPropertyMethods = methods;
+		}
+		return methods;
+	}
+
 	private PropertyDescriptor buildGenericTypeAwarePropertyDescriptor(Class beanClass, PropertyDescriptor pd) {
 		try {
 			return new GenericTypeAwarePropertyDescriptor(beanClass, pd.getName(), pd.getReadMethod(),
@@ -305,4 +381,109 @@ public class CachedIntrospectionResults {
 		}
 	}
 
+
+	/**
+	 * Concurrent cache with weakly referenced Class keys, compared by identity.
+	 * Lookups do not acquire any locks; entries for garbage-collected classes
+	 * are purged on subsequent writes.
+	 */
+	static class WeakClassCache {
+
+		private final ConcurrentMap<Object, Object> map = new ConcurrentHashMap<Object, Object>(16);
+
+		private final ReferenceQueue<Class> queue = new ReferenceQueue<Class>();
+
+		public Object get(Class key) {
+			return this.map.get(new LookupKey(key));
+		}
+
+		public void put(Class key, Object value) {
+			purgeStaleEntries();
+			this.map.put(new WeakClassKey(key, this.queue), value);
+		}
+
+		public int size() {
+			return this.map.size();
+		}
+
+		public void removeClassesUnderneath(ClassLoader classLoader) {
+			purgeStaleEntries();
+			for (Iterator<Object> it = this.map.keySet().iterator(); it.hasNext();) {
+				Class beanClass = ((ClassKey) it.next()).getKeyClass();
+				if (beanClass != null && isUnderneathClassLoader(beanClass.getClassLoader(), classLoader)) {
+					it.remove();
+				}
+			}
+		}
+
+		private void purgeStaleEntries() {
+			Reference<? extends Class> ref;
+			while ((ref = this.queue.poll()) != null) {
+				this.map.remove(ref);
+			}
+		}
+	}
+
+
+	private interface ClassKey {
+
+		Class getKeyClass();
+	}
+
+
+	private static class WeakClassKey extends WeakReference<Class> implements ClassKey {
+
+		private final int hash;
+
+		public WeakClassKey(Class key, ReferenceQueue<Class> queue) {
+			super(key, queue);
+			this.hash = System.identityHashCode(key);
+		}
+
+		public Class getKeyClass() {
+			return get();
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof ClassKey)) {
+				return false;
+			}
+			Class keyClass = get();
+			return (keyClass != null && keyClass == ((ClassKey) other).getKeyClass());
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+
+
+	private static class LookupKey implements ClassKey {
+
+		private final Class keyClass;
+
+		public LookupKey(Class keyClass) {
+			this.keyClass = keyClass;
+		}
+
+		public Class getKeyClass() {
+			return this.keyClass;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return (this == other || (other instanceof ClassKey && this.keyClass == ((ClassKey) other).getKeyClass()));
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this.keyClass);
+		}
+	}
+
 }
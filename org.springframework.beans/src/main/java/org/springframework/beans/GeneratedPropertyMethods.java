@@ -0,0 +1,382 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Internal helper that invokes the property read and write methods of a bean
+ * class through a {@link PropertyMethodInvoker} generated with ASM, falling back
+ * to reflection for methods that the generated class cannot access.
+ *
+ * <p>Only public methods declared on public classes, with public parameter types,
+ * are eligible for generation; everything else is invoked reflectively, as is
+ * the entire class if bytecode generation fails. Exceptions are reported in the
+ * same form as by {@link Method#invoke}, so that callers can handle both
+ * invocation paths uniformly.
+ *
+ * @author agent
+ * @since 3.1
+ * @see CachedIntrospectionResults#getGeneratedPropertyMethods()
+ */
+final class GeneratedPropertyMethods implements Opcodes {
+
+	private static final Log logger = LogFactory.getLog(GeneratedPropertyMethods.class);
+
+	private static final String INVOKER_CLASS_SUFFIX = "$$PropertyMethodInvoker$$";
+
+	private static final String FALLBACK_PACKAGE = "org/springframework/beans/generated/";
+
+	private static final String OBJECT_DESCRIPTOR = Type.getDescriptor(Object.class);
+
+	private static final AtomicInteger invokerClassCount = new AtomicInteger();
+
+
+	private final PropertyMethodInvoker invoker;
+
+	private final Map<Method, Integer> readMethodIndexes;
+
+	private final Map<Method, Integer> writeMethodIndexes;
+
+	private final Class[] writeParameterTypes;
+
+
+	private GeneratedPropertyMethods(PropertyMethodInvoker invoker, Map<Method, Integer> readMethodIndexes,
+			Map<Method, Integer> writeMethodIndexes, Class[] writeParameterTypes) {
+
+		this.invoker = invoker;
+		this.readMethodIndexes = readMethodIndexes;
+		this.writeMethodIndexes = writeMethodIndexes;
+		this.writeParameterTypes = writeParameterTypes;
+	}
+
+
+	/**
+	 * Invoke the given read method on the given target.
+	 * @throws IllegalArgumentException if the target is not an instance
+	 * of the class declaring the read method
+	 * @throws InvocationTargetException if the read method threw an exception
+	 * @throws IllegalAccessException if the method had to be invoked
+	 * reflectively and is not accessible
+	 */
+	public Object invokeReadMethod(Method readMethod, Object target)
+			throws InvocationTargetException, IllegalAccessException {
+
+		Integer index = this.readMethodIndexes.get(readMethod);
+		if (index == null) {
+			return readMethod.invoke(target);
+		}
+		checkTarget(readMethod, target);
+		try {
+			return this.invoker.invokeReadMethod(target, index);
+		}
+		catch (Throwable ex) {
+			throw new InvocationTargetException(ex);
+		}
+	}
+
+	/**
+	 * Invoke the given write method on the given target.
+	 * @throws IllegalArgumentException if the target is not an instance
+	 * of the class declaring the write method, or if the value does not
+	 * match the parameter type of the write method
+	 * @throws InvocationTargetException if the write method threw an exception
+	 * @throws IllegalAccessException if the method had to be invoked
+	 * reflectively and is not accessible
+	 */
+	public void invokeWriteMethod(Method writeMethod, Object target, Object value)
+			throws InvocationTargetException, IllegalAccessException {
+
+		Integer index = this.writeMethodIndexes.get(writeMethod);
+		if (index == null) {
+			writeMethod.invoke(target, value);
+			return;
+		}
+		checkTarget(writeMethod, target);
+		Class parameterType = this.writeParameterTypes[index];
+		if (value != null ? !ClassUtils.isAssignableValue(parameterType, value) : parameterType.isPrimitive()) {
+			throw new IllegalArgumentException("argument type mismatch");
+		}
+		try {
+			this.invoker.invokeWriteMethod(target, index, value);
+		}
+		catch (Throwable ex) {
+			throw new InvocationTargetException(ex);
+		}
+	}
+
+	/**
+	 * Validate the target up front, as {@link Method#invoke} does, so that any
+	 * exception thrown by the generated invoker originates from the accessor
+	 * itself rather than from the cast of the target.
+	 */
+	private void checkTarget(Method method, Object target) {
+		if (target == null) {
+			throw new NullPointerException("Cannot invoke " + method + " on null target");
+		}
+		if (!method.getDeclaringClass().isInstance(target)) {
+			throw new IllegalArgumentException("object is not an instance of declaring class");
+		}
+	}
+
+	/**
+	 * Return whether the given read or write method is invoked through the
+	 * generated {@link PropertyMethodInvoker} rather than through reflection.
+	 */
+	public boolean isGenerated(Method method) {
+		return (this.readMethodIndexes.containsKey(method) || this.writeMethodIndexes.containsKey(method));
+	}
+
+
+	/**
+	 * Create a GeneratedPropertyMethods instance for the given bean class.
+	 * @param beanClass the bean class
+	 * @param pds the property descriptors of the bean class
+	 * @return the GeneratedPropertyMethods instance (never <code>null</code>,
+	 * but possibly using reflection for all property methods)
+	 */
+	static GeneratedPropertyMethods forClass(Class beanClass, PropertyDescriptor[] pds) {
+		List<Method> readMethods = new ArrayList<Method>();
+		List<Method> writeMethods = new ArrayList<Method>();
+		ClassLoader classLoader = beanClass.getClassLoader();
+		if (classLoader != null && System.getSecurityManager() == null) {
+			for (PropertyDescriptor pd : pds) {
+				Method readMethod = pd.getReadMethod();
+				if (readMethod != null && isInvocable(readMethod, classLoader) &&
+						!readMethods.contains(readMethod)) {
+					readMethods.add(readMethod);
+				}
+				Method writeMethod = (pd instanceof GenericTypeAwarePropertyDescriptor ?
+						((GenericTypeAwarePropertyDescriptor) pd).getWriteMethodForActualAccess() :
+						pd.getWriteMethod());
+				if (writeMethod != null && isInvocable(writeMethod, classLoader) &&
+						isAccessible(writeMethod.getParameterTypes()[0]) && !writeMethods.contains(writeMethod)) {
+					writeMethods.add(writeMethod);
+				}
+			}
+		}
+
+		PropertyMethodInvoker invoker = null;
+		if (!readMethods.isEmpty() || !writeMethods.isEmpty()) {
+			try {
+				invoker = generateInvoker(beanClass, readMethods, writeMethods);
+			}
+			catch (Throwable ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Could not generate property method invoker for class [" +
+							beanClass.getName() + "] - falling back to reflection", ex);
+				}
+				readMethods.clear();
+				writeMethods.clear();
+			}
+		}
+
+		Map<Method, Integer> readMethodIndexes = new HashMap<Method, Integer>(readMethods.size());
+		for (int i = 0; i < readMethods.size(); i++) {
+			readMethodIndexes.put(readMethods.get(i), i);
+		}
+		Map<Method, Integer> writeMethodIndexes = new HashMap<Method, Integer>(writeMethods.size());
+		Class[] writeParameterTypes = new Class[writeMethods.size()];
+		for (int i = 0; i < writeMethods.size(); i++) {
+			Method writeMethod = writeMethods.get(i);
+			writeMethodIndexes.put(writeMethod, i);
+			writeParameterTypes[i] = writeMethod.getParameterTypes()[0];
+		}
+		return new GeneratedPropertyMethods(invoker, readMethodIndexes, writeMethodIndexes, writeParameterTypes);
+	}
+
+	private static boolean isInvocable(Method method, ClassLoader classLoader) {
+		Class declaringClass = method.getDeclaringClass();
+		return (Modifier.isPublic(method.getModifiers()) && !Modifier.isStatic(method.getModifiers()) &&
+				isAccessible(declaringClass) && ClassUtils.isVisible(declaringClass, classLoader));
+	}
+
+	private static boolean isAccessible(Class clazz) {
+		while (clazz.isArray()) {
+			clazz = clazz.getComponentType();
+		}
+		return (clazz.isPrimitive() || Modifier.isPublic(clazz.getModifiers()));
+	}
+
+	private static PropertyMethodInvoker generateInvoker(
+			Class beanClass, List<Method> readMethods, List<Method> writeMethods) throws Exception {
+
+		String beanClassName = Type.getInternalName(beanClass);
+		String className = (beanClassName.startsWith("java/") ? FALLBACK_PACKAGE + beanClassName.replace('/', '_') :
+				beanClassName) + INVOKER_CLASS_SUFFIX + invokerClassCount.incrementAndGet();
+
+		ClassWriter cw = new ClassWriter(true);
+		cw.visit(V1_5, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, className, null, "java/lang/Object",
+				new String[] {Type.getInternalName(PropertyMethodInvoker.class)});
+
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		mv = cw.visitMethod(ACC_PUBLIC, "invokeReadMethod", "(" + OBJECT_DESCRIPTOR + "I)" + OBJECT_DESCRIPTOR,
+				null, null);
+		mv.visitCode();
+		Label[] labels = switchOnIndex(mv, readMethods.size());
+		for (int i = 0; i < readMethods.size(); i++) {
+			Method readMethod = readMethods.get(i);
+			mv.visitLabel(labels[i]);
+			mv.visitVarInsn(ALOAD, 1);
+			castToDeclaringClass(mv, readMethod);
+			invokeMethod(mv, readMethod);
+			box(mv, readMethod.getReturnType());
+			mv.visitInsn(ARETURN);
+		}
+		throwInvalidIndex(mv, labels[labels.length - 1]);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		mv = cw.visitMethod(ACC_PUBLIC, "invokeWriteMethod",
+				"(" + OBJECT_DESCRIPTOR + "I" + OBJECT_DESCRIPTOR + ")V", null, null);
+		mv.visitCode();
+		labels = switchOnIndex(mv, writeMethods.size());
+		for (int i = 0; i < writeMethods.size(); i++) {
+			Method writeMethod = writeMethods.get(i);
+			mv.visitLabel(labels[i]);
+			mv.visitVarInsn(ALOAD, 1);
+			castToDeclaringClass(mv, writeMethod);
+			mv.visitVarInsn(ALOAD, 3);
+			unbox(mv, writeMethod.getParameterTypes()[0]);
+			invokeMethod(mv, writeMethod);
+			Class returnType = writeMethod.getReturnType();
+			if (returnType != void.class) {
+				// e.g. a fluent setter returning 'this'
+				mv.visitInsn(returnType == long.class || returnType == double.class ? POP2 : POP);
+			}
+			mv.visitInsn(RETURN);
+		}
+		throwInvalidIndex(mv, labels[labels.length - 1]);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		cw.visitEnd();
+
+		InvokerClassLoader classLoader = new InvokerClassLoader(beanClass.getClassLoader());
+		Class<?> invokerClass = classLoader.defineInvokerClass(className.replace('/', '.'), cw.toByteArray());
+		return (PropertyMethodInvoker) invokerClass.newInstance();
+	}
+
+	/**
+	 * Emit a tableswitch on the index argument, returning the labels for all
+	 * indexes followed by the label for the default case.
+	 */
+	private static Label[] switchOnIndex(MethodVisitor mv, int count) {
+		Label[] labels = new Label[count + 1];
+		for (int i = 0; i < labels.length; i++) {
+			labels[i] = new Label();
+		}
+		Label defaultLabel = labels[count];
+		if (count > 0) {
+			Label[] caseLabels = new Label[count];
+			System.arraycopy(labels, 0, caseLabels, 0, count);
+			mv.visitVarInsn(ILOAD, 2);
+			mv.visitTableSwitchInsn(0, count - 1, defaultLabel, caseLabels);
+		}
+		return labels;
+	}
+
+	private static void throwInvalidIndex(MethodVisitor mv, Label defaultLabel) {
+		mv.visitLabel(defaultLabel);
+		mv.visitTypeInsn(NEW, "java/lang/IllegalArgumentException");
+		mv.visitInsn(DUP);
+		mv.visitLdcInsn("Invalid property method index");
+		mv.visitMethodInsn(INVOKESPECIAL, "java/lang/IllegalArgumentException", "<init>", "(Ljava/lang/String;)V");
+		mv.visitInsn(ATHROW);
+	}
+
+	private static void castToDeclaringClass(MethodVisitor mv, Method method) {
+		mv.visitTypeInsn(CHECKCAST, Type.getInternalName(method.getDeclaringClass()));
+	}
+
+	private static void invokeMethod(MethodVisitor mv, Method method) {
+		Class declaringClass = method.getDeclaringClass();
+		String owner = Type.getInternalName(declaringClass);
+		mv.visitMethodInsn((declaringClass.isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL),
+				owner, method.getName(), Type.getMethodDescriptor(method));
+	}
+
+	private static void box(MethodVisitor mv, Class type) {
+		if (type.isPrimitive()) {
+			Class wrapperType = ClassUtils.resolvePrimitiveIfNecessary(type);
+			mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(wrapperType), "valueOf",
+					"(" + Type.getDescriptor(type) + ")" + Type.getDescriptor(wrapperType));
+		}
+	}
+
+	private static void unbox(MethodVisitor mv, Class type) {
+		if (type.isPrimitive()) {
+			Class wrapperType = ClassUtils.resolvePrimitiveIfNecessary(type);
+			String wrapperName = Type.getInternalName(wrapperType);
+			mv.visitTypeInsn(CHECKCAST, wrapperName);
+			mv.visitMethodInsn(INVOKEVIRTUAL, wrapperName, type.getName() + "Value", "()" + Type.getDescriptor(type));
+		}
+		else if (type != Object.class) {
+			mv.visitTypeInsn(CHECKCAST, Type.getInternalName(type));
+		}
+	}
+
+
+	/**
+	 * ClassLoader for a single generated invoker class: delegates to the bean
+	 * ClassLoader, except for the {@link PropertyMethodInvoker} interface itself.
+	 */
+	private static class InvokerClassLoader extends ClassLoader {
+
+		public InvokerClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		public Class<?> defineInvokerClass(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+
+		@Override
+		protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (PropertyMethodInvoker.class.getName().equals(name)) {
+				return PropertyMethodInvoker.class;
+			}
+			return super.loadClass(name, resolve);
+		}
+	}
+
+}
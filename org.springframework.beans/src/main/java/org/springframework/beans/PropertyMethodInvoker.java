@@ -0,0 +1,49 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+/**
+ * Internal interface implemented by classes that are generated at runtime
+ * in order to invoke the property read and write methods of a specific bean
+ * class without reflection. Not intended for direct use by application code.
+ *
+ * <p>Properties are identified by the index that was assigned to their read
+ * or write method when the implementing class was generated.
+ *
+ * @author agent
+ * @since 3.1
+ * @see BeanWrapperImpl#setUseGeneratedAccessors
+ */
+public interface PropertyMethodInvoker {
+
+	/**
+	 * Invoke the read method with the given index on the given target.
+	 * @param target the bean instance to read from
+	 * @param index the index of the read method
+	 * @return the property value, with primitive values boxed
+	 */
+	Object invokeReadMethod(Object target, int index);
+
+	/**
+	 * Invoke the write method with the given index on the given target.
+	 * @param target the bean instance to write to
+	 * @param index the index of the write method
+	 * @param value the value to set, with primitive values boxed
+	 */
+	void invokeWriteMethod(Object target, int index, Object value);
+
+}
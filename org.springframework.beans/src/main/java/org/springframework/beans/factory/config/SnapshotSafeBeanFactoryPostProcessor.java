@@ -0,0 +1,39 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.beans.factory.config;
+
+/**
+ * Marker extension of the {@link BeanFactoryPostProcessor} interface,
+ * declaring that the post-processor's modifications depend on nothing but the
+ * bean definitions themselves (as opposed to e.g. system properties or the
+ * environment), so that they may be captured in a bean definition snapshot.
+ *
+ * <p>When a context builds its bean definitions from a snapshot, such
+ * post-processors will have been applied before the snapshot was taken:
+ * Their bean definitions are not part of the snapshot, and they will not
+ * be invoked again. Such post-processors get invoked ahead of all other bean
+ * factory post-processors, once the bean factory has been prepared; they do
+ * receive the usual ApplicationContext callbacks.
+ *
+ * @author agent
+ * @since 3.1
+ * @see org.springframework.beans.factory.support.BeanDefinitionSnapshot
+ */
+public interface SnapshotSafeBeanFactoryPostProcessor extends BeanFactoryPostProcessor {
+
+}
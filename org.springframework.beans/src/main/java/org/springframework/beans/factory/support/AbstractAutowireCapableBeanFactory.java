@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -76,6 +76,8 @@ import org.springframework.core.LocalVariableTableParameterNameDiscoverer;
 import org.springframework.core.MethodParameter;
 import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.core.PriorityOrdered;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.ReflectionUtils;
@@ -394,7 +396,13 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 
 		Object result = existingBean;
 		for (BeanPostProcessor beanProcessor : getBeanPostProcessors()) {
-			result = beanProcessor.postProcessBeforeInitialization(result, beanName);
+			StartupStep step = startPostProcessorStep("spring.beans.post-process.before-initialization", beanProcessor);
+			try {
+				result = beanProcessor.postProcessBeforeInitialization(result, beanName);
+			}
+			finally {
+				step.end();
+			}
 			if (result == null) {
 				return result;
 			}
@@ -407,7 +415,13 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 
 		Object result = existingBean;
 		for (BeanPostProcessor beanProcessor : getBeanPostProcessors()) {
-			result = beanProcessor.postProcessAfterInitialization(result, beanName);
+			StartupStep step = startPostProcessorStep("spring.beans.post-process.after-initialization", beanProcessor);
+			try {
+				result = beanProcessor.postProcessAfterInitialization(result, beanName);
+			}
+			finally {
+				step.end();
+			}
 			if (result == null) {
 				return result;
 			}
@@ -415,6 +429,18 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		return result;
 	}
 
+	/**
+	 * Start a step for the invocation of the given post-processor, tagged with
+	 * its class name unless the default no-op ApplicationStartup is in use.
+	 */
+	private StartupStep startPostProcessorStep(String name, BeanPostProcessor beanProcessor) {
+		StartupStep step = getApplicationStartup().start(name);
+		if (getApplicationStartup() != ApplicationStartup.DEFAULT) {
+			step.tag("postProcessor", beanProcessor.getClass().getName());
+		}
+		return step;
+	}
+
 
 	//---------------------------------------------------------------------
 	// Implementation of relevant AbstractBeanFactory template methods
@@ -429,38 +455,44 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	protected Object createBean(final String beanName, final RootBeanDefinition mbd, final Object[] args)
 			throws BeanCreationException {
 
-		if (logger.isDebugEnabled()) {
-			logger.debug("Creating instance of bean '" + beanName + "'");
-		}
-		// Make sure bean class is actually resolved at this point.
-		resolveBeanClass(mbd, beanName);
-
-		// Prepare method overrides.
+		StartupStep step = getApplicationStartup().start("spring.beans.instantiate").tag("beanName", beanName);
 		try {
-			mbd.prepareMethodOverrides();
-		}
-		catch (BeanDefinitionValidationException ex) {
-			throw new BeanDefinitionStoreException(mbd.getResourceDescription(),
-					beanName, "Validation of method overrides failed", ex);
-		}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Creating instance of bean '" + beanName + "'");
+			}
+			// Make sure bean class is actually resolved at this point.
+			resolveBeanClass(mbd, beanName);
 
-		try {
-			// Give BeanPostProcessors a chance to return a proxy instead of the target bean instance.
-			Object bean = resolveBeforeInstantiation(beanName, mbd);
-			if (bean != null) {
-				return bean;
+			// Prepare method overrides.
+			try {
+				mbd.prepareMethodOverrides();
+			}
+			catch (BeanDefinitionValidationException ex) {
+				throw new BeanDefinitionStoreException(mbd.getResourceDescription(),
+						beanName, "Validation of method overrides failed", ex);
 			}
-		}
-		catch (Throwable ex) {
-			throw new BeanCreationException(mbd.getResourceDescription(), beanName,
-					"BeanPostProcessor before instantiation of bean failed", ex);
-		}
 
-		Object beanInstance = doCreateBean(beanName, mbd, args);
-		if (logger.isDebugEnabled()) {
-			logger.debug("Finished creating instance of bean '" + beanName + "'");
+			try {
+				// Give BeanPostProcessors a chance to return a proxy instead of the target bean instance.
+				Object bean = resolveBeforeInstantiation(beanName, mbd);
+				if (bean != null) {
+					return bean;
+				}
+			}
+			catch (Throwable ex) {
+				throw new BeanCreationException(mbd.getResourceDescription(), beanName,
+						"BeanPostProcessor before instantiation of bean failed", ex);
+			}
+
+			Object beanInstance = doCreateBean(beanName, mbd, args);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Finished creating instance of bean '" + beanName + "'");
+			}
+			return beanInstance;
+		}
+		finally {
+			step.end();
 		}
-		return beanInstance;
 	}
 
 	/**
@@ -742,6 +774,13 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	 * that we couldn't obtain a shortcut FactoryBean instance
 	 */
 	private FactoryBean getSingletonFactoryBeanForTypeCheck(String beanName, RootBeanDefinition mbd) {
+		if (isConcurrentSingletonCreation()) {
+			// No partial creation under the singleton mutex: instantiation might wait for another
+			// thread that in turn waits for the mutex. Let the caller fully create the FactoryBean
+			// instead, which only holds the creation lock for that particular bean.
+			BeanWrapper bw = this.factoryBeanInstanceCache.get(beanName);
+			return (bw != null ? (FactoryBean) bw.getWrappedInstance() : null);
+		}
 		synchronized (getSingletonMutex()) {
 			BeanWrapper bw = this.factoryBeanInstanceCache.get(beanName);
 			if (bw != null) {
@@ -1421,36 +1460,42 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	 * @see #applyBeanPostProcessorsAfterInitialization
 	 */
 	protected Object initializeBean(final String beanName, final Object bean, RootBeanDefinition mbd) {
-		if (System.getSecurityManager() != null) {
-			AccessController.doPrivileged(new PrivilegedAction<Object>() {
-				public Object run() {
-					invokeAwareMethods(beanName, bean);
-					return null;
-				}
-			}, getAccessControlContext());
-		}
-		else {
-			invokeAwareMethods(beanName, bean);
-		}
+		StartupStep step = getApplicationStartup().start("spring.beans.initialize").tag("beanName", beanName);
+		try {
+			if (System.getSecurityManager() != null) {
+				AccessController.doPrivileged(new PrivilegedAction<Object>() {
+					public Object run() {
+						invokeAwareMethods(beanName, bean);
+						return null;
+					}
+				}, getAccessControlContext());
+			}
+			else {
+				invokeAwareMethods(beanName, bean);
+			}
 		
-		Object wrappedBean = bean;
-		if (mbd == null || !mbd.isSynthetic()) {
-			wrappedBean = applyBeanPostProcessorsBeforeInitialization(wrappedBean, beanName);
-		}
+			Object wrappedBean = bean;
+			if (mbd == null || !mbd.isSynthetic()) {
+				wrappedBean = applyBeanPostProcessorsBeforeInitialization(wrappedBean, beanName);
+			}
 
-		try {
-			invokeInitMethods(beanName, wrappedBean, mbd);
-		}
-		catch (Throwable ex) {
-			throw new BeanCreationException(
-					(mbd != null ? mbd.getResourceDescription() : null),
-					beanName, "Invocation of init method failed", ex);
-		}
+			try {
+				invokeInitMethods(beanName, wrappedBean, mbd);
+			}
+			catch (Throwable ex) {
+				throw new BeanCreationException(
+						(mbd != null ? mbd.getResourceDescription() : null),
+						beanName, "Invocation of init method failed", ex);
+			}
 
-		if (mbd == null || !mbd.isSynthetic()) {
-			wrappedBean = applyBeanPostProcessorsAfterInitialization(wrappedBean, beanName);
+			if (mbd == null || !mbd.isSynthetic()) {
+				wrappedBean = applyBeanPostProcessorsAfterInitialization(wrappedBean, beanName);
+			}
+			return wrappedBean;
+		}
+		finally {
+			step.end();
 		}
-		return wrappedBean;
 	}
 
 	private void invokeAwareMethods(final String beanName, final Object bean) {
@@ -0,0 +1,705 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.beans.factory.support;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.BeanMetadataAttributeAccessor;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanNameReference;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Compact binary snapshot of the bean definitions held by a
+ * {@link BeanDefinitionRegistry}, allowing a registry to be repopulated
+ * without parsing the original configuration sources again.
+ *
+ * <p>A snapshot additionally carries a map of input digests: arbitrary keys
+ * (typically resource URLs) mapped to content digests, which the creator of
+ * the snapshot can use to check whether the snapshot is still up to date.
+ *
+ * <p>The snapshot format covers the standard bean definition model as produced
+ * by bean definition readers: {@link GenericBeanDefinition},
+ * {@link RootBeanDefinition} and {@link ChildBeanDefinition}, with property values
+ * and constructor arguments consisting of {@link TypedStringValue}, bean references,
+ * inner bean definitions, managed collections, Strings, Numbers, Booleans and Classes.
+ * Annotation-based bean definitions are captured as plain {@link GenericBeanDefinition},
+ * with their annotation metadata to be re-derived from the bean class.
+ * Definition sources are not retained; resources are retained as descriptions only.
+ * Any other value will cause {@link #writeTo} to fail with a
+ * {@link NotSerializableException}.
+ *
+ * @author agent
+ * @since 3.1
+ * @see #registerBeanDefinitions
+ */
+public class BeanDefinitionSnapshot {
+
+	private static final int MAGIC = 0x53424453;
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final byte GENERIC_DEFINITION = 0;
+
+	private static final byte ROOT_DEFINITION = 1;
+
+	private static final byte CHILD_DEFINITION = 2;
+
+	private static final byte NULL = 0;
+
+	private static final byte STRING = 1;
+
+	private static final byte TYPED_STRING = 2;
+
+	private static final byte BEAN_REFERENCE = 3;
+
+	private static final byte BEAN_NAME_REFERENCE = 4;
+
+	private static final byte BEAN_DEFINITION_HOLDER = 5;
+
+	private static final byte BEAN_DEFINITION = 6;
+
+	private static final byte LIST = 7;
+
+	private static final byte SET = 8;
+
+	private static final byte MAP = 9;
+
+	private static final byte PROPERTIES = 10;
+
+	private static final byte ARRAY = 11;
+
+	private static final byte BOOLEAN = 12;
+
+	private static final byte INTEGER = 13;
+
+	private static final byte LONG = 14;
+
+	private static final byte CLASS = 15;
+
+	private static final byte LOOKUP_OVERRIDE = 0;
+
+	private static final byte REPLACE_OVERRIDE = 1;
+
+
+	private final Map<String, String> inputDigests = new LinkedHashMap<String, String>();
+
+	private final Map<String, BeanDefinition> beanDefinitions = new LinkedHashMap<String, BeanDefinition>();
+
+	private final Map<String, String[]> aliases = new LinkedHashMap<String, String[]>();
+
+
+	/**
+	 * Register a digest for an input that this snapshot has been derived from.
+	 * @param key the key of the input (e.g. a resource URL)
+	 * @param digest the digest of the input's content
+	 */
+	public void addInputDigest(String key, String digest) {
+		this.inputDigests.put(key, digest);
+	}
+
+	/**
+	 * Return the input digests registered for this snapshot,
+	 * as a Map with input keys as keys and digests as values.
+	 */
+	public Map<String, String> getInputDigests() {
+		return this.inputDigests;
+	}
+
+	/**
+	 * Add all bean definitions and their aliases from the given registry
+	 * to this snapshot. The bean definitions are held by reference until
+	 * {@link #writeTo} is called.
+	 * @param registry the registry to capture
+	 */
+	public void addBeanDefinitions(BeanDefinitionRegistry registry) {
+		for (String beanName : registry.getBeanDefinitionNames()) {
+			this.beanDefinitions.put(beanName, registry.getBeanDefinition(beanName));
+			String[] beanAliases = registry.getAliases(beanName);
+			if (beanAliases.length > 0) {
+				this.aliases.put(beanName, beanAliases);
+			}
+		}
+	}
+
+	/**
+	 * Return the number of bean definitions contained in this snapshot.
+	 */
+	public int getBeanDefinitionCount() {
+		return this.beanDefinitions.size();
+	}
+
+	/**
+	 * Register all bean definitions and aliases contained in this snapshot
+	 * with the given registry.
+	 * @param registry the registry to populate
+	 */
+	public void registerBeanDefinitions(BeanDefinitionRegistry registry) {
+		for (Map.Entry<String, BeanDefinition> entry : this.beanDefinitions.entrySet()) {
+			registry.registerBeanDefinition(entry.getKey(), entry.getValue());
+		}
+		for (Map.Entry<String, String[]> entry : this.aliases.entrySet()) {
+			for (String alias : entry.getValue()) {
+				registry.registerAlias(entry.getKey(), alias);
+			}
+		}
+	}
+
+
+	/**
+	 * Write this snapshot to the given OutputStream.
+	 * The stream will not be closed.
+	 * @param out the stream to write to
+	 * @throws NotSerializableException if a bean definition contains a value
+	 * that is not supported by the snapshot format
+	 * @throws IOException in case of I/O errors
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		DataOutputStream dos = new DataOutputStream(out);
+		dos.writeInt(MAGIC);
+		dos.writeInt(FORMAT_VERSION);
+		dos.writeInt(this.inputDigests.size());
+		for (Map.Entry<String, String> entry : this.inputDigests.entrySet()) {
+			writeString(dos, entry.getKey());
+			writeString(dos, entry.getValue());
+		}
+		dos.writeInt(this.beanDefinitions.size());
+		for (Map.Entry<String, BeanDefinition> entry : this.beanDefinitions.entrySet()) {
+			writeString(dos, entry.getKey());
+			writeBeanDefinition(dos, entry.getValue());
+		}
+		dos.writeInt(this.aliases.size());
+		for (Map.Entry<String, String[]> entry : this.aliases.entrySet()) {
+			writeString(dos, entry.getKey());
+			writeStringArray(dos, entry.getValue());
+		}
+		dos.flush();
+	}
+
+	/**
+	 * Read a snapshot from the given InputStream.
+	 * The stream will not be closed.
+	 * @param in the stream to read from
+	 * @param classLoader the ClassLoader to resolve Class values against
+	 * @return the snapshot
+	 * @throws IOException in case of I/O errors or an incompatible snapshot format
+	 */
+	public static BeanDefinitionSnapshot readFrom(InputStream in, ClassLoader classLoader) throws IOException {
+		DataInputStream dis = new DataInputStream(in);
+		if (dis.readInt() != MAGIC || dis.readInt() != FORMAT_VERSION) {
+			throw new IOException("Not a bean definition snapshot in a supported format");
+		}
+		BeanDefinitionSnapshot snapshot = new BeanDefinitionSnapshot();
+		int inputCount = dis.readInt();
+		for (int i = 0; i < inputCount; i++) {
+			snapshot.inputDigests.put(readString(dis), readString(dis));
+		}
+		int beanDefinitionCount = dis.readInt();
+		for (int i = 0; i < beanDefinitionCount; i++) {
+			snapshot.beanDefinitions.put(readString(dis), readBeanDefinition(dis, classLoader));
+		}
+		int aliasCount = dis.readInt();
+		for (int i = 0; i < aliasCount; i++) {
+			snapshot.aliases.put(readString(dis), readStringArray(dis));
+		}
+		return snapshot;
+	}
+
+
+	private static void writeBeanDefinition(DataOutputStream dos, BeanDefinition definition) throws IOException {
+		if (definition.getClass() == RootBeanDefinition.class) {
+			dos.writeByte(ROOT_DEFINITION);
+		}
+		else if (definition.getClass() == ChildBeanDefinition.class) {
+			dos.writeByte(CHILD_DEFINITION);
+			writeString(dos, definition.getParentName());
+		}
+		else if (definition.getClass() == GenericBeanDefinition.class ||
+				(definition instanceof GenericBeanDefinition && definition instanceof AnnotatedBeanDefinition)) {
+			dos.writeByte(GENERIC_DEFINITION);
+			writeString(dos, definition.getParentName());
+		}
+		else {
+			throw new NotSerializableException("Unsupported bean definition type: " + definition.getClass().getName());
+		}
+		AbstractBeanDefinition bd = (AbstractBeanDefinition) definition;
+		writeString(dos, bd.getBeanClassName());
+		writeString(dos, bd.getScope());
+		dos.writeBoolean(bd.isAbstract());
+		dos.writeBoolean(bd.isLazyInit());
+		dos.writeInt(bd.getAutowireMode());
+		dos.writeInt(bd.getDependencyCheck());
+		writeStringArray(dos, bd.getDependsOn());
+		dos.writeBoolean(bd.isAutowireCandidate());
+		dos.writeBoolean(bd.isPrimary());
+		Set<AutowireCandidateQualifier> qualifiers = bd.getQualifiers();
+		dos.writeInt(qualifiers.size());
+		for (AutowireCandidateQualifier qualifier : qualifiers) {
+			writeString(dos, qualifier.getTypeName());
+			writeAttributes(dos, qualifier);
+		}
+		dos.writeBoolean(bd.isNonPublicAccessAllowed());
+		dos.writeBoolean(bd.isLenientConstructorResolution());
+
+		ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+		Map<Integer, ConstructorArgumentValues.ValueHolder> indexedArgs = cargs.getIndexedArgumentValues();
+		dos.writeInt(indexedArgs.size());
+		for (Map.Entry<Integer, ConstructorArgumentValues.ValueHolder> entry : indexedArgs.entrySet()) {
+			dos.writeInt(entry.getKey());
+			writeValueHolder(dos, entry.getValue());
+		}
+		List<ConstructorArgumentValues.ValueHolder> genericArgs = cargs.getGenericArgumentValues();
+		dos.writeInt(genericArgs.size());
+		for (ConstructorArgumentValues.ValueHolder valueHolder : genericArgs) {
+			writeValueHolder(dos, valueHolder);
+		}
+		PropertyValue[] pvs = bd.getPropertyValues().getPropertyValues();
+		dos.writeInt(pvs.length);
+		for (PropertyValue pv : pvs) {
+			writeString(dos, pv.getName());
+			writeValue(dos, pv.getValue());
+			dos.writeBoolean(pv.isOptional());
+			writeAttributes(dos, pv);
+		}
+		Set<MethodOverride> overrides = bd.getMethodOverrides().getOverrides();
+		dos.writeInt(overrides.size());
+		for (MethodOverride override : overrides) {
+			if (override instanceof LookupOverride) {
+				dos.writeByte(LOOKUP_OVERRIDE);
+				writeString(dos, override.getMethodName());
+				writeString(dos, ((LookupOverride) override).getBeanName());
+			}
+			else if (override instanceof ReplaceOverride) {
+				dos.writeByte(REPLACE_OVERRIDE);
+				writeString(dos, override.getMethodName());
+				writeString(dos, ((ReplaceOverride) override).getMethodReplacerBeanName());
+				List<String> typeIdentifiers = ((ReplaceOverride) override).getTypeIdentifiers();
+				writeStringArray(dos, typeIdentifiers.toArray(new String[typeIdentifiers.size()]));
+			}
+			else {
+				throw new NotSerializableException("Unsupported method override type: " + override.getClass().getName());
+			}
+		}
+
+		writeString(dos, bd.getFactoryBeanName());
+		writeString(dos, bd.getFactoryMethodName());
+		writeString(dos, bd.getInitMethodName());
+		dos.writeBoolean(bd.isEnforceInitMethod());
+		writeString(dos, bd.getDestroyMethodName());
+		dos.writeBoolean(bd.isEnforceDestroyMethod());
+		dos.writeBoolean(bd.isSynthetic());
+		dos.writeInt(bd.getRole());
+		writeString(dos, bd.getDescription());
+		writeString(dos, bd.getResourceDescription());
+		writeAttributes(dos, bd);
+		if (bd instanceof RootBeanDefinition) {
+			RootBeanDefinition rbd = (RootBeanDefinition) bd;
+			writeValue(dos, rbd.getDecoratedDefinition());
+			dos.writeBoolean(rbd.isFactoryMethodUnique);
+		}
+	}
+
+	private static BeanDefinition readBeanDefinition(DataInputStream dis, ClassLoader classLoader) throws IOException {
+		AbstractBeanDefinition bd;
+		byte kind = dis.readByte();
+		if (kind == ROOT_DEFINITION) {
+			bd = new RootBeanDefinition();
+		}
+		else if (kind == CHILD_DEFINITION) {
+			bd = new ChildBeanDefinition(readString(dis));
+		}
+		else {
+			GenericBeanDefinition gbd = new GenericBeanDefinition();
+			gbd.setParentName(readString(dis));
+			bd = gbd;
+		}
+		bd.setBeanClassName(readString(dis));
+		bd.setScope(readString(dis));
+		bd.setAbstract(dis.readBoolean());
+		bd.setLazyInit(dis.readBoolean());
+		bd.setAutowireMode(dis.readInt());
+		bd.setDependencyCheck(dis.readInt());
+		bd.setDependsOn(readStringArray(dis));
+		bd.setAutowireCandidate(dis.readBoolean());
+		bd.setPrimary(dis.readBoolean());
+		int qualifierCount = dis.readInt();
+		for (int i = 0; i < qualifierCount; i++) {
+			AutowireCandidateQualifier qualifier = new AutowireCandidateQualifier(readString(dis));
+			readAttributes(dis, qualifier, classLoader);
+			bd.addQualifier(qualifier);
+		}
+		bd.setNonPublicAccessAllowed(dis.readBoolean());
+		bd.setLenientConstructorResolution(dis.readBoolean());
+
+		ConstructorArgumentValues cargs = new ConstructorArgumentValues();
+		int indexedArgCount = dis.readInt();
+		for (int i = 0; i < indexedArgCount; i++) {
+			int index = dis.readInt();
+			cargs.addIndexedArgumentValue(index, readValueHolder(dis, classLoader));
+		}
+		int genericArgCount = dis.readInt();
+		for (int i = 0; i < genericArgCount; i++) {
+			cargs.addGenericArgumentValue(readValueHolder(dis, classLoader));
+		}
+		bd.setConstructorArgumentValues(cargs);
+		MutablePropertyValues pvs = new MutablePropertyValues();
+		int pvCount = dis.readInt();
+		for (int i = 0; i < pvCount; i++) {
+			PropertyValue pv = new PropertyValue(readString(dis), readValue(dis, classLoader));
+			pv.setOptional(dis.readBoolean());
+			readAttributes(dis, pv, classLoader);
+			pvs.addPropertyValue(pv);
+		}
+		bd.setPropertyValues(pvs);
+		MethodOverrides overrides = new MethodOverrides();
+		int overrideCount = dis.readInt();
+		for (int i = 0; i < overrideCount; i++) {
+			byte overrideKind = dis.readByte();
+			if (overrideKind == LOOKUP_OVERRIDE) {
+				overrides.addOverride(new LookupOverride(readString(dis), readString(dis)));
+			}
+			else {
+				ReplaceOverride override = new ReplaceOverride(readString(dis), readString(dis));
+				for (String typeIdentifier : readStringArray(dis)) {
+					override.addTypeIdentifier(typeIdentifier);
+				}
+				overrides.addOverride(override);
+			}
+		}
+		bd.setMethodOverrides(overrides);
+
+		bd.setFactoryBeanName(readString(dis));
+		bd.setFactoryMethodName(readString(dis));
+		bd.setInitMethodName(readString(dis));
+		bd.setEnforceInitMethod(dis.readBoolean());
+		bd.setDestroyMethodName(readString(dis));
+		bd.setEnforceDestroyMethod(dis.readBoolean());
+		bd.setSynthetic(dis.readBoolean());
+		bd.setRole(dis.readInt());
+		bd.setDescription(readString(dis));
+		String resourceDescription = readString(dis);
+		if (resourceDescription != null) {
+			bd.setResourceDescription(resourceDescription);
+		}
+		readAttributes(dis, bd, classLoader);
+		if (bd instanceof RootBeanDefinition) {
+			RootBeanDefinition rbd = (RootBeanDefinition) bd;
+			rbd.setDecoratedDefinition((BeanDefinitionHolder) readValue(dis, classLoader));
+			rbd.isFactoryMethodUnique = dis.readBoolean();
+		}
+		return bd;
+	}
+
+	private static void writeValueHolder(DataOutputStream dos, ConstructorArgumentValues.ValueHolder valueHolder)
+			throws IOException {
+
+		writeValue(dos, valueHolder.getValue());
+		writeString(dos, valueHolder.getType());
+		writeString(dos, valueHolder.getName());
+	}
+
+	private static ConstructorArgumentValues.ValueHolder readValueHolder(DataInputStream dis, ClassLoader classLoader)
+			throws IOException {
+
+		return new ConstructorArgumentValues.ValueHolder(readValue(dis, classLoader), readString(dis), readString(dis));
+	}
+
+	private static void writeAttributes(DataOutputStream dos, BeanMetadataAttributeAccessor accessor) throws IOException {
+		String[] attributeNames = accessor.attributeNames();
+		dos.writeInt(attributeNames.length);
+		for (String attributeName : attributeNames) {
+			writeString(dos, attributeName);
+			writeValue(dos, accessor.getAttribute(attributeName));
+		}
+	}
+
+	private static void readAttributes(DataInputStream dis, BeanMetadataAttributeAccessor accessor,
+			ClassLoader classLoader) throws IOException {
+
+		int attributeCount = dis.readInt();
+		for (int i = 0; i < attributeCount; i++) {
+			accessor.setAttribute(readString(dis), readValue(dis, classLoader));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void writeValue(DataOutputStream dos, Object value) throws IOException {
+		if (value == null) {
+			dos.writeByte(NULL);
+		}
+		else if (value instanceof String) {
+			dos.writeByte(STRING);
+			writeString(dos, (String) value);
+		}
+		else if (value instanceof TypedStringValue) {
+			TypedStringValue typedValue = (TypedStringValue) value;
+			dos.writeByte(TYPED_STRING);
+			writeString(dos, typedValue.getValue());
+			writeString(dos, typedValue.getTargetTypeName());
+			writeString(dos, typedValue.getSpecifiedTypeName());
+			dos.writeBoolean(typedValue.isDynamic());
+		}
+		else if (value instanceof RuntimeBeanReference) {
+			RuntimeBeanReference ref = (RuntimeBeanReference) value;
+			dos.writeByte(BEAN_REFERENCE);
+			writeString(dos, ref.getBeanName());
+			dos.writeBoolean(ref.isToParent());
+		}
+		else if (value instanceof RuntimeBeanNameReference) {
+			dos.writeByte(BEAN_NAME_REFERENCE);
+			writeString(dos, ((RuntimeBeanNameReference) value).getBeanName());
+		}
+		else if (value instanceof BeanDefinitionHolder) {
+			BeanDefinitionHolder holder = (BeanDefinitionHolder) value;
+			dos.writeByte(BEAN_DEFINITION_HOLDER);
+			writeString(dos, holder.getBeanName());
+			writeStringArray(dos, holder.getAliases());
+			writeBeanDefinition(dos, holder.getBeanDefinition());
+		}
+		else if (value instanceof BeanDefinition) {
+			dos.writeByte(BEAN_DEFINITION);
+			writeBeanDefinition(dos, (BeanDefinition) value);
+		}
+		else if (value instanceof ManagedArray) {
+			ManagedArray array = (ManagedArray) value;
+			dos.writeByte(ARRAY);
+			writeString(dos, array.getElementTypeName());
+			dos.writeBoolean(array.isMergeEnabled());
+			writeElements(dos, array);
+		}
+		else if (value instanceof ManagedList) {
+			ManagedList<Object> list = (ManagedList<Object>) value;
+			dos.writeByte(LIST);
+			writeString(dos, list.getElementTypeName());
+			dos.writeBoolean(list.isMergeEnabled());
+			writeElements(dos, list);
+		}
+		else if (value instanceof ManagedSet) {
+			ManagedSet<Object> set = (ManagedSet<Object>) value;
+			dos.writeByte(SET);
+			writeString(dos, set.getElementTypeName());
+			dos.writeBoolean(set.isMergeEnabled());
+			writeElements(dos, set);
+		}
+		else if (value instanceof ManagedMap) {
+			ManagedMap<Object, Object> map = (ManagedMap<Object, Object>) value;
+			dos.writeByte(MAP);
+			writeString(dos, map.getKeyTypeName());
+			writeString(dos, map.getValueTypeName());
+			dos.writeBoolean(map.isMergeEnabled());
+			writeEntries(dos, map);
+		}
+		else if (value instanceof ManagedProperties) {
+			ManagedProperties props = (ManagedProperties) value;
+			dos.writeByte(PROPERTIES);
+			dos.writeBoolean(props.isMergeEnabled());
+			writeEntries(dos, props);
+		}
+		else if (value instanceof Boolean) {
+			dos.writeByte(BOOLEAN);
+			dos.writeBoolean((Boolean) value);
+		}
+		else if (value instanceof Integer) {
+			dos.writeByte(INTEGER);
+			dos.writeInt((Integer) value);
+		}
+		else if (value instanceof Long) {
+			dos.writeByte(LONG);
+			dos.writeLong((Long) value);
+		}
+		else if (value instanceof Class) {
+			dos.writeByte(CLASS);
+			writeString(dos, ((Class) value).getName());
+		}
+		else {
+			throw new NotSerializableException("Unsupported bean definition value type: " + value.getClass().getName());
+		}
+	}
+
+	private static Object readValue(DataInputStream dis, ClassLoader classLoader) throws IOException {
+		byte kind = dis.readByte();
+		switch (kind) {
+			case NULL:
+				return null;
+			case STRING:
+				return readString(dis);
+			case TYPED_STRING:
+				TypedStringValue typedValue = new TypedStringValue(readString(dis));
+				String targetTypeName = readString(dis);
+				if (targetTypeName != null) {
+					typedValue.setTargetTypeName(targetTypeName);
+				}
+				typedValue.setSpecifiedTypeName(readString(dis));
+				if (dis.readBoolean()) {
+					typedValue.setDynamic();
+				}
+				return typedValue;
+			case BEAN_REFERENCE:
+				return new RuntimeBeanReference(readString(dis), dis.readBoolean());
+			case BEAN_NAME_REFERENCE:
+				return new RuntimeBeanNameReference(readString(dis));
+			case BEAN_DEFINITION_HOLDER:
+				String beanName = readString(dis);
+				String[] beanAliases = readStringArray(dis);
+				return new BeanDefinitionHolder(readBeanDefinition(dis, classLoader), beanName, beanAliases);
+			case BEAN_DEFINITION:
+				return readBeanDefinition(dis, classLoader);
+			case ARRAY:
+				String elementTypeName = readString(dis);
+				boolean arrayMergeEnabled = dis.readBoolean();
+				int arraySize = dis.readInt();
+				ManagedArray array = new ManagedArray(elementTypeName, arraySize);
+				array.setMergeEnabled(arrayMergeEnabled);
+				for (int i = 0; i < arraySize; i++) {
+					array.add(readValue(dis, classLoader));
+				}
+				return array;
+			case LIST:
+				ManagedList<Object> list = new ManagedList<Object>();
+				list.setElementTypeName(readString(dis));
+				list.setMergeEnabled(dis.readBoolean());
+				int listSize = dis.readInt();
+				for (int i = 0; i < listSize; i++) {
+					list.add(readValue(dis, classLoader));
+				}
+				return list;
+			case SET:
+				ManagedSet<Object> set = new ManagedSet<Object>();
+				set.setElementTypeName(readString(dis));
+				set.setMergeEnabled(dis.readBoolean());
+				int setSize = dis.readInt();
+				for (int i = 0; i < setSize; i++) {
+					set.add(readValue(dis, classLoader));
+				}
+				return set;
+			case MAP:
+				ManagedMap<Object, Object> map = new ManagedMap<Object, Object>();
+				map.setKeyTypeName(readString(dis));
+				map.setValueTypeName(readString(dis));
+				map.setMergeEnabled(dis.readBoolean());
+				readEntries(dis, map, classLoader);
+				return map;
+			case PROPERTIES:
+				ManagedProperties props = new ManagedProperties();
+				props.setMergeEnabled(dis.readBoolean());
+				readEntries(dis, props, classLoader);
+				return props;
+			case BOOLEAN:
+				return dis.readBoolean();
+			case INTEGER:
+				return dis.readInt();
+			case LONG:
+				return dis.readLong();
+			case CLASS:
+				String className = readString(dis);
+				try {
+					return ClassUtils.forName(className, classLoader);
+				}
+				catch (ClassNotFoundException ex) {
+					throw new IOException("Could not resolve class [" + className + "] in bean definition snapshot");
+				}
+			default:
+				throw new IOException("Corrupt bean definition snapshot: unknown value kind " + kind);
+		}
+	}
+
+	private static void writeElements(DataOutputStream dos, Collection<?> elements) throws IOException {
+		dos.writeInt(elements.size());
+		for (Object element : elements) {
+			writeValue(dos, element);
+		}
+	}
+
+	private static void writeEntries(DataOutputStream dos, Map<?, ?> map) throws IOException {
+		dos.writeInt(map.size());
+		for (Map.Entry<?, ?> entry : map.entrySet()) {
+			writeValue(dos, entry.getKey());
+			writeValue(dos, entry.getValue());
+		}
+	}
+
+	private static void readEntries(DataInputStream dis, Map<Object, Object> map, ClassLoader classLoader)
+			throws IOException {
+
+		int size = dis.readInt();
+		for (int i = 0; i < size; i++) {
+			map.put(readValue(dis, classLoader), readValue(dis, classLoader));
+		}
+	}
+
+	private static void writeStringArray(DataOutputStream dos, String[] array) throws IOException {
+		if (array == null) {
+			dos.writeInt(-1);
+			return;
+		}
+		dos.writeInt(array.length);
+		for (String element : array) {
+			writeString(dos, element);
+		}
+	}
+
+	private static String[] readStringArray(DataInputStream dis) throws IOException {
+		int length = dis.readInt();
+		if (length < 0) {
+			return null;
+		}
+		String[] array = new String[length];
+		for (int i = 0; i < length; i++) {
+			array[i] = readString(dis);
+		}
+		return array;
+	}
+
+	private static void writeString(DataOutputStream dos, String value) throws IOException {
+		if (value == null) {
+			dos.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes("UTF-8");
+		dos.writeInt(bytes.length);
+		dos.write(bytes);
+	}
+
+	private static String readString(DataInputStream dis) throws IOException {
+		int length = dis.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		dis.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+/**
+ * Internal interface implemented by classes that are generated at runtime
+ * in order to invoke a specific bean constructor or factory method without
+ * reflection. Not intended for direct use by application code.
+ *
+ * @author agent
+ * @since 3.1
+ * @see GeneratedInstantiationStrategy
+ */
+public interface BeanInstantiator {
+
+	/**
+	 * Invoke the constructor or factory method that this instantiator was generated for.
+	 * @param factoryBean the factory bean instance to call an instance factory method on
+	 * (ignored for constructors and static factory methods)
+	 * @param args the arguments to apply, with primitive values boxed
+	 * @return the new bean instance, or the object returned by the factory method
+	 */
+	Object instantiate(Object factoryBean, Object[] args);
+
+}
@@ -0,0 +1,452 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.beans.factory.support;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.BeanCurrentlyInCreationException;
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+
+/**
+ * Helper class for pre-instantiating the non-lazy singletons of a
+ * {@link DefaultListableBeanFactory} in parallel.
+ *
+ * <p>Builds a dependency graph from the merged bean definitions: "depends-on"
+ * declarations, factory bean references, bean references in constructor arguments
+ * and property values (including inner beans and managed collections), as well as
+ * the candidates for autowiring by name, by type or through the constructor.
+ * Singletons that refer to each other, directly or indirectly, form a group that
+ * gets initialized on a single thread in registration order, resolving circular
+ * references just like sequential pre-instantiation does. Each group gets handed
+ * to the Executor once all groups that it depends on have been initialized.
+ *
+ * <p>Dependencies that are not visible in bean definitions, such as annotation-driven
+ * injection, get resolved at creation time: A thread asking for a singleton that
+ * another thread is creating waits for it, with the bean factory switched to
+ * concurrent singleton creation for the duration of pre-instantiation. FactoryBeans
+ * that need to be checked for their object type in the meantime get fully created
+ * rather than partially instantiated under the singleton mutex. A circular
+ * reference among such dependencies may fail across threads where the sequential
+ * order would succeed, e.g. with constructor injection on one side: groups failing
+ * with a {@link BeanCurrentlyInCreationException} are therefore initialized again
+ * sequentially, along with the groups depending on them, in registration order
+ * once all other groups are done.
+ *
+ * @author agent
+ * @since 3.1
+ * @see DefaultListableBeanFactory#setPreInstantiationExecutor
+ * @see DefaultSingletonBeanRegistry#setConcurrentSingletonCreation
+ */
+class ConcurrentSingletonPreInstantiator {
+
+	private final DefaultListableBeanFactory beanFactory;
+
+	private final Executor executor;
+
+	private final ClassLoader contextClassLoader;
+
+	private final List<String> singletonNames = new ArrayList<String>();
+
+	private final Map<String, Integer> singletonIndexes = new HashMap<String, Integer>();
+
+	private final List<Group> groups = new ArrayList<Group>();
+
+	private final Object monitor = new Object();
+
+	private int runningGroups;
+
+	private Throwable failure;
+
+	private boolean circularReferenceFailure;
+
+
+	/**
+	 * Create a new ConcurrentSingletonPreInstantiator for the given bean names.
+	 * @param beanFactory the BeanFactory to work with
+	 * @param executor the Executor to initialize groups of singletons with
+	 * @param beanNames the names of all bean definitions, in registration order
+	 */
+	public ConcurrentSingletonPreInstantiator(
+			DefaultListableBeanFactory beanFactory, Executor executor, List<String> beanNames) {
+
+		this.beanFactory = beanFactory;
+		this.executor = executor;
+		this.contextClassLoader = Thread.currentThread().getContextClassLoader();
+		for (String beanName : beanNames) {
+			RootBeanDefinition mbd = beanFactory.getMergedLocalBeanDefinition(beanName);
+			if (!mbd.isAbstract() && mbd.isSingleton() && !mbd.isLazyInit()) {
+				this.singletonIndexes.put(beanName, this.singletonNames.size());
+				this.singletonNames.add(beanName);
+			}
+		}
+		buildGroups();
+	}
+
+
+	/**
+	 * Pre-instantiate all non-lazy singletons, returning once all of them are
+	 * initialized or once initialization has failed.
+	 * @throws org.springframework.beans.BeansException if a singleton could not be created
+	 */
+	public void preInstantiate() {
+		if (this.beanFactory.logger.isDebugEnabled()) {
+			this.beanFactory.logger.debug("Pre-instantiating " + this.singletonNames.size() +
+					" singletons in " + this.groups.size() + " groups concurrently");
+		}
+		List<Group> readyGroups = new ArrayList<Group>();
+		for (Group group : this.groups) {
+			if (group.remainingDependencies == 0) {
+				readyGroups.add(group);
+			}
+		}
+		this.runningGroups = readyGroups.size();
+		boolean interrupted = false;
+		this.beanFactory.setConcurrentSingletonCreation(true);
+		try {
+			execute(readyGroups);
+			synchronized (this.monitor) {
+				// groups left pending at this point wait for a failed group
+				while (this.runningGroups > 0) {
+					try {
+						this.monitor.wait();
+					}
+					catch (InterruptedException ex) {
+						// Singletons in creation cannot be abandoned: keep waiting.
+						interrupted = true;
+					}
+				}
+			}
+		}
+		finally {
+			this.beanFactory.setConcurrentSingletonCreation(false);
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (this.failure instanceof RuntimeException) {
+			throw (RuntimeException) this.failure;
+		}
+		if (this.failure instanceof Error) {
+			throw (Error) this.failure;
+		}
+		if (this.circularReferenceFailure) {
+			preInstantiateRemainingSequentially();
+		}
+	}
+
+	/**
+	 * Initialize the singletons of all groups that did not complete, in registration
+	 * order on the current thread, as sequential pre-instantiation would do.
+	 */
+	private void preInstantiateRemainingSequentially() {
+		Set<String> remainingNames = new HashSet<String>();
+		for (Group group : this.groups) {
+			if (!group.initialized) {
+				remainingNames.addAll(group.beanNames);
+			}
+		}
+		if (this.beanFactory.logger.isDebugEnabled()) {
+			this.beanFactory.logger.debug("Circular reference across threads - pre-instantiating " +
+					remainingNames.size() + " singletons sequentially");
+		}
+		for (String beanName : this.singletonNames) {
+			if (remainingNames.contains(beanName)) {
+				this.beanFactory.preInstantiateSingleton(beanName);
+			}
+		}
+	}
+
+	private void execute(List<Group> groupsToExecute) {
+		for (final Group group : groupsToExecute) {
+			Runnable task = new Runnable() {
+				public void run() {
+					initialize(group);
+				}
+			};
+			try {
+				this.executor.execute(task);
+			}
+			catch (RejectedExecutionException ex) {
+				task.run();
+			}
+		}
+	}
+
+	private void initialize(Group group) {
+		Thread currentThread = Thread.currentThread();
+		ClassLoader previousClassLoader = currentThread.getContextClassLoader();
+		currentThread.setContextClassLoader(this.contextClassLoader);
+		Throwable groupFailure = null;
+		try {
+			for (String beanName : group.beanNames) {
+				this.beanFactory.preInstantiateSingleton(beanName);
+			}
+		}
+		catch (Throwable ex) {
+			groupFailure = ex;
+		}
+		finally {
+			currentThread.setContextClassLoader(previousClassLoader);
+		}
+		List<Group> readyGroups = new ArrayList<Group>();
+		synchronized (this.monitor) {
+			this.runningGroups--;
+			if (groupFailure != null) {
+				if (isCircularReferenceFailure(groupFailure)) {
+					// retried sequentially: leave this group and its dependents pending
+					this.circularReferenceFailure = true;
+				}
+				else if (this.failure == null) {
+					this.failure = groupFailure;
+				}
+			}
+			else {
+				group.initialized = true;
+			}
+			if (groupFailure == null && this.failure == null) {
+				for (Group dependentGroup : group.dependentGroups) {
+					if (--dependentGroup.remainingDependencies == 0) {
+						readyGroups.add(dependentGroup);
+					}
+				}
+				this.runningGroups += readyGroups.size();
+			}
+			this.monitor.notifyAll();
+		}
+		execute(readyGroups);
+	}
+
+	private boolean isCircularReferenceFailure(Throwable ex) {
+		return (ex instanceof BeanCreationException &&
+				((BeanCreationException) ex).contains(BeanCurrentlyInCreationException.class));
+	}
+
+
+	/**
+	 * Determine the dependencies between the singletons and form groups of
+	 * strongly connected singletons, using Tarjan's algorithm.
+	 */
+	private void buildGroups() {
+		int count = this.singletonNames.size();
+		List<Set<Integer>> dependencies = new ArrayList<Set<Integer>>(count);
+		for (String beanName : this.singletonNames) {
+			Set<Integer> singletonDependencies = new LinkedHashSet<Integer>();
+			for (String dependency : determineDependencies(beanName)) {
+				Integer index = this.singletonIndexes.get(dependency);
+				if (index != null) {
+					singletonDependencies.add(index);
+				}
+			}
+			dependencies.add(singletonDependencies);
+		}
+
+		int[] indexes = new int[count];
+		int[] lowLinks = new int[count];
+		boolean[] onStack = new boolean[count];
+		Group[] groupsBySingleton = new Group[count];
+		LinkedList<Integer> stack = new LinkedList<Integer>();
+		int[] counter = new int[] {1};
+		for (int i = 0; i < count; i++) {
+			if (indexes[i] == 0) {
+				connect(i, dependencies, indexes, lowLinks, onStack, stack, counter, groupsBySingleton);
+			}
+		}
+
+		for (int i = 0; i < count; i++) {
+			Group group = groupsBySingleton[i];
+			for (Integer dependency : dependencies.get(i)) {
+				Group dependencyGroup = groupsBySingleton[dependency];
+				if (dependencyGroup != group && dependencyGroup.dependentGroups.add(group)) {
+					group.remainingDependencies++;
+				}
+			}
+		}
+	}
+
+	private void connect(int i, List<Set<Integer>> dependencies, int[] indexes, int[] lowLinks,
+			boolean[] onStack, LinkedList<Integer> stack, int[] counter, Group[] groupsBySingleton) {
+
+		indexes[i] = counter[0];
+		lowLinks[i] = counter[0];
+		counter[0]++;
+		stack.push(i);
+		onStack[i] = true;
+		for (Integer dependency : dependencies.get(i)) {
+			if (indexes[dependency] == 0) {
+				connect(dependency, dependencies, indexes, lowLinks, onStack, stack, counter, groupsBySingleton);
+				lowLinks[i] = Math.min(lowLinks[i], lowLinks[dependency]);
+			}
+			else if (onStack[dependency]) {
+				lowLinks[i] = Math.min(lowLinks[i], indexes[dependency]);
+			}
+		}
+		if (lowLinks[i] == indexes[i]) {
+			List<Integer> members = new ArrayList<Integer>();
+			int member;
+			do {
+				member = stack.pop();
+				onStack[member] = false;
+				members.add(member);
+			}
+			while (member != i);
+			Collections.sort(members);
+			Group group = new Group();
+			for (Integer index : members) {
+				group.beanNames.add(this.singletonNames.get(index));
+				groupsBySingleton[index] = group;
+			}
+			this.groups.add(group);
+		}
+	}
+
+	/**
+	 * Determine the names of the beans that the given bean depends on,
+	 * as far as known from its merged bean definition.
+	 */
+	private Set<String> determineDependencies(String beanName) {
+		RootBeanDefinition mbd = this.beanFactory.getMergedLocalBeanDefinition(beanName);
+		Set<String> dependencies = new LinkedHashSet<String>();
+		collectReferences(mbd, dependencies);
+		int autowireMode = mbd.getResolvedAutowireMode();
+		if (autowireMode != AutowireCapableBeanFactory.AUTOWIRE_NO && mbd.hasBeanClass()) {
+			Class beanClass = mbd.getBeanClass();
+			if (autowireMode == AutowireCapableBeanFactory.AUTOWIRE_CONSTRUCTOR) {
+				if (mbd.getFactoryMethodName() == null) {
+					for (Constructor ctor : beanClass.getDeclaredConstructors()) {
+						for (Class paramType : ctor.getParameterTypes()) {
+							collectCandidatesOfType(paramType, dependencies);
+						}
+					}
+				}
+			}
+			else {
+				for (PropertyDescriptor pd : BeanUtils.getPropertyDescriptors(beanClass)) {
+					if (pd.getWriteMethod() != null && !mbd.getPropertyValues().contains(pd.getName())) {
+						if (autowireMode == AutowireCapableBeanFactory.AUTOWIRE_BY_NAME) {
+							dependencies.add(pd.getName());
+						}
+						else {
+							collectCandidatesOfType(pd.getPropertyType(), dependencies);
+						}
+					}
+				}
+			}
+		}
+		Set<String> canonicalNames = new LinkedHashSet<String>(dependencies.size());
+		for (String dependency : dependencies) {
+			canonicalNames.add(this.beanFactory.canonicalName(BeanFactoryUtils.transformedBeanName(dependency)));
+		}
+		canonicalNames.remove(beanName);
+		return canonicalNames;
+	}
+
+	private void collectReferences(BeanDefinition bd, Set<String> dependencies) {
+		if (bd instanceof AbstractBeanDefinition && ((AbstractBeanDefinition) bd).getDependsOn() != null) {
+			for (String dependsOn : ((AbstractBeanDefinition) bd).getDependsOn()) {
+				dependencies.add(dependsOn);
+			}
+		}
+		if (bd.getFactoryBeanName() != null) {
+			dependencies.add(bd.getFactoryBeanName());
+		}
+		ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+		for (ConstructorArgumentValues.ValueHolder valueHolder : cargs.getIndexedArgumentValues().values()) {
+			collectReferences(valueHolder.getValue(), dependencies);
+		}
+		for (ConstructorArgumentValues.ValueHolder valueHolder : cargs.getGenericArgumentValues()) {
+			collectReferences(valueHolder.getValue(), dependencies);
+		}
+		for (PropertyValue pv : bd.getPropertyValues().getPropertyValues()) {
+			collectReferences(pv.getValue(), dependencies);
+		}
+	}
+
+	private void collectReferences(Object value, Set<String> dependencies) {
+		if (value instanceof RuntimeBeanReference) {
+			dependencies.add(((RuntimeBeanReference) value).getBeanName());
+		}
+		else if (value instanceof BeanDefinitionHolder) {
+			collectReferences(((BeanDefinitionHolder) value).getBeanDefinition(), dependencies);
+		}
+		else if (value instanceof BeanDefinition) {
+			collectReferences((BeanDefinition) value, dependencies);
+		}
+		else if (value instanceof Collection) {
+			for (Object element : (Collection) value) {
+				collectReferences(element, dependencies);
+			}
+		}
+		else if (value instanceof Map) {
+			for (Map.Entry entry : ((Map<?, ?>) value).entrySet()) {
+				collectReferences(entry.getKey(), dependencies);
+				collectReferences(entry.getValue(), dependencies);
+			}
+		}
+	}
+
+	private void collectCandidatesOfType(Class type, Set<String> dependencies) {
+		Class candidateType = (type.isArray() ? type.getComponentType() : type);
+		if (Object.class.equals(candidateType) || BeanUtils.isSimpleProperty(candidateType) ||
+				Collection.class.isAssignableFrom(candidateType) || Map.class.isAssignableFrom(candidateType)) {
+			return;
+		}
+		for (String candidate : this.beanFactory.getBeanNamesForType(candidateType, true, false)) {
+			dependencies.add(candidate);
+		}
+	}
+
+
+	/**
+	 * A group of singletons that refer to each other, to be initialized on
+	 * the same thread, in registration order.
+	 */
+	private static class Group {
+
+		public final List<String> beanNames = new ArrayList<String>();
+
+		public final Set<Group> dependentGroups = new LinkedHashSet<Group>();
+
+		/** Number of groups to wait for, guarded by the pre-instantiator's monitor */
+		public int remainingDependencies;
+
+		/** Whether all singletons of the group have been initialized, guarded likewise */
+		public boolean initialized;
+	}
+
+}
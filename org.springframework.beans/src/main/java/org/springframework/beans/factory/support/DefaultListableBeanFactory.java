@@ -38,6 +38,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.inject.Provider;
 
 import org.springframework.beans.BeansException;
@@ -56,11 +58,14 @@ import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.SmartFactoryBean;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.config.DependencyDescriptor;
+import org.springframework.beans.factory.config.SmartInstantiationAwareBeanPostProcessor;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
@@ -124,6 +129,9 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** Whether to allow eager class loading even for lazy-init beans */
 	private boolean allowEagerClassLoading = true;
 
+	/** Executor for pre-instantiating singletons in parallel, if any */
+	private Executor preInstantiationExecutor;
+
 	/** Resolver to use for checking if a bean definition is an autowire candidate */
 	private AutowireCandidateResolver autowireCandidateResolver = new SimpleAutowireCandidateResolver();
 
@@ -142,6 +150,13 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** Cached array of bean definition names in case of frozen configuration */
 	private String[] frozenBeanDefinitionNames;
 
+	/** Map of bean name arrays, keyed by type and lookup flags */
+	private final Map<BeanNamesByTypeKey, String[]> beanNamesByType =
+			new ConcurrentHashMap<BeanNamesByTypeKey, String[]>(64);
+
+	/** Number of invalidations of the by-type cache, for detecting concurrent resets */
+	private final AtomicInteger beanNamesByTypeGeneration = new AtomicInteger();
+
 
 	/**
 	 * Create a new DefaultListableBeanFactory.
@@ -198,6 +213,32 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		this.allowEagerClassLoading = allowEagerClassLoading;
 	}
 
+	/**
+	 * Set an Executor for pre-instantiating non-lazy singletons in parallel.
+	 * <p>Default is none, creating all singletons sequentially on the calling thread.
+	 * If specified, {@link #preInstantiateSingletons()} determines the dependencies
+	 * between singletons as far as known from their bean definitions ("depends-on",
+	 * bean references, autowire candidates) and initializes independent singletons
+	 * concurrently. Singletons that refer to each other get initialized together,
+	 * in registration order, just like in the sequential case.
+	 * <p>Consider this for singletons with expensive, I/O-bound init methods;
+	 * they need to be safe to initialize on a thread other than the caller.
+	 * {@link #preInstantiateSingletons()} returns once all singletons are ready.
+	 * @since 3.1
+	 * @see #preInstantiateSingletons()
+	 */
+	public void setPreInstantiationExecutor(Executor preInstantiationExecutor) {
+		this.preInstantiationExecutor = preInstantiationExecutor;
+	}
+
+	/**
+	 * Return the Executor for pre-instantiating singletons in parallel, if any.
+	 * @since 3.1
+	 */
+	public Executor getPreInstantiationExecutor() {
+		return this.preInstantiationExecutor;
+	}
+
 	/**
 	 * Set a custom autowire candidate resolver for this BeanFactory to use
 	 * when deciding whether a bean definition should be considered as a
@@ -237,6 +278,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			DefaultListableBeanFactory otherListableFactory = (DefaultListableBeanFactory) otherFactory;
 			this.allowBeanDefinitionOverriding = otherListableFactory.allowBeanDefinitionOverriding;
 			this.allowEagerClassLoading = otherListableFactory.allowEagerClassLoading;
+			this.preInstantiationExecutor = otherListableFactory.preInstantiationExecutor;
 			this.autowireCandidateResolver = otherListableFactory.autowireCandidateResolver;
 			this.resolvableDependencies.putAll(otherListableFactory.resolvableDependencies);
 		}
@@ -299,6 +341,29 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	}
 
 	public String[] getBeanNamesForType(Class type, boolean includeNonSingletons, boolean allowEagerInit) {
+		if (type == null) {
+			return doGetBeanNamesForType(type, includeNonSingletons, allowEagerInit);
+		}
+		BeanNamesByTypeKey cacheKey = new BeanNamesByTypeKey(type, includeNonSingletons, allowEagerInit);
+		String[] resolvedBeanNames = this.beanNamesByType.get(cacheKey);
+		if (resolvedBeanNames != null) {
+			// Hand out a copy: the cached array must not be modified by the caller.
+			return resolvedBeanNames.clone();
+		}
+		int generation = this.beanNamesByTypeGeneration.get();
+		resolvedBeanNames = doGetBeanNamesForType(type, includeNonSingletons, allowEagerInit);
+		if (ClassUtils.isCacheSafe(type, getBeanClassLoader())) {
+			this.beanNamesByType.put(cacheKey, resolvedBeanNames);
+			if (this.beanNamesByTypeGeneration.get() != generation) {
+				// Cache reset in the meantime: the result might reflect the previous state.
+				this.beanNamesByType.remove(cacheKey);
+			}
+			return resolvedBeanNames.clone();
+		}
+		return resolvedBeanNames;
+	}
+
+	private String[] doGetBeanNamesForType(Class type, boolean includeNonSingletons, boolean allowEagerInit) {
 		List<String> result = new ArrayList<String>();
 
 		// Check all bean definitions.
@@ -556,6 +621,16 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		if (this.logger.isInfoEnabled()) {
 			this.logger.info("Pre-instantiating singletons in " + this);
 		}
+		if (this.preInstantiationExecutor != null) {
+			// Do not hold the bean definition lock while waiting for other threads,
+			// which may need it for by-type lookups or for registering bean definitions.
+			List<String> beanNames;
+			synchronized (this.beanDefinitionMap) {
+				beanNames = new ArrayList<String>(this.beanDefinitionNames);
+			}
+			new ConcurrentSingletonPreInstantiator(this, this.preInstantiationExecutor, beanNames).preInstantiate();
+			return;
+		}
 		synchronized (this.beanDefinitionMap) {
 			// Iterate over a copy to allow for init methods which in turn register new bean definitions.
 			// While this may not be part of the regular factory bootstrap, it does otherwise work fine.
@@ -563,32 +638,41 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			for (String beanName : beanNames) {
 				RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
 				if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
-					if (isFactoryBean(beanName)) {
-						final FactoryBean factory = (FactoryBean) getBean(FACTORY_BEAN_PREFIX + beanName);
-						boolean isEagerInit;
-						if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
-							isEagerInit = AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
-								public Boolean run() {
-									return ((SmartFactoryBean) factory).isEagerInit();
-								}
-							}, getAccessControlContext());
-						}
-						else {
-							isEagerInit = (factory instanceof SmartFactoryBean &&
-									((SmartFactoryBean) factory).isEagerInit());
-						}
-						if (isEagerInit) {
-							getBean(beanName);
-						}
-					}
-					else {
-						getBean(beanName);
-					}
+					preInstantiateSingleton(beanName);
 				}
 			}
 		}
 	}
 
+	/**
+	 * Pre-instantiate the given non-lazy singleton, in case of a FactoryBean
+	 * including its object if the FactoryBean asks for eager initialization.
+	 * @param beanName the name of the bean
+	 */
+	void preInstantiateSingleton(String beanName) {
+		if (isFactoryBean(beanName)) {
+			final FactoryBean factory = (FactoryBean) getBean(FACTORY_BEAN_PREFIX + beanName);
+			boolean isEagerInit;
+			if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
+				isEagerInit = AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
+					public Boolean run() {
+						return ((SmartFactoryBean) factory).isEagerInit();
+					}
+				}, getAccessControlContext());
+			}
+			else {
+				isEagerInit = (factory instanceof SmartFactoryBean &&
+						((SmartFactoryBean) factory).isEagerInit());
+			}
+			if (isEagerInit) {
+				getBean(beanName);
+			}
+		}
+		else {
+			getBean(beanName);
+		}
+	}
+
 
 	//---------------------------------------------------------------------
 	// Implementation of BeanDefinitionRegistry interface
@@ -669,6 +753,9 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			destroySingleton(beanName);
 		}
 
+		// Remove cached by-type lookup results, which may include the given bean.
+		clearByTypeCache();
+
 		// Reset all bean definitions that have the given bean as parent (recursively).
 		for (String bdName : this.beanDefinitionNames) {
 			if (!beanName.equals(bdName)) {
@@ -688,6 +775,76 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return this.allowBeanDefinitionOverriding;
 	}
 
+	/**
+	 * Resets the by-type cache for a manually registered singleton and for any
+	 * singleton whose type could not be fully predicted from its bean definition,
+	 * e.g. a FactoryBean, a factory method result or a proxy.
+	 */
+	@Override
+	protected void addSingleton(String beanName, Object singletonObject) {
+		super.addSingleton(beanName, singletonObject);
+		if (!isSingletonTypePredictable(beanName, singletonObject)) {
+			clearByTypeCache();
+		}
+	}
+
+	@Override
+	public void destroySingleton(String beanName) {
+		super.destroySingleton(beanName);
+		clearByTypeCache();
+	}
+
+	@Override
+	public void destroySingletons() {
+		super.destroySingletons();
+		clearByTypeCache();
+	}
+
+	@Override
+	public void addBeanPostProcessor(BeanPostProcessor beanPostProcessor) {
+		super.addBeanPostProcessor(beanPostProcessor);
+		if (beanPostProcessor instanceof SmartInstantiationAwareBeanPostProcessor) {
+			// May predict different bean types from now on.
+			clearByTypeCache();
+		}
+	}
+
+	/**
+	 * Clear the cache of bean names by type.
+	 * <p>Registration and removal of bean definitions, singletons and type-predicting
+	 * post-processors reset the cache automatically. Needs to be called explicitly
+	 * after existing bean definitions have been modified in place, e.g. by
+	 * BeanFactoryPostProcessors, unless the configuration is frozen already.
+	 * @since 3.1
+	 * @see #getBeanNamesForType(Class, boolean, boolean)
+	 */
+	public void clearMetadataCache() {
+		clearByTypeCache();
+	}
+
+	/**
+	 * Determine whether the type of the given singleton instance is known to match
+	 * the type predicted for its bean definition, i.e. whether the instance is of
+	 * the plain bean class of a regular bean definition.
+	 */
+	private boolean isSingletonTypePredictable(String beanName, Object singletonObject) {
+		if (singletonObject == null || singletonObject instanceof FactoryBean ||
+				!this.beanDefinitionMap.containsKey(beanName)) {
+			return false;
+		}
+		RootBeanDefinition mbd = getMergedLocalBeanDefinition(beanName);
+		return (mbd.hasBeanClass() && mbd.getFactoryMethodName() == null &&
+				mbd.getBeanClass() == singletonObject.getClass());
+	}
+
+	/**
+	 * Remove all cached bean name arrays for by-type lookups.
+	 */
+	private void clearByTypeCache() {
+		this.beanNamesByTypeGeneration.incrementAndGet();
+		this.beanNamesByType.clear();
+	}
+
 
 	//---------------------------------------------------------------------
 	// Dependency resolution functionality
@@ -1050,4 +1207,41 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		}
 	}
 
+
+	/**
+	 * Cache key for by-type lookups of bean names.
+	 */
+	private static final class BeanNamesByTypeKey {
+
+		private final Class type;
+
+		private final boolean includeNonSingletons;
+
+		private final boolean allowEagerInit;
+
+		public BeanNamesByTypeKey(Class type, boolean includeNonSingletons, boolean allowEagerInit) {
+			this.type = type;
+			this.includeNonSingletons = includeNonSingletons;
+			this.allowEagerInit = allowEagerInit;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof BeanNamesByTypeKey)) {
+				return false;
+			}
+			BeanNamesByTypeKey otherKey = (BeanNamesByTypeKey) other;
+			return (this.type == otherKey.type && this.includeNonSingletons == otherKey.includeNonSingletons &&
+					this.allowEagerInit == otherKey.allowEagerInit);
+		}
+
+		@Override
+		public int hashCode() {
+			return (this.type.hashCode() * 4 + (this.includeNonSingletons ? 2 : 0) + (this.allowEagerInit ? 1 : 0));
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -106,6 +106,18 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	/** Flag that indicates whether we're currently within destroySingletons */
 	private boolean singletonsCurrentlyInDestruction = false;
 
+	/** Whether singletons may currently be created by several threads in parallel */
+	private volatile boolean concurrentSingletonCreation = false;
+
+	/** Per-bean creation locks for concurrent singleton creation: bean name --> lock */
+	private final Map<String, Object> singletonCreationLocks = new ConcurrentHashMap<String, Object>();
+
+	/** Threads creating singletons concurrently: bean name --> creating Thread */
+	private final Map<String, Thread> singletonCreationThreads = new HashMap<String, Thread>();
+
+	/** Singletons that threads are waiting for: Thread --> bean name */
+	private final Map<Thread, String> awaitedSingletons = new HashMap<Thread, String>();
+
 	/** Disposable bean instances: bean name --> disposable instance */
 	private final Map<String, Object> disposableBeans = new LinkedHashMap<String, Object>();
 
@@ -179,20 +191,31 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	protected Object getSingleton(String beanName, boolean allowEarlyReference) {
 		Object singletonObject = this.singletonObjects.get(beanName);
-		if (singletonObject == null) {
-			synchronized (this.singletonObjects) {
-				singletonObject = this.earlySingletonObjects.get(beanName);
-				if (singletonObject == null && allowEarlyReference) {
-					ObjectFactory singletonFactory = this.singletonFactories.get(beanName);
-					if (singletonFactory != null) {
-						singletonObject = singletonFactory.getObject();
-						this.earlySingletonObjects.put(beanName, singletonObject);
-						this.singletonFactories.remove(beanName);
-					}
+		if (singletonObject == null && !isSingletonCurrentlyCreatedByOtherThread(beanName)) {
+			singletonObject = getEarlySingleton(beanName, allowEarlyReference);
+		}
+		return (singletonObject != NULL_OBJECT ? singletonObject : null);
+	}
+
+	/**
+	 * Return an early reference to the given singleton, if available.
+	 * @param beanName the name of the bean to look for
+	 * @param allowEarlyReference whether early references should be created or not
+	 * @return the early singleton object, or <code>null</code> if none found
+	 */
+	private Object getEarlySingleton(String beanName, boolean allowEarlyReference) {
+		synchronized (this.singletonObjects) {
+			Object singletonObject = this.earlySingletonObjects.get(beanName);
+			if (singletonObject == null && allowEarlyReference) {
+				ObjectFactory singletonFactory = this.singletonFactories.get(beanName);
+				if (singletonFactory != null) {
+					singletonObject = singletonFactory.getObject();
+					this.earlySingletonObjects.put(beanName, singletonObject);
+					this.singletonFactories.remove(beanName);
 				}
 			}
+			return singletonObject;
 		}
-		return (singletonObject != NULL_OBJECT ? singletonObject : null);
 	}
 
 	/**
@@ -205,6 +228,9 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	public Object getSingleton(String beanName, ObjectFactory singletonFactory) {
 		Assert.notNull(beanName, "'beanName' must not be null");
+		if (this.concurrentSingletonCreation) {
+			return getSingletonConcurrently(beanName, singletonFactory);
+		}
 		synchronized (this.singletonObjects) {
 			Object singletonObject = this.singletonObjects.get(beanName);
 			if (singletonObject == null) {
@@ -244,6 +270,145 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		}
 	}
 
+	/**
+	 * Variant of {@link #getSingleton(String, ObjectFactory)} for concurrent singleton
+	 * creation: holds a lock for the given bean only, rather than for the entire registry.
+	 * <p>A thread asking for a singleton that another thread is currently creating
+	 * waits for that thread to finish, unless the other thread is (indirectly) waiting
+	 * for the current thread itself. Such a circular reference across threads gets
+	 * resolved through an early singleton reference, just like within a single thread.
+	 * @param beanName the name of the bean
+	 * @param singletonFactory the ObjectFactory to lazily create the singleton with
+	 * @return the registered singleton object
+	 */
+	private Object getSingletonConcurrently(String beanName, ObjectFactory singletonFactory) {
+		Object singletonObject = this.singletonObjects.get(beanName);
+		if (singletonObject == null) {
+			Thread currentThread = Thread.currentThread();
+			synchronized (this.singletonCreationThreads) {
+				if (isWaitingFor(this.singletonCreationThreads.get(beanName), currentThread)) {
+					singletonObject = getEarlySingleton(beanName, true);
+					if (singletonObject == null) {
+						throw new BeanCurrentlyInCreationException(beanName);
+					}
+					return (singletonObject != NULL_OBJECT ? singletonObject : null);
+				}
+				this.awaitedSingletons.put(currentThread, beanName);
+			}
+			Object creationLock = this.singletonCreationLocks.get(beanName);
+			if (creationLock == null) {
+				synchronized (this.singletonCreationLocks) {
+					creationLock = this.singletonCreationLocks.get(beanName);
+					if (creationLock == null) {
+						creationLock = new Object();
+						this.singletonCreationLocks.put(beanName, creationLock);
+					}
+				}
+			}
+			try {
+				synchronized (creationLock) {
+					synchronized (this.singletonCreationThreads) {
+						this.awaitedSingletons.remove(currentThread);
+						singletonObject = this.singletonObjects.get(beanName);
+						if (singletonObject == null) {
+							this.singletonCreationThreads.put(beanName, currentThread);
+						}
+					}
+					if (singletonObject == null) {
+						try {
+							synchronized (this.singletonObjects) {
+								if (this.singletonsCurrentlyInDestruction) {
+									throw new BeanCreationNotAllowedException(beanName,
+											"Singleton bean creation not allowed while the singletons of this factory are in " +
+											"destruction (Do not request a bean from a BeanFactory in a destroy method implementation!)");
+								}
+							}
+							if (logger.isDebugEnabled()) {
+								logger.debug("Creating shared instance of singleton bean '" + beanName + "' concurrently");
+							}
+							beforeSingletonCreation(beanName);
+							try {
+								singletonObject = singletonFactory.getObject();
+							}
+							finally {
+								afterSingletonCreation(beanName);
+							}
+							addSingleton(beanName, singletonObject);
+						}
+						finally {
+							synchronized (this.singletonCreationThreads) {
+								this.singletonCreationThreads.remove(beanName);
+							}
+						}
+					}
+				}
+			}
+			finally {
+				synchronized (this.singletonCreationThreads) {
+					this.awaitedSingletons.remove(currentThread);
+				}
+			}
+		}
+		return (singletonObject != NULL_OBJECT ? singletonObject : null);
+	}
+
+	/**
+	 * Determine whether the given thread is (indirectly) waiting for a singleton
+	 * that the specified waited-for thread is currently creating.
+	 * <p>To be called while synchronized on the <code>singletonCreationThreads</code> Map.
+	 * @param thread the thread to start from (may be <code>null</code>)
+	 * @param waitedForThread the thread to look for
+	 */
+	private boolean isWaitingFor(Thread thread, Thread waitedForThread) {
+		int maxDepth = this.awaitedSingletons.size() + 1;
+		for (int i = 0; thread != null && i <= maxDepth; i++) {
+			if (thread == waitedForThread) {
+				return true;
+			}
+			String awaitedBeanName = this.awaitedSingletons.get(thread);
+			thread = (awaitedBeanName != null ? this.singletonCreationThreads.get(awaitedBeanName) : null);
+		}
+		return false;
+	}
+
+	/**
+	 * Determine whether the given singleton is currently being created concurrently
+	 * by a thread other than the current one. Early references to such a singleton
+	 * are not exposed, since it has not been fully initialized yet.
+	 * @param beanName the name of the bean
+	 */
+	private boolean isSingletonCurrentlyCreatedByOtherThread(String beanName) {
+		if (!this.concurrentSingletonCreation) {
+			return false;
+		}
+		synchronized (this.singletonCreationThreads) {
+			Thread creatingThread = this.singletonCreationThreads.get(beanName);
+			return (creatingThread != null && creatingThread != Thread.currentThread());
+		}
+	}
+
+	/**
+	 * Specify whether singletons may currently be created by several threads in
+	 * parallel. In that mode, creating a singleton locks that singleton only,
+	 * instead of the entire registry.
+	 * <p>Meant to be switched on for a bounded phase such as the parallel
+	 * pre-instantiation of singletons, with sequential creation as the default.
+	 * @param concurrentSingletonCreation whether to allow concurrent creation
+	 */
+	protected void setConcurrentSingletonCreation(boolean concurrentSingletonCreation) {
+		this.concurrentSingletonCreation = concurrentSingletonCreation;
+		if (!concurrentSingletonCreation) {
+			this.singletonCreationLocks.clear();
+		}
+	}
+
+	/**
+	 * Return whether singletons may currently be created by several threads in parallel.
+	 */
+	protected boolean isConcurrentSingletonCreation() {
+		return this.concurrentSingletonCreation;
+	}
+
 	/**
 	 * Register an Exception that happened to get suppressed during the creation of a
 	 * singleton bean instance, e.g. a temporary circular reference resolution problem.
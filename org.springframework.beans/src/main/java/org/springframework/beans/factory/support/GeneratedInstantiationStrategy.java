@@ -0,0 +1,306 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.beans.BeanInstantiationException;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Instantiation strategy that invokes bean constructors and factory methods
+ * through {@link BeanInstantiator} classes generated with ASM, avoiding the
+ * reflective <code>Constructor.newInstance</code> and <code>Method.invoke</code>
+ * calls on every creation of a prototype or scoped bean.
+ *
+ * <p>One instantiator class is generated per constructor or factory method,
+ * on first use, and cached for the lifetime of this strategy. The arguments
+ * themselves are resolved by the bean factory as usual, which caches them
+ * in the merged bean definition after the first creation.
+ *
+ * <p>Only public constructors of public, non-abstract classes and public
+ * factory methods of public classes, with public parameter types, are eligible
+ * for generation; everything else is instantiated reflectively, exactly like
+ * with the {@link CglibSubclassingInstantiationStrategy} that this strategy
+ * extends. The same applies to beans with Method Injection. Errors are
+ * reported in the same form as on the reflective path.
+ *
+ * @author agent
+ * @since 3.1
+ * @see AbstractAutowireCapableBeanFactory#setInstantiationStrategy
+ */
+public class GeneratedInstantiationStrategy extends CglibSubclassingInstantiationStrategy implements Opcodes {
+
+	private static final Log logger = LogFactory.getLog(GeneratedInstantiationStrategy.class);
+
+	private static final String INSTANTIATOR_CLASS_SUFFIX = "$$BeanInstantiator$$";
+
+	private static final String FALLBACK_PACKAGE = "org/springframework/beans/factory/support/generated/";
+
+	private static final String OBJECT_DESCRIPTOR = Type.getDescriptor(Object.class);
+
+	private static final Object NO_INSTANTIATOR = new Object();
+
+	private static final AtomicInteger instantiatorClassCount = new AtomicInteger();
+
+
+	/** Cache of BeanInstantiator instances or NO_INSTANTIATOR markers, keyed by Constructor or Method */
+	private final Map<Member, Object> instantiatorCache = new ConcurrentHashMap<Member, Object>();
+
+
+	@Override
+	protected Object instantiateClass(Constructor<?> ctor, Object[] args) {
+		BeanInstantiator instantiator = getBeanInstantiator(ctor);
+		if (instantiator == null) {
+			return super.instantiateClass(ctor, args);
+		}
+		if (!isMatchingArguments(ctor.getParameterTypes(), args)) {
+			throw new BeanInstantiationException(ctor.getDeclaringClass(),
+					"Illegal arguments for constructor", new IllegalArgumentException("argument type mismatch"));
+		}
+		try {
+			return instantiator.instantiate(null, args);
+		}
+		catch (Throwable ex) {
+			throw new BeanInstantiationException(ctor.getDeclaringClass(), "Constructor threw exception", ex);
+		}
+	}
+
+	@Override
+	protected Object invokeFactoryMethod(Object factoryBean, Method factoryMethod, Object[] args)
+			throws IllegalAccessException, InvocationTargetException {
+
+		BeanInstantiator instantiator = getBeanInstantiator(factoryMethod);
+		if (instantiator == null) {
+			return super.invokeFactoryMethod(factoryBean, factoryMethod, args);
+		}
+		if (!isMatchingArguments(factoryMethod.getParameterTypes(), args) ||
+				(!Modifier.isStatic(factoryMethod.getModifiers()) &&
+						!factoryMethod.getDeclaringClass().isInstance(factoryBean))) {
+			throw new IllegalArgumentException("argument type mismatch");
+		}
+		try {
+			return instantiator.instantiate(factoryBean, args);
+		}
+		catch (Throwable ex) {
+			throw new InvocationTargetException(ex);
+		}
+	}
+
+	/**
+	 * Return the generated instantiator for the given constructor or factory method,
+	 * generating it on first access.
+	 * @param member the Constructor or Method to invoke
+	 * @return the BeanInstantiator, or <code>null</code> if the given member
+	 * has to be invoked reflectively
+	 */
+	BeanInstantiator getBeanInstantiator(Member member) {
+		Object instantiator = this.instantiatorCache.get(member);
+		if (instantiator == null) {
+			instantiator = generateInstantiatorIfPossible(member);
+			this.instantiatorCache.put(member, (instantiator != null ? instantiator : NO_INSTANTIATOR));
+		}
+		return (instantiator != NO_INSTANTIATOR ? (BeanInstantiator) instantiator : null);
+	}
+
+	private static boolean isMatchingArguments(Class[] parameterTypes, Object[] args) {
+		int argCount = (args != null ? args.length : 0);
+		if (parameterTypes.length != argCount) {
+			return false;
+		}
+		for (int i = 0; i < argCount; i++) {
+			Object arg = args[i];
+			if (arg != null ? !ClassUtils.isAssignableValue(parameterTypes[i], arg) : parameterTypes[i].isPrimitive()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static BeanInstantiator generateInstantiatorIfPossible(Member member) {
+		Class declaringClass = member.getDeclaringClass();
+		ClassLoader classLoader = declaringClass.getClassLoader();
+		if (classLoader == null || System.getSecurityManager() != null ||
+				!Modifier.isPublic(member.getModifiers()) || !Modifier.isPublic(declaringClass.getModifiers())) {
+			return null;
+		}
+		Class[] parameterTypes;
+		if (member instanceof Constructor) {
+			if (Modifier.isAbstract(declaringClass.getModifiers())) {
+				return null;
+			}
+			parameterTypes = ((Constructor) member).getParameterTypes();
+		}
+		else {
+			parameterTypes = ((Method) member).getParameterTypes();
+		}
+		for (Class parameterType : parameterTypes) {
+			if (!isAccessible(parameterType, classLoader)) {
+				return null;
+			}
+		}
+		try {
+			return generateInstantiator(member, parameterTypes);
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Could not generate bean instantiator for [" + member +
+						"] - falling back to reflection", ex);
+			}
+			return null;
+		}
+	}
+
+	private static boolean isAccessible(Class clazz, ClassLoader classLoader) {
+		while (clazz.isArray()) {
+			clazz = clazz.getComponentType();
+		}
+		return (clazz.isPrimitive() ||
+				(Modifier.isPublic(clazz.getModifiers()) && ClassUtils.isVisible(clazz, classLoader)));
+	}
+
+	private static BeanInstantiator generateInstantiator(Member member, Class[] parameterTypes) throws Exception {
+		Class declaringClass = member.getDeclaringClass();
+		String ownerName = Type.getInternalName(declaringClass);
+		String className = (ownerName.startsWith("java/") ? FALLBACK_PACKAGE + ownerName.replace('/', '_') :
+				ownerName) + INSTANTIATOR_CLASS_SUFFIX + instantiatorClassCount.incrementAndGet();
+
+		ClassWriter cw = new ClassWriter(true);
+		cw.visit(V1_5, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, className, null, "java/lang/Object",
+				new String[] {Type.getInternalName(BeanInstantiator.class)});
+
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		mv = cw.visitMethod(ACC_PUBLIC, "instantiate",
+				"(" + OBJECT_DESCRIPTOR + "[" + OBJECT_DESCRIPTOR + ")" + OBJECT_DESCRIPTOR, null, null);
+		mv.visitCode();
+		if (member instanceof Constructor) {
+			mv.visitTypeInsn(NEW, ownerName);
+			mv.visitInsn(DUP);
+			loadArguments(mv, parameterTypes);
+			mv.visitMethodInsn(INVOKESPECIAL, ownerName, "<init>", getConstructorDescriptor(parameterTypes));
+		}
+		else {
+			Method method = (Method) member;
+			boolean isStatic = Modifier.isStatic(method.getModifiers());
+			if (!isStatic) {
+				mv.visitVarInsn(ALOAD, 1);
+				mv.visitTypeInsn(CHECKCAST, ownerName);
+			}
+			loadArguments(mv, parameterTypes);
+			int opcode = (isStatic ? INVOKESTATIC : (declaringClass.isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL));
+			mv.visitMethodInsn(opcode, ownerName, method.getName(), Type.getMethodDescriptor(method));
+			Class returnType = method.getReturnType();
+			if (returnType == void.class) {
+				mv.visitInsn(ACONST_NULL);
+			}
+			else if (returnType.isPrimitive()) {
+				Class wrapperType = ClassUtils.resolvePrimitiveIfNecessary(returnType);
+				mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(wrapperType), "valueOf",
+						"(" + Type.getDescriptor(returnType) + ")" + Type.getDescriptor(wrapperType));
+			}
+		}
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		cw.visitEnd();
+
+		InstantiatorClassLoader classLoader = new InstantiatorClassLoader(declaringClass.getClassLoader());
+		Class<?> instantiatorClass = classLoader.defineInstantiatorClass(className.replace('/', '.'), cw.toByteArray());
+		return (BeanInstantiator) instantiatorClass.newInstance();
+	}
+
+	private static String getConstructorDescriptor(Class[] parameterTypes) {
+		StringBuilder sb = new StringBuilder("(");
+		for (Class parameterType : parameterTypes) {
+			sb.append(Type.getDescriptor(parameterType));
+		}
+		return sb.append(")V").toString();
+	}
+
+	private static void loadArguments(MethodVisitor mv, Class[] parameterTypes) {
+		for (int i = 0; i < parameterTypes.length; i++) {
+			mv.visitVarInsn(ALOAD, 2);
+			if (i <= 5) {
+				mv.visitInsn(ICONST_0 + i);
+			}
+			else if (i <= Byte.MAX_VALUE) {
+				mv.visitIntInsn(BIPUSH, i);
+			}
+			else {
+				mv.visitIntInsn(SIPUSH, i);
+			}
+			mv.visitInsn(AALOAD);
+			Class type = parameterTypes[i];
+			if (type.isPrimitive()) {
+				Class wrapperType = ClassUtils.resolvePrimitiveIfNecessary(type);
+				String wrapperName = Type.getInternalName(wrapperType);
+				mv.visitTypeInsn(CHECKCAST, wrapperName);
+				mv.visitMethodInsn(INVOKEVIRTUAL, wrapperName, type.getName() + "Value", "()" + Type.getDescriptor(type));
+			}
+			else if (type != Object.class) {
+				mv.visitTypeInsn(CHECKCAST, Type.getInternalName(type));
+			}
+		}
+	}
+
+
+	/**
+	 * ClassLoader for a single generated instantiator class: delegates to the bean
+	 * ClassLoader, except for the {@link BeanInstantiator} interface itself.
+	 */
+	private static class InstantiatorClassLoader extends ClassLoader {
+
+		public InstantiatorClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		public Class<?> defineInstantiatorClass(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+
+		@Override
+		protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (BeanInstantiator.class.getName().equals(name)) {
+				return BeanInstantiator.class;
+			}
+			return super.loadClass(name, resolve);
+		}
+	}
+
+}
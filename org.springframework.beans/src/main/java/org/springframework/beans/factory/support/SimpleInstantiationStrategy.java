@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -73,7 +73,7 @@ public class SimpleInstantiationStrategy implements InstantiationStrategy {
 					}
 				}
 			}
-			return BeanUtils.instantiateClass(constructorToUse);
+			return instantiateClass(constructorToUse, null);
 		}
 		else {
 			// Must generate CGLIB subclass.
@@ -107,13 +107,29 @@ public class SimpleInstantiationStrategy implements InstantiationStrategy {
 					}
 				});
 			}
-			return BeanUtils.instantiateClass(ctor, args);
+			return instantiateClass(ctor, args);
 		}
 		else {
 			return instantiateWithMethodInjection(beanDefinition, beanName, owner, ctor, args);
 		}
 	}
 
+	/**
+	 * Instantiate the bean class through the given constructor, for a bean
+	 * definition without Method Injection.
+	 * <p>The default implementation delegates to {@link BeanUtils#instantiateClass}.
+	 * Subclasses may override this to use a different invocation mechanism.
+	 * @param ctor the constructor to use
+	 * @param args the constructor arguments to apply (may be <code>null</code>
+	 * for a no-arg constructor)
+	 * @return the new bean instance
+	 * @throws BeanInstantiationException if the bean cannot be instantiated
+	 * @since 3.1
+	 */
+	protected Object instantiateClass(Constructor<?> ctor, Object[] args) {
+		return BeanUtils.instantiateClass(ctor, args);
+	}
+
 	/**
 	 * Subclasses can override this method, which is implemented to throw
 	 * UnsupportedOperationException, if they can instantiate an object with
@@ -146,7 +162,7 @@ public class SimpleInstantiationStrategy implements InstantiationStrategy {
 			Method priorInvokedFactoryMethod = currentlyInvokedFactoryMethod.get();
 			try {
 				currentlyInvokedFactoryMethod.set(factoryMethod);
-				return factoryMethod.invoke(factoryBean, args);
+				return invokeFactoryMethod(factoryBean, factoryMethod, args);
 			} finally {
 				if (priorInvokedFactoryMethod != null) {
 					currentlyInvokedFactoryMethod.set(priorInvokedFactoryMethod);
@@ -171,6 +187,28 @@ public class SimpleInstantiationStrategy implements InstantiationStrategy {
 		}
 	}
 
+	/**
+	 * Invoke the given factory method on the given factory bean. Called with
+	 * the factory method already exposed as currently invoked.
+	 * <p>The default implementation uses {@link Method#invoke}. Subclasses may
+	 * override this to use a different invocation mechanism, reporting errors
+	 * in the same form.
+	 * @param factoryBean the factory bean instance to call the factory method on,
+	 * or <code>null</code> in case of a static factory method
+	 * @param factoryMethod the factory method to use
+	 * @param args the factory method arguments to apply
+	 * @return the object returned by the factory method
+	 * @throws IllegalArgumentException if the arguments do not match
+	 * @throws IllegalAccessException if the factory method is not accessible
+	 * @throws InvocationTargetException if the factory method threw an exception
+	 * @since 3.1
+	 */
+	protected Object invokeFactoryMethod(Object factoryBean, Method factoryMethod, Object[] args)
+			throws IllegalAccessException, InvocationTargetException {
+
+		return factoryMethod.invoke(factoryBean, args);
+	}
+
 	/**
 	 * Return the factory method currently being invoked or {@code null} if none.
 	 * Allows factory method implementations to determine whether the current
@@ -35,6 +35,7 @@ import org.w3c.dom.NodeList;
 import org.springframework.beans.BeanMetadataAttribute;
 import org.springframework.beans.BeanMetadataAttributeAccessor;
 import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinitionHolder;
 import org.springframework.beans.factory.config.ConstructorArgumentValues;
@@ -358,19 +359,19 @@ public class BeanDefinitionParserDelegate {
 	 */
 	protected void populateDefaults(DocumentDefaultsDefinition defaults, DocumentDefaultsDefinition parentDefaults, Element root) {
 		String lazyInit = root.getAttribute(DEFAULT_LAZY_INIT_ATTRIBUTE);
-		if (DEFAULT_VALUE.equals(lazyInit)) {
+		if (isDefaultValue(lazyInit)) {
 			lazyInit = parentDefaults != null ? parentDefaults.getLazyInit() : FALSE_VALUE;
 		}
 		defaults.setLazyInit(lazyInit);
 
 		String merge = root.getAttribute(DEFAULT_MERGE_ATTRIBUTE);
-		if (DEFAULT_VALUE.equals(merge)) {
+		if (isDefaultValue(merge)) {
 			merge = parentDefaults != null ? parentDefaults.getMerge() : FALSE_VALUE;
 		}
 		defaults.setMerge(merge);
 
 		String autowire = root.getAttribute(DEFAULT_AUTOWIRE_ATTRIBUTE);
-		if (DEFAULT_VALUE.equals(autowire)) {
+		if (isDefaultValue(autowire)) {
 			autowire = parentDefaults != null ? parentDefaults.getAutowire() : AUTOWIRE_NO_VALUE;
 		}
 		defaults.setAutowire(autowire);
@@ -616,7 +617,7 @@ public class BeanDefinitionParserDelegate {
 		}
 
 		String lazyInit = ele.getAttribute(LAZY_INIT_ATTRIBUTE);
-		if (DEFAULT_VALUE.equals(lazyInit)) {
+		if (isDefaultValue(lazyInit)) {
 			lazyInit = this.defaults.getLazyInit();
 		}
 		bd.setLazyInit(TRUE_VALUE.equals(lazyInit));
@@ -715,7 +716,7 @@ public class BeanDefinitionParserDelegate {
 
 	public int getAutowireMode(String attValue) {
 		String att = attValue;
-		if (DEFAULT_VALUE.equals(att)) {
+		if (isDefaultValue(att)) {
 			att = this.defaults.getAutowire();
 		}
 		int autowire = AbstractBeanDefinition.AUTOWIRE_NO;
@@ -737,7 +738,7 @@ public class BeanDefinitionParserDelegate {
 
 	public int getDependencyCheck(String attValue) {
 		String att = attValue;
-		if (DEFAULT_VALUE.equals(att)) {
+		if (isDefaultValue(att)) {
 			att = this.defaults.getDependencyCheck();
 		}
 		if (DEPENDENCY_CHECK_ALL_ATTRIBUTE_VALUE.equals(att)) {
@@ -927,8 +928,8 @@ public class BeanDefinitionParserDelegate {
 	public void parseQualifierElement(Element ele, AbstractBeanDefinition bd) {
 		String typeName = ele.getAttribute(TYPE_ATTRIBUTE);
 		if (!StringUtils.hasLength(typeName)) {
-			error("Tag 'qualifier' must have a 'type' attribute", ele);
-			return;
+			// Not validated against the schema -> apply the schema's default type.
+			typeName = Qualifier.class.getName();
 		}
 		this.parseState.push(new QualifierEntry(typeName));
 		try {
@@ -1399,12 +1400,22 @@ public class BeanDefinitionParserDelegate {
 	 */
 	public boolean parseMergeAttribute(Element collectionElement) {
 		String value = collectionElement.getAttribute(MERGE_ATTRIBUTE);
-		if (DEFAULT_VALUE.equals(value)) {
+		if (isDefaultValue(value)) {
 			value = this.defaults.getMerge();
 		}
 		return TRUE_VALUE.equals(value);
 	}
 
+	/**
+	 * Determine whether the given attribute value refers to the default setting:
+	 * either explicitly specified as "default" or not specified at all, which is
+	 * what we get if the document has not been validated against its schema
+	 * (and hence has not been populated with the schema's default values).
+	 */
+	private boolean isDefaultValue(String value) {
+		return (DEFAULT_VALUE.equals(value) || "".equals(value));
+	}
+
 	public BeanDefinition parseCustomElement(Element ele) {
 		return parseCustomElement(ele, null);
 	}
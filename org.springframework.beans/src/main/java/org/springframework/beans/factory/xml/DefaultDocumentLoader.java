@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2007 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,17 +16,44 @@
 
 package org.springframework.beans.factory.xml;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.w3c.dom.Document;
+import org.w3c.dom.ls.LSInput;
+import org.w3c.dom.ls.LSResourceResolver;
+import org.xml.sax.Attributes;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
 
+import org.springframework.core.io.Resource;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.StringUtils;
 import org.springframework.util.xml.XmlValidationModeDetector;
 
 /**
@@ -40,6 +67,16 @@ import org.springframework.util.xml.XmlValidationModeDetector;
  *
  * <pre code="class">java -Djavax.xml.parsers.DocumentBuilderFactory=oracle.xml.jaxp.JXDocumentBuilderFactory MyMainClass</pre>
  *
+ * <p>For XSD validation, the schemas referenced by a document can optionally be
+ * compiled into a {@link Schema} which is cached by this loader, keyed by the referenced
+ * schema locations along with the content digests of the schemas that they resolve to.
+ * Further documents loaded through the same DocumentLoader instance and referring to
+ * the same schemas will be validated against the cached Schema instead of compiling it
+ * again. Documents loaded from a {@link Resource} are furthermore associated with their
+ * Schema as long as their last-modified timestamp and the EntityResolver in use are
+ * unchanged, so that they do not have to be scanned for schema locations again.
+ * See {@link #setSchemaCaching}.
+ *
  * @author Rob Harrop
  * @author Juergen Hoeller
  * @since 2.0
@@ -57,9 +94,71 @@ public class DefaultDocumentLoader implements DocumentLoader {
 	private static final String XSD_SCHEMA_LANGUAGE = "http://www.w3.org/2001/XMLSchema";
 
 
+	/**
+	 * Namespace of the attributes that XML documents declare their schema locations with.
+	 */
+	private static final String SCHEMA_INSTANCE_NAMESPACE = "http://www.w3.org/2001/XMLSchema-instance";
+
+
+	/** Default maximum number of entries for each of the Schema caches: 32 */
+	public static final int DEFAULT_CACHE_LIMIT = 32;
+
+
 	private static final Log logger = LogFactory.getLog(DefaultDocumentLoader.class);
 
 
+	private boolean schemaCaching = false;
+
+	private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
+
+	/** Compiled Schemas, keyed by schema locations and content digests */
+	private final Map<String, Schema> schemaCache =
+			new LinkedHashMap<String, Schema>(DEFAULT_CACHE_LIMIT, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Schema> eldest) {
+					return size() > getCacheLimit();
+				}
+			};
+
+	/** Compiled Schemas, keyed by the URL of the document resource that refers to them */
+	private final Map<String, DocumentSchema> documentSchemaCache =
+			new LinkedHashMap<String, DocumentSchema>(DEFAULT_CACHE_LIMIT, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, DocumentSchema> eldest) {
+					return size() > getCacheLimit();
+				}
+			};
+
+
+	/**
+	 * Set whether to compile the XSD schemas referenced by a document into a
+	 * {@link Schema} that is cached by this DocumentLoader, rather than letting the
+	 * XML parser resolve and compile them for every document. Default is "false".
+	 * <p>Switch this on for a DocumentLoader instance that is shared by several
+	 * readers or application contexts loading documents that refer to the same
+	 * schemas. Note that the JAXP provider needs to support validation against
+	 * a {@link DocumentBuilderFactory#setSchema pre-compiled Schema}.
+	 */
+	public void setSchemaCaching(boolean schemaCaching) {
+		this.schemaCaching = schemaCaching;
+	}
+
+	/**
+	 * Specify the maximum number of entries for each of the Schema caches.
+	 * Default is 32.
+	 */
+	public void setCacheLimit(int cacheLimit) {
+		this.cacheLimit = cacheLimit;
+	}
+
+	/**
+	 * Return the maximum number of entries for each of the Schema caches.
+	 */
+	public int getCacheLimit() {
+		return this.cacheLimit;
+	}
+
+
 	/**
 	 * Load the {@link Document} at the supplied {@link InputSource} using the standard JAXP-configured
 	 * XML parser.
@@ -67,12 +166,74 @@ public class DefaultDocumentLoader implements DocumentLoader {
 	public Document loadDocument(InputSource inputSource, EntityResolver entityResolver,
 			ErrorHandler errorHandler, int validationMode, boolean namespaceAware) throws Exception {
 
-		DocumentBuilderFactory factory = createDocumentBuilderFactory(validationMode, namespaceAware);
+		InputSource inputSourceToUse = inputSource;
+		Schema schema = null;
+		if (validationMode == XmlValidationModeDetector.VALIDATION_XSD && this.schemaCaching) {
+			String documentUrl = null;
+			long lastModified = 0;
+			if (inputSource instanceof ResourceInputSource) {
+				Resource resource = ((ResourceInputSource) inputSource).getResource();
+				try {
+					documentUrl = resource.getURL().toString();
+					lastModified = resource.lastModified();
+				}
+				catch (IOException ex) {
+					// Not identifiable -> determine the schemas from the document content.
+					documentUrl = null;
+				}
+			}
+			if (documentUrl != null) {
+				DocumentSchema documentSchema;
+				synchronized (this.documentSchemaCache) {
+					documentSchema = this.documentSchemaCache.get(documentUrl);
+				}
+				if (documentSchema != null && documentSchema.lastModified == lastModified &&
+						documentSchema.entityResolver == entityResolver) {
+					schema = documentSchema.schema;
+				}
+			}
+			if (schema == null) {
+				inputSourceToUse = bufferInputSource(inputSource);
+				if (inputSourceToUse != null) {
+					schema = getSchema(inputSourceToUse, entityResolver);
+					if (schema != null && documentUrl != null) {
+						synchronized (this.documentSchemaCache) {
+							this.documentSchemaCache.put(documentUrl, new DocumentSchema(lastModified, entityResolver, schema));
+						}
+					}
+				}
+				else {
+					inputSourceToUse = inputSource;
+				}
+			}
+		}
+
+		DocumentBuilderFactory factory;
+		if (schema != null) {
+			// Validate against the pre-compiled Schema instead of the schema location hints.
+			factory = createDocumentBuilderFactory(XmlValidationModeDetector.VALIDATION_NONE, true);
+			factory.setSchema(schema);
+		}
+		else {
+			factory = createDocumentBuilderFactory(validationMode, namespaceAware);
+		}
 		if (logger.isDebugEnabled()) {
 			logger.debug("Using JAXP provider [" + factory.getClass().getName() + "]");
 		}
 		DocumentBuilder builder = createDocumentBuilder(factory, entityResolver, errorHandler);
-		return builder.parse(inputSource);
+		return builder.parse(inputSourceToUse);
+	}
+
+	/**
+	 * Clear this loader's cache of compiled Schemas.
+	 */
+	public void clearSchemaCache() {
+		synchronized (this.schemaCache) {
+			this.schemaCache.clear();
+		}
+		synchronized (this.documentSchemaCache) {
+			this.documentSchemaCache.clear();
+		}
 	}
 
 	/**
@@ -137,4 +298,268 @@ public class DefaultDocumentLoader implements DocumentLoader {
 		return docBuilder;
 	}
 
+
+	/**
+	 * Read the content of the given InputSource into memory, since it has to be
+	 * read twice: once for determining the schemas and once for actual parsing.
+	 * @return the buffered InputSource, or <code>null</code> if the given InputSource
+	 * does not expose its content as a stream
+	 */
+	private InputSource bufferInputSource(InputSource inputSource) throws IOException {
+		InputSource buffered;
+		if (inputSource.getByteStream() != null) {
+			buffered = new InputSource(new ByteArrayInputStream(FileCopyUtils.copyToByteArray(inputSource.getByteStream())));
+		}
+		else if (inputSource.getCharacterStream() != null) {
+			buffered = new InputSource(new StringReader(FileCopyUtils.copyToString(inputSource.getCharacterStream())));
+		}
+		else {
+			return null;
+		}
+		buffered.setEncoding(inputSource.getEncoding());
+		buffered.setPublicId(inputSource.getPublicId());
+		buffered.setSystemId(inputSource.getSystemId());
+		return buffered;
+	}
+
+	/**
+	 * Obtain the compiled Schema for the schemas referenced by the given document,
+	 * either from the cache or by compiling the referenced schemas. The schemas are
+	 * resolved in any case, since their content is part of the cache key.
+	 * @param inputSource the buffered document (will be reset after reading)
+	 * @param entityResolver the EntityResolver to resolve schema locations with
+	 * @return the Schema, or <code>null</code> if it could not be determined,
+	 * in which case the document should be validated the conventional way
+	 */
+	private Schema getSchema(InputSource inputSource, EntityResolver entityResolver) {
+		try {
+			Set<String[]> schemaLocations = findSchemaLocations(inputSource, entityResolver);
+			if (schemaLocations.isEmpty() || entityResolver == null) {
+				return null;
+			}
+			StringBuilder cacheKey = new StringBuilder();
+			List<Source> sources = new ArrayList<Source>(schemaLocations.size());
+			for (String[] schemaLocation : schemaLocations) {
+				InputSource schemaSource = entityResolver.resolveEntity(null, schemaLocation[1]);
+				if (schemaSource == null || schemaSource.getByteStream() == null) {
+					// Not resolvable locally -> leave it up to the XML parser.
+					return null;
+				}
+				byte[] content = FileCopyUtils.copyToByteArray(schemaSource.getByteStream());
+				sources.add(new StreamSource(new ByteArrayInputStream(content), schemaLocation[1]));
+				cacheKey.append(schemaLocation[0]).append('=').append(schemaLocation[1]).append('@');
+				cacheKey.append(DigestUtils.md5DigestAsHex(content)).append(';');
+			}
+			Schema schema;
+			synchronized (this.schemaCache) {
+				schema = this.schemaCache.get(cacheKey.toString());
+			}
+			if (schema == null) {
+				SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+				schemaFactory.setResourceResolver(new EntityResolverResourceResolver(entityResolver));
+				schema = schemaFactory.newSchema(sources.toArray(new Source[sources.size()]));
+				synchronized (this.schemaCache) {
+					this.schemaCache.put(cacheKey.toString(), schema);
+				}
+				if (logger.isDebugEnabled()) {
+					logger.debug("Compiled XML schema for " + cacheKey);
+				}
+			}
+			return schema;
+		}
+		catch (Exception ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Could not compile XML schema for document - falling back to parser-driven validation", ex);
+			}
+			return null;
+		}
+		finally {
+			resetInputSource(inputSource);
+		}
+	}
+
+	/**
+	 * Scan the given document for the schema locations declared on any of its elements.
+	 * @return the schema locations as namespace/location pairs, sorted for a stable cache key
+	 */
+	private Set<String[]> findSchemaLocations(InputSource inputSource, final EntityResolver entityResolver)
+			throws Exception {
+
+		final Set<String[]> schemaLocations = new TreeSet<String[]>(new Comparator<String[]>() {
+			public int compare(String[] o1, String[] o2) {
+				int result = o1[0].compareTo(o2[0]);
+				return (result != 0 ? result : o1[1].compareTo(o2[1]));
+			}
+		});
+		SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+		parserFactory.setNamespaceAware(true);
+		parserFactory.newSAXParser().parse(inputSource, new DefaultHandler() {
+			@Override
+			public InputSource resolveEntity(String publicId, String systemId) throws IOException, SAXException {
+				return (entityResolver != null ? entityResolver.resolveEntity(publicId, systemId) : null);
+			}
+			@Override
+			public void startElement(String uri, String localName, String qName, Attributes attributes) {
+				String schemaLocation = attributes.getValue(SCHEMA_INSTANCE_NAMESPACE, "schemaLocation");
+				if (schemaLocation != null) {
+					String[] tokens = StringUtils.tokenizeToStringArray(schemaLocation, " \t\n\r\f");
+					for (int i = 0; i + 1 < tokens.length; i += 2) {
+						schemaLocations.add(new String[] {tokens[i], tokens[i + 1]});
+					}
+				}
+				String noNamespaceSchemaLocation = attributes.getValue(SCHEMA_INSTANCE_NAMESPACE, "noNamespaceSchemaLocation");
+				if (noNamespaceSchemaLocation != null) {
+					schemaLocations.add(new String[] {"", noNamespaceSchemaLocation.trim()});
+				}
+			}
+		});
+		return schemaLocations;
+	}
+
+	private void resetInputSource(InputSource inputSource) {
+		try {
+			InputStream byteStream = inputSource.getByteStream();
+			if (byteStream != null) {
+				byteStream.reset();
+			}
+			Reader characterStream = inputSource.getCharacterStream();
+			if (characterStream != null) {
+				characterStream.reset();
+			}
+		}
+		catch (IOException ex) {
+			// Cannot happen for in-memory streams.
+			throw new IllegalStateException(ex);
+		}
+	}
+
+
+	/**
+	 * Holder for the Schema of a document, along with the document's last-modified
+	 * timestamp and the EntityResolver that the Schema was determined with.
+	 */
+	private static class DocumentSchema {
+
+		public final long lastModified;
+
+		public final EntityResolver entityResolver;
+
+		public final Schema schema;
+
+		public DocumentSchema(long lastModified, EntityResolver entityResolver, Schema schema) {
+			this.lastModified = lastModified;
+			this.entityResolver = entityResolver;
+			this.schema = schema;
+		}
+	}
+
+
+	/**
+	 * LSResourceResolver that resolves schema imports and includes
+	 * through a SAX EntityResolver.
+	 */
+	private static class EntityResolverResourceResolver implements LSResourceResolver {
+
+		private final EntityResolver entityResolver;
+
+		public EntityResolverResourceResolver(EntityResolver entityResolver) {
+			this.entityResolver = entityResolver;
+		}
+
+		public LSInput resolveResource(
+				String type, String namespaceURI, String publicId, String systemId, String baseURI) {
+
+			if (systemId == null) {
+				return null;
+			}
+			try {
+				InputSource source = this.entityResolver.resolveEntity(publicId, systemId);
+				return (source != null ? new InputSourceLSInput(source, baseURI) : null);
+			}
+			catch (Exception ex) {
+				// Let the SchemaFactory try to resolve the resource itself.
+				return null;
+			}
+		}
+	}
+
+
+	/**
+	 * LSInput adapter for a SAX InputSource.
+	 */
+	private static class InputSourceLSInput implements LSInput {
+
+		private final InputSource source;
+
+		private String baseURI;
+
+		public InputSourceLSInput(InputSource source, String baseURI) {
+			this.source = source;
+			this.baseURI = baseURI;
+		}
+
+		public Reader getCharacterStream() {
+			return this.source.getCharacterStream();
+		}
+
+		public void setCharacterStream(Reader characterStream) {
+			this.source.setCharacterStream(characterStream);
+		}
+
+		public InputStream getByteStream() {
+			return this.source.getByteStream();
+		}
+
+		public void setByteStream(InputStream byteStream) {
+			this.source.setByteStream(byteStream);
+		}
+
+		public String getStringData() {
+			return null;
+		}
+
+		public void setStringData(String stringData) {
+			throw new UnsupportedOperationException();
+		}
+
+		public String getSystemId() {
+			return this.source.getSystemId();
+		}
+
+		public void setSystemId(String systemId) {
+			this.source.setSystemId(systemId);
+		}
+
+		public String getPublicId() {
+			return this.source.getPublicId();
+		}
+
+		public void setPublicId(String publicId) {
+			this.source.setPublicId(publicId);
+		}
+
+		public String getBaseURI() {
+			return this.baseURI;
+		}
+
+		public void setBaseURI(String baseURI) {
+			this.baseURI = baseURI;
+		}
+
+		public String getEncoding() {
+			return this.source.getEncoding();
+		}
+
+		public void setEncoding(String encoding) {
+			this.source.setEncoding(encoding);
+		}
+
+		public boolean getCertifiedText() {
+			return false;
+		}
+
+		public void setCertifiedText(boolean certifiedText) {
+		}
+	}
+
 }
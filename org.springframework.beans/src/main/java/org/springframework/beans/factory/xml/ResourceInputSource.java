@@ -0,0 +1,47 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.xml;
+
+import java.io.InputStream;
+
+import org.xml.sax.InputSource;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * SAX InputSource that remembers the {@link Resource} it reads from,
+ * allowing the {@link DefaultDocumentLoader} to cache per-document state.
+ *
+ * @author agent
+ * @since 3.1
+ */
+class ResourceInputSource extends InputSource {
+
+	private final Resource resource;
+
+
+	public ResourceInputSource(InputStream byteStream, Resource resource) {
+		super(byteStream);
+		this.resource = resource;
+	}
+
+
+	public Resource getResource() {
+		return this.resource;
+	}
+
+}
@@ -23,6 +23,7 @@ import java.util.Set;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.InputSource;
@@ -41,11 +42,13 @@ import org.springframework.beans.factory.support.AbstractBeanDefinitionReader;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.core.Constants;
 import org.springframework.core.NamedThreadLocal;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.DescriptiveResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.EncodedResource;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 import org.springframework.util.xml.SimpleSaxErrorHandler;
 import org.springframework.util.xml.XmlValidationModeDetector;
 
@@ -104,6 +107,8 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 
 	private boolean namespaceAware = false;
 
+	private boolean trustClassPathResources = false;
+
 	private Class<?> documentReaderClass = DefaultBeanDefinitionDocumentReader.class;
 
 	private ProblemReporter problemReporter = new FailFastProblemReporter();
@@ -190,6 +195,34 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 		return this.namespaceAware;
 	}
 
+	/**
+	 * Set whether to trust XML documents loaded from the class path, i.e. to
+	 * parse them without validation. Default is "false".
+	 * <p>Class path resources are typically part of a tested deployment unit,
+	 * so validating them on every startup is usually wasted effort. A trusted
+	 * document only gets validated if parsing or registering its bean definitions
+	 * fails, in order to report a schema violation as the likely cause.
+	 * <p>Note that validation is also what populates a document with the default
+	 * attribute values declared by its schemas. Many namespaces rely on those,
+	 * e.g. <code>&lt;mvc:message-converters register-defaults&gt;</code> or the
+	 * <code>data-source</code> reference of <code>&lt;jdbc:initialize-database&gt;</code>.
+	 * Only documents that consist of elements in the "beans" namespace - whose
+	 * defaults are applied by the parser itself - are therefore parsed without
+	 * validation; documents containing custom namespace elements always get validated.
+	 * @see org.springframework.core.io.ClassPathResource
+	 */
+	public void setTrustClassPathResources(boolean trustClassPathResources) {
+		this.trustClassPathResources = trustClassPathResources;
+	}
+
+	/**
+	 * Return whether XML documents loaded from the class path are trusted,
+	 * i.e. parsed without validation.
+	 */
+	public boolean isTrustClassPathResources() {
+		return this.trustClassPathResources;
+	}
+
 	/**
 	 * Specify which {@link org.springframework.beans.factory.parsing.ProblemReporter} to use.
 	 * <p>The default implementation is {@link org.springframework.beans.factory.parsing.FailFastProblemReporter}
@@ -327,7 +360,7 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 		try {
 			InputStream inputStream = encodedResource.getResource().getInputStream();
 			try {
-				InputSource inputSource = new InputSource(inputStream);
+				InputSource inputSource = new ResourceInputSource(inputStream, encodedResource.getResource());
 				if (encodedResource.getEncoding() != null) {
 					inputSource.setEncoding(encodedResource.getEncoding());
 				}
@@ -385,6 +418,36 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 			throws BeanDefinitionStoreException {
 		try {
 			int validationMode = getValidationModeForResource(resource);
+			if (validationMode != VALIDATION_NONE && isTrustedResource(resource)) {
+				try {
+					Document doc = this.documentLoader.loadDocument(
+							inputSource, getEntityResolver(), this.errorHandler, VALIDATION_NONE, true);
+					if (isConfinedToBeansNamespace(doc)) {
+						return registerBeanDefinitions(doc, resource);
+					}
+				}
+				catch (RuntimeException ex) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Validating trusted XML document from " + resource + " after parsing failure");
+					}
+					loadValidatedDocument(inputSource, resource, validationMode);
+					throw ex;
+				}
+				catch (SAXException ex) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Validating trusted XML document from " + resource + " after parsing failure");
+					}
+					loadValidatedDocument(inputSource, resource, validationMode);
+					throw ex;
+				}
+				// Custom namespaces may rely on default attribute values from their schemas,
+				// which only get populated through validation.
+				if (logger.isDebugEnabled()) {
+					logger.debug("Validating trusted XML document from " + resource +
+							" since it contains custom namespace elements");
+				}
+				return registerBeanDefinitions(loadValidatedDocument(inputSource, resource, validationMode), resource);
+			}
 			Document doc = this.documentLoader.loadDocument(
 					inputSource, getEntityResolver(), this.errorHandler, validationMode, isNamespaceAware());
 			return registerBeanDefinitions(doc, resource);
@@ -415,6 +478,56 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 	}
 
 
+	/**
+	 * Determine whether the given resource is trusted, i.e. to be parsed without validation.
+	 * @param resource the resource to check
+	 * @see #setTrustClassPathResources
+	 */
+	protected boolean isTrustedResource(Resource resource) {
+		return (this.trustClassPathResources && resource instanceof ClassPathResource);
+	}
+
+	/**
+	 * Determine whether the given document consists of elements in the "beans"
+	 * namespace only, i.e. does not depend on any schema default values that
+	 * the "beans" parser does not apply itself.
+	 * @param doc the unvalidated DOM document
+	 */
+	private boolean isConfinedToBeansNamespace(Document doc) {
+		NodeList elements = doc.getElementsByTagNameNS("*", "*");
+		for (int i = 0; i < elements.getLength(); i++) {
+			String namespaceUri = elements.item(i).getNamespaceURI();
+			if (StringUtils.hasLength(namespaceUri) && !BeanDefinitionParserDelegate.BEANS_NAMESPACE_URI.equals(namespaceUri)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Load the given trusted document again, this time with validation: either to
+	 * throw the validation exception (if any) after parsing the document has failed,
+	 * or to populate it with the default attribute values declared by its schemas.
+	 * @param inputSource the original SAX InputSource, specifying the encoding
+	 * @param resource the resource descriptor for the XML file
+	 * @param validationMode the validation mode that would apply to the resource
+	 * @return the validated DOM document
+	 */
+	private Document loadValidatedDocument(InputSource inputSource, Resource resource, int validationMode)
+			throws Exception {
+
+		InputStream inputStream = resource.getInputStream();
+		try {
+			InputSource validationSource = new ResourceInputSource(inputStream, resource);
+			validationSource.setEncoding(inputSource.getEncoding());
+			return this.documentLoader.loadDocument(
+					validationSource, getEntityResolver(), this.errorHandler, validationMode, isNamespaceAware());
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
 	/**
 	 * Gets the validation mode for the specified {@link Resource}. If no explicit
 	 * validation mode has been configured then the validation mode is
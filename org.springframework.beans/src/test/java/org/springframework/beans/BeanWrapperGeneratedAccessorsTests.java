@@ -0,0 +1,200 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.junit.Test;
+import test.beans.IndexedTestBean;
+import test.beans.NumberTestBean;
+import test.beans.TestBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link BeanWrapperImpl} with generated property accessors.
+ *
+ * @author agent
+ */
+public final class BeanWrapperGeneratedAccessorsTests {
+
+	@Test
+	public void testSimpleProperties() throws Exception {
+		TestBean tb = new TestBean();
+		BeanWrapperImpl bw = createBeanWrapper(tb);
+		bw.setPropertyValue("name", "juergen");
+		bw.setPropertyValue("age", "32");
+		bw.setPropertyValue("jedi", Boolean.TRUE);
+		assertEquals("juergen", tb.getName());
+		assertEquals(32, tb.getAge());
+		assertTrue(tb.isJedi());
+		assertEquals("juergen", bw.getPropertyValue("name"));
+		assertEquals(32, bw.getPropertyValue("age"));
+		assertEquals(Boolean.TRUE, bw.getPropertyValue("jedi"));
+		GeneratedPropertyMethods methods =
+				CachedIntrospectionResults.forClass(TestBean.class).getGeneratedPropertyMethods();
+		assertTrue(methods.isGenerated(TestBean.class.getMethod("getName")));
+		assertTrue(methods.isGenerated(TestBean.class.getMethod("setAge", int.class)));
+	}
+
+	@Test
+	public void testPrimitiveAndWrapperProperties() {
+		NumberTestBean nb = new NumberTestBean();
+		BeanWrapperImpl bw = createBeanWrapper(nb);
+		bw.setPropertyValue("long1", "5");
+		bw.setPropertyValue("long2", "6");
+		bw.setPropertyValue("double1", "7.5");
+		bw.setPropertyValue("double2", null);
+		assertEquals(5L, nb.getLong1());
+		assertEquals(new Long(6), nb.getLong2());
+		assertEquals(7.5, nb.getDouble1(), 0.0);
+		assertNull(nb.getDouble2());
+		assertEquals(5L, bw.getPropertyValue("long1"));
+		assertEquals(7.5, bw.getPropertyValue("double1"));
+		assertNull(bw.getPropertyValue("double2"));
+	}
+
+	@Test
+	public void testNestedAndIndexedProperties() {
+		IndexedTestBean bean = new IndexedTestBean();
+		TestBean tb = new TestBean();
+		tb.setSpouse(new TestBean());
+		BeanWrapperImpl bw = createBeanWrapper(bean);
+		bw.setPropertyValue("array[0].name", "name0");
+		bw.setPropertyValue("list[1].age", "11");
+		bw.setPropertyValue("map[key1].name", "name1");
+		assertEquals("name0", bean.getArray()[0].getName());
+		assertEquals("name0", bw.getPropertyValue("array[0].name"));
+		assertEquals(11, bw.getPropertyValue("list[1].age"));
+		assertEquals("name1", bw.getPropertyValue("map[key1].name"));
+
+		BeanWrapperImpl tbw = createBeanWrapper(tb);
+		tbw.setPropertyValue("spouse.name", "spouse");
+		assertEquals("spouse", tb.getSpouse().getName());
+		assertEquals("spouse", tbw.getPropertyValue("spouse.name"));
+	}
+
+	@Test
+	public void testTypeMismatch() {
+		TestBean tb = new TestBean();
+		BeanWrapperImpl bw = createBeanWrapper(tb);
+		try {
+			bw.setPropertyValue("age", "foobar");
+			fail("Should have thrown TypeMismatchException");
+		}
+		catch (TypeMismatchException ex) {
+			// expected
+		}
+		try {
+			bw.setPropertyValue("age", null);
+			fail("Should have thrown TypeMismatchException");
+		}
+		catch (TypeMismatchException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testSetterException() {
+		TestBean tb = new TestBean();
+		BeanWrapperImpl bw = createBeanWrapper(tb);
+		try {
+			bw.setPropertyValue("touchy", "a.b");
+			fail("Should have thrown MethodInvocationException");
+		}
+		catch (MethodInvocationException ex) {
+			assertEquals("touchy", ex.getPropertyName());
+			assertEquals(Exception.class, ex.getCause().getClass());
+		}
+	}
+
+	@Test
+	public void testNonPublicClassFallsBackToReflection() throws Exception {
+		PackagePrivateBean bean = new PackagePrivateBean();
+		BeanWrapperImpl bw = createBeanWrapper(bean);
+		bw.setPropertyValue("name", "value");
+		assertEquals("value", bean.getName());
+		assertEquals("value", bw.getPropertyValue("name"));
+		GeneratedPropertyMethods methods =
+				CachedIntrospectionResults.forClass(PackagePrivateBean.class).getGeneratedPropertyMethods();
+		assertFalse(methods.isGenerated(PackagePrivateBean.class.getMethod("getName")));
+		assertFalse(methods.isGenerated(PackagePrivateBean.class.getMethod("setName", String.class)));
+	}
+
+	@Test
+	public void testInvocationParityWithReflection() throws Exception {
+		GeneratedPropertyMethods methods =
+				CachedIntrospectionResults.forClass(TestBean.class).getGeneratedPropertyMethods();
+		TestBean tb = new TestBean();
+		try {
+			methods.invokeWriteMethod(TestBean.class.getMethod("setAge", int.class), tb, "x");
+			fail("Should have thrown IllegalArgumentException");
+		}
+		catch (IllegalArgumentException ex) {
+			// expected, as with Method.invoke
+		}
+		try {
+			methods.invokeWriteMethod(TestBean.class.getMethod("setAge", int.class), tb, null);
+			fail("Should have thrown IllegalArgumentException");
+		}
+		catch (IllegalArgumentException ex) {
+			// expected, as with Method.invoke
+		}
+		try {
+			methods.invokeWriteMethod(TestBean.class.getMethod("setTouchy", String.class), tb, "a,b");
+			fail("Should have thrown InvocationTargetException");
+		}
+		catch (InvocationTargetException ex) {
+			assertTrue(ex.getTargetException() instanceof NumberFormatException);
+		}
+		try {
+			methods.invokeReadMethod(TestBean.class.getMethod("getName"), new Object());
+			fail("Should have thrown IllegalArgumentException");
+		}
+		catch (IllegalArgumentException ex) {
+			// expected, as with Method.invoke - not wrapped as an accessor exception
+		}
+		try {
+			methods.invokeWriteMethod(TestBean.class.getMethod("setName", String.class), new Object(), "x");
+			fail("Should have thrown IllegalArgumentException");
+		}
+		catch (IllegalArgumentException ex) {
+			// expected, as with Method.invoke - not wrapped as an accessor exception
+		}
+	}
+
+	private BeanWrapperImpl createBeanWrapper(Object target) {
+		BeanWrapperImpl bw = new BeanWrapperImpl(target);
+		bw.setUseGeneratedAccessors(true);
+		return bw;
+	}
+
+
+	static class PackagePrivateBean {
+
+		private String name;
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+	}
+
+}
@@ -34,20 +34,38 @@ public final class CachedIntrospectionResultsTests {
 		BeanWrapper bw = new BeanWrapperImpl(TestBean.class);
 		assertTrue(bw.isWritableProperty("name"));
 		assertTrue(bw.isWritableProperty("age"));
-		assertTrue(CachedIntrospectionResults.classCache.containsKey(TestBean.class));
+		assertTrue(CachedIntrospectionResults.isCached(TestBean.class));
 
 		ClassLoader child = new OverridingClassLoader(getClass().getClassLoader());
 		Class<?> tbClass = child.loadClass("test.beans.TestBean");
-		assertFalse(CachedIntrospectionResults.classCache.containsKey(tbClass));
+		assertFalse(CachedIntrospectionResults.isCached(tbClass));
 		CachedIntrospectionResults.acceptClassLoader(child);
 		bw = new BeanWrapperImpl(tbClass);
 		assertTrue(bw.isWritableProperty("name"));
 		assertTrue(bw.isWritableProperty("age"));
-		assertTrue(CachedIntrospectionResults.classCache.containsKey(tbClass));
+		assertTrue(CachedIntrospectionResults.isCached(tbClass));
 		CachedIntrospectionResults.clearClassLoader(child);
-		assertFalse(CachedIntrospectionResults.classCache.containsKey(tbClass));
+		assertFalse(CachedIntrospectionResults.isCached(tbClass));
 
-		assertTrue(CachedIntrospectionResults.classCache.containsKey(TestBean.class));
+		assertTrue(CachedIntrospectionResults.isCached(TestBean.class));
+	}
+
+	@Test
+	public void testCacheMissCount() throws Exception {
+		ClassLoader child = new OverridingClassLoader(getClass().getClassLoader());
+		Class<?> tbClass = child.loadClass("test.beans.TestBean");
+		long misses = CachedIntrospectionResults.getCacheMissCount();
+
+		CachedIntrospectionResults results = CachedIntrospectionResults.forClass(tbClass);
+		assertEquals(misses + 1, CachedIntrospectionResults.getCacheMissCount());
+		assertSame(results, CachedIntrospectionResults.forClass(tbClass));
+		assertEquals(misses + 1, CachedIntrospectionResults.getCacheMissCount());
+		assertTrue(CachedIntrospectionResults.isCached(tbClass));
+
+		// not cache-safe and not accepted: held in the weak cache
+		assertFalse(CachedIntrospectionResults.strongClassCache.containsKey(tbClass));
+		CachedIntrospectionResults.clearClassLoader(child);
+		assertFalse(CachedIntrospectionResults.isCached(tbClass));
 	}
 
 }
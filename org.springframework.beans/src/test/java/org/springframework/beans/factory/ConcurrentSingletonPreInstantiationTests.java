@@ -0,0 +1,379 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.beans.factory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for parallel pre-instantiation of singletons in a {@link DefaultListableBeanFactory}.
+ *
+ * @author agent
+ * @since 3.1
+ */
+public final class ConcurrentSingletonPreInstantiationTests {
+
+	private final List<String> initializationLog = new ArrayList<String>();
+
+	private ExecutorService executor;
+
+	private DefaultListableBeanFactory lbf;
+
+
+	@Before
+	public void setUp() {
+		this.executor = Executors.newFixedThreadPool(4);
+		this.lbf = new DefaultListableBeanFactory();
+		this.lbf.setPreInstantiationExecutor(this.executor);
+	}
+
+	@After
+	public void tearDown() {
+		this.executor.shutdownNow();
+	}
+
+
+	@Test
+	public void testIndependentSingletonsInitializedInParallel() {
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		registerBean("bean1", null, barrier);
+		registerBean("bean2", null, barrier);
+		this.lbf.preInstantiateSingletons();
+		assertTrue(((Bean) this.lbf.getBean("bean1")).isInitialized());
+		assertTrue(((Bean) this.lbf.getBean("bean2")).isInitialized());
+		assertEquals(2, this.initializationLog.size());
+		assertFalse(this.lbf.isSingletonCurrentlyInCreation("bean1"));
+	}
+
+	@Test
+	public void testDependenciesInitializedFirst() {
+		registerBean("bean1", "bean2", null);
+		registerBean("bean2", "bean3", null);
+		registerBean("bean3", null, null);
+		RootBeanDefinition bd = new RootBeanDefinition(Bean.class);
+		bd.setDependsOn(new String[] {"bean1"});
+		bd.getPropertyValues().add("name", "bean4");
+		bd.getPropertyValues().add("initializationLog", this.initializationLog);
+		this.lbf.registerBeanDefinition("bean4", bd);
+		this.lbf.preInstantiateSingletons();
+		assertEquals("[bean3, bean2, bean1, bean4]", this.initializationLog.toString());
+		assertSame(this.lbf.getBean("bean2"), ((Bean) this.lbf.getBean("bean1")).getReference());
+	}
+
+	@Test
+	public void testCircularReferencesInitializedInRegistrationOrder() {
+		registerBean("bean1", "bean2", null);
+		registerBean("bean2", "bean1", null);
+		registerBean("bean3", null, null);
+		this.lbf.preInstantiateSingletons();
+		Bean bean1 = (Bean) this.lbf.getBean("bean1");
+		Bean bean2 = (Bean) this.lbf.getBean("bean2");
+		assertSame(bean2, bean1.getReference());
+		assertSame(bean1, bean2.getReference());
+		assertTrue(this.initializationLog.indexOf("bean2") < this.initializationLog.indexOf("bean1"));
+	}
+
+	@Test
+	public void testUndeclaredDependencyWaitsForInitialization() {
+		registerBean("bean1", null, null);
+		RootBeanDefinition bd = new RootBeanDefinition(LookupBean.class);
+		bd.getPropertyValues().add("targetBeanName", "bean1");
+		this.lbf.registerBeanDefinition("lookup", bd);
+		this.lbf.preInstantiateSingletons();
+		assertTrue(((Bean) ((LookupBean) this.lbf.getBean("lookup")).getTarget()).isInitialized());
+	}
+
+	@Test
+	public void testUndeclaredCircularReferenceAcrossThreads() {
+		for (int i = 0; i < 4; i++) {
+			RootBeanDefinition bd = new RootBeanDefinition(LookupBean.class);
+			bd.getPropertyValues().add("targetBeanName", "lookup" + ((i + 1) % 4));
+			this.lbf.registerBeanDefinition("lookup" + i, bd);
+		}
+		this.lbf.preInstantiateSingletons();
+		for (int i = 0; i < 4; i++) {
+			LookupBean lookup = (LookupBean) this.lbf.getBean("lookup" + i);
+			assertSame(this.lbf.getBean("lookup" + ((i + 1) % 4)), lookup.getTarget());
+		}
+	}
+
+	@Test
+	public void testUndeclaredCircularReferenceWithConstructorFallsBackToSequential() {
+		CountDownLatch latch = new CountDownLatch(2);
+		this.lbf.registerResolvableDependency(BeanFactory.class, this.lbf);
+		RootBeanDefinition bd = new RootBeanDefinition(LookupBean.class);
+		bd.getPropertyValues().add("targetBeanName", "constructorLookup");
+		bd.getPropertyValues().add("latch", latch);
+		this.lbf.registerBeanDefinition("lookup", bd);
+		bd = new RootBeanDefinition(ConstructorLookupBean.class);
+		bd.setAutowireMode(RootBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+		bd.getConstructorArgumentValues().addIndexedArgumentValue(0, "lookup");
+		bd.getConstructorArgumentValues().addIndexedArgumentValue(1, latch);
+		this.lbf.registerBeanDefinition("constructorLookup", bd);
+		this.lbf.preInstantiateSingletons();
+		ConstructorLookupBean constructorLookup = (ConstructorLookupBean) this.lbf.getBean("constructorLookup");
+		assertSame(this.lbf.getBean("lookup"), constructorLookup.getTarget());
+		assertSame(constructorLookup, ((LookupBean) this.lbf.getBean("lookup")).getTarget());
+	}
+
+	@Test(timeout = 10000)
+	public void testFactoryBeanAutowiredByTypeWhileItsDependencyIsInCreation() {
+		CountDownLatch latch = new CountDownLatch(1);
+		RootBeanDefinition bd = new RootBeanDefinition(LatchBean.class);
+		bd.getConstructorArgumentValues().addIndexedArgumentValue(0, latch);
+		this.lbf.registerBeanDefinition("dependency", bd);
+		bd = new RootBeanDefinition(ProductFactoryBean.class);
+		bd.getConstructorArgumentValues().addIndexedArgumentValue(0, new RuntimeBeanReference("dependency"));
+		this.lbf.registerBeanDefinition("productFactory", bd);
+		bd = new RootBeanDefinition(ProductConsumer.class);
+		bd.setAutowireMode(RootBeanDefinition.AUTOWIRE_BY_TYPE);
+		bd.getConstructorArgumentValues().addIndexedArgumentValue(0, latch);
+		this.lbf.registerBeanDefinition("consumer", bd);
+		this.lbf.preInstantiateSingletons();
+		assertSame(this.lbf.getBean("productFactory"), ((ProductConsumer) this.lbf.getBean("consumer")).getProduct());
+		assertSame(this.lbf.getBean("dependency"), ((Product) this.lbf.getBean("productFactory")).getDependency());
+	}
+
+	@Test
+	public void testFailureRethrown() {
+		registerBean("bean1", null, null);
+		RootBeanDefinition bd = new RootBeanDefinition(Bean.class);
+		bd.getPropertyValues().add("failing", Boolean.TRUE);
+		this.lbf.registerBeanDefinition("bean2", bd);
+		try {
+			this.lbf.preInstantiateSingletons();
+			fail("Should have thrown BeanCreationException");
+		}
+		catch (BeanCreationException ex) {
+			assertEquals("bean2", ex.getBeanName());
+		}
+		assertFalse(this.lbf.containsSingleton("bean2"));
+	}
+
+	private void registerBean(String beanName, String reference, CyclicBarrier barrier) {
+		RootBeanDefinition bd = new RootBeanDefinition(Bean.class);
+		bd.getPropertyValues().add("name", beanName);
+		bd.getPropertyValues().add("initializationLog", this.initializationLog);
+		if (reference != null) {
+			bd.getPropertyValues().add("reference", new RuntimeBeanReference(reference));
+		}
+		if (barrier != null) {
+			bd.getPropertyValues().add("barrier", barrier);
+		}
+		this.lbf.registerBeanDefinition(beanName, bd);
+	}
+
+
+	public static class Bean implements InitializingBean {
+
+		private String name;
+
+		private List<String> initializationLog;
+
+		private Bean reference;
+
+		private CyclicBarrier barrier;
+
+		private boolean failing;
+
+		private volatile boolean done;
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public void setInitializationLog(List<String> initializationLog) {
+			this.initializationLog = initializationLog;
+		}
+
+		public void setReference(Bean reference) {
+			this.reference = reference;
+		}
+
+		public Bean getReference() {
+			return this.reference;
+		}
+
+		public void setBarrier(CyclicBarrier barrier) {
+			this.barrier = barrier;
+		}
+
+		public void setFailing(boolean failing) {
+			this.failing = failing;
+		}
+
+		public void afterPropertiesSet() throws Exception {
+			if (this.failing) {
+				throw new IllegalStateException("Initialization failure");
+			}
+			if (this.barrier != null) {
+				// Times out unless both beans get initialized concurrently.
+				this.barrier.await(10, TimeUnit.SECONDS);
+			}
+			else {
+				Thread.sleep(20);
+			}
+			synchronized (this.initializationLog) {
+				this.initializationLog.add(this.name);
+			}
+			this.done = true;
+		}
+
+		public boolean isInitialized() {
+			return this.done;
+		}
+	}
+
+
+	public static class LookupBean implements BeanFactoryAware {
+
+		private String targetBeanName;
+
+		private CountDownLatch latch;
+
+		private Object target;
+
+		public void setTargetBeanName(String targetBeanName) {
+			this.targetBeanName = targetBeanName;
+		}
+
+		public void setLatch(CountDownLatch latch) {
+			this.latch = latch;
+		}
+
+		public void setBeanFactory(BeanFactory beanFactory) {
+			try {
+				if (this.latch != null) {
+					// Let the other thread ask for this bean first.
+					this.latch.countDown();
+					this.latch.await(10, TimeUnit.SECONDS);
+					Thread.sleep(200);
+				}
+				// Give other threads the chance to start creating the target.
+				Thread.sleep(20);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			this.target = beanFactory.getBean(this.targetBeanName);
+		}
+
+		public Object getTarget() {
+			return this.target;
+		}
+	}
+
+
+	public static class LatchBean {
+
+		public LatchBean(CountDownLatch latch) throws InterruptedException {
+			// Let the consumer check the FactoryBean's type while this bean is in creation.
+			latch.countDown();
+			Thread.sleep(200);
+		}
+	}
+
+
+	public static class Product {
+
+		private final LatchBean dependency;
+
+		public Product(LatchBean dependency) {
+			this.dependency = dependency;
+		}
+
+		public LatchBean getDependency() {
+			return this.dependency;
+		}
+	}
+
+
+	public static class ProductFactoryBean implements FactoryBean<Product> {
+
+		private final Product product;
+
+		public ProductFactoryBean(LatchBean dependency) {
+			this.product = new Product(dependency);
+		}
+
+		public Product getObject() {
+			return this.product;
+		}
+
+		public Class<?> getObjectType() {
+			return (this.product != null ? Product.class : null);
+		}
+
+		public boolean isSingleton() {
+			return true;
+		}
+	}
+
+
+	public static class ProductConsumer {
+
+		private Product product;
+
+		public ProductConsumer(CountDownLatch latch) throws InterruptedException {
+			latch.await(10, TimeUnit.SECONDS);
+		}
+
+		public void setProduct(Product product) {
+			this.product = product;
+		}
+
+		public Product getProduct() {
+			return this.product;
+		}
+	}
+
+
+	public static class ConstructorLookupBean {
+
+		private final Object target;
+
+		public ConstructorLookupBean(String targetBeanName, CountDownLatch latch, BeanFactory beanFactory)
+				throws InterruptedException {
+
+			// Start looking up the target once the other thread is creating it.
+			latch.countDown();
+			latch.await(10, TimeUnit.SECONDS);
+			this.target = beanFactory.getBean(targetBeanName);
+		}
+
+		public Object getTarget() {
+			return this.target;
+		}
+	}
+
+}
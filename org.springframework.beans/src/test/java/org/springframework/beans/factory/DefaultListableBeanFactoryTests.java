@@ -17,6 +17,7 @@
 package org.springframework.beans.factory;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -51,6 +52,7 @@ import org.apache.commons.logging.LogFactory;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.DirectFieldAccessor;
 import org.springframework.beans.MutablePropertyValues;
 import org.springframework.beans.NotWritablePropertyException;
 import org.springframework.beans.PropertyEditorRegistrar;
@@ -302,6 +304,66 @@ public class DefaultListableBeanFactoryTests {
 		assertEquals("&x1", lbf.getAliases("&x2")[0]);
 	}
 
+	@Test
+	public void testBeanNamesForTypeCachedUntilRegistrationChanges() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		lbf.registerBeanDefinition("tb1", new RootBeanDefinition(TestBean.class));
+		String[] beanNames = lbf.getBeanNamesForType(ITestBean.class);
+		assertEquals(1, beanNames.length);
+		Map<?, ?> beanNamesByType = (Map<?, ?>) new DirectFieldAccessor(lbf).getPropertyValue("beanNamesByType");
+		assertEquals(1, beanNamesByType.size());
+		assertArrayEquals(beanNames, lbf.getBeanNamesForType(ITestBean.class));
+		assertEquals(1, beanNamesByType.size());
+		assertEquals(1, lbf.getBeanNamesForType(ITestBean.class, false, true).length);
+		assertEquals(2, beanNamesByType.size());
+
+		lbf.registerBeanDefinition("tb2", new RootBeanDefinition(DerivedTestBean.class));
+		assertEquals(2, lbf.getBeanNamesForType(ITestBean.class).length);
+		assertEquals(1, lbf.getBeanNamesForType(DerivedTestBean.class).length);
+
+		lbf.removeBeanDefinition("tb1");
+		beanNames = lbf.getBeanNamesForType(ITestBean.class);
+		assertEquals(1, beanNames.length);
+		assertEquals("tb2", beanNames[0]);
+
+		lbf.registerSingleton("tb3", new TestBean());
+		beanNames = lbf.getBeanNamesForType(ITestBean.class);
+		assertEquals(2, beanNames.length);
+		assertEquals("tb3", beanNames[1]);
+
+		lbf.destroySingleton("tb3");
+		assertEquals(1, lbf.getBeanNamesForType(ITestBean.class).length);
+	}
+
+	@Test
+	public void testBeanNamesForTypeCacheNotAffectedByCallerModification() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		lbf.registerBeanDefinition("tb1", new RootBeanDefinition(TestBean.class));
+		String[] beanNames = lbf.getBeanNamesForType(ITestBean.class);
+		beanNames[0] = "modified";
+		beanNames = lbf.getBeanNamesForType(ITestBean.class);
+		assertEquals("tb1", beanNames[0]);
+		beanNames[0] = "modified";
+		assertEquals("tb1", lbf.getBeanNamesForType(ITestBean.class)[0]);
+	}
+
+	@Test
+	public void testBeanNamesForTypeCacheResetOnFactoryBeanInitialization() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		Properties p = new Properties();
+		p.setProperty("x1.(class)", DummyFactory.class.getName());
+		// Reset static state
+		DummyFactory.reset();
+		p.setProperty("x1.singleton", "false");
+		(new PropertiesBeanDefinitionReader(lbf)).registerBeanDefinitions(p);
+
+		assertEquals(0, lbf.getBeanNamesForType(TestBean.class, true, false).length);
+		lbf.getBean("&x1");
+		String[] beanNames = lbf.getBeanNamesForType(TestBean.class, true, false);
+		assertEquals(1, beanNames.length);
+		assertEquals("x1", beanNames[0]);
+	}
+
 	@Test
 	public void testStaticFactoryMethodFoundByNonEagerTypeMatching() {
 		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
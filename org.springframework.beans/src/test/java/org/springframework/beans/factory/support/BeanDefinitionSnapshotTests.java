@@ -0,0 +1,132 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.beans.factory.support;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.util.List;
+
+import org.junit.Test;
+import test.beans.TestBean;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.core.io.ClassPathResource;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ * @since 3.1
+ */
+public class BeanDefinitionSnapshotTests {
+
+	@Test
+	public void xmlBeanDefinitionsRoundtrip() throws IOException {
+		DefaultListableBeanFactory original = new DefaultListableBeanFactory();
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(original);
+		reader.loadBeanDefinitions(new ClassPathResource("/org/springframework/beans/factory/xml/collections.xml"));
+		reader.loadBeanDefinitions(new ClassPathResource("/org/springframework/beans/factory/xml/testUtilNamespace.xml"));
+		original.registerAlias("jenny", "jennifer");
+
+		BeanDefinitionSnapshot snapshot = new BeanDefinitionSnapshot();
+		snapshot.addInputDigest("collections.xml", "abc");
+		snapshot.addBeanDefinitions(original);
+		DefaultListableBeanFactory restored = roundtrip(snapshot);
+
+		assertArrayEquals(original.getBeanDefinitionNames(), restored.getBeanDefinitionNames());
+		for (String beanName : original.getBeanDefinitionNames()) {
+			BeanDefinition bd = original.getBeanDefinition(beanName);
+			BeanDefinition restoredBd = restored.getBeanDefinition(beanName);
+			assertEquals(beanName, bd, restoredBd);
+			assertEquals(bd.getResourceDescription(), restoredBd.getResourceDescription());
+		}
+		assertArrayEquals(new String[] {"jennifer"}, restored.getAliases("jenny"));
+
+		TestBean rod = (TestBean) restored.getBean("rod");
+		assertEquals("Rod", rod.getName());
+		List<?> friends = (List<?>) rod.getFriends();
+		assertSame(restored.getBean("jenny"), friends.get(0));
+		assertSame(restored.getBean("jennifer"), friends.get(0));
+	}
+
+	@Test
+	public void programmaticBeanDefinitionsRoundtrip() throws IOException {
+		DefaultListableBeanFactory original = new DefaultListableBeanFactory();
+		RootBeanDefinition rbd = new RootBeanDefinition(TestBean.class);
+		rbd.getPropertyValues().add("name", "myName");
+		rbd.getPropertyValues().add("age", 5);
+		rbd.getConstructorArgumentValues().addIndexedArgumentValue(0, "ignored", "java.lang.String");
+		rbd.setLazyInit(true);
+		rbd.setAttribute("myAttribute", Boolean.TRUE);
+		ReplaceOverride override = new ReplaceOverride("getName", "replacer");
+		override.addTypeIdentifier("String");
+		rbd.getMethodOverrides().addOverride(override);
+		original.registerBeanDefinition("tb", rbd);
+		ChildBeanDefinition cbd = new ChildBeanDefinition("tb");
+		cbd.getPropertyValues().add("touchy", TestBean.class);
+		original.registerBeanDefinition("child", cbd);
+
+		BeanDefinitionSnapshot snapshot = new BeanDefinitionSnapshot();
+		snapshot.addBeanDefinitions(original);
+		DefaultListableBeanFactory restored = roundtrip(snapshot);
+
+		assertEquals(rbd, restored.getBeanDefinition("tb"));
+		assertTrue(restored.getBeanDefinition("tb") instanceof RootBeanDefinition);
+		assertEquals(Boolean.TRUE, restored.getBeanDefinition("tb").getAttribute("myAttribute"));
+		assertEquals(cbd, restored.getBeanDefinition("child"));
+		assertEquals("tb", restored.getBeanDefinition("child").getParentName());
+	}
+
+	@Test
+	public void unsupportedValue() throws IOException {
+		DefaultListableBeanFactory original = new DefaultListableBeanFactory();
+		RootBeanDefinition rbd = new RootBeanDefinition(TestBean.class);
+		rbd.getPropertyValues().add("spouse", new TestBean());
+		original.registerBeanDefinition("tb", rbd);
+		BeanDefinitionSnapshot snapshot = new BeanDefinitionSnapshot();
+		snapshot.addBeanDefinitions(original);
+		try {
+			snapshot.writeTo(new ByteArrayOutputStream());
+			fail("Should have thrown NotSerializableException");
+		}
+		catch (NotSerializableException ex) {
+			// expected
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void corruptSnapshot() throws IOException {
+		BeanDefinitionSnapshot.readFrom(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}), null);
+	}
+
+	private DefaultListableBeanFactory roundtrip(BeanDefinitionSnapshot snapshot) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		snapshot.writeTo(bos);
+		BeanDefinitionSnapshot restoredSnapshot =
+				BeanDefinitionSnapshot.readFrom(new ByteArrayInputStream(bos.toByteArray()), getClass().getClassLoader());
+		assertEquals(snapshot.getInputDigests(), restoredSnapshot.getInputDigests());
+		assertEquals(snapshot.getBeanDefinitionCount(), restoredSnapshot.getBeanDefinitionCount());
+		DefaultListableBeanFactory restored = new DefaultListableBeanFactory();
+		restoredSnapshot.registerBeanDefinitions(restored);
+		return restored;
+	}
+
+}
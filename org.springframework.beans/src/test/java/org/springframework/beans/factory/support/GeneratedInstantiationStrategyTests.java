@@ -0,0 +1,219 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+import test.beans.ITestBean;
+import test.beans.TestBean;
+
+import org.springframework.beans.BeanInstantiationException;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link GeneratedInstantiationStrategy}.
+ *
+ * @author agent
+ */
+public final class GeneratedInstantiationStrategyTests {
+
+	@Test
+	public void testDefaultConstructor() throws Exception {
+		DefaultListableBeanFactory bf = createBeanFactory();
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		bd.getPropertyValues().add("name", "juergen");
+		bf.registerBeanDefinition("tb", bd);
+		TestBean tb1 = (TestBean) bf.getBean("tb");
+		TestBean tb2 = (TestBean) bf.getBean("tb");
+		assertNotSame(tb1, tb2);
+		assertEquals("juergen", tb2.getName());
+		assertNotNull(getStrategy(bf).getBeanInstantiator(TestBean.class.getConstructor()));
+	}
+
+	@Test
+	public void testConstructorArguments() throws Exception {
+		DefaultListableBeanFactory bf = createBeanFactory();
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		bd.getConstructorArgumentValues().addIndexedArgumentValue(0, "juergen");
+		bd.getConstructorArgumentValues().addIndexedArgumentValue(1, "32");
+		bf.registerBeanDefinition("tb", bd);
+		for (int i = 0; i < 3; i++) {
+			TestBean tb = (TestBean) bf.getBean("tb");
+			assertEquals("juergen", tb.getName());
+			assertEquals(32, tb.getAge());
+		}
+		assertNotNull(getStrategy(bf).getBeanInstantiator(TestBean.class.getConstructor(String.class, int.class)));
+	}
+
+	@Test
+	public void testConstructorArgumentReference() {
+		DefaultListableBeanFactory bf = createBeanFactory();
+		bf.registerBeanDefinition("spouse", new RootBeanDefinition(TestBean.class));
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		bd.getConstructorArgumentValues().addGenericArgumentValue(new RuntimeBeanReference("spouse"));
+		bf.registerBeanDefinition("tb", bd);
+		TestBean tb1 = (TestBean) bf.getBean("tb");
+		TestBean tb2 = (TestBean) bf.getBean("tb");
+		assertSame(bf.getBean("spouse"), tb1.getSpouse());
+		assertSame(tb1.getSpouse(), tb2.getSpouse());
+	}
+
+	@Test
+	public void testConstructorException() {
+		DefaultListableBeanFactory bf = createBeanFactory();
+		RootBeanDefinition bd = new RootBeanDefinition(ThrowingBean.class);
+		bf.registerBeanDefinition("bean", bd);
+		try {
+			bf.getBean("bean");
+			fail("Should have thrown BeanCreationException");
+		}
+		catch (BeanCreationException ex) {
+			assertTrue(ex.getCause() instanceof BeanInstantiationException);
+			assertTrue(ex.getCause().getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	public void testStaticAndInstanceFactoryMethods() throws Exception {
+		DefaultListableBeanFactory bf = createBeanFactory();
+		RootBeanDefinition bd = new RootBeanDefinition(Factory.class);
+		bd.setFactoryMethodName("createStatic");
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		bd.getConstructorArgumentValues().addGenericArgumentValue("static");
+		bf.registerBeanDefinition("static", bd);
+		bf.registerBeanDefinition("factory", new RootBeanDefinition(Factory.class));
+		bd = new RootBeanDefinition();
+		bd.setFactoryBeanName("factory");
+		bd.setFactoryMethodName("create");
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		bd.getConstructorArgumentValues().addGenericArgumentValue("instance");
+		bd.getConstructorArgumentValues().addGenericArgumentValue("5");
+		bf.registerBeanDefinition("instance", bd);
+
+		for (int i = 0; i < 3; i++) {
+			assertEquals("static", ((ITestBean) bf.getBean("static")).getName());
+			ITestBean tb = (ITestBean) bf.getBean("instance");
+			assertEquals("instance", tb.getName());
+			assertEquals(5, tb.getAge());
+		}
+		Factory factory = (Factory) bf.getBean("factory");
+		assertEquals(3, factory.invocationCount);
+		assertNull(SimpleInstantiationStrategy.getCurrentlyInvokedFactoryMethod());
+		Method createMethod = Factory.class.getMethod("create", String.class, int.class);
+		assertEquals(createMethod, factory.currentlyInvokedFactoryMethod);
+		GeneratedInstantiationStrategy strategy = getStrategy(bf);
+		assertNotNull(strategy.getBeanInstantiator(createMethod));
+		assertNotNull(strategy.getBeanInstantiator(Factory.class.getMethod("createStatic", String.class)));
+	}
+
+	@Test
+	public void testFactoryMethodException() {
+		DefaultListableBeanFactory bf = createBeanFactory();
+		RootBeanDefinition bd = new RootBeanDefinition(Factory.class);
+		bd.setFactoryMethodName("createFailing");
+		bf.registerBeanDefinition("bean", bd);
+		try {
+			bf.getBean("bean");
+			fail("Should have thrown BeanCreationException");
+		}
+		catch (BeanCreationException ex) {
+			assertTrue(ex.getCause() instanceof BeanDefinitionStoreException);
+			assertTrue(ex.getCause().getCause() instanceof UnsupportedOperationException);
+		}
+	}
+
+	@Test
+	public void testNonPublicClassFallsBackToReflection() throws Exception {
+		DefaultListableBeanFactory bf = createBeanFactory();
+		bf.registerBeanDefinition("bean", new RootBeanDefinition(PackagePrivateBean.class));
+		assertTrue(bf.getBean("bean") instanceof PackagePrivateBean);
+		assertNull(getStrategy(bf).getBeanInstantiator(PackagePrivateBean.class.getDeclaredConstructor()));
+	}
+
+	@Test
+	public void testArgumentTypeMismatch() throws Exception {
+		GeneratedInstantiationStrategy strategy = new GeneratedInstantiationStrategy();
+		try {
+			strategy.instantiateClass(TestBean.class.getConstructor(String.class, int.class), new Object[] {"name", null});
+			fail("Should have thrown BeanInstantiationException");
+		}
+		catch (BeanInstantiationException ex) {
+			assertTrue(ex.getCause() instanceof IllegalArgumentException);
+		}
+		try {
+			strategy.invokeFactoryMethod(null, Factory.class.getMethod("createStatic", String.class), new Object[] {1});
+			fail("Should have thrown IllegalArgumentException");
+		}
+		catch (IllegalArgumentException ex) {
+			// expected, as with Method.invoke
+		}
+	}
+
+	private DefaultListableBeanFactory createBeanFactory() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		bf.setInstantiationStrategy(new GeneratedInstantiationStrategy());
+		return bf;
+	}
+
+	private GeneratedInstantiationStrategy getStrategy(DefaultListableBeanFactory bf) {
+		return (GeneratedInstantiationStrategy) bf.getInstantiationStrategy();
+	}
+
+
+	public static class ThrowingBean {
+
+		public ThrowingBean() {
+			throw new IllegalStateException("construction failed");
+		}
+	}
+
+
+	public static class Factory {
+
+		public int invocationCount;
+
+		public Method currentlyInvokedFactoryMethod;
+
+		public static ITestBean createStatic(String name) {
+			return new TestBean(name);
+		}
+
+		public static ITestBean createFailing() {
+			throw new UnsupportedOperationException();
+		}
+
+		public ITestBean create(String name, int age) {
+			this.invocationCount++;
+			this.currentlyInvokedFactoryMethod = SimpleInstantiationStrategy.getCurrentlyInvokedFactoryMethod();
+			return new TestBean(name, age);
+		}
+	}
+
+
+	static class PackagePrivateBean {
+	}
+
+}
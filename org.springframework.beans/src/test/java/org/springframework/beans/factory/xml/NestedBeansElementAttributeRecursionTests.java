@@ -22,7 +22,9 @@ import static org.hamcrest.Matchers.hasItems;
 import static org.junit.Assert.assertThat;
 
 import org.junit.Test;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.core.io.ClassPathResource;
 
@@ -32,6 +34,7 @@ import test.beans.TestBean;
  * Tests for propagating enclosing beans element defaults to nested beans elements.
  *
  * @author Chris Beams
+ * @author agent
  */
 public class NestedBeansElementAttributeRecursionTests {
 
@@ -41,6 +44,21 @@ public class NestedBeansElementAttributeRecursionTests {
 		new XmlBeanDefinitionReader(bf).loadBeanDefinitions(
 				new ClassPathResource("NestedBeansElementAttributeRecursionTests-lazy-context.xml", this.getClass()));
 
+		assertLazyInits(bf);
+	}
+
+	@Test
+	public void defaultLazyInitWithTrustedResource() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(bf);
+		reader.setTrustClassPathResources(true);
+		reader.loadBeanDefinitions(
+				new ClassPathResource("NestedBeansElementAttributeRecursionTests-lazy-context.xml", this.getClass()));
+
+		assertLazyInits(bf);
+	}
+
+	private void assertLazyInits(DefaultListableBeanFactory bf) {
 		BeanDefinition foo = bf.getBeanDefinition("foo");
 		BeanDefinition bar = bf.getBeanDefinition("bar");
 		BeanDefinition baz = bf.getBeanDefinition("baz");
@@ -55,12 +73,27 @@ public class NestedBeansElementAttributeRecursionTests {
 	}
 
 	@Test
-	@SuppressWarnings("unchecked")
 	public void defaultMerge() {
 		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
 		new XmlBeanDefinitionReader(bf).loadBeanDefinitions(
 				new ClassPathResource("NestedBeansElementAttributeRecursionTests-merge-context.xml", this.getClass()));
 
+		assertMerges(bf);
+	}
+
+	@Test
+	public void defaultMergeWithTrustedResource() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(bf);
+		reader.setTrustClassPathResources(true);
+		reader.loadBeanDefinitions(
+				new ClassPathResource("NestedBeansElementAttributeRecursionTests-merge-context.xml", this.getClass()));
+
+		assertMerges(bf);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void assertMerges(DefaultListableBeanFactory bf) {
 		TestBean topLevel = bf.getBean("topLevelConcreteTestBean", TestBean.class);
 		// has the concrete child bean values
 		assertThat((Iterable<String>) topLevel.getSomeList(), hasItems("charlie", "delta"));
@@ -78,6 +111,35 @@ public class NestedBeansElementAttributeRecursionTests {
 				hasItems("charlie", "delta", "echo", "foxtrot", "golf", "hotel"));
 	}
 
+	@Test
+	public void defaultAutowire() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		new XmlBeanDefinitionReader(bf).loadBeanDefinitions(
+				new ClassPathResource("NestedBeansElementAttributeRecursionTests-autowire-context.xml", this.getClass()));
+
+		assertAutowireModes(bf);
+	}
+
+	@Test
+	public void defaultAutowireWithTrustedResource() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(bf);
+		reader.setTrustClassPathResources(true);
+		reader.loadBeanDefinitions(
+				new ClassPathResource("NestedBeansElementAttributeRecursionTests-autowire-context.xml", this.getClass()));
+
+		assertAutowireModes(bf);
+	}
+
+	private void assertAutowireModes(DefaultListableBeanFactory bf) {
+		assertThat(((AbstractBeanDefinition) bf.getBeanDefinition("foo")).getAutowireMode(),
+				is(AutowireCapableBeanFactory.AUTOWIRE_NO));
+		assertThat(((AbstractBeanDefinition) bf.getBeanDefinition("bar")).getAutowireMode(),
+				is(AutowireCapableBeanFactory.AUTOWIRE_CONSTRUCTOR));
+		assertThat(((AbstractBeanDefinition) bf.getBeanDefinition("baz")).getAutowireMode(),
+				is(AutowireCapableBeanFactory.AUTOWIRE_CONSTRUCTOR));
+	}
+
 	@Test
 	public void defaultAutowireCandidates() {
 		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
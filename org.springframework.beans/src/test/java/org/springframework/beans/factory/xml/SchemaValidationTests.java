@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2007 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,17 +16,39 @@
 
 package org.springframework.beans.factory.xml;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import junit.framework.TestCase;
+import org.apache.commons.logging.LogFactory;
+import org.w3c.dom.Document;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXParseException;
 
 import org.springframework.beans.BeansException;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.xml.SimpleSaxErrorHandler;
+import org.springframework.util.xml.XmlValidationModeDetector;
 
 import test.beans.TestBean;
 
 /**
  * @author Rob Harrop
+ * @author agent
  */
 public class SchemaValidationTests extends TestCase {
 
@@ -66,4 +88,195 @@ public class SchemaValidationTests extends TestCase {
 		assertEquals("Incorrect number of friends", 2, foo.getFriends().size());
 	}
 
+	public void testLoadDefinitionsWithCachedSchema() throws Exception {
+		DefaultDocumentLoader documentLoader = new DefaultDocumentLoader();
+		documentLoader.setSchemaCaching(true);
+		for (int i = 0; i < 2; i++) {
+			DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+			XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(bf);
+			reader.setDocumentLoader(documentLoader);
+			reader.loadBeanDefinitions(new ClassPathResource("schemaValidated.xml", getClass()));
+			assertDefaultAttributes(bf.getBeanDefinition("fooBean"));
+			TestBean foo = (TestBean) bf.getBean("fooBean");
+			assertEquals("Incorrect number of friends", 2, foo.getFriends().size());
+		}
+	}
+
+	public void testWithSchemaCachingSwitchedOff() throws Exception {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(bf);
+		DefaultDocumentLoader documentLoader = new DefaultDocumentLoader();
+		documentLoader.setSchemaCaching(false);
+		reader.setDocumentLoader(documentLoader);
+		try {
+			reader.loadBeanDefinitions(new ClassPathResource("invalidPerSchema.xml", getClass()));
+			fail("Should not be able to parse a file with errors");
+		}
+		catch (BeansException ex) {
+			assertTrue(ex.getCause() instanceof SAXParseException);
+		}
+	}
+
+	public void testCachedSchemaNotUsedForDifferentSchemaContent() throws Exception {
+		File documentFile = File.createTempFile("schemaCaching", ".xml");
+		try {
+			FileCopyUtils.copy(("<root xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" " +
+					"xsi:noNamespaceSchemaLocation=\"http://example.org/root.xsd\"><a/></root>").getBytes("UTF-8"),
+					documentFile);
+			DefaultDocumentLoader documentLoader = new DefaultDocumentLoader();
+			documentLoader.setSchemaCaching(true);
+
+			EntityResolver resolverA = new SchemaEntityResolver("a");
+			loadDocument(documentLoader, documentFile, resolverA);
+			loadDocument(documentLoader, documentFile, resolverA);
+			try {
+				loadDocument(documentLoader, documentFile, new SchemaEntityResolver("b"));
+				fail("Should have validated against the schema resolved by the second EntityResolver");
+			}
+			catch (SAXParseException ex) {
+				// expected
+			}
+		}
+		finally {
+			documentFile.delete();
+		}
+	}
+
+	public void testSchemaCacheLimit() throws Exception {
+		DefaultDocumentLoader documentLoader = new DefaultDocumentLoader();
+		documentLoader.setSchemaCaching(true);
+		documentLoader.setCacheLimit(1);
+		File documentFile = File.createTempFile("schemaCaching", ".xml");
+		try {
+			FileCopyUtils.copy(("<root xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" " +
+					"xsi:noNamespaceSchemaLocation=\"http://example.org/root.xsd\"><a/></root>").getBytes("UTF-8"),
+					documentFile);
+			for (int i = 0; i < 3; i++) {
+				loadDocument(documentLoader, documentFile, new SchemaEntityResolver("a"));
+			}
+			Map<?, ?> schemaCache = (Map<?, ?>) new DirectFieldAccessor(documentLoader).getPropertyValue("schemaCache");
+			Map<?, ?> documentSchemaCache =
+					(Map<?, ?>) new DirectFieldAccessor(documentLoader).getPropertyValue("documentSchemaCache");
+			assertEquals(1, schemaCache.size());
+			assertEquals(1, documentSchemaCache.size());
+		}
+		finally {
+			documentFile.delete();
+		}
+	}
+
+	public void testLoadDefinitionsFromTrustedResource() throws Exception {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(bf);
+		reader.setTrustClassPathResources(true);
+		reader.loadBeanDefinitions(new ClassPathResource("schemaValidated.xml", getClass()));
+		assertDefaultAttributes(bf.getBeanDefinition("fooBean"));
+		TestBean foo = (TestBean) bf.getBean("fooBean");
+		assertNotNull("Spouse is null", foo.getSpouse());
+		assertEquals("Incorrect number of friends", 2, foo.getFriends().size());
+	}
+
+	public void testLoadInvalidDefinitionsWithCachedSchema() throws Exception {
+		DefaultDocumentLoader documentLoader = new DefaultDocumentLoader();
+		documentLoader.setSchemaCaching(true);
+		for (int i = 0; i < 2; i++) {
+			DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+			XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(bf);
+			reader.setDocumentLoader(documentLoader);
+			try {
+				reader.loadBeanDefinitions(new ClassPathResource("invalidPerSchema.xml", getClass()));
+				fail("Should not be able to parse a file with errors");
+			}
+			catch (BeansException ex) {
+				assertTrue(ex.getCause() instanceof SAXParseException);
+			}
+		}
+	}
+
+	public void testTrustedResourceParsedWithoutValidation() throws Exception {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(bf);
+		ValidationModeRecordingDocumentLoader documentLoader = new ValidationModeRecordingDocumentLoader();
+		reader.setDocumentLoader(documentLoader);
+		reader.setTrustClassPathResources(true);
+		reader.loadBeanDefinitions(new ClassPathResource("schemaValidated.xml", getClass()));
+		assertEquals(1, documentLoader.validationModes.size());
+		assertEquals(XmlValidationModeDetector.VALIDATION_NONE, documentLoader.validationModes.get(0).intValue());
+	}
+
+	public void testTrustedResourceWithCustomNamespaceValidated() throws Exception {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(bf);
+		ValidationModeRecordingDocumentLoader documentLoader = new ValidationModeRecordingDocumentLoader();
+		reader.setDocumentLoader(documentLoader);
+		reader.setTrustClassPathResources(true);
+		reader.loadBeanDefinitions(new ClassPathResource("testUtilNamespace.xml", getClass()));
+		assertEquals(2, documentLoader.validationModes.size());
+		assertEquals(XmlValidationModeDetector.VALIDATION_XSD, documentLoader.validationModes.get(1).intValue());
+		assertTrue(bf.containsBeanDefinition("simpleList"));
+	}
+
+	public void testTrustedResourceWithErrors() throws Exception {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(bf);
+		reader.setTrustClassPathResources(true);
+		try {
+			reader.loadBeanDefinitions(new ClassPathResource("invalidPerSchemaMissingAttribute.xml", getClass()));
+			fail("Should not be able to parse a file with errors");
+		}
+		catch (BeansException ex) {
+			assertTrue(ex.getCause() instanceof SAXParseException);
+		}
+	}
+
+	private void loadDocument(DefaultDocumentLoader documentLoader, File documentFile, EntityResolver entityResolver)
+			throws Exception {
+
+		Resource resource = new FileSystemResource(documentFile);
+		documentLoader.loadDocument(new ResourceInputSource(resource.getInputStream(), resource), entityResolver,
+				new SimpleSaxErrorHandler(LogFactory.getLog(getClass())), XmlValidationModeDetector.VALIDATION_XSD, true);
+	}
+
+	private void assertDefaultAttributes(BeanDefinition bd) {
+		assertFalse(bd.isLazyInit());
+		assertEquals(AutowireCapableBeanFactory.AUTOWIRE_NO, ((AbstractBeanDefinition) bd).getAutowireMode());
+	}
+
+
+	/**
+	 * Resolves the schema location to a schema that only allows the given element within the root.
+	 */
+	private static class SchemaEntityResolver implements EntityResolver {
+
+		private final String elementName;
+
+		public SchemaEntityResolver(String elementName) {
+			this.elementName = elementName;
+		}
+
+		public InputSource resolveEntity(String publicId, String systemId) throws IOException {
+			String schema = "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">" +
+					"<xs:element name=\"root\"><xs:complexType><xs:sequence>" +
+					"<xs:element name=\"" + this.elementName + "\"/>" +
+					"</xs:sequence></xs:complexType></xs:element></xs:schema>";
+			InputSource source = new InputSource(new ByteArrayInputStream(schema.getBytes("UTF-8")));
+			source.setSystemId(systemId);
+			return source;
+		}
+	}
+
+
+	private static class ValidationModeRecordingDocumentLoader extends DefaultDocumentLoader {
+
+		private final List<Integer> validationModes = new ArrayList<Integer>();
+
+		@Override
+		public Document loadDocument(InputSource inputSource, EntityResolver entityResolver,
+				ErrorHandler errorHandler, int validationMode, boolean namespaceAware) throws Exception {
+
+			this.validationModes.add(validationMode);
+			return super.loadDocument(inputSource, entityResolver, errorHandler, validationMode, namespaceAware);
+		}
+	}
+
 }
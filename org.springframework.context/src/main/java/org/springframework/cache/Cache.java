@@ -16,6 +16,9 @@
 
 package org.springframework.cache;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * Interface that defines the common cache operations.
  *
@@ -56,12 +59,35 @@ public interface Cache {
 	 */
 	void put(Object key, Object value);
 
+	/**
+	 * Return the values to which this cache maps the specified keys.
+	 * <p>The returned map only contains entries for the keys that this cache
+	 * contains a mapping for, in the iteration order of the given keys.
+	 * @param keys the keys whose associated values are to be returned
+	 * @return a map from key to value wrapper for each key that has been found
+	 * (never <code>null</code>)
+	 */
+	Map<Object, ValueWrapper> getAll(Collection<?> keys);
+
+	/**
+	 * Associate the values of the given map with their keys in this cache.
+	 * <p>Previous mappings for any of the keys are replaced.
+	 * @param entries the keys and values to store
+	 */
+	void putAll(Map<?, ?> entries);
+
 	/**
 	 * Evict the mapping for this key from this cache if it is present.
 	 * @param key the key whose mapping is to be removed from the cache
 	 */
 	void evict(Object key);
 
+	/**
+	 * Evict the mappings for the specified keys from this cache, if present.
+	 * @param keys the keys whose mappings are to be removed from the cache
+	 */
+	void evictAll(Collection<?> keys);
+
 	/**
 	 * Remove all mappings from the cache.
 	 */
@@ -57,4 +57,35 @@ public @interface Cacheable {
 	 */
 	String condition() default "";
 
+	/**
+	 * Whether to synchronize the invocation of the underlying method if several
+	 * threads are attempting to load a value for the same key. Only one thread
+	 * invokes the method, while the others wait for its result.
+	 * <p>Default is <code>false</code>.
+	 */
+	boolean sync() default false;
+
+	/**
+	 * Number of seconds after which a cached value is refreshed in the background
+	 * when being accessed, while the current value is still returned. Requires a
+	 * cache whose values carry a timestamp (see
+	 * {@link org.springframework.cache.support.TimestampedValueWrapper}) and a
+	 * refresh executor to be configured on the cache aspect.
+	 * <p>Default is 0, meaning that cached values are never refreshed ahead of expiry.
+	 */
+	int refreshAfter() default 0;
+
+	/**
+	 * Whether the method loads the values for a collection of keys: the method
+	 * argument that the key refers to (or the single method argument if no key has
+	 * been specified) is a <code>Collection</code> of keys, and the method returns
+	 * a <code>Map</code> from key to value. Values are cached per key, with only
+	 * the keys missing from the cache being passed to the method.
+	 * <p>Note that with AspectJ weaving, the method still receives all keys.
+	 * <p>Default is <code>false</code>. Not supported in combination with
+	 * {@link #sync()} or {@link #refreshAfter()}; such a combination is rejected
+	 * when the annotation is parsed.
+	 */
+	boolean bulk() default false;
+
 }
@@ -51,7 +51,14 @@ public class SpringCacheAnnotationParser implements CacheAnnotationParser, Seria
 		cuo.setCacheNames(ann.value());
 		cuo.setCondition(ann.condition());
 		cuo.setKey(ann.key());
+		cuo.setSync(ann.sync());
+		cuo.setRefreshAfter(ann.refreshAfter());
+		cuo.setBulk(ann.bulk());
 		cuo.setName(ae.toString());
+		if (cuo.isBulk() && (cuo.isSync() || cuo.getRefreshAfter() > 0)) {
+			throw new IllegalStateException("Invalid cache annotation configuration on '" + ae.toString() +
+					"'. Bulk operations do not support 'sync' or 'refreshAfter'.");
+		}
 		return cuo;
 	}
 
@@ -0,0 +1,712 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.TimestampedValueWrapper;
+import org.springframework.util.Assert;
+
+/**
+ * {@link Cache} implementation that keeps its entries in memory, bounded by a
+ * maximum number of entries or a maximum total weight, and optionally expiring
+ * entries a fixed time after they have been written or last accessed.
+ *
+ * <p>The entries are spread across a number of segments, each guarded by its own
+ * lock, so that concurrent access to different keys rarely contends. The bound
+ * is enforced per segment (each segment holding its share of the maximum), so
+ * eviction follows the configured {@link EvictionPolicy} within a segment.
+ * Expired entries are removed lazily, when being looked up or when their
+ * segment evicts entries, as well as on {@link #cleanUp()}. Bulk operations
+ * acquire the lock of each affected segment only once.
+ *
+ * <p>Hit, miss, eviction and expiration counts are available through
+ * {@link #getStatistics()}. Values are returned as {@link TimestampedValueWrapper},
+ * exposing the time at which they have been written.
+ *
+ * <p>Like {@link ConcurrentMapCache}, this class replaces <code>null</code>
+ * values with a predefined internal object unless configured otherwise.
+ *
+ * @author agent
+ * @since 3.1
+ * @see BoundedConcurrentMapCacheManager
+ */
+public class BoundedConcurrentMapCache implements Cache {
+
+	/** Default number of segments */
+	public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	private static final int MAXIMUM_SEGMENTS = 1 << 16;
+
+	/** Minimum share of the maximum weight that a segment is supposed to hold */
+	private static final long MINIMUM_SEGMENT_WEIGHT = 32;
+
+	private static final Object NULL_HOLDER = new NullHolder();
+
+
+	private final String name;
+
+	private final CacheEntryWeigher weigher;
+
+	private final long expireAfterWriteNanos;
+
+	private final long expireAfterAccessNanos;
+
+	private final EvictionPolicy evictionPolicy;
+
+	private final boolean allowNullValues;
+
+	private final Segment[] segments;
+
+	private final int segmentShift;
+
+
+	/**
+	 * Create a new BoundedConcurrentMapCache with the specified name,
+	 * evicting the least recently used entries beyond the given number of entries.
+	 * @param name the name of the cache
+	 * @param maximumSize the maximum number of entries (0 for no limit)
+	 */
+	public BoundedConcurrentMapCache(String name, long maximumSize) {
+		this(name, maximumSize, null, 0, 0, EvictionPolicy.LRU, DEFAULT_CONCURRENCY_LEVEL, true);
+	}
+
+	/**
+	 * Create a new BoundedConcurrentMapCache with the specified name and settings.
+	 * @param name the name of the cache
+	 * @param maximumWeight the maximum total weight of the entries (0 for no limit);
+	 * the maximum number of entries if no weigher is specified
+	 * @param weigher the weigher for the entries (or <code>null</code> for a weight of 1 per entry)
+	 * @param expireAfterWrite the number of seconds after which an entry expires
+	 * once it has been written (0 for no expiration)
+	 * @param expireAfterAccess the number of seconds after which an entry expires
+	 * once it has been last accessed (0 for no expiration)
+	 * @param evictionPolicy the policy to apply when the maximum weight is exceeded
+	 * @param concurrencyLevel the maximum number of segments
+	 * @param allowNullValues whether to allow <code>null</code> values
+	 * (adapting them to an internal null holder value)
+	 */
+	public BoundedConcurrentMapCache(String name, long maximumWeight, CacheEntryWeigher weigher,
+			long expireAfterWrite, long expireAfterAccess, EvictionPolicy evictionPolicy,
+			int concurrencyLevel, boolean allowNullValues) {
+
+		Assert.notNull(name, "Name must not be null");
+		Assert.isTrue(maximumWeight >= 0, "Maximum weight must not be negative");
+		Assert.isTrue(expireAfterWrite >= 0, "Expire-after-write must not be negative");
+		Assert.isTrue(expireAfterAccess >= 0, "Expire-after-access must not be negative");
+		Assert.notNull(evictionPolicy, "EvictionPolicy must not be null");
+		Assert.isTrue(concurrencyLevel > 0, "Concurrency level must be positive");
+		this.name = name;
+		this.weigher = weigher;
+		this.expireAfterWriteNanos = TimeUnit.SECONDS.toNanos(expireAfterWrite);
+		this.expireAfterAccessNanos = TimeUnit.SECONDS.toNanos(expireAfterAccess);
+		this.evictionPolicy = evictionPolicy;
+		this.allowNullValues = allowNullValues;
+
+		int segmentCount = 1;
+		int segmentBits = 0;
+		while (segmentCount < concurrencyLevel && segmentCount < MAXIMUM_SEGMENTS &&
+				(maximumWeight == 0 || maximumWeight / (segmentCount << 1) >= MINIMUM_SEGMENT_WEIGHT)) {
+			segmentCount <<= 1;
+			segmentBits++;
+		}
+		this.segments = new Segment[segmentCount];
+		this.segmentShift = 32 - segmentBits;
+		long segmentWeight = maximumWeight / segmentCount;
+		long remainder = maximumWeight % segmentCount;
+		for (int i = 0; i < segmentCount; i++) {
+			this.segments[i] = new Segment(i < remainder ? segmentWeight + 1 : segmentWeight);
+		}
+	}
+
+
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * This implementation returns the cache instance itself,
+	 * there being no separate native store.
+	 */
+	public Object getNativeCache() {
+		return this;
+	}
+
+	public boolean isAllowNullValues() {
+		return this.allowNullValues;
+	}
+
+	/**
+	 * Return the policy that is applied when the maximum weight is exceeded.
+	 */
+	public EvictionPolicy getEvictionPolicy() {
+		return this.evictionPolicy;
+	}
+
+	public ValueWrapper get(Object key) {
+		int hash = hash(key);
+		Entry entry = segmentFor(hash).get(key, hash);
+		return (entry != null ? new TimestampedValueWrapper(fromStoreValue(entry.value), entry.timestamp) : null);
+	}
+
+	public Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+		Object[] keyArray = keys.toArray();
+		int[] hashes = hashes(keyArray);
+		Entry[] entries = new Entry[keyArray.length];
+		int[][] positions = groupBySegment(hashes);
+		for (int i = 0; i < positions.length; i++) {
+			if (positions[i] != null) {
+				this.segments[i].getAll(keyArray, hashes, positions[i], entries);
+			}
+		}
+		Map<Object, ValueWrapper> result = new LinkedHashMap<Object, ValueWrapper>(keyArray.length);
+		for (int i = 0; i < keyArray.length; i++) {
+			Entry entry = entries[i];
+			if (entry != null) {
+				result.put(keyArray[i], new TimestampedValueWrapper(fromStoreValue(entry.value), entry.timestamp));
+			}
+		}
+		return result;
+	}
+
+	public void put(Object key, Object value) {
+		int hash = hash(key);
+		segmentFor(hash).put(key, hash, toCheckedStoreValue(value), weigh(key, value));
+	}
+
+	public void putAll(Map<?, ?> entries) {
+		int size = entries.size();
+		Object[] keyArray = new Object[size];
+		Object[] values = new Object[size];
+		int[] weights = new int[size];
+		int i = 0;
+		for (Map.Entry<?, ?> entry : entries.entrySet()) {
+			keyArray[i] = entry.getKey();
+			values[i] = toCheckedStoreValue(entry.getValue());
+			weights[i] = weigh(entry.getKey(), entry.getValue());
+			i++;
+		}
+		int[] hashes = hashes(keyArray);
+		int[][] positions = groupBySegment(hashes);
+		for (int j = 0; j < positions.length; j++) {
+			if (positions[j] != null) {
+				this.segments[j].putAll(keyArray, hashes, values, weights, positions[j]);
+			}
+		}
+	}
+
+	public void evict(Object key) {
+		int hash = hash(key);
+		segmentFor(hash).remove(key);
+	}
+
+	public void evictAll(Collection<?> keys) {
+		Object[] keyArray = keys.toArray();
+		int[][] positions = groupBySegment(hashes(keyArray));
+		for (int i = 0; i < positions.length; i++) {
+			if (positions[i] != null) {
+				this.segments[i].removeAll(keyArray, positions[i]);
+			}
+		}
+	}
+
+	public void clear() {
+		for (Segment segment : this.segments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * Remove all expired entries from this cache.
+	 * <p>Expired entries are otherwise only removed when being looked up
+	 * or when their segment of the cache needs to evict entries.
+	 */
+	public void cleanUp() {
+		for (Segment segment : this.segments) {
+			segment.removeExpired();
+		}
+	}
+
+	/**
+	 * Return the current number of entries in this cache,
+	 * possibly including entries that already expired.
+	 */
+	public long size() {
+		long size = 0;
+		for (Segment segment : this.segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Return a snapshot of the statistics of this cache.
+	 */
+	public CacheStatistics getStatistics() {
+		long[] counts = new long[4];
+		for (Segment segment : this.segments) {
+			segment.addStatistics(counts);
+		}
+		return new CacheStatistics(counts[0], counts[1], counts[2], counts[3]);
+	}
+
+
+	/**
+	 * Convert the given value from the internal store to a user value
+	 * returned from the get method (adapting <code>null</code>).
+	 * @param storeValue the store value
+	 * @return the value to return to the user
+	 */
+	protected Object fromStoreValue(Object storeValue) {
+		if (this.allowNullValues && storeValue == NULL_HOLDER) {
+			return null;
+		}
+		return storeValue;
+	}
+
+	/**
+	 * Convert the given user value, as passed into the put method,
+	 * to a value in the internal store (adapting <code>null</code>).
+	 * @param userValue the given user value
+	 * @return the value to store
+	 */
+	protected Object toStoreValue(Object userValue) {
+		if (this.allowNullValues && userValue == null) {
+			return NULL_HOLDER;
+		}
+		return userValue;
+	}
+
+	/**
+	 * Return the current time in nanoseconds, as used for the expiration of entries.
+	 * <p>The default implementation delegates to {@link System#nanoTime()}.
+	 */
+	protected long currentTimeNanos() {
+		return System.nanoTime();
+	}
+
+
+	private Object toCheckedStoreValue(Object value) {
+		Object storeValue = toStoreValue(value);
+		Assert.notNull(storeValue, "Cache '" + this.name + "' does not allow null values");
+		return storeValue;
+	}
+
+	private int weigh(Object key, Object value) {
+		int weight = (this.weigher != null ? this.weigher.weigh(key, value) : 1);
+		Assert.isTrue(weight >= 0, "Weight of cache entry must not be negative");
+		return weight;
+	}
+
+	private boolean isExpiring() {
+		return (this.expireAfterWriteNanos > 0 || this.expireAfterAccessNanos > 0);
+	}
+
+	private boolean isExpired(Entry entry, long now) {
+		return ((this.expireAfterWriteNanos > 0 && now - entry.writeTime >= this.expireAfterWriteNanos) ||
+				(this.expireAfterAccessNanos > 0 && now - entry.accessTime >= this.expireAfterAccessNanos));
+	}
+
+	private Segment segmentFor(int hash) {
+		return this.segments[segmentIndex(hash)];
+	}
+
+	private int segmentIndex(int hash) {
+		return (this.segments.length == 1 ? 0 : hash >>> this.segmentShift);
+	}
+
+	/**
+	 * Group the positions of the given hashes by the index of their segment.
+	 * @return the positions per segment, or <code>null</code> for segments without keys
+	 */
+	private int[][] groupBySegment(int[] hashes) {
+		int[] segmentIndexes = new int[hashes.length];
+		int[] counts = new int[this.segments.length];
+		for (int i = 0; i < hashes.length; i++) {
+			segmentIndexes[i] = segmentIndex(hashes[i]);
+			counts[segmentIndexes[i]]++;
+		}
+		int[][] positions = new int[this.segments.length][];
+		for (int i = 0; i < hashes.length; i++) {
+			int segmentIndex = segmentIndexes[i];
+			if (positions[segmentIndex] == null) {
+				positions[segmentIndex] = new int[counts[segmentIndex]];
+				counts[segmentIndex] = 0;
+			}
+			positions[segmentIndex][counts[segmentIndex]++] = i;
+		}
+		return positions;
+	}
+
+	private static int[] hashes(Object[] keys) {
+		int[] hashes = new int[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			hashes[i] = hash(keys[i]);
+		}
+		return hashes;
+	}
+
+	private static int hash(Object key) {
+		// spread the bits of the hash code, as the upper bits select the segment
+		int h = key.hashCode();
+		h += (h << 15) ^ 0xffffcd7d;
+		h ^= (h >>> 10);
+		h += (h << 3);
+		h ^= (h >>> 6);
+		h += (h << 2) + (h << 14);
+		return h ^ (h >>> 16);
+	}
+
+
+	/**
+	 * A cache entry, only to be accessed under the lock of its segment.
+	 */
+	private static final class Entry {
+
+		private final Object key;
+
+		private final int hash;
+
+		private final Object value;
+
+		private final int weight;
+
+		private final long writeTime;
+
+		private final long timestamp = System.currentTimeMillis();
+
+		private long accessTime;
+
+		private boolean inWindow;
+
+		public Entry(Object key, int hash, Object value, int weight, long now) {
+			this.key = key;
+			this.hash = hash;
+			this.value = value;
+			this.weight = weight;
+			this.writeTime = now;
+			this.accessTime = now;
+		}
+	}
+
+
+	/**
+	 * A segment of the cache, holding its entries in access order. With the
+	 * W-TinyLFU policy, new entries first go into a small window and have to
+	 * pass the frequency-based admission check to move on into the main space.
+	 */
+	@SuppressWarnings("serial")
+	private final class Segment extends ReentrantLock {
+
+		private final long maximumWeight;
+
+		private final long maximumWindowWeight;
+
+		private final FrequencySketch sketch;
+
+		private final LinkedHashMap<Object, Entry> window = new LinkedHashMap<Object, Entry>(16, 0.75f, true);
+
+		private final LinkedHashMap<Object, Entry> main = new LinkedHashMap<Object, Entry>(16, 0.75f, true);
+
+		private long windowWeight;
+
+		private long mainWeight;
+
+		private long hitCount;
+
+		private long missCount;
+
+		private long evictionCount;
+
+		private long expirationCount;
+
+		public Segment(long maximumWeight) {
+			this.maximumWeight = maximumWeight;
+			if (evictionPolicy == EvictionPolicy.W_TINY_LFU && maximumWeight > 0) {
+				this.maximumWindowWeight = Math.max(1, maximumWeight / 100);
+				this.sketch = new FrequencySketch(maximumWeight);
+			}
+			else {
+				this.maximumWindowWeight = 0;
+				this.sketch = null;
+			}
+		}
+
+		public Entry get(Object key, int hash) {
+			lock();
+			try {
+				if (this.sketch != null) {
+					this.sketch.increment(hash);
+				}
+				Entry entry = this.window.get(key);
+				if (entry == null) {
+					entry = this.main.get(key);
+				}
+				if (entry == null) {
+					this.missCount++;
+					return null;
+				}
+				if (isExpiring()) {
+					long now = currentTimeNanos();
+					if (isExpired(entry, now)) {
+						removeEntry(entry);
+						this.expirationCount++;
+						this.missCount++;
+						return null;
+					}
+					entry.accessTime = now;
+				}
+				this.hitCount++;
+				return entry;
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		public void put(Object key, int hash, Object value, int weight) {
+			lock();
+			try {
+				if (this.sketch != null) {
+					this.sketch.increment(hash);
+				}
+				Entry existing = removeKey(key);
+				if (this.maximumWeight > 0 && weight > this.maximumWeight) {
+					// can never fit into this segment
+					this.evictionCount++;
+					return;
+				}
+				Entry entry = new Entry(key, hash, value, weight, (isExpiring() ? currentTimeNanos() : 0));
+				if (this.sketch != null && (existing == null || existing.inWindow)) {
+					entry.inWindow = true;
+					this.window.put(key, entry);
+					this.windowWeight += weight;
+				}
+				else {
+					this.main.put(key, entry);
+					this.mainWeight += weight;
+				}
+				evictEntries();
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		public void getAll(Object[] keys, int[] hashes, int[] positions, Entry[] entries) {
+			lock();
+			try {
+				for (int position : positions) {
+					entries[position] = get(keys[position], hashes[position]);
+				}
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		public void putAll(Object[] keys, int[] hashes, Object[] values, int[] weights, int[] positions) {
+			lock();
+			try {
+				for (int position : positions) {
+					put(keys[position], hashes[position], values[position], weights[position]);
+				}
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		public void remove(Object key) {
+			lock();
+			try {
+				removeKey(key);
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		public void removeAll(Object[] keys, int[] positions) {
+			lock();
+			try {
+				for (int position : positions) {
+					removeKey(keys[position]);
+				}
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		public void clear() {
+			lock();
+			try {
+				this.window.clear();
+				this.main.clear();
+				this.windowWeight = 0;
+				this.mainWeight = 0;
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		public void removeExpired() {
+			if (!isExpiring()) {
+				return;
+			}
+			lock();
+			try {
+				long now = currentTimeNanos();
+				removeExpired(this.window.values().iterator(), now);
+				removeExpired(this.main.values().iterator(), now);
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		public int size() {
+			lock();
+			try {
+				return this.window.size() + this.main.size();
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		public void addStatistics(long[] counts) {
+			lock();
+			try {
+				counts[0] += this.hitCount;
+				counts[1] += this.missCount;
+				counts[2] += this.evictionCount;
+				counts[3] += this.expirationCount;
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		private void removeExpired(Iterator<Entry> it, long now) {
+			while (it.hasNext()) {
+				Entry entry = it.next();
+				if (isExpired(entry, now)) {
+					it.remove();
+					subtractWeight(entry);
+					this.expirationCount++;
+				}
+			}
+		}
+
+		private void evictEntries() {
+			if (this.maximumWeight == 0) {
+				return;
+			}
+			if (this.sketch == null) {
+				while (this.mainWeight > this.maximumWeight) {
+					evictEntry(this.main.values().iterator().next());
+				}
+				return;
+			}
+			while (this.windowWeight > this.maximumWindowWeight) {
+				Entry candidate = this.window.values().iterator().next();
+				this.window.remove(candidate.key);
+				this.windowWeight -= candidate.weight;
+				candidate.inWindow = false;
+				this.main.put(candidate.key, candidate);
+				this.mainWeight += candidate.weight;
+				admit(candidate);
+			}
+			// an entry replaced in the main space may have grown in weight
+			while (this.windowWeight + this.mainWeight > this.maximumWeight && !this.main.isEmpty()) {
+				evictEntry(this.main.values().iterator().next());
+			}
+		}
+
+		/**
+		 * Make room for the given candidate that just moved from the window into the
+		 * main space, evicting either the least recently used entries of the main space
+		 * or the candidate itself, depending on which has been requested more often.
+		 */
+		private void admit(Entry candidate) {
+			while (this.windowWeight + this.mainWeight > this.maximumWeight) {
+				Entry victim = this.main.values().iterator().next();
+				if (victim == candidate || (isExpiring() && isExpired(victim, currentTimeNanos())) ||
+						this.sketch.frequency(candidate.hash) > this.sketch.frequency(victim.hash)) {
+					evictEntry(victim);
+					if (victim == candidate) {
+						return;
+					}
+				}
+				else {
+					evictEntry(candidate);
+					return;
+				}
+			}
+		}
+
+		private void evictEntry(Entry entry) {
+			removeEntry(entry);
+			if (isExpiring() && isExpired(entry, currentTimeNanos())) {
+				this.expirationCount++;
+			}
+			else {
+				this.evictionCount++;
+			}
+		}
+
+		private Entry removeKey(Object key) {
+			Entry entry = this.window.remove(key);
+			if (entry == null) {
+				entry = this.main.remove(key);
+			}
+			if (entry != null) {
+				subtractWeight(entry);
+			}
+			return entry;
+		}
+
+		private void removeEntry(Entry entry) {
+			(entry.inWindow ? this.window : this.main).remove(entry.key);
+			subtractWeight(entry);
+		}
+
+		private void subtractWeight(Entry entry) {
+			if (entry.inWindow) {
+				this.windowWeight -= entry.weight;
+			}
+			else {
+				this.mainWeight -= entry.weight;
+			}
+		}
+	}
+
+
+	private static class NullHolder implements Serializable {
+	}
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.util.Assert;
+
+/**
+ * {@link CacheManager} implementation that lazily builds {@link BoundedConcurrentMapCache}
+ * instances for each {@link #getCache} request, all of them sharing the settings of
+ * this cache manager. Like {@link ConcurrentMapCacheManager}, also supports a 'static'
+ * mode where the set of cache names is pre-defined through {@link #setCacheNames},
+ * with no dynamic creation of further cache regions at runtime.
+ *
+ * <p>Can be defined through the <code>&lt;cache:bounded-cache-manager&gt;</code>
+ * element of the "cache" XML namespace.
+ *
+ * @author agent
+ * @since 3.1
+ */
+public class BoundedConcurrentMapCacheManager implements CacheManager {
+
+	private final ConcurrentMap<String, Cache> cacheMap = new ConcurrentHashMap<String, Cache>();
+
+	private Set<String> cacheNames;
+
+	private long maximumSize;
+
+	private long maximumWeight;
+
+	private CacheEntryWeigher weigher;
+
+	private int expireAfterWrite;
+
+	private int expireAfterAccess;
+
+	private EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
+
+	private int concurrencyLevel = BoundedConcurrentMapCache.DEFAULT_CONCURRENCY_LEVEL;
+
+	private boolean allowNullValues = true;
+
+
+	/**
+	 * Construct a dynamic BoundedConcurrentMapCacheManager,
+	 * lazily creating cache instances as they are being requested.
+	 */
+	public BoundedConcurrentMapCacheManager() {
+	}
+
+	/**
+	 * Construct a static BoundedConcurrentMapCacheManager,
+	 * managing caches for the specified cache names only.
+	 */
+	public BoundedConcurrentMapCacheManager(String... cacheNames) {
+		setCacheNames(Arrays.asList(cacheNames));
+	}
+
+
+	/**
+	 * Specify the set of cache names for this CacheManager's 'static' mode.
+	 * <p>The number of caches and their names will be fixed after a call to this method,
+	 * with no creation of further cache regions at runtime. The caches themselves are
+	 * still created on first access, with the settings in place at that time.
+	 */
+	public void setCacheNames(Collection<String> cacheNames) {
+		this.cacheNames = (cacheNames != null ?
+				Collections.unmodifiableSet(new LinkedHashSet<String>(cacheNames)) : null);
+	}
+
+	/**
+	 * Set the maximum number of entries per cache.
+	 * <p>Default is 0, i.e. no limit (unless a maximum weight is specified).
+	 * @see #setMaximumWeight
+	 */
+	public void setMaximumSize(long maximumSize) {
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Set the maximum total weight of the entries per cache,
+	 * as calculated by the specified {@link #setWeigher weigher}.
+	 * <p>Default is 0, i.e. no limit. Only one of "maximumSize" and
+	 * "maximumWeight" may be specified.
+	 */
+	public void setMaximumWeight(long maximumWeight) {
+		this.maximumWeight = maximumWeight;
+	}
+
+	/**
+	 * Set the weigher that calculates the weight of each cache entry,
+	 * to be used in combination with the {@link #setMaximumWeight maximum weight}.
+	 */
+	public void setWeigher(CacheEntryWeigher weigher) {
+		this.weigher = weigher;
+	}
+
+	/**
+	 * Set the number of seconds after which an entry expires
+	 * once it has been written.
+	 * <p>Default is 0, i.e. no expiration.
+	 */
+	public void setExpireAfterWrite(int expireAfterWrite) {
+		this.expireAfterWrite = expireAfterWrite;
+	}
+
+	/**
+	 * Set the number of seconds after which an entry expires
+	 * once it has been last accessed.
+	 * <p>Default is 0, i.e. no expiration.
+	 */
+	public void setExpireAfterAccess(int expireAfterAccess) {
+		this.expireAfterAccess = expireAfterAccess;
+	}
+
+	/**
+	 * Set the policy to apply when a cache exceeds its maximum size or weight.
+	 * <p>Default is {@link EvictionPolicy#LRU}.
+	 */
+	public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+		Assert.notNull(evictionPolicy, "EvictionPolicy must not be null");
+		this.evictionPolicy = evictionPolicy;
+	}
+
+	/**
+	 * Set the maximum number of independently locked segments per cache.
+	 * <p>Default is 16. Small caches use fewer segments.
+	 */
+	public void setConcurrencyLevel(int concurrencyLevel) {
+		this.concurrencyLevel = concurrencyLevel;
+	}
+
+	/**
+	 * Set whether to allow <code>null</code> values
+	 * (adapting them to an internal null holder value).
+	 * <p>Default is "true".
+	 */
+	public void setAllowNullValues(boolean allowNullValues) {
+		this.allowNullValues = allowNullValues;
+	}
+
+
+	public Collection<String> getCacheNames() {
+		if (this.cacheNames != null) {
+			return this.cacheNames;
+		}
+		return Collections.unmodifiableSet(this.cacheMap.keySet());
+	}
+
+	public Cache getCache(String name) {
+		Cache cache = this.cacheMap.get(name);
+		if (cache == null && (this.cacheNames == null || this.cacheNames.contains(name))) {
+			synchronized (this.cacheMap) {
+				cache = this.cacheMap.get(name);
+				if (cache == null) {
+					cache = createBoundedConcurrentMapCache(name);
+					this.cacheMap.put(name, cache);
+				}
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Create a new BoundedConcurrentMapCache instance for the specified cache name.
+	 * @param name the name of the cache
+	 * @return the BoundedConcurrentMapCache (or a decorator thereof)
+	 */
+	protected Cache createBoundedConcurrentMapCache(String name) {
+		Assert.isTrue(this.maximumSize == 0 || this.maximumWeight == 0,
+				"Only one of 'maximumSize' and 'maximumWeight' may be specified");
+		if (this.maximumWeight > 0) {
+			Assert.notNull(this.weigher, "A 'weigher' is required in combination with 'maximumWeight'");
+			return new BoundedConcurrentMapCache(name, this.maximumWeight, this.weigher, this.expireAfterWrite,
+					this.expireAfterAccess, this.evictionPolicy, this.concurrencyLevel, this.allowNullValues);
+		}
+		return new BoundedConcurrentMapCache(name, this.maximumSize, null, this.expireAfterWrite,
+				this.expireAfterAccess, this.evictionPolicy, this.concurrencyLevel, this.allowNullValues);
+	}
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+/**
+ * Callback interface for calculating the weight of a cache entry,
+ * as used by {@link BoundedConcurrentMapCache} for a weight-based bound.
+ *
+ * <p>The unit of the weight is up to the implementation; it just has to
+ * match the maximum weight that the cache has been configured with
+ * (e.g. an estimated number of bytes, or the number of elements of a
+ * collection value).
+ *
+ * @author agent
+ * @since 3.1
+ * @see BoundedConcurrentMapCacheManager#setWeigher
+ */
+public interface CacheEntryWeigher {
+
+	/**
+	 * Return the weight of the given cache entry.
+	 * <p>The weight is calculated once, when the entry is put into the cache.
+	 * @param key the key of the entry
+	 * @param value the value of the entry (may be <code>null</code>)
+	 * @return the weight of the entry (must not be negative)
+	 */
+	int weigh(Object key, Object value);
+
+}
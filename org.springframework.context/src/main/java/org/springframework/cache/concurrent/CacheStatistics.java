@@ -0,0 +1,122 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+/**
+ * Immutable snapshot of the statistics of a {@link BoundedConcurrentMapCache}.
+ *
+ * @author agent
+ * @since 3.1
+ * @see BoundedConcurrentMapCache#getStatistics()
+ */
+public final class CacheStatistics {
+
+	private final long hitCount;
+
+	private final long missCount;
+
+	private final long evictionCount;
+
+	private final long expirationCount;
+
+
+	/**
+	 * Create a new CacheStatistics instance.
+	 * @param hitCount the number of lookups that found a cache entry
+	 * @param missCount the number of lookups that did not find a (valid) cache entry
+	 * @param evictionCount the number of entries evicted because of the cache bounds
+	 * @param expirationCount the number of entries removed because they expired
+	 */
+	public CacheStatistics(long hitCount, long missCount, long evictionCount, long expirationCount) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+		this.expirationCount = expirationCount;
+	}
+
+
+	/**
+	 * Return the number of lookups that found a cache entry.
+	 */
+	public long getHitCount() {
+		return this.hitCount;
+	}
+
+	/**
+	 * Return the number of lookups that did not find a (valid) cache entry.
+	 */
+	public long getMissCount() {
+		return this.missCount;
+	}
+
+	/**
+	 * Return the total number of lookups.
+	 */
+	public long getRequestCount() {
+		return this.hitCount + this.missCount;
+	}
+
+	/**
+	 * Return the ratio of lookups that found a cache entry,
+	 * or <code>1.0</code> if there have not been any lookups yet.
+	 */
+	public double getHitRatio() {
+		long requestCount = getRequestCount();
+		return (requestCount > 0 ? (double) this.hitCount / requestCount : 1.0);
+	}
+
+	/**
+	 * Return the number of entries that have been evicted
+	 * because of the size or weight bound of the cache.
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount;
+	}
+
+	/**
+	 * Return the number of entries that have been removed because they expired.
+	 */
+	public long getExpirationCount() {
+		return this.expirationCount;
+	}
+
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof CacheStatistics)) {
+			return false;
+		}
+		CacheStatistics otherStats = (CacheStatistics) other;
+		return (this.hitCount == otherStats.hitCount && this.missCount == otherStats.missCount &&
+				this.evictionCount == otherStats.evictionCount && this.expirationCount == otherStats.expirationCount);
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (this.hitCount * 29 + this.missCount * 17 + this.evictionCount * 7 + this.expirationCount);
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStatistics [hits=" + this.hitCount + ", misses=" + this.missCount +
+				", evictions=" + this.evictionCount + ", expirations=" + this.expirationCount + "]";
+	}
+
+}
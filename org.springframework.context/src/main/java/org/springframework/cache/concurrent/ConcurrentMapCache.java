@@ -17,6 +17,9 @@
 package org.springframework.cache.concurrent;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -99,14 +102,37 @@ public class ConcurrentMapCache implements Cache {
 		return (value != null ? new ValueWrapperImpl(fromStoreValue(value)) : null);
 	}
 
+	public Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+		Map<Object, ValueWrapper> result = new LinkedHashMap<Object, ValueWrapper>(keys.size());
+		for (Object key : keys) {
+			Object value = this.store.get(key);
+			if (value != null) {
+				result.put(key, new ValueWrapperImpl(fromStoreValue(value)));
+			}
+		}
+		return result;
+	}
+
 	public void put(Object key, Object value) {
 		this.store.put(key, toStoreValue(value));
 	}
 
+	public void putAll(Map<?, ?> entries) {
+		for (Map.Entry<?, ?> entry : entries.entrySet()) {
+			this.store.put(entry.getKey(), toStoreValue(entry.getValue()));
+		}
+	}
+
 	public void evict(Object key) {
 		this.store.remove(key);
 	}
 
+	public void evictAll(Collection<?> keys) {
+		for (Object key : keys) {
+			this.store.remove(key);
+		}
+	}
+
 	public void clear() {
 		this.store.clear();
 	}
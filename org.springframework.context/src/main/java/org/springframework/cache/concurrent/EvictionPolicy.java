@@ -0,0 +1,41 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+/**
+ * Enumeration of the eviction policies supported by {@link BoundedConcurrentMapCache}.
+ *
+ * @author agent
+ * @since 3.1
+ */
+public enum EvictionPolicy {
+
+	/**
+	 * Evict the least recently used entry once the cache exceeds its bounds.
+	 */
+	LRU,
+
+	/**
+	 * Keep recently added entries in a small LRU "window" and only admit them
+	 * into the main space of the cache if they have been requested more often
+	 * than the entry they would replace, according to an approximate frequency
+	 * history (W-TinyLFU). Protects the cache from being flushed by one-off
+	 * accesses to many distinct keys.
+	 */
+	W_TINY_LFU
+
+}
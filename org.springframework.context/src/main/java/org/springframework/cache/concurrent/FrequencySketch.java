@@ -0,0 +1,112 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+/**
+ * Approximate frequency history of keys, kept as a count-min sketch of
+ * 4-bit counters, as used by the {@link EvictionPolicy#W_TINY_LFU} policy.
+ *
+ * <p>All counters are halved once the number of recorded accesses reaches
+ * a sample size proportional to the capacity, so that the history adapts to
+ * changing access patterns.
+ *
+ * <p>Not thread-safe: access needs to be guarded by the caller.
+ *
+ * @author agent
+ * @since 3.1
+ */
+final class FrequencySketch {
+
+	private static final long[] SEEDS = new long[] {
+			0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	private static final int MAXIMUM_CAPACITY = 1 << 20;
+
+
+	private final long[] table;
+
+	private final int tableMask;
+
+	private final int sampleSize;
+
+	private int size;
+
+
+	/**
+	 * Create a new FrequencySketch for the given (expected) number of entries.
+	 */
+	FrequencySketch(long capacity) {
+		int tableSize = 1;
+		while (tableSize < capacity && tableSize < MAXIMUM_CAPACITY) {
+			tableSize <<= 1;
+		}
+		this.table = new long[tableSize];
+		this.tableMask = tableSize - 1;
+		this.sampleSize = 10 * tableSize;
+	}
+
+
+	/**
+	 * Return the estimated number of accesses to the key with the given hash,
+	 * in the range of 0 to 15.
+	 */
+	int frequency(int hash) {
+		int start = (hash & 3) << 2;
+		int frequency = Integer.MAX_VALUE;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int count = (int) ((this.table[index] >>> ((start + i) << 2)) & 0xfL);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	/**
+	 * Record an access to the key with the given hash.
+	 */
+	void increment(int hash) {
+		int start = (hash & 3) << 2;
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int offset = (start + i) << 2;
+			if (((this.table[index] >>> offset) & 0xfL) != 0xfL) {
+				this.table[index] += (1L << offset);
+				added = true;
+			}
+		}
+		if (added && ++this.size >= this.sampleSize) {
+			reset();
+		}
+	}
+
+	private int indexOf(int hash, int i) {
+		long value = (hash + SEEDS[i]) * SEEDS[i];
+		value += (value >>> 32);
+		return ((int) value) & this.tableMask;
+	}
+
+	private void reset() {
+		for (int i = 0; i < this.table.length; i++) {
+			this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+		}
+		this.size = (this.size >>> 1);
+	}
+
+}
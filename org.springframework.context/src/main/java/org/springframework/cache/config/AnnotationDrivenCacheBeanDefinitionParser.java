@@ -29,6 +29,7 @@ import org.springframework.beans.factory.xml.ParserContext;
 import org.springframework.cache.annotation.AnnotationCacheOperationSource;
 import org.springframework.cache.interceptor.BeanFactoryCacheOperationSourceAdvisor;
 import org.springframework.cache.interceptor.CacheInterceptor;
+import org.springframework.util.StringUtils;
 
 import static org.springframework.context.annotation.AnnotationConfigUtils.*;
 
@@ -69,6 +70,10 @@ class AnnotationDrivenCacheBeanDefinitionParser implements BeanDefinitionParser
 	private static void registerCacheManagerProperty(Element element, BeanDefinition def) {
 		def.getPropertyValues().add("cacheManager",
 				new RuntimeBeanReference(CacheNamespaceHandler.extractCacheManager(element)));
+		if (StringUtils.hasText(element.getAttribute("refresh-executor"))) {
+			def.getPropertyValues().add("refreshExecutor",
+					new RuntimeBeanReference(element.getAttribute("refresh-executor")));
+		}
 	}
 
 	/**
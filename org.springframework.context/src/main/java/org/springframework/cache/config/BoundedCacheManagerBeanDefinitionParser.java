@@ -0,0 +1,78 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.config;
+
+import org.w3c.dom.Element;
+
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.xml.AbstractSingleBeanDefinitionParser;
+import org.springframework.beans.factory.xml.ParserContext;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link org.springframework.beans.factory.xml.BeanDefinitionParser}
+ * implementation for the '<code>&lt;cache:bounded-cache-manager/&gt;</code>' tag,
+ * defining a {@link org.springframework.cache.concurrent.BoundedConcurrentMapCacheManager}.
+ * The bean name defaults to "cacheManager".
+ *
+ * @author agent
+ * @since 3.1
+ */
+class BoundedCacheManagerBeanDefinitionParser extends AbstractSingleBeanDefinitionParser {
+
+	@Override
+	protected String getBeanClassName(Element element) {
+		return "org.springframework.cache.concurrent.BoundedConcurrentMapCacheManager";
+	}
+
+	@Override
+	protected String resolveId(Element element, AbstractBeanDefinition definition, ParserContext parserContext) {
+		String id = super.resolveId(element, definition, parserContext);
+		return (StringUtils.hasText(id) ? id : CacheNamespaceHandler.DEFAULT_CACHE_MANAGER_BEAN_NAME);
+	}
+
+	@Override
+	protected void doParse(Element element, ParserContext parserContext, BeanDefinitionBuilder builder) {
+		String cacheNames = element.getAttribute("cache-names");
+		if (StringUtils.hasText(cacheNames)) {
+			builder.addPropertyValue("cacheNames", StringUtils.commaDelimitedListToSet(
+					StringUtils.trimAllWhitespace(cacheNames)));
+		}
+		addPropertyValue(element, builder, "maximum-size", "maximumSize");
+		addPropertyValue(element, builder, "maximum-weight", "maximumWeight");
+		String weigher = element.getAttribute("weigher");
+		if (StringUtils.hasText(weigher)) {
+			builder.addPropertyReference("weigher", weigher);
+		}
+		addPropertyValue(element, builder, "expire-after-write", "expireAfterWrite");
+		addPropertyValue(element, builder, "expire-after-access", "expireAfterAccess");
+		addPropertyValue(element, builder, "eviction-policy", "evictionPolicy");
+		addPropertyValue(element, builder, "concurrency-level", "concurrencyLevel");
+		addPropertyValue(element, builder, "allow-null-values", "allowNullValues");
+	}
+
+	private void addPropertyValue(Element element, BeanDefinitionBuilder builder,
+			String attributeName, String propertyName) {
+
+		String value = element.getAttribute(attributeName);
+		if (StringUtils.hasText(value)) {
+			builder.addPropertyValue(propertyName, value);
+		}
+	}
+
+}
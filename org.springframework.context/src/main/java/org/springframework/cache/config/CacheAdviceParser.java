@@ -100,6 +100,10 @@ class CacheAdviceParser extends AbstractSingleBeanDefinitionParser {
 	private static final String CACHEABLE_ELEMENT = "cacheable";
 	private static final String CACHE_EVICT_ELEMENT = "cache-evict";
 	private static final String METHOD_ATTRIBUTE = "method";
+	private static final String SYNC_ATTRIBUTE = "sync";
+	private static final String REFRESH_AFTER_ATTRIBUTE = "refresh-after";
+	private static final String BULK_ATTRIBUTE = "bulk";
+	private static final String REFRESH_EXECUTOR_ATTRIBUTE = "refresh-executor";
 	private static final String DEFS_ELEMENT = "definitions";
 
 	@Override
@@ -110,6 +114,9 @@ class CacheAdviceParser extends AbstractSingleBeanDefinitionParser {
 	@Override
 	protected void doParse(Element element, ParserContext parserContext, BeanDefinitionBuilder builder) {
 		builder.addPropertyReference("cacheManager", CacheNamespaceHandler.extractCacheManager(element));
+		if (StringUtils.hasText(element.getAttribute(REFRESH_EXECUTOR_ATTRIBUTE))) {
+			builder.addPropertyReference("refreshExecutor", element.getAttribute(REFRESH_EXECUTOR_ATTRIBUTE));
+		}
 
 		List<Element> cacheDefs = DomUtils.getChildElementsByTagName(element, DEFS_ELEMENT);
 		if (cacheDefs.size() >= 1) {
@@ -147,7 +154,18 @@ class CacheAdviceParser extends AbstractSingleBeanDefinitionParser {
 			String name = opElement.getAttribute(METHOD_ATTRIBUTE);
 			TypedStringValue nameHolder = new TypedStringValue(name);
 			nameHolder.setSource(parserContext.extractSource(opElement));
-			CacheOperation op = prop.merge(opElement, parserContext.getReaderContext(), new CacheUpdateOperation());
+			CacheUpdateOperation op = new CacheUpdateOperation();
+			prop.merge(opElement, parserContext.getReaderContext(), op);
+			op.setSync(Boolean.valueOf(opElement.getAttribute(SYNC_ATTRIBUTE)));
+			op.setBulk(Boolean.valueOf(opElement.getAttribute(BULK_ATTRIBUTE)));
+			String refreshAfter = opElement.getAttribute(REFRESH_AFTER_ATTRIBUTE);
+			if (StringUtils.hasText(refreshAfter)) {
+				op.setRefreshAfter(Integer.parseInt(refreshAfter.trim()));
+			}
+			if (op.isBulk() && (op.isSync() || op.getRefreshAfter() > 0)) {
+				parserContext.getReaderContext().error("Bulk cache operation for method '" + name +
+						"' does not support 'sync' or 'refresh-after'", opElement);
+			}
 
 			cacheOpeMap.put(nameHolder, op);
 		}
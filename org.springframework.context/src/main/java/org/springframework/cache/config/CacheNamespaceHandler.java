@@ -43,6 +43,7 @@ public class CacheNamespaceHandler extends NamespaceHandlerSupport {
 	public void init() {
 		registerBeanDefinitionParser("annotation-driven", new AnnotationDrivenCacheBeanDefinitionParser());
 		registerBeanDefinitionParser("advice", new CacheAdviceParser());
+		registerBeanDefinitionParser("bounded-cache-manager", new BoundedCacheManagerBeanDefinitionParser());
 	}
 
 }
@@ -16,23 +16,46 @@
 
 package org.springframework.cache.ehcache;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
 import net.sf.ehcache.Status;
 
 import org.springframework.cache.Cache;
-import org.springframework.cache.support.ValueWrapperImpl;
+import org.springframework.cache.support.TimestampedValueWrapper;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
 
 /**
  * {@link Cache} implementation on top of an {@link Ehcache} instance.
  *
+ * <p>The bulk operations delegate to the corresponding bulk methods of
+ * Ehcache 2.5+ when available, falling back to per-key operations otherwise.
+ *
  * @author Costin Leau
  * @author Juergen Hoeller
  * @since 3.1
  */
 public class EhCacheCache implements Cache {
 
+	// Ehcache 2.5+ bulk methods, if available
+	private static final Method getAllMethod =
+			ClassUtils.getMethodIfAvailable(Ehcache.class, "getAll", Collection.class);
+
+	private static final Method putAllMethod =
+			ClassUtils.getMethodIfAvailable(Ehcache.class, "putAll", Collection.class);
+
+	private static final Method removeAllMethod =
+			ClassUtils.getMethodIfAvailable(Ehcache.class, "removeAll", Collection.class);
+
+
 	private final Ehcache cache;
 
 
@@ -63,15 +86,65 @@ public class EhCacheCache implements Cache {
 
 	public ValueWrapper get(Object key) {
 		Element element = this.cache.get(key);
-		return (element != null ? new ValueWrapperImpl(element.getObjectValue()) : null);
+		return (element != null ?
+				new TimestampedValueWrapper(element.getObjectValue(), element.getLatestOfCreationAndUpdateTime()) : null);
+	}
+
+	public Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+		Map<Object, ValueWrapper> result = new LinkedHashMap<Object, ValueWrapper>(keys.size());
+		if (getAllMethod != null) {
+			Map<?, ?> elements = (Map<?, ?>) ReflectionUtils.invokeMethod(getAllMethod, this.cache, keys);
+			for (Object key : keys) {
+				Element element = (Element) elements.get(key);
+				if (element != null) {
+					result.put(key, new TimestampedValueWrapper(
+							element.getObjectValue(), element.getLatestOfCreationAndUpdateTime()));
+				}
+			}
+		}
+		else {
+			for (Object key : keys) {
+				ValueWrapper wrapper = get(key);
+				if (wrapper != null) {
+					result.put(key, wrapper);
+				}
+			}
+		}
+		return result;
 	}
 
 	public void put(Object key, Object value) {
 		this.cache.put(new Element(key, value));
 	}
 
+	public void putAll(Map<?, ?> entries) {
+		if (putAllMethod != null) {
+			List<Element> elements = new ArrayList<Element>(entries.size());
+			for (Map.Entry<?, ?> entry : entries.entrySet()) {
+				elements.add(new Element(entry.getKey(), entry.getValue()));
+			}
+			ReflectionUtils.invokeMethod(putAllMethod, this.cache, elements);
+		}
+		else {
+			for (Map.Entry<?, ?> entry : entries.entrySet()) {
+				put(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
 	public void evict(Object key) {
 		this.cache.remove(key);
 	}
 
+	public void evictAll(Collection<?> keys) {
+		if (removeAllMethod != null) {
+			ReflectionUtils.invokeMethod(removeAllMethod, this.cache, keys);
+		}
+		else {
+			for (Object key : keys) {
+				evict(key);
+			}
+		}
+	}
+
 }
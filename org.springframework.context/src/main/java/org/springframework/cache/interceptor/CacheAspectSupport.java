@@ -19,8 +19,17 @@ package org.springframework.cache.interceptor;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -28,9 +37,15 @@ import org.springframework.aop.framework.AopProxyUtils;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.TimestampedValueWrapper;
+import org.springframework.core.CollectionFactory;
+import org.springframework.core.NamedThreadLocal;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 
 /**
@@ -49,6 +64,16 @@ import org.springframework.util.StringUtils;
  * <p>A cache aspect is serializable if its <code>CacheManager</code>
  * and <code>CacheDefinitionSource</code> are serializable.
  *
+ * <p>For {@link CacheUpdateOperation#isSync() synchronized} operations, only one
+ * thread at a time invokes the underlying method for a given key, with other threads
+ * waiting for its result. Operations that specify a
+ * {@link CacheUpdateOperation#getRefreshAfter() refresh period} reload values in the
+ * background through the {@link #setRefreshExecutor refresh executor}, which needs to
+ * be configured for such operations. A refresh invokes the target method reflectively
+ * on a different thread than the caller's, outside of the caller's interceptor chain,
+ * so it does not participate in transactions or other thread-bound state of the
+ * original invocation.
+ *
  * @author Costin Leau
  * @author Juergen Hoeller
  * @since 3.1
@@ -59,6 +84,14 @@ public abstract class CacheAspectSupport implements InitializingBean {
 		Object invoke();
 	}
 
+	/**
+	 * Invoker that is able to proceed with different arguments than the original
+	 * ones, as used for passing only the missing keys on to a bulk operation.
+	 */
+	public interface ArgumentsInvoker extends Invoker {
+		Object invoke(Object[] args);
+	}
+
 	protected final Log logger = LogFactory.getLog(getClass());
 
 	private CacheManager cacheManager;
@@ -69,6 +102,15 @@ public abstract class CacheAspectSupport implements InitializingBean {
 
 	private KeyGenerator keyGenerator = new DefaultKeyGenerator();
 
+	private TaskExecutor refreshExecutor;
+
+	/** The method that is being invoked by a background refresh on the current thread */
+	private final ThreadLocal<Method> refreshingMethod = new NamedThreadLocal<Method>("Cache refresh");
+
+	/** Loads in progress, keyed by cache names and cache key */
+	private final ConcurrentMap<LoadKey, FutureTask<Object>> inFlightLoads =
+			new ConcurrentHashMap<LoadKey, FutureTask<Object>>();
+
 	private boolean initialized = false;
 
 
@@ -126,6 +168,26 @@ public abstract class CacheAspectSupport implements InitializingBean {
 		return this.keyGenerator;
 	}
 
+	/**
+	 * Set the TaskExecutor to use for refreshing cached values in the background.
+	 * <p>There is no default: an executor needs to be specified for operations that
+	 * declare a refresh period. Use a thread pool of bounded size, such as a
+	 * {@link org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor},
+	 * since every stale access schedules a refresh.
+	 * @see CacheUpdateOperation#setRefreshAfter
+	 */
+	public void setRefreshExecutor(TaskExecutor refreshExecutor) {
+		Assert.notNull(refreshExecutor, "TaskExecutor must not be null");
+		this.refreshExecutor = refreshExecutor;
+	}
+
+	/**
+	 * Return the TaskExecutor to use for refreshing cached values in the background.
+	 */
+	public TaskExecutor getRefreshExecutor() {
+		return this.refreshExecutor;
+	}
+
 	public void afterPropertiesSet() {
 		if (this.cacheManager == null) {
 			throw new IllegalStateException("'cacheManager' is required");
@@ -180,6 +242,12 @@ public abstract class CacheAspectSupport implements InitializingBean {
 			return invoker.invoke();
 		}
 
+		// a background refresh re-entering the aspect, e.g. with AspectJ weaving
+		if (method.equals(this.refreshingMethod.get())) {
+			this.refreshingMethod.remove();
+			return invoker.invoke();
+		}
+
 		boolean log = logger.isTraceEnabled();
 
 		// get backing class
@@ -198,6 +266,10 @@ public abstract class CacheAspectSupport implements InitializingBean {
 
 			if (context.hasConditionPassed()) {
 				// check operation
+				if (cacheOp instanceof CacheUpdateOperation && ((CacheUpdateOperation) cacheOp).isBulk()) {
+					return executeBulk(invoker, context, method, args);
+				}
+
 				if (cacheOp instanceof CacheUpdateOperation) {
 					Object key = context.generateKey();
 					if (log) {
@@ -209,33 +281,39 @@ public abstract class CacheAspectSupport implements InitializingBean {
 										+ cacheOp);
 					}
 
-					// for each cache
-					boolean cacheHit = false;
-
-					for (Iterator<Cache> iterator = caches.iterator(); iterator.hasNext() && !cacheHit;) {
-						Cache cache = iterator.next();
-						Cache.ValueWrapper wrapper = cache.get(key);
-						if (wrapper != null) {
-							cacheHit = true;
-							retVal = wrapper.get();
-						}
+					CacheUpdateOperation updateOp = (CacheUpdateOperation) cacheOp;
+					if (updateOp.getRefreshAfter() > 0 && this.refreshExecutor == null) {
+						throw new IllegalStateException("No refresh executor configured for cache definition " +
+								"with refresh period: " + cacheOp);
 					}
+					Cache.ValueWrapper wrapper = findInCaches(caches, key);
 
-					if (!cacheHit) {
+					if (wrapper == null) {
 						if (log) {
 							logger.trace("Key " + key + " NOT found in cache(s), invoking cached target method  "
 									+ method);
 						}
-						retVal = invoker.invoke();
-						// update all caches
-						for (Cache cache : caches) {
-							cache.put(key, retVal);
+						if (updateOp.isSync()) {
+							retVal = loadSynchronized(invoker, updateOp, caches, key);
+						}
+						else {
+							retVal = invoker.invoke();
+							// update all caches
+							for (Cache cache : caches) {
+								cache.put(key, retVal);
+							}
 						}
 					}
 					else {
+						retVal = wrapper.get();
 						if (log) {
 							logger.trace("Key " + key + " found in cache, returning value " + retVal);
 						}
+						if (updateOp.getRefreshAfter() > 0 && wrapper instanceof TimestampedValueWrapper &&
+								System.currentTimeMillis() - ((TimestampedValueWrapper) wrapper).getTimestamp() >=
+										updateOp.getRefreshAfter() * 1000L) {
+							refreshInBackground(new RefreshInvoker(target, method, args), updateOp, caches, key);
+						}
 					}
 				}
 
@@ -281,6 +359,280 @@ public abstract class CacheAspectSupport implements InitializingBean {
 		return invoker.invoke();
 	}
 
+	/**
+	 * Execute a bulk update operation: look up the given collection of keys in the
+	 * caches, pass only the missing keys on to the method and cache the entries of
+	 * the map that it returns.
+	 */
+	@SuppressWarnings("unchecked")
+	private Object executeBulk(Invoker invoker, CacheOperationContext context, Method method, Object[] args) {
+		int keyIndex = context.getKeyArgumentIndex();
+		if (keyIndex == ExpressionEvaluator.NO_ARGUMENT_INDEX) {
+			throw new IllegalStateException("Bulk cache definition requires its key to refer to a method argument " +
+					"(or the method to declare a single argument): " + context.getOperation());
+		}
+		Object keyArg = args[keyIndex];
+		if (keyArg == null) {
+			return invoker.invoke();
+		}
+		if (!(keyArg instanceof Collection)) {
+			throw new IllegalStateException("Bulk cache definition requires a Collection of keys as method argument, " +
+					"but found [" + keyArg.getClass().getName() + "]: " + context.getOperation());
+		}
+		Collection<?> keys = (Collection<?>) keyArg;
+
+		Map<Object, Object> cachedValues = new HashMap<Object, Object>();
+		Set<Object> missingKeys = new LinkedHashSet<Object>(keys);
+		for (Iterator<Cache> iterator = context.getCaches().iterator(); iterator.hasNext() && !missingKeys.isEmpty();) {
+			Map<Object, Cache.ValueWrapper> found = iterator.next().getAll(missingKeys);
+			for (Map.Entry<Object, Cache.ValueWrapper> entry : found.entrySet()) {
+				cachedValues.put(entry.getKey(), entry.getValue().get());
+			}
+			missingKeys.removeAll(found.keySet());
+		}
+
+		Map<?, ?> loadedValues = Collections.emptyMap();
+		if (!missingKeys.isEmpty()) {
+			if (logger.isTraceEnabled()) {
+				logger.trace("Keys " + missingKeys + " NOT found in cache(s), invoking cached target method " + method);
+			}
+			Collection<Object> missingKeyArg = CollectionFactory.createApproximateCollection(keys, missingKeys.size());
+			missingKeyArg.addAll(missingKeys);
+			boolean replaceArg = (invoker instanceof ArgumentsInvoker &&
+					method.getParameterTypes()[keyIndex].isInstance(missingKeyArg));
+			Object result;
+			if (replaceArg) {
+				Object[] missingKeyArgs = args.clone();
+				missingKeyArgs[keyIndex] = missingKeyArg;
+				result = ((ArgumentsInvoker) invoker).invoke(missingKeyArgs);
+			}
+			else {
+				result = invoker.invoke();
+			}
+			if (result != null) {
+				if (!(result instanceof Map)) {
+					throw new IllegalStateException("Bulk cache definition requires the method to return a Map, " +
+							"but found [" + result.getClass().getName() + "]: " + context.getOperation());
+				}
+				loadedValues = (Map<?, ?>) result;
+				for (Cache cache : context.getCaches()) {
+					cache.putAll(loadedValues);
+				}
+			}
+		}
+
+		Class<?> returnType = method.getReturnType();
+		Map<Object, Object> retVal = (Map.class.isAssignableFrom(returnType) ?
+				CollectionFactory.createMap(returnType, keys.size()) : new HashMap<Object, Object>(keys.size()));
+		for (Object key : keys) {
+			if (cachedValues.containsKey(key)) {
+				retVal.put(key, cachedValues.get(key));
+			}
+			else if (loadedValues.containsKey(key)) {
+				retVal.put(key, loadedValues.get(key));
+			}
+		}
+		return retVal;
+	}
+
+	private Cache.ValueWrapper findInCaches(Collection<Cache> caches, Object key) {
+		for (Iterator<Cache> iterator = caches.iterator(); iterator.hasNext();) {
+			Cache.ValueWrapper wrapper = iterator.next().get(key);
+			if (wrapper != null) {
+				return wrapper;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Load the value for the given key, with only one thread at a time invoking the
+	 * underlying method for the same caches and key. Other threads wait for its result
+	 * (or its exception).
+	 */
+	private Object loadSynchronized(Invoker invoker, CacheUpdateOperation operation,
+			Collection<Cache> caches, Object key) {
+
+		LoadKey loadKey = new LoadKey(operation.getCacheNames(), key);
+		FutureTask<Object> load = new FutureTask<Object>(new Loader(invoker, caches, key, true));
+		FutureTask<Object> existingLoad = this.inFlightLoads.putIfAbsent(loadKey, load);
+		if (existingLoad != null) {
+			if (logger.isTraceEnabled()) {
+				logger.trace("Waiting for value of key " + key + " being loaded by another thread");
+			}
+			return getLoadResult(existingLoad);
+		}
+		try {
+			load.run();
+		}
+		finally {
+			this.inFlightLoads.remove(loadKey, load);
+		}
+		return getLoadResult(load);
+	}
+
+	/**
+	 * Reload the value for the given key through the refresh executor,
+	 * unless a load for the same caches and key is in progress already.
+	 * @see RefreshInvoker
+	 */
+	private void refreshInBackground(Invoker invoker, CacheUpdateOperation operation,
+			Collection<Cache> caches, final Object key) {
+
+		final LoadKey loadKey = new LoadKey(operation.getCacheNames(), key);
+		final FutureTask<Object> load = new FutureTask<Object>(new Loader(invoker, caches, key, false));
+		if (this.inFlightLoads.putIfAbsent(loadKey, load) != null) {
+			return;
+		}
+		if (logger.isTraceEnabled()) {
+			logger.trace("Refreshing value of key " + key + " in the background for definition " + operation);
+		}
+		try {
+			this.refreshExecutor.execute(new Runnable() {
+				public void run() {
+					try {
+						load.run();
+					}
+					finally {
+						inFlightLoads.remove(loadKey, load);
+					}
+					try {
+						load.get();
+					}
+					catch (Exception ex) {
+						logger.warn("Failed to refresh value of cache key " + key, ex);
+					}
+				}
+			});
+		}
+		catch (RuntimeException ex) {
+			this.inFlightLoads.remove(loadKey, load);
+			logger.warn("Failed to schedule refresh of cache key " + key, ex);
+		}
+	}
+
+	private Object getLoadResult(FutureTask<Object> load) {
+		try {
+			return load.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for cached value to be loaded", ex);
+		}
+		catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException("Unexpected exception while loading cached value", cause);
+		}
+	}
+
+
+	/**
+	 * Invokes the target method reflectively for a background refresh, rather than
+	 * proceeding with the caller's invocation that has already returned. Copies the
+	 * arguments, since the caller may reuse its argument array.
+	 */
+	private class RefreshInvoker implements Invoker {
+
+		private final Object target;
+
+		private final Method method;
+
+		private final Object[] args;
+
+		public RefreshInvoker(Object target, Method method, Object[] args) {
+			this.target = target;
+			this.method = method;
+			this.args = (args != null ? args.clone() : null);
+		}
+
+		public Object invoke() {
+			ReflectionUtils.makeAccessible(this.method);
+			refreshingMethod.set(this.method);
+			try {
+				return ReflectionUtils.invokeMethod(this.method, this.target, this.args);
+			}
+			finally {
+				refreshingMethod.remove();
+			}
+		}
+	}
+
+
+	/**
+	 * Invokes the underlying method and updates all caches with its result.
+	 */
+	private class Loader implements Callable<Object> {
+
+		private final Invoker invoker;
+
+		private final Collection<Cache> caches;
+
+		private final Object key;
+
+		private final boolean checkCaches;
+
+		public Loader(Invoker invoker, Collection<Cache> caches, Object key, boolean checkCaches) {
+			this.invoker = invoker;
+			this.caches = caches;
+			this.key = key;
+			this.checkCaches = checkCaches;
+		}
+
+		public Object call() {
+			if (this.checkCaches) {
+				// another thread may have completed its load in the meantime
+				Cache.ValueWrapper wrapper = findInCaches(this.caches, this.key);
+				if (wrapper != null) {
+					return wrapper.get();
+				}
+			}
+			Object value = this.invoker.invoke();
+			for (Cache cache : this.caches) {
+				cache.put(this.key, value);
+			}
+			return value;
+		}
+	}
+
+
+	/**
+	 * Identifies a load by the names of the caches and the key.
+	 */
+	private static final class LoadKey {
+
+		private final Set<String> cacheNames;
+
+		private final Object key;
+
+		public LoadKey(Set<String> cacheNames, Object key) {
+			this.cacheNames = cacheNames;
+			this.key = key;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof LoadKey)) {
+				return false;
+			}
+			LoadKey otherKey = (LoadKey) other;
+			return (this.cacheNames.equals(otherKey.cacheNames) && ObjectUtils.nullSafeEquals(this.key, otherKey.key));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.cacheNames.hashCode() * 29 + ObjectUtils.nullSafeHashCode(this.key);
+		}
+	}
+
 
 	protected class CacheOperationContext {
 
@@ -294,8 +646,10 @@ public abstract class CacheAspectSupport implements InitializingBean {
 
 		private final Object[] args;
 
-		// context passed around to avoid multiple creations
-		private final EvaluationContext evalContext;
+		private final Class<?> targetClass;
+
+		// context passed around to avoid multiple creations, created on demand
+		private EvaluationContext evalContext;
 
 		public CacheOperationContext(CacheOperation operation, Method method, Object[] args, Object target,
 				Class<?> targetClass) {
@@ -304,13 +658,12 @@ public abstract class CacheAspectSupport implements InitializingBean {
 			this.target = target;
 			this.method = method;
 			this.args = args;
-
-			this.evalContext = evaluator.createEvaluationContext(caches, method, args, target, targetClass);
+			this.targetClass = targetClass;
 		}
 
 		protected boolean hasConditionPassed() {
 			if (StringUtils.hasText(this.operation.getCondition())) {
-				return evaluator.condition(this.operation.getCondition(), this.method, this.evalContext);
+				return evaluator.condition(this.operation.getCondition(), this.method, getEvaluationContext());
 			}
 			return true;
 		}
@@ -321,14 +674,47 @@ public abstract class CacheAspectSupport implements InitializingBean {
 		 */
 		protected Object generateKey() {
 			if (StringUtils.hasText(this.operation.getKey())) {
-				return evaluator.key(this.operation.getKey(), this.method, this.evalContext);
+				int argumentIndex = evaluator.keyArgumentIndex(this.operation.getKey(), this.method, this.targetClass);
+				if (argumentIndex != ExpressionEvaluator.NO_ARGUMENT_INDEX) {
+					return this.args[argumentIndex];
+				}
+				return evaluator.key(this.operation.getKey(), this.method, getEvaluationContext());
 			}
 			return keyGenerator.extract(this.target, this.method, this.args);
 		}
 
+		/**
+		 * Return the index of the method argument that the key refers to: the argument
+		 * referenced by the key expression, or the single argument of the method if no
+		 * key expression has been specified.
+		 * @return the argument index, or {@link ExpressionEvaluator#NO_ARGUMENT_INDEX} if none
+		 */
+		protected int getKeyArgumentIndex() {
+			if (StringUtils.hasText(this.operation.getKey())) {
+				return evaluator.keyArgumentIndex(this.operation.getKey(), this.method, this.targetClass);
+			}
+			return (this.args.length == 1 ? 0 : ExpressionEvaluator.NO_ARGUMENT_INDEX);
+		}
+
+		/**
+		 * Return the evaluation context for the condition and key expressions,
+		 * creating it on first access.
+		 */
+		protected EvaluationContext getEvaluationContext() {
+			if (this.evalContext == null) {
+				this.evalContext = evaluator.createEvaluationContext(
+						this.caches, this.method, this.args, this.target, this.targetClass);
+			}
+			return this.evalContext;
+		}
+
 		protected Collection<Cache> getCaches() {
 			return this.caches;
 		}
+
+		protected CacheOperation getOperation() {
+			return this.operation;
+		}
 	}
 
 }
@@ -22,6 +22,8 @@ import java.lang.reflect.Method;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 
+import org.springframework.aop.ProxyMethodInvocation;
+
 /**
  * AOP Alliance MethodInterceptor for declarative cache
  * management using the common Spring caching infrastructure
@@ -45,6 +47,7 @@ public class CacheInterceptor extends CacheAspectSupport implements MethodInterc
 		private final Throwable original;
 
 		ThrowableWrapper(Throwable original) {
+			super(original.getMessage(), original);
 			this.original = original;
 		}
 	}
@@ -52,7 +55,7 @@ public class CacheInterceptor extends CacheAspectSupport implements MethodInterc
 	public Object invoke(final MethodInvocation invocation) throws Throwable {
 		Method method = invocation.getMethod();
 
-		Invoker aopAllianceInvoker = new Invoker() {
+		Invoker aopAllianceInvoker = new ArgumentsInvoker() {
 			public Object invoke() {
 				try {
 					return invocation.proceed();
@@ -60,6 +63,16 @@ public class CacheInterceptor extends CacheAspectSupport implements MethodInterc
 					throw new ThrowableWrapper(ex);
 				}
 			}
+			public Object invoke(Object[] args) {
+				if (!(invocation instanceof ProxyMethodInvocation)) {
+					return invoke();
+				}
+				try {
+					return ((ProxyMethodInvocation) invocation).invocableClone(args).proceed();
+				} catch (Throwable ex) {
+					throw new ThrowableWrapper(ex);
+				}
+			}
 		};
 
 		try {
@@ -24,4 +24,60 @@ package org.springframework.cache.interceptor;
  */
 public class CacheUpdateOperation extends CacheOperation {
 
+	private boolean sync = false;
+
+	private int refreshAfter = 0;
+
+	private boolean bulk = false;
+
+	/**
+	 * Set whether concurrent invocations for the same missing key should be
+	 * synchronized, so that only one of them invokes the underlying method
+	 * while the others wait for its result.
+	 */
+	public void setSync(boolean sync) {
+		this.sync = sync;
+	}
+
+	public boolean isSync() {
+		return this.sync;
+	}
+
+	/**
+	 * Set the number of seconds after which a cached value gets refreshed in the
+	 * background on access, while still returning the current value.
+	 * <p>Default is 0, i.e. no refresh ahead.
+	 */
+	public void setRefreshAfter(int refreshAfter) {
+		this.refreshAfter = refreshAfter;
+	}
+
+	public int getRefreshAfter() {
+		return this.refreshAfter;
+	}
+
+	/**
+	 * Set whether this is a bulk operation: the key refers to a method argument
+	 * holding a collection of keys, and the method returns a map from key to value.
+	 * Only the keys missing from the caches are passed on to the method.
+	 */
+	public void setBulk(boolean bulk) {
+		this.bulk = bulk;
+	}
+
+	public boolean isBulk() {
+		return this.bulk;
+	}
+
+	@Override
+	protected StringBuilder getOperationDescription() {
+		StringBuilder sb = super.getOperationDescription();
+		sb.append(",");
+		sb.append(this.sync);
+		sb.append(",");
+		sb.append(this.refreshAfter);
+		sb.append(",");
+		sb.append(this.bulk);
+		return sb;
+	}
 }
@@ -20,25 +20,44 @@ import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.springframework.aop.support.AopUtils;
 import org.springframework.cache.Cache;
 import org.springframework.core.LocalVariableTableParameterNameDiscoverer;
 import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.util.ObjectUtils;
 
 /**
  * Utility class handling the SpEL expression parsing.
  * Meant to be used as a reusable, thread-safe component.
  *
- * <p>Performs internal caching for performance reasons.
+ * <p>Performs internal caching for performance reasons. Key expressions that
+ * simply refer to a method argument (such as <code>#p0</code>, <code>#root.args[1]</code>
+ * or <code>#paramName</code>) are resolved once per method to the index of that
+ * argument, so that no evaluation context needs to be built for them. Resolved
+ * indexes are cached per method and target class, since parameter names are
+ * discovered on the most specific implementation of the method.
  *
  * @author Costin Leau
  * @since 3.1
  */
 class ExpressionEvaluator {
 
+	/** Argument index indicating that a key expression needs to be evaluated */
+	public static final int NO_ARGUMENT_INDEX = -1;
+
+	private static final Pattern ARGS_ELEMENT_PATTERN = Pattern.compile("(?:#root\\.)?args\\[\\s*(\\d{1,9})\\s*\\]");
+
+	private static final Pattern VARIABLE_PATTERN = Pattern.compile("#([A-Za-z_$][\\w$]*)");
+
+	private static final Pattern INDEXED_VARIABLE_NAME_PATTERN = Pattern.compile("p(\\d{1,9})");
+
+
 	private SpelExpressionParser parser = new SpelExpressionParser();
 
 	// shared param discoverer since it caches data internally
@@ -48,6 +67,8 @@ class ExpressionEvaluator {
 
 	private Map<Method, Expression> keyCache = new ConcurrentHashMap<Method, Expression>();
 
+	private Map<MethodCacheKey, Integer> keyArgumentIndexCache = new ConcurrentHashMap<MethodCacheKey, Integer>();
+
 	private Map<Method, Method> targetMethodCache = new ConcurrentHashMap<Method, Method>();
 
 
@@ -78,4 +99,95 @@ class ExpressionEvaluator {
 		return keyExp.getValue(evalContext);
 	}
 
+	/**
+	 * Return the index of the method argument that the given key expression refers to,
+	 * if the key expression is nothing but a reference to a method argument.
+	 * @param keyExpression the key expression
+	 * @param method the cached method
+	 * @param targetClass the target class (for parameter name discovery)
+	 * @return the argument index, or {@link #NO_ARGUMENT_INDEX} if the key expression
+	 * needs to be evaluated
+	 */
+	public int keyArgumentIndex(String keyExpression, Method method, Class<?> targetClass) {
+		MethodCacheKey cacheKey = new MethodCacheKey(method, targetClass);
+		Integer index = this.keyArgumentIndexCache.get(cacheKey);
+		if (index == null) {
+			index = resolveArgumentIndex(keyExpression.trim(), method, targetClass);
+			this.keyArgumentIndexCache.put(cacheKey, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Resolve the given expression to an argument index, following the variable
+	 * resolution of {@link LazyParamAwareEvaluationContext}: discovered parameter
+	 * names take precedence over the indexed "p&lt;index&gt;" variables.
+	 */
+	private int resolveArgumentIndex(String expression, Method method, Class<?> targetClass) {
+		int parameterCount = method.getParameterTypes().length;
+		Matcher matcher = ARGS_ELEMENT_PATTERN.matcher(expression);
+		if (matcher.matches()) {
+			int index = Integer.parseInt(matcher.group(1));
+			return (index < parameterCount ? index : NO_ARGUMENT_INDEX);
+		}
+		matcher = VARIABLE_PATTERN.matcher(expression);
+		if (!matcher.matches() || parameterCount == 0) {
+			return NO_ARGUMENT_INDEX;
+		}
+		String variableName = matcher.group(1);
+		if ("root".equals(variableName) || "this".equals(variableName)) {
+			return NO_ARGUMENT_INDEX;
+		}
+		Method targetMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+		String[] parameterNames = this.paramNameDiscoverer.getParameterNames(targetMethod != null ? targetMethod : method);
+		if (parameterNames != null) {
+			for (int i = parameterNames.length - 1; i >= 0; i--) {
+				if (variableName.equals(parameterNames[i])) {
+					return i;
+				}
+			}
+		}
+		matcher = INDEXED_VARIABLE_NAME_PATTERN.matcher(variableName);
+		if (matcher.matches()) {
+			int index = Integer.parseInt(matcher.group(1));
+			return (index < parameterCount ? index : NO_ARGUMENT_INDEX);
+		}
+		return NO_ARGUMENT_INDEX;
+	}
+
+
+	/**
+	 * Cache key for per-method state that depends on the target class,
+	 * such as parameter names discovered on the most specific method.
+	 */
+	private static class MethodCacheKey {
+
+		private final Method method;
+
+		private final Class<?> targetClass;
+
+		public MethodCacheKey(Method method, Class<?> targetClass) {
+			this.method = method;
+			this.targetClass = targetClass;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof MethodCacheKey)) {
+				return false;
+			}
+			MethodCacheKey otherKey = (MethodCacheKey) other;
+			return (this.method.equals(otherKey.method) &&
+					ObjectUtils.nullSafeEquals(this.targetClass, otherKey.targetClass));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.method.hashCode() * 29 + (this.targetClass != null ? this.targetClass.hashCode() : 0);
+		}
+	}
+
 }
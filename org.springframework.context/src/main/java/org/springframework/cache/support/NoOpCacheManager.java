@@ -19,6 +19,7 @@ package org.springframework.cache.support;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -55,10 +56,17 @@ public class NoOpCacheManager implements CacheManager {
 		public void evict(Object key) {
 		}
 
+		public void evictAll(Collection<?> keys) {
+		}
+
 		public ValueWrapper get(Object key) {
 			return null;
 		}
 
+		public Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+			return Collections.emptyMap();
+		}
+
 		public String getName() {
 			return name;
 		}
@@ -69,6 +77,9 @@ public class NoOpCacheManager implements CacheManager {
 
 		public void put(Object key, Object value) {
 		}
+
+		public void putAll(Map<?, ?> entries) {
+		}
 	}
 
 	/**
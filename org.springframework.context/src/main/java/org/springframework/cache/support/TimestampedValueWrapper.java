@@ -0,0 +1,51 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.support;
+
+/**
+ * {@link org.springframework.cache.Cache.ValueWrapper} implementation that also
+ * exposes the time at which the value has been written to the cache, as needed
+ * for refreshing cached values ahead of their expiry.
+ *
+ * @author agent
+ * @since 3.1
+ * @see org.springframework.cache.annotation.Cacheable#refreshAfter()
+ */
+public class TimestampedValueWrapper extends ValueWrapperImpl {
+
+	private final long timestamp;
+
+	/**
+	 * Create a new TimestampedValueWrapper.
+	 * @param value the cached value
+	 * @param timestamp the time at which the value has been written to the cache,
+	 * in milliseconds since the epoch
+	 */
+	public TimestampedValueWrapper(Object value, long timestamp) {
+		super(value);
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * Return the time at which the value has been written to the cache,
+	 * in milliseconds since the epoch.
+	 */
+	public long getTimestamp() {
+		return this.timestamp;
+	}
+
+}
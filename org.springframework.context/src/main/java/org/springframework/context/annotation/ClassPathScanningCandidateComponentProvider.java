@@ -18,6 +18,8 @@ package org.springframework.context.annotation;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.util.Enumeration;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -29,6 +31,9 @@ import org.springframework.beans.factory.BeanDefinitionStoreException;
 import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.ResourceLoaderAware;
+import org.springframework.context.index.CandidateComponentsIndex;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.env.StandardEnvironment;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.EnvironmentCapable;
@@ -47,8 +52,10 @@ import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Controller;
 import org.springframework.stereotype.Repository;
 import org.springframework.stereotype.Service;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.PathMatcher;
 
 /**
  * A component provider that scans the classpath from a base package. It then
@@ -58,6 +65,11 @@ import org.springframework.util.ClassUtils;
  * {@link org.springframework.core.type.classreading.MetadataReader MetadataReader}
  * facility, backed by an ASM {@link org.springframework.asm.ClassReader ClassReader}.
  *
+ * <p>Classpath roots that come with a build-time index of candidate components
+ * (see {@link CandidateComponentsIndexLoader}) are not scanned: Only the classes
+ * listed in their index get read, as long as all include filters are based on
+ * stereotype annotations. Other classpath roots are scanned as usual.
+ *
  * @author Mark Fisher
  * @author Juergen Hoeller
  * @author Ramnivas Laddad
@@ -85,6 +97,11 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 
 	private final List<TypeFilter> excludeFilters = new LinkedList<TypeFilter>();
 
+	private final PathMatcher pathMatcher = new AntPathMatcher();
+
+	private CandidateComponentsIndex componentsIndex =
+			CandidateComponentsIndexLoader.loadIndex(this.resourcePatternResolver.getClassLoader());
+
 
 	/**
 	 * Create a ClassPathScanningCandidateComponentProvider.
@@ -112,6 +129,7 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 	public void setResourceLoader(ResourceLoader resourceLoader) {
 		this.resourcePatternResolver = ResourcePatternUtils.getResourcePatternResolver(resourceLoader);
 		this.metadataReaderFactory = new CachingMetadataReaderFactory(resourceLoader);
+		this.componentsIndex = CandidateComponentsIndexLoader.loadIndex(this.resourcePatternResolver.getClassLoader());
 	}
 
 	/**
@@ -217,56 +235,159 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 	public Set<BeanDefinition> findCandidateComponents(String basePackage) {
 		Set<BeanDefinition> candidates = new LinkedHashSet<BeanDefinition>();
 		try {
-			String packageSearchPath = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX +
-					resolveBasePackage(basePackage) + "/" + this.resourcePattern;
-			Resource[] resources = this.resourcePatternResolver.getResources(packageSearchPath);
-			boolean traceEnabled = logger.isTraceEnabled();
-			boolean debugEnabled = logger.isDebugEnabled();
-			for (Resource resource : resources) {
-				if (traceEnabled) {
-					logger.trace("Scanning " + resource);
-				}
-				if (resource.isReadable()) {
-					try {
-						MetadataReader metadataReader = this.metadataReaderFactory.getMetadataReader(resource);
-						if (isCandidateComponent(metadataReader)) {
-							ScannedGenericBeanDefinition sbd = new ScannedGenericBeanDefinition(metadataReader);
-							sbd.setResource(resource);
-							sbd.setSource(resource);
-							if (isCandidateComponent(sbd)) {
-								if (debugEnabled) {
-									logger.debug("Identified candidate component class: " + resource);
-								}
-								candidates.add(sbd);
-							}
-							else {
-								if (debugEnabled) {
-									logger.debug("Ignored because not a concrete top-level class: " + resource);
-								}
-							}
-						}
-						else {
-							if (traceEnabled) {
-								logger.trace("Ignored because not matching any filter: " + resource);
-							}
+			String basePackagePath = resolveBasePackage(basePackage);
+			String rootDirPath = determineRootDir(basePackagePath);
+			if (this.componentsIndex != null && rootDirPath.length() > 0 && indexSupportsIncludeFilters()) {
+				addCandidateComponentsWithIndex(basePackagePath, rootDirPath, candidates);
+			}
+			else {
+				scanCandidateComponents(ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX +
+						basePackagePath + "/" + this.resourcePattern, candidates);
+			}
+		}
+		catch (IOException ex) {
+			throw new BeanDefinitionStoreException("I/O failure during classpath scanning", ex);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Determine candidate components for the given base package from the
+	 * component index of each classpath root that contains the package,
+	 * scanning those classpath roots that do not come with an index.
+	 */
+	private void addCandidateComponentsWithIndex(String basePackagePath, String rootDirPath,
+			Set<BeanDefinition> candidates) throws IOException {
+
+		String packageSearchPattern = basePackagePath + "/" + this.resourcePattern;
+		Set<String> candidateTypes = new LinkedHashSet<String>();
+		ClassLoader classLoader = this.resourcePatternResolver.getClassLoader();
+		if (classLoader == null) {
+			classLoader = ClassUtils.getDefaultClassLoader();
+		}
+		Enumeration<URL> rootDirUrls = classLoader.getResources(rootDirPath);
+		while (rootDirUrls.hasMoreElements()) {
+			String rootDirUrl = rootDirUrls.nextElement().toString();
+			if (!rootDirUrl.endsWith("/")) {
+				rootDirUrl += "/";
+			}
+			String rootUrl = rootDirUrl.substring(0, rootDirUrl.length() - rootDirPath.length() - 1);
+			if (this.componentsIndex.isIndexed(rootUrl)) {
+				for (TypeFilter includeFilter : this.includeFilters) {
+					String stereotype = ((AnnotationTypeFilter) includeFilter).getAnnotationType().getName();
+					for (String type : this.componentsIndex.getCandidateTypes(rootUrl, stereotype)) {
+						String classFilePath = ClassUtils.convertClassNameToResourcePath(type) + ClassUtils.CLASS_FILE_SUFFIX;
+						if (this.pathMatcher.match(packageSearchPattern, classFilePath)) {
+							candidateTypes.add(type);
 						}
 					}
-					catch (Throwable ex) {
-						throw new BeanDefinitionStoreException(
-								"Failed to read candidate component class: " + resource, ex);
-					}
 				}
-				else {
-					if (traceEnabled) {
-						logger.trace("Ignored because not readable: " + resource);
-					}
+			}
+			else {
+				if (logger.isDebugEnabled()) {
+					logger.debug("No component index for classpath root [" + rootUrl + "]: scanning");
 				}
+				scanCandidateComponents(rootUrl + packageSearchPattern, candidates);
 			}
 		}
-		catch (IOException ex) {
-			throw new BeanDefinitionStoreException("I/O failure during classpath scanning", ex);
+		for (String type : candidateTypes) {
+			try {
+				addCandidateComponent(this.metadataReaderFactory.getMetadataReader(type), candidates);
+			}
+			catch (Throwable ex) {
+				throw new BeanDefinitionStoreException("Failed to read candidate component class: " + type, ex);
+			}
 		}
-		return candidates;
+	}
+
+	/**
+	 * Scan the resources matching the given search path for candidate components.
+	 */
+	private void scanCandidateComponents(String packageSearchPath, Set<BeanDefinition> candidates)
+			throws IOException {
+
+		Resource[] resources = this.resourcePatternResolver.getResources(packageSearchPath);
+		boolean traceEnabled = logger.isTraceEnabled();
+		for (Resource resource : resources) {
+			if (traceEnabled) {
+				logger.trace("Scanning " + resource);
+			}
+			if (resource.isReadable()) {
+				try {
+					addCandidateComponent(this.metadataReaderFactory.getMetadataReader(resource), candidates);
+				}
+				catch (Throwable ex) {
+					throw new BeanDefinitionStoreException(
+							"Failed to read candidate component class: " + resource, ex);
+				}
+			}
+			else {
+				if (traceEnabled) {
+					logger.trace("Ignored because not readable: " + resource);
+				}
+			}
+		}
+	}
+
+	private void addCandidateComponent(MetadataReader metadataReader, Set<BeanDefinition> candidates)
+			throws IOException {
+
+		Resource resource = metadataReader.getResource();
+		if (isCandidateComponent(metadataReader)) {
+			ScannedGenericBeanDefinition sbd = new ScannedGenericBeanDefinition(metadataReader);
+			sbd.setResource(resource);
+			sbd.setSource(resource);
+			if (isCandidateComponent(sbd)) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Identified candidate component class: " + resource);
+				}
+				candidates.add(sbd);
+			}
+			else {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Ignored because not a concrete top-level class: " + resource);
+				}
+			}
+		}
+		else {
+			if (logger.isTraceEnabled()) {
+				logger.trace("Ignored because not matching any filter: " + resource);
+			}
+		}
+	}
+
+	/**
+	 * Determine whether the component index can be used with the configured
+	 * include filters: This requires all of them to match stereotype annotations,
+	 * which are the ones that the index has been built for.
+	 */
+	private boolean indexSupportsIncludeFilters() {
+		for (TypeFilter includeFilter : this.includeFilters) {
+			if (!(includeFilter instanceof AnnotationTypeFilter)) {
+				return false;
+			}
+			Class<? extends Annotation> annotationType = ((AnnotationTypeFilter) includeFilter).getAnnotationType();
+			String annotationName = annotationType.getName();
+			if (AnnotationUtils.findAnnotation(annotationType, Component.class) == null &&
+					!Component.class.equals(annotationType) && !annotationName.equals("javax.annotation.ManagedBean") &&
+					!annotationName.equals("javax.inject.Named")) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Determine the longest fixed directory path at the start of the given
+	 * package path, i.e. up to the first path segment containing a wildcard.
+	 */
+	private String determineRootDir(String basePackagePath) {
+		String rootDirPath = basePackagePath;
+		while (this.pathMatcher.isPattern(rootDirPath)) {
+			int separatorIndex = rootDirPath.lastIndexOf('/');
+			rootDirPath = (separatorIndex != -1 ? rootDirPath.substring(0, separatorIndex) : "");
+		}
+		return rootDirPath;
 	}
 
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -98,7 +98,11 @@ public abstract class AbstractApplicationEventMulticaster implements Application
 		this.beanFactory = beanFactory;
 	}
 
-	private BeanFactory getBeanFactory() {
+	/**
+	 * Return the BeanFactory to retrieve listener beans from.
+	 * @throws IllegalStateException if no BeanFactory has been set
+	 */
+	protected BeanFactory getBeanFactory() {
 		if (this.beanFactory == null) {
 			throw new IllegalStateException("ApplicationEventMulticaster cannot retrieve listener beans " +
 					"because it is not associated with a BeanFactory");
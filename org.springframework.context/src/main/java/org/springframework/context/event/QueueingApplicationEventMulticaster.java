@@ -0,0 +1,531 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.event;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.support.TaskUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.ErrorHandler;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Asynchronous implementation of the {@link ApplicationEventMulticaster}
+ * interface, keeping a bounded queue of pending events per listener.
+ *
+ * <p>Each listener receives its events in the order of their publication:
+ * its queue is drained by at most one task at a time, which delivers all
+ * events that are queued up at that point, up to the {@link #setMaxBatchSize
+ * maximum batch size}. Listeners implementing {@link BatchApplicationListener}
+ * receive such a batch in a single call; all other listeners are invoked once
+ * per event. In contrast to a {@link SimpleApplicationEventMulticaster} with
+ * a TaskExecutor, this does not submit a separate task per listener and event,
+ * and it does not let events for the same listener overtake each other.
+ *
+ * <p>If a listener's queue is full, the {@link #setOverflowPolicy overflow policy}
+ * decides whether the publishing thread blocks until there is space again (the
+ * default), or whether the new event or the oldest queued event gets dropped.
+ * Queue depths and the number of dropped events are exposed as bean properties,
+ * for example for export through JMX.
+ *
+ * <p>Note that all events, including the context's own lifecycle events,
+ * are delivered asynchronously. Queues are kept for listener instances that are
+ * registered directly and for singleton listener beans; non-singleton listener
+ * beans get a fresh instance per event anyway, so each of their events is
+ * handed to the TaskExecutor on its own, without a queue. On {@link #destroy() shutdown},
+ * pending events - typically including the {@link ContextClosedEvent} - get
+ * delivered within the {@link #setAwaitTerminationSeconds termination timeout}.
+ *
+ * <p>The default TaskExecutor starts a new thread for every drain task: that is,
+ * at most one thread per listener at any time, but a fresh thread each time a
+ * listener's queue runs empty and receives new events. For anything beyond
+ * occasional events, specify a thread pool through {@link #setTaskExecutor}.
+ *
+ * @author agent
+ * @since 3.1
+ * @see #setTaskExecutor
+ * @see #setQueueCapacity
+ * @see BatchApplicationListener
+ */
+public class QueueingApplicationEventMulticaster extends AbstractApplicationEventMulticaster
+		implements DisposableBean {
+
+	/**
+	 * Policy for events published while a listener's queue is full.
+	 */
+	public enum OverflowPolicy {
+
+		/** Block the publishing thread until the listener's queue has space again */
+		BLOCK,
+
+		/** Drop the newly published event for the listener in question */
+		DROP_NEWEST,
+
+		/** Drop the oldest queued event of the listener in question, queueing the new one */
+		DROP_OLDEST
+	}
+
+
+	/** Default capacity of each listener's queue */
+	public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+	/** Default maximum number of events delivered per batch */
+	public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+	/** Default number of seconds to wait for pending events on shutdown */
+	public static final int DEFAULT_AWAIT_TERMINATION_SECONDS = 10;
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private Executor taskExecutor = new SimpleAsyncTaskExecutor(getClass().getSimpleName() + "-");
+
+	private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+	private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+	private ErrorHandler errorHandler = TaskUtils.LOG_AND_SUPPRESS_ERROR_HANDLER;
+
+	private int awaitTerminationSeconds = DEFAULT_AWAIT_TERMINATION_SECONDS;
+
+	private final Map<ApplicationListener, ListenerQueue> listenerQueues =
+			new ConcurrentHashMap<ApplicationListener, ListenerQueue>();
+
+	/** Listener instances that have been registered directly */
+	private final Set<ApplicationListener> registeredListeners = new LinkedHashSet<ApplicationListener>();
+
+	/** Names of the registered listener beans */
+	private final Set<String> registeredListenerBeans = new LinkedHashSet<String>();
+
+	/** Listener instances that get a queue, lazily determined from the registrations */
+	private volatile Set<ApplicationListener> queuedListeners;
+
+	private final AtomicLong droppedEventCount = new AtomicLong();
+
+	/** Monitor that drain tasks notify once they have emptied their queue */
+	private final Object drainMonitor = new Object();
+
+
+	/**
+	 * Create a new QueueingApplicationEventMulticaster.
+	 */
+	public QueueingApplicationEventMulticaster() {
+	}
+
+	/**
+	 * Create a new QueueingApplicationEventMulticaster for the given BeanFactory.
+	 */
+	public QueueingApplicationEventMulticaster(BeanFactory beanFactory) {
+		setBeanFactory(beanFactory);
+	}
+
+
+	/**
+	 * Set the TaskExecutor to drain the listener queues with.
+	 * <p>Default is a SimpleAsyncTaskExecutor, starting a new thread for each
+	 * drain task, without any limit on the number of threads across listeners.
+	 * Specify a bounded thread pool here for production use, in particular with
+	 * many listeners or frequent events.
+	 * @see org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor
+	 */
+	public void setTaskExecutor(Executor taskExecutor) {
+		Assert.notNull(taskExecutor, "TaskExecutor must not be null");
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Return the current TaskExecutor for this multicaster.
+	 */
+	protected Executor getTaskExecutor() {
+		return this.taskExecutor;
+	}
+
+	/**
+	 * Set the maximum number of pending events per listener.
+	 * Default is 10000.
+	 * <p>Only applies to listener queues created after this call.
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		Assert.isTrue(queueCapacity > 0, "Queue capacity must be greater than 0");
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Set the maximum number of events to deliver to a listener in one go,
+	 * in particular to a {@link BatchApplicationListener}. Default is 100.
+	 */
+	public void setMaxBatchSize(int maxBatchSize) {
+		Assert.isTrue(maxBatchSize > 0, "Max batch size must be greater than 0");
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * Set the policy for events published while a listener's queue is full.
+	 * Default is {@link OverflowPolicy#BLOCK}, applying backpressure to the
+	 * publishing thread.
+	 * <p>Note that a listener which publishes events to itself should not
+	 * be combined with a blocking policy, since it would wait for itself.
+	 */
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		Assert.notNull(overflowPolicy, "OverflowPolicy must not be null");
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	/**
+	 * Set the ErrorHandler to invoke in case of an exception thrown by a listener.
+	 * <p>Default is an ErrorHandler that logs the exception and proceeds with
+	 * the next event.
+	 */
+	public void setErrorHandler(ErrorHandler errorHandler) {
+		Assert.notNull(errorHandler, "ErrorHandler must not be null");
+		this.errorHandler = errorHandler;
+	}
+
+	/**
+	 * Set the maximum number of seconds that {@link #destroy()} waits for
+	 * pending events to be delivered. Default is 10 seconds.
+	 * <p>Events still pending after this timeout get discarded. Specify 0
+	 * to discard all pending events right away.
+	 */
+	public void setAwaitTerminationSeconds(int awaitTerminationSeconds) {
+		Assert.isTrue(awaitTerminationSeconds >= 0, "Await termination seconds must not be negative");
+		this.awaitTerminationSeconds = awaitTerminationSeconds;
+	}
+
+
+	public void multicastEvent(ApplicationEvent event) {
+		Set<ApplicationListener> queuedListeners = getQueuedListeners();
+		for (ApplicationListener listener : getApplicationListeners(event)) {
+			if (queuedListeners.contains(listener)) {
+				getListenerQueue(listener).enqueue(event);
+			}
+			else {
+				this.taskExecutor.execute(new SingleEventDelivery(listener, event));
+			}
+		}
+	}
+
+	/**
+	 * Determine the listeners to keep a queue for: the directly registered
+	 * listener instances and the singleton listener beans.
+	 */
+	private Set<ApplicationListener> getQueuedListeners() {
+		Set<ApplicationListener> queuedListeners = this.queuedListeners;
+		if (queuedListeners == null) {
+			synchronized (this.registeredListeners) {
+				queuedListeners = new HashSet<ApplicationListener>(this.registeredListeners);
+				if (!this.registeredListenerBeans.isEmpty()) {
+					BeanFactory beanFactory = getBeanFactory();
+					for (String listenerBeanName : this.registeredListenerBeans) {
+						if (beanFactory.isSingleton(listenerBeanName)) {
+							queuedListeners.add(beanFactory.getBean(listenerBeanName, ApplicationListener.class));
+						}
+					}
+				}
+				this.queuedListeners = queuedListeners;
+			}
+		}
+		return queuedListeners;
+	}
+
+	private ListenerQueue getListenerQueue(ApplicationListener listener) {
+		ListenerQueue queue = this.listenerQueues.get(listener);
+		if (queue == null) {
+			synchronized (this.listenerQueues) {
+				queue = this.listenerQueues.get(listener);
+				if (queue == null) {
+					queue = new ListenerQueue(listener, this.queueCapacity);
+					this.listenerQueues.put(listener, queue);
+				}
+			}
+		}
+		return queue;
+	}
+
+	@Override
+	public void addApplicationListener(ApplicationListener listener) {
+		super.addApplicationListener(listener);
+		synchronized (this.registeredListeners) {
+			this.registeredListeners.add(listener);
+			this.queuedListeners = null;
+		}
+	}
+
+	@Override
+	public void addApplicationListenerBean(String listenerBeanName) {
+		super.addApplicationListenerBean(listenerBeanName);
+		synchronized (this.registeredListeners) {
+			this.registeredListenerBeans.add(listenerBeanName);
+			this.queuedListeners = null;
+		}
+	}
+
+	@Override
+	public void removeApplicationListener(ApplicationListener listener) {
+		super.removeApplicationListener(listener);
+		synchronized (this.registeredListeners) {
+			this.registeredListeners.remove(listener);
+			this.queuedListeners = null;
+		}
+		this.listenerQueues.remove(listener);
+	}
+
+	@Override
+	public void removeApplicationListenerBean(String listenerBeanName) {
+		super.removeApplicationListenerBean(listenerBeanName);
+		synchronized (this.registeredListeners) {
+			this.registeredListenerBeans.remove(listenerBeanName);
+			this.queuedListeners = null;
+		}
+	}
+
+	@Override
+	public void removeAllListeners() {
+		super.removeAllListeners();
+		synchronized (this.registeredListeners) {
+			this.registeredListeners.clear();
+			this.registeredListenerBeans.clear();
+			this.queuedListeners = null;
+		}
+		this.listenerQueues.clear();
+	}
+
+	/**
+	 * Wait for all pending events to be delivered, up to the
+	 * {@link #setAwaitTerminationSeconds termination timeout},
+	 * then discard any events that are still pending.
+	 */
+	public void destroy() {
+		long deadline = System.currentTimeMillis() + this.awaitTerminationSeconds * 1000L;
+		synchronized (this.drainMonitor) {
+			while (!isDrained()) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					break;
+				}
+				try {
+					this.drainMonitor.wait(remaining);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+		int discarded = 0;
+		for (ListenerQueue queue : this.listenerQueues.values()) {
+			discarded += queue.events.size();
+			queue.events.clear();
+		}
+		if (discarded > 0 && logger.isWarnEnabled()) {
+			logger.warn("Discarded " + discarded + " pending events on shutdown");
+		}
+	}
+
+	/**
+	 * Determine whether all listener queues are empty, with no drain task in progress.
+	 */
+	private boolean isDrained() {
+		for (ListenerQueue queue : this.listenerQueues.values()) {
+			if (queue.scheduled.get() || !queue.events.isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Return the number of pending events per listener, keyed by the
+	 * identity String of the listener.
+	 */
+	public Map<String, Integer> getQueueDepths() {
+		Map<String, Integer> depths = new LinkedHashMap<String, Integer>();
+		for (ListenerQueue queue : this.listenerQueues.values()) {
+			depths.put(ObjectUtils.identityToString(queue.listener), queue.events.size());
+		}
+		return depths;
+	}
+
+	/**
+	 * Return the number of pending events across all listeners.
+	 */
+	public int getTotalQueueDepth() {
+		int depth = 0;
+		for (ListenerQueue queue : this.listenerQueues.values()) {
+			depth += queue.events.size();
+		}
+		return depth;
+	}
+
+	/**
+	 * Return the number of events dropped because of full listener queues
+	 * since the creation of this multicaster.
+	 */
+	public long getDroppedEventCount() {
+		return this.droppedEventCount.get();
+	}
+
+
+	/**
+	 * Task that delivers a single event to a non-singleton listener.
+	 */
+	private class SingleEventDelivery implements Runnable {
+
+		private final ApplicationListener listener;
+
+		private final ApplicationEvent event;
+
+		public SingleEventDelivery(ApplicationListener listener, ApplicationEvent event) {
+			this.listener = listener;
+			this.event = event;
+		}
+
+		@SuppressWarnings("unchecked")
+		public void run() {
+			try {
+				this.listener.onApplicationEvent(this.event);
+			}
+			catch (Throwable ex) {
+				errorHandler.handleError(ex);
+			}
+		}
+	}
+
+
+	/**
+	 * The pending events of a single listener, together with the task that
+	 * drains them. At most one drain task per listener is scheduled at any time.
+	 */
+	private class ListenerQueue implements Runnable {
+
+		private final ApplicationListener listener;
+
+		private final BlockingQueue<ApplicationEvent> events;
+
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		public ListenerQueue(ApplicationListener listener, int capacity) {
+			this.listener = listener;
+			this.events = new ArrayBlockingQueue<ApplicationEvent>(capacity);
+		}
+
+		public void enqueue(ApplicationEvent event) {
+			switch (overflowPolicy) {
+				case BLOCK:
+					try {
+						this.events.put(event);
+					}
+					catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						droppedEventCount.incrementAndGet();
+						return;
+					}
+					break;
+				case DROP_NEWEST:
+					if (!this.events.offer(event)) {
+						droppedEventCount.incrementAndGet();
+					}
+					break;
+				case DROP_OLDEST:
+					while (!this.events.offer(event)) {
+						if (this.events.poll() != null) {
+							droppedEventCount.incrementAndGet();
+						}
+					}
+					break;
+			}
+			schedule();
+		}
+
+		private void schedule() {
+			if (this.scheduled.compareAndSet(false, true)) {
+				try {
+					taskExecutor.execute(this);
+				}
+				catch (RejectedExecutionException ex) {
+					this.scheduled.set(false);
+					throw ex;
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		public void run() {
+			try {
+				List<ApplicationEvent> batch = new ArrayList<ApplicationEvent>();
+				this.events.drainTo(batch, maxBatchSize);
+				if (batch.isEmpty()) {
+					return;
+				}
+				if (this.listener instanceof BatchApplicationListener) {
+					try {
+						((BatchApplicationListener) this.listener).onApplicationEvents(batch);
+					}
+					catch (Throwable ex) {
+						errorHandler.handleError(ex);
+					}
+				}
+				else {
+					for (ApplicationEvent event : batch) {
+						try {
+							this.listener.onApplicationEvent(event);
+						}
+						catch (Throwable ex) {
+							errorHandler.handleError(ex);
+						}
+					}
+				}
+			}
+			finally {
+				this.scheduled.set(false);
+				if (!this.events.isEmpty()) {
+					schedule();
+				}
+				else {
+					synchronized (drainMonitor) {
+						drainMonitor.notifyAll();
+					}
+				}
+			}
+		}
+	}
+
+}
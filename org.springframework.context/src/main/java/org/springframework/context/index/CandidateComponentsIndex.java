@@ -0,0 +1,106 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.context.index;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Index of candidate components, as generated at build time by the
+ * {@link CandidateComponentsIndexer} into a
+ * {@value CandidateComponentsIndexLoader#COMPONENTS_RESOURCE_LOCATION} file
+ * per classpath root (jar file or class folder).
+ *
+ * <p>Each entry maps the name of a candidate type to the stereotype annotations
+ * that it is annotated with, directly or through meta-annotations.
+ *
+ * @author agent
+ * @since 3.1
+ * @see CandidateComponentsIndexLoader#loadIndex(ClassLoader)
+ */
+public class CandidateComponentsIndex {
+
+	/** Candidate type names: root URL --> stereotype name --> type names */
+	private final Map<String, Map<String, Set<String>>> indexesByRoot =
+			new LinkedHashMap<String, Map<String, Set<String>>>();
+
+
+	/**
+	 * Create a new CandidateComponentsIndex from the given index entries.
+	 * @param indexesByRoot the index entries, keyed by the URL of the
+	 * classpath root that they were found in
+	 */
+	public CandidateComponentsIndex(Map<String, Properties> indexesByRoot) {
+		Assert.notNull(indexesByRoot, "Index Map must not be null");
+		for (Map.Entry<String, Properties> entry : indexesByRoot.entrySet()) {
+			Map<String, Set<String>> typesByStereotype = new LinkedHashMap<String, Set<String>>();
+			for (Map.Entry<Object, Object> indexEntry : entry.getValue().entrySet()) {
+				String type = (String) indexEntry.getKey();
+				for (String stereotype : StringUtils.commaDelimitedListToStringArray((String) indexEntry.getValue())) {
+					stereotype = stereotype.trim();
+					Set<String> types = typesByStereotype.get(stereotype);
+					if (types == null) {
+						types = new TreeSet<String>();
+						typesByStereotype.put(stereotype, types);
+					}
+					types.add(type);
+				}
+			}
+			this.indexesByRoot.put(entry.getKey(), typesByStereotype);
+		}
+	}
+
+
+	/**
+	 * Return whether the given classpath root comes with an index.
+	 * @param rootUrl the URL of the classpath root, ending with a slash
+	 * (e.g. "jar:file:/lib/app.jar!/" or "file:/app/classes/")
+	 */
+	public boolean isIndexed(String rootUrl) {
+		return this.indexesByRoot.containsKey(rootUrl);
+	}
+
+	/**
+	 * Return the URLs of all classpath roots that come with an index.
+	 */
+	public Set<String> getIndexedRoots() {
+		return Collections.unmodifiableSet(this.indexesByRoot.keySet());
+	}
+
+	/**
+	 * Return the names of the candidate types within the given classpath root
+	 * that are marked with the given stereotype.
+	 * @param rootUrl the URL of the classpath root, ending with a slash
+	 * @param stereotype the fully qualified name of the stereotype annotation
+	 * @return the names of the candidate types in alphabetical order
+	 * (never <code>null</code>)
+	 */
+	public Set<String> getCandidateTypes(String rootUrl, String stereotype) {
+		Map<String, Set<String>> typesByStereotype = this.indexesByRoot.get(rootUrl);
+		Set<String> types = (typesByStereotype != null ? typesByStereotype.get(stereotype) : null);
+		return (types != null ? Collections.unmodifiableSet(types) : Collections.<String>emptySet());
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.context.index;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+
+/**
+ * Loads the {@link CandidateComponentsIndex} for a given ClassLoader, combining
+ * the {@value #COMPONENTS_RESOURCE_LOCATION} files of all classpath roots.
+ * Indexes are cached per ClassLoader.
+ *
+ * <p>Setting the system property {@value #IGNORE_INDEX} to "true" ignores
+ * all indexes, falling back to classpath scanning.
+ *
+ * @author agent
+ * @since 3.1
+ */
+public abstract class CandidateComponentsIndexLoader {
+
+	/**
+	 * The location to look for index files, relative to each classpath root.
+	 */
+	public static final String COMPONENTS_RESOURCE_LOCATION = "META-INF/spring.components";
+
+	/**
+	 * System property that instructs Spring to ignore the index files.
+	 */
+	public static final String IGNORE_INDEX = "spring.index.ignore";
+
+
+	private static final Log logger = LogFactory.getLog(CandidateComponentsIndexLoader.class);
+
+	private static final CandidateComponentsIndex NO_INDEX =
+			new CandidateComponentsIndex(Collections.<String, Properties>emptyMap());
+
+	private static final Map<ClassLoader, CandidateComponentsIndex> cache =
+			new WeakHashMap<ClassLoader, CandidateComponentsIndex>();
+
+
+	/**
+	 * Load the index of candidate components for the given ClassLoader.
+	 * @param classLoader the ClassLoader to load the index files with
+	 * (may be <code>null</code> to use the default ClassLoader)
+	 * @return the index, or <code>null</code> if no classpath root comes with
+	 * an index file or if indexes are to be ignored
+	 * @throws IllegalArgumentException if an index file could not be read
+	 */
+	public static CandidateComponentsIndex loadIndex(ClassLoader classLoader) {
+		if (Boolean.valueOf(getSystemProperty(IGNORE_INDEX))) {
+			return null;
+		}
+		ClassLoader classLoaderToUse =
+				(classLoader != null ? classLoader : CandidateComponentsIndexLoader.class.getClassLoader());
+		CandidateComponentsIndex index;
+		synchronized (cache) {
+			index = cache.get(classLoaderToUse);
+			if (index == null) {
+				index = doLoadIndex(classLoaderToUse);
+				cache.put(classLoaderToUse, index);
+			}
+		}
+		return (index != NO_INDEX ? index : null);
+	}
+
+	private static CandidateComponentsIndex doLoadIndex(ClassLoader classLoader) {
+		try {
+			Enumeration<URL> urls = classLoader.getResources(COMPONENTS_RESOURCE_LOCATION);
+			Map<String, Properties> indexes = new LinkedHashMap<String, Properties>();
+			while (urls.hasMoreElements()) {
+				URL url = urls.nextElement();
+				String urlString = url.toString();
+				String rootUrl = urlString.substring(0, urlString.length() - COMPONENTS_RESOURCE_LOCATION.length());
+				Properties properties = PropertiesLoaderUtils.loadProperties(new UrlResource(url));
+				Properties existing = indexes.get(rootUrl);
+				if (existing != null) {
+					existing.putAll(properties);
+				}
+				else {
+					indexes.put(rootUrl, properties);
+				}
+			}
+			if (indexes.isEmpty()) {
+				return NO_INDEX;
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Loaded component indexes for classpath roots " + indexes.keySet());
+			}
+			return new CandidateComponentsIndex(indexes);
+		}
+		catch (IOException ex) {
+			throw new IllegalArgumentException("Unable to load component indexes from location [" +
+					COMPONENTS_RESOURCE_LOCATION + "]", ex);
+		}
+	}
+
+	private static String getSystemProperty(String key) {
+		try {
+			return System.getProperty(key);
+		}
+		catch (SecurityException ex) {
+			return null;
+		}
+	}
+
+}
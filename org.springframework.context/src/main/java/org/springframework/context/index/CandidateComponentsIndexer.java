@@ -0,0 +1,218 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.context.index;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor that generates a {@link CandidateComponentsIndex}
+ * for the classes being compiled, writing it to
+ * {@value CandidateComponentsIndexLoader#COMPONENTS_RESOURCE_LOCATION}
+ * in the class output directory.
+ *
+ * <p>Indexes every class that is annotated with a stereotype, i.e. with
+ * {@link org.springframework.stereotype.Component @Component},
+ * <code>javax.annotation.ManagedBean</code>, <code>javax.inject.Named</code>
+ * or an annotation that carries one of those as meta-annotation. Stereotypes
+ * declared on superclasses and interfaces are recorded as well, allowing
+ * component scanning to apply its type filters to all potential candidates.
+ *
+ * <p>Needs to be activated explicitly, e.g. through javac's
+ * <code>-processor</code> option. Incremental compilation retains the
+ * existing index entries for classes that have not been recompiled.
+ *
+ * @author agent
+ * @since 3.1
+ */
+@SupportedAnnotationTypes("*")
+public class CandidateComponentsIndexer extends AbstractProcessor {
+
+	private static final Set<String> STEREOTYPES = new HashSet<String>(Arrays.asList(
+			"org.springframework.stereotype.Component", "javax.annotation.ManagedBean", "javax.inject.Named"));
+
+	/** Stereotypes of indexed classes: class name --> stereotype names */
+	private final Map<String, Set<String>> candidates = new TreeMap<String, Set<String>>();
+
+	/** Names of all classes compiled in this run */
+	private final Set<String> processedTypes = new HashSet<String>();
+
+	/** Stereotypes implied by annotation types: annotation name --> stereotype names */
+	private final Map<String, Set<String>> annotationStereotypes = new HashMap<String, Set<String>>();
+
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (Element element : roundEnv.getRootElements()) {
+			collectCandidates(element);
+		}
+		if (roundEnv.processingOver()) {
+			writeIndex();
+		}
+		return false;
+	}
+
+	private void collectCandidates(Element element) {
+		if (element.getKind() == ElementKind.CLASS) {
+			TypeElement type = (TypeElement) element;
+			String typeName = this.processingEnv.getElementUtils().getBinaryName(type).toString();
+			this.processedTypes.add(typeName);
+			Set<String> stereotypes = new TreeSet<String>();
+			collectStereotypes(type, stereotypes, new HashSet<String>());
+			if (!stereotypes.isEmpty()) {
+				this.candidates.put(typeName, stereotypes);
+			}
+		}
+		for (Element enclosedElement : element.getEnclosedElements()) {
+			if (enclosedElement instanceof TypeElement) {
+				collectCandidates(enclosedElement);
+			}
+		}
+	}
+
+	private void collectStereotypes(TypeElement type, Set<String> stereotypes, Set<String> visitedTypes) {
+		if (!visitedTypes.add(type.getQualifiedName().toString())) {
+			return;
+		}
+		for (AnnotationMirror annotation : type.getAnnotationMirrors()) {
+			stereotypes.addAll(getStereotypes((TypeElement) annotation.getAnnotationType().asElement()));
+		}
+		collectStereotypes(type.getSuperclass(), stereotypes, visitedTypes);
+		for (TypeMirror ifc : type.getInterfaces()) {
+			collectStereotypes(ifc, stereotypes, visitedTypes);
+		}
+	}
+
+	private void collectStereotypes(TypeMirror type, Set<String> stereotypes, Set<String> visitedTypes) {
+		if (type.getKind() == TypeKind.DECLARED) {
+			collectStereotypes((TypeElement) ((DeclaredType) type).asElement(), stereotypes, visitedTypes);
+		}
+	}
+
+	private Set<String> getStereotypes(TypeElement annotationType) {
+		String annotationName = annotationType.getQualifiedName().toString();
+		Set<String> stereotypes = this.annotationStereotypes.get(annotationName);
+		if (stereotypes == null) {
+			stereotypes = new TreeSet<String>();
+			// Register early, guarding against annotations that annotate each other.
+			this.annotationStereotypes.put(annotationName, stereotypes);
+			if (STEREOTYPES.contains(annotationName)) {
+				stereotypes.add(annotationName);
+			}
+			else if (!annotationName.startsWith("java.lang.annotation.")) {
+				for (AnnotationMirror metaAnnotation : annotationType.getAnnotationMirrors()) {
+					stereotypes.addAll(getStereotypes((TypeElement) metaAnnotation.getAnnotationType().asElement()));
+				}
+				if (!stereotypes.isEmpty()) {
+					stereotypes.add(annotationName);
+				}
+			}
+		}
+		return stereotypes;
+	}
+
+	private void writeIndex() {
+		Map<String, Set<String>> index = new TreeMap<String, Set<String>>();
+		for (Map.Entry<Object, Object> entry : readExistingIndex().entrySet()) {
+			String typeName = (String) entry.getKey();
+			if (!this.processedTypes.contains(typeName) &&
+					this.processingEnv.getElementUtils().getTypeElement(typeName.replace('$', '.')) != null) {
+				index.put(typeName, new TreeSet<String>(Arrays.asList(((String) entry.getValue()).split(","))));
+			}
+		}
+		index.putAll(this.candidates);
+		if (index.isEmpty()) {
+			return;
+		}
+		try {
+			FileObject file = this.processingEnv.getFiler().createResource(
+					StandardLocation.CLASS_OUTPUT, "", CandidateComponentsIndexLoader.COMPONENTS_RESOURCE_LOCATION);
+			Writer writer = new OutputStreamWriter(file.openOutputStream(), "ISO-8859-1");
+			try {
+				for (Map.Entry<String, Set<String>> entry : index.entrySet()) {
+					StringBuilder line = new StringBuilder(entry.getKey()).append('=');
+					boolean first = true;
+					for (String stereotype : entry.getValue()) {
+						if (!first) {
+							line.append(',');
+						}
+						line.append(stereotype);
+						first = false;
+					}
+					writer.write(line.append('\n').toString());
+				}
+			}
+			finally {
+				writer.close();
+			}
+		}
+		catch (IOException ex) {
+			this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Unable to write component index: " + ex);
+		}
+	}
+
+	private Properties readExistingIndex() {
+		Properties properties = new Properties();
+		try {
+			FileObject file = this.processingEnv.getFiler().getResource(
+					StandardLocation.CLASS_OUTPUT, "", CandidateComponentsIndexLoader.COMPONENTS_RESOURCE_LOCATION);
+			InputStream is = file.openInputStream();
+			try {
+				properties.load(is);
+			}
+			finally {
+				is.close();
+			}
+		}
+		catch (IOException ex) {
+			// No index from a previous compilation: start from scratch.
+		}
+		return properties;
+	}
+
+}
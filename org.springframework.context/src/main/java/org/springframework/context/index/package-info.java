@@ -0,0 +1,8 @@
+/**
+ *
+ * Support for a build-time index of candidate components,
+ * consulted by component scanning instead of reading class files.
+ *
+ */
+package org.springframework.context.index;
+
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -40,8 +40,10 @@ import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanFactory;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.beans.factory.support.MergedBeanDefinitionPostProcessor;
 import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.beans.support.ResourceEditorRegistrar;
@@ -79,6 +81,8 @@ import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
 
@@ -209,6 +213,9 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	/** Environment used by this context; initialized by {@link #createEnvironment()} */
 	private ConfigurableEnvironment environment;
 
+	/** ApplicationStartup to record the refresh of this context with */
+	private ApplicationStartup applicationStartup = ApplicationStartup.DEFAULT;
+
 
 	/**
 	 * Create a new AbstractApplicationContext with no parent.
@@ -292,6 +299,24 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		this.environment = environment;
 	}
 
+	/**
+	 * Set the {@code ApplicationStartup} to record the refresh of this context
+	 * with, including the creation of beans in its internal bean factory.
+	 * <p>Default is {@link ApplicationStartup#DEFAULT}, not recording anything.
+	 * To be invoked before {@link #refresh()}.
+	 */
+	public void setApplicationStartup(ApplicationStartup applicationStartup) {
+		Assert.notNull(applicationStartup, "ApplicationStartup must not be null");
+		this.applicationStartup = applicationStartup;
+	}
+
+	/**
+	 * Return the {@code ApplicationStartup} for this application context.
+	 */
+	public ApplicationStartup getApplicationStartup() {
+		return this.applicationStartup;
+	}
+
 	/**
 	 * Return this context's internal bean factory as AutowireCapableBeanFactory,
 	 * if already available.
@@ -429,53 +454,79 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 
 	public void refresh() throws BeansException, IllegalStateException {
 		synchronized (this.startupShutdownMonitor) {
-			// Prepare this context for refreshing.
-			prepareRefresh();
+			StartupStep contextRefresh = this.applicationStartup.start("spring.context.refresh");
+			try {
+				// Prepare this context for refreshing.
+				prepareRefresh();
 
-			// Tell the subclass to refresh the internal bean factory.
-			ConfigurableListableBeanFactory beanFactory = obtainFreshBeanFactory();
+				// Tell the subclass to refresh the internal bean factory.
+				ConfigurableListableBeanFactory beanFactory = obtainFreshBeanFactory();
 
-			// Prepare the bean factory for use in this context.
-			prepareBeanFactory(beanFactory);
+				// Prepare the bean factory for use in this context.
+				prepareBeanFactory(beanFactory);
 
-			try {
-				// Allows post-processing of the bean factory in context subclasses.
-				postProcessBeanFactory(beanFactory);
+				try {
+					// Allows post-processing of the bean factory in context subclasses.
+					postProcessBeanFactory(beanFactory);
 
-				// Invoke factory processors registered as beans in the context.
-				invokeBeanFactoryPostProcessors(beanFactory);
+					// Invoke factory processors registered as beans in the context.
+					StartupStep beanPostProcess = this.applicationStartup.start("spring.context.beans.post-process");
+					try {
+						invokeBeanFactoryPostProcessors(beanFactory);
+					}
+					finally {
+						beanPostProcess.end();
+					}
 
-				// Register bean processors that intercept bean creation.
-				registerBeanPostProcessors(beanFactory);
+					// Register bean processors that intercept bean creation.
+					StartupStep registerPostProcessors =
+							this.applicationStartup.start("spring.context.beans.register-post-processors");
+					try {
+						registerBeanPostProcessors(beanFactory);
+					}
+					finally {
+						registerPostProcessors.end();
+					}
 
-				// Initialize message source for this context.
-				initMessageSource();
+					// Initialize message source for this context.
+					initMessageSource();
 
-				// Initialize event multicaster for this context.
-				initApplicationEventMulticaster();
+					// Initialize event multicaster for this context.
+					initApplicationEventMulticaster();
 
-				// Initialize other special beans in specific context subclasses.
-				onRefresh();
+					// Initialize other special beans in specific context subclasses.
+					onRefresh();
 
-				// Check for listener beans and register them.
-				registerListeners();
+					// Check for listener beans and register them.
+					registerListeners();
 
-				// Instantiate all remaining (non-lazy-init) singletons.
-				finishBeanFactoryInitialization(beanFactory);
+					// Instantiate all remaining (non-lazy-init) singletons.
+					StartupStep instantiateSingletons =
+							this.applicationStartup.start("spring.context.beans.instantiate-singletons");
+					try {
+						finishBeanFactoryInitialization(beanFactory);
+					}
+					finally {
+						instantiateSingletons.end();
+					}
 
-				// Last step: publish corresponding event.
-				finishRefresh();
-			}
+					// Last step: publish corresponding event.
+					finishRefresh();
+				}
 
-			catch (BeansException ex) {
-				// Destroy already created singletons to avoid dangling resources.
-				destroyBeans();
+				catch (BeansException ex) {
+					// Destroy already created singletons to avoid dangling resources.
+					destroyBeans();
 
-				// Reset 'active' flag.
-				cancelRefresh(ex);
+					// Reset 'active' flag.
+					cancelRefresh(ex);
 
-				// Propagate exception to caller.
-				throw ex;
+					// Propagate exception to caller.
+					throw ex;
+				}
+			}
+			finally {
+				contextRefresh.end();
 			}
 		}
 	}
@@ -535,6 +586,9 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	protected void prepareBeanFactory(ConfigurableListableBeanFactory beanFactory) {
 		// Tell the internal bean factory to use the context's class loader etc.
 		beanFactory.setBeanClassLoader(getClassLoader());
+		if (beanFactory instanceof AbstractBeanFactory) {
+			((AbstractBeanFactory) beanFactory).setApplicationStartup(getApplicationStartup());
+		}
 		beanFactory.setBeanExpressionResolver(new StandardBeanExpressionResolver());
 		beanFactory.addPropertyEditorRegistrar(new ResourceEditorRegistrar(this, this.getEnvironment()));
 
@@ -601,7 +655,7 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 				if (postProcessor instanceof BeanDefinitionRegistryPostProcessor) {
 					BeanDefinitionRegistryPostProcessor registryPostProcessor =
 							(BeanDefinitionRegistryPostProcessor) postProcessor;
-					registryPostProcessor.postProcessBeanDefinitionRegistry(registry);
+					invokeBeanDefinitionRegistryPostProcessor(registryPostProcessor, registry);
 					registryPostProcessors.add(registryPostProcessor);
 				}
 				else {
@@ -614,7 +668,7 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 					new ArrayList<BeanDefinitionRegistryPostProcessor>(beanMap.values());
 			OrderComparator.sort(registryPostProcessorBeans);
 			for (BeanDefinitionRegistryPostProcessor postProcessor : registryPostProcessorBeans) {
-				postProcessor.postProcessBeanDefinitionRegistry(registry);
+				invokeBeanDefinitionRegistryPostProcessor(postProcessor, registry);
 			}
 			invokeBeanFactoryPostProcessors(registryPostProcessors, beanFactory);
 			invokeBeanFactoryPostProcessors(registryPostProcessorBeans, beanFactory);
@@ -671,6 +725,33 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		invokeBeanFactoryPostProcessors(nonOrderedPostProcessors, beanFactory);
 	}
 
+	/**
+	 * Invoke the given BeanDefinitionRegistryPostProcessor bean.
+	 */
+	private void invokeBeanDefinitionRegistryPostProcessor(
+			BeanDefinitionRegistryPostProcessor postProcessor, BeanDefinitionRegistry registry) {
+
+		StartupStep step = startPostProcessorStep("spring.context.beandef-registry.post-process", postProcessor);
+		try {
+			postProcessor.postProcessBeanDefinitionRegistry(registry);
+		}
+		finally {
+			step.end();
+		}
+	}
+
+	/**
+	 * Start a step for the invocation of the given post-processor, tagged with
+	 * its class name unless the default no-op ApplicationStartup is in use.
+	 */
+	private StartupStep startPostProcessorStep(String name, Object postProcessor) {
+		StartupStep step = this.applicationStartup.start(name);
+		if (this.applicationStartup != ApplicationStartup.DEFAULT) {
+			step.tag("postProcessor", postProcessor.getClass().getName());
+		}
+		return step;
+	}
+
 	/**
 	 * Invoke the given BeanFactoryPostProcessor beans.
 	 */
@@ -678,7 +759,17 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 			Collection<? extends BeanFactoryPostProcessor> postProcessors, ConfigurableListableBeanFactory beanFactory) {
 
 		for (BeanFactoryPostProcessor postProcessor : postProcessors) {
-			postProcessor.postProcessBeanFactory(beanFactory);
+			StartupStep step = startPostProcessorStep("spring.context.bean-factory.post-process", postProcessor);
+			try {
+				postProcessor.postProcessBeanFactory(beanFactory);
+			}
+			finally {
+				step.end();
+			}
+			if (beanFactory instanceof DefaultListableBeanFactory) {
+				// Bean definitions may have been modified in place.
+				((DefaultListableBeanFactory) beanFactory).clearMetadataCache();
+			}
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2009 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,14 +16,42 @@
 
 package org.springframework.context.support;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xml.sax.InputSource;
 
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.SnapshotSafeBeanFactoryPostProcessor;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.beans.factory.support.BeanDefinitionSnapshot;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.beans.factory.xml.ResourceEntityResolver;
 import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.core.OrderComparator;
 import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.StringUtils;
 
 /**
  * Convenient base class for {@link org.springframework.context.ApplicationContext}
@@ -36,6 +64,10 @@ import org.springframework.core.io.Resource;
  * environment-specific fashion, and/or {@link #getResourcePatternResolver}
  * for extended pattern resolution.
  *
+ * <p>Optionally keeps binary snapshots of the parsed bean definitions in a
+ * {@link #setBeanDefinitionSnapshotDirectory snapshot directory}, skipping XML
+ * parsing and validation on subsequent startups with unchanged XML files.
+ *
  * @author Rod Johnson
  * @author Juergen Hoeller
  * @see #getConfigResources
@@ -44,8 +76,23 @@ import org.springframework.core.io.Resource;
  */
 public abstract class AbstractXmlApplicationContext extends AbstractRefreshableConfigApplicationContext {
 
+	/** Prefix for snapshot input keys that denote a resolved resource pattern */
+	private static final String RESOURCE_PATTERN_PREFIX = "pattern:";
+
+	/** Prefix for snapshot input keys that denote a class file resolved by location */
+	private static final String CLASS_FILE_PREFIX = "class:";
+
+
 	private boolean validating = true;
 
+	private File beanDefinitionSnapshotDirectory;
+
+	/** Snapshot file to write once the bean factory has been prepared */
+	private File pendingSnapshotFile;
+
+	/** Input digests for the pending snapshot */
+	private Map<String, String> pendingSnapshotDigests;
+
 
 	/**
 	 * Create a new AbstractXmlApplicationContext with no parent.
@@ -69,6 +116,29 @@ public abstract class AbstractXmlApplicationContext extends AbstractRefreshableC
 		this.validating = validating;
 	}
 
+	/**
+	 * Set a directory to keep binary bean definition snapshots in. Default is none.
+	 * <p>If specified, this context looks for a snapshot matching its config locations
+	 * and its active and default profiles on refresh. If the content of all XML files
+	 * that the snapshot has been built from is unchanged, the bean definitions get
+	 * registered from the snapshot, skipping XML parsing and schema validation.
+	 * Otherwise, the XML files get parsed as usual, all
+	 * {@link SnapshotSafeBeanFactoryPostProcessor} beans get applied ahead of
+	 * the regular bean factory post-processors, and a new snapshot gets written.
+	 * <p>Resource patterns resolved while parsing - e.g. the class files found by
+	 * <code>&lt;context:component-scan&gt;</code> or wildcard imports - are part of
+	 * the snapshot validity check as well: Adding, removing or modifying any of the
+	 * matching resources invalidates the snapshot. The same applies to component index
+	 * files and to the class files of the candidate components listed in them.
+	 * <p>Bean definitions which cannot be captured in a snapshot (see
+	 * {@link BeanDefinitionSnapshot}) lead to regular XML parsing on every refresh.
+	 * Note that import locations are not part of the snapshot key: Import locations
+	 * that resolve to different files depending on the environment are not supported.
+	 */
+	public void setBeanDefinitionSnapshotDirectory(File beanDefinitionSnapshotDirectory) {
+		this.beanDefinitionSnapshotDirectory = beanDefinitionSnapshotDirectory;
+	}
+
 
 	/**
 	 * Loads the bean definitions via an XmlBeanDefinitionReader.
@@ -78,8 +148,16 @@ public abstract class AbstractXmlApplicationContext extends AbstractRefreshableC
 	 */
 	@Override
 	protected void loadBeanDefinitions(DefaultListableBeanFactory beanFactory) throws BeansException, IOException {
+		this.pendingSnapshotFile = null;
+		this.pendingSnapshotDigests = null;
+		File snapshotFile = (this.beanDefinitionSnapshotDirectory != null ? getBeanDefinitionSnapshotFile() : null);
+		if (snapshotFile != null && loadBeanDefinitionSnapshot(beanFactory, snapshotFile)) {
+			return;
+		}
+
 		// Create a new XmlBeanDefinitionReader for the given BeanFactory.
-		XmlBeanDefinitionReader beanDefinitionReader = new XmlBeanDefinitionReader(beanFactory);
+		XmlBeanDefinitionReader beanDefinitionReader = (snapshotFile != null ?
+				new DigestRecordingXmlBeanDefinitionReader(beanFactory) : new XmlBeanDefinitionReader(beanFactory));
 
 		// Configure the bean definition reader with this context's
 		// resource loading environment.
@@ -91,6 +169,15 @@ public abstract class AbstractXmlApplicationContext extends AbstractRefreshableC
 		// then proceed with actually loading the bean definitions.
 		initBeanDefinitionReader(beanDefinitionReader);
 		loadBeanDefinitions(beanDefinitionReader);
+
+		if (snapshotFile != null) {
+			// Snapshot gets written once the bean factory has been fully prepared.
+			DigestRecordingXmlBeanDefinitionReader recordingReader =
+					(DigestRecordingXmlBeanDefinitionReader) beanDefinitionReader;
+			recordingReader.recordComponentIndexes();
+			this.pendingSnapshotFile = snapshotFile;
+			this.pendingSnapshotDigests = recordingReader.getResourceDigests();
+		}
 	}
 
 	/**
@@ -140,4 +227,315 @@ public abstract class AbstractXmlApplicationContext extends AbstractRefreshableC
 		return null;
 	}
 
+	/**
+	 * Applies all {@link SnapshotSafeBeanFactoryPostProcessor} beans and writes
+	 * a new bean definition snapshot if the bean definitions have just been parsed,
+	 * before invoking the regular bean factory post-processors.
+	 * @see #setBeanDefinitionSnapshotDirectory
+	 */
+	@Override
+	protected void invokeBeanFactoryPostProcessors(ConfigurableListableBeanFactory beanFactory) {
+		File snapshotFile = this.pendingSnapshotFile;
+		Map<String, String> snapshotDigests = this.pendingSnapshotDigests;
+		this.pendingSnapshotFile = null;
+		this.pendingSnapshotDigests = null;
+		if (snapshotFile != null && beanFactory instanceof DefaultListableBeanFactory) {
+			DefaultListableBeanFactory dlbf = (DefaultListableBeanFactory) beanFactory;
+			applySnapshotSafePostProcessors(dlbf);
+			saveBeanDefinitionSnapshot(dlbf, snapshotFile, snapshotDigests);
+		}
+		super.invokeBeanFactoryPostProcessors(beanFactory);
+	}
+
+
+	/**
+	 * Determine the snapshot file for this context's configuration,
+	 * or <code>null</code> if the configuration cannot be snapshotted.
+	 */
+	private File getBeanDefinitionSnapshotFile() throws IOException {
+		StringBuilder key = new StringBuilder(getClass().getName());
+		Resource[] configResources = getConfigResources();
+		if (configResources != null) {
+			for (Resource configResource : configResources) {
+				try {
+					key.append('|').append(configResource.getURL());
+				}
+				catch (IOException ex) {
+					// Not a URL-based resource -> cannot be validated against a snapshot.
+					return null;
+				}
+			}
+		}
+		String[] configLocations = getConfigLocations();
+		if (configLocations != null) {
+			for (String configLocation : configLocations) {
+				key.append('|').append(configLocation);
+			}
+		}
+		key.append("|active=").append(StringUtils.arrayToCommaDelimitedString(getEnvironment().getActiveProfiles()));
+		key.append("|default=").append(StringUtils.arrayToCommaDelimitedString(getEnvironment().getDefaultProfiles()));
+		String digest = DigestUtils.md5DigestAsHex(key.toString().getBytes("UTF-8"));
+		return new File(this.beanDefinitionSnapshotDirectory, "beans-" + digest + ".snapshot");
+	}
+
+	/**
+	 * Register the bean definitions from the given snapshot file, provided that
+	 * the snapshot exists and all of its XML files and resource patterns are unchanged.
+	 * @return whether the bean definitions have been registered from the snapshot
+	 */
+	private boolean loadBeanDefinitionSnapshot(DefaultListableBeanFactory beanFactory, File snapshotFile) {
+		if (!snapshotFile.isFile()) {
+			return false;
+		}
+		BeanDefinitionSnapshot snapshot;
+		try {
+			InputStream is = new BufferedInputStream(new FileInputStream(snapshotFile));
+			try {
+				snapshot = BeanDefinitionSnapshot.readFrom(is, getClassLoader());
+			}
+			finally {
+				is.close();
+			}
+			for (Map.Entry<String, String> entry : snapshot.getInputDigests().entrySet()) {
+				String key = entry.getKey();
+				String currentDigest;
+				if (key.startsWith(RESOURCE_PATTERN_PREFIX)) {
+					currentDigest = computeFingerprint(getResources(key.substring(RESOURCE_PATTERN_PREFIX.length())));
+				}
+				else if (key.startsWith(CLASS_FILE_PREFIX)) {
+					currentDigest = computeFingerprint(new Resource[] {getResource(key.substring(CLASS_FILE_PREFIX.length()))});
+				}
+				else {
+					currentDigest = computeDigest(new UrlResource(key));
+				}
+				if (!entry.getValue().equals(currentDigest)) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Bean definition snapshot [" + snapshotFile + "] is out of date: [" +
+								entry.getKey() + "] has changed");
+					}
+					return false;
+				}
+			}
+		}
+		catch (IOException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Could not use bean definition snapshot [" + snapshotFile + "]", ex);
+			}
+			return false;
+		}
+		snapshot.registerBeanDefinitions(beanFactory);
+		if (logger.isInfoEnabled()) {
+			logger.info("Registered " + snapshot.getBeanDefinitionCount() +
+					" bean definitions from snapshot [" + snapshotFile + "]");
+		}
+		return true;
+	}
+
+	/**
+	 * Apply all {@link SnapshotSafeBeanFactoryPostProcessor} beans to the given bean factory,
+	 * then remove their bean definitions, so that they will not be applied again later on.
+	 */
+	private void applySnapshotSafePostProcessors(DefaultListableBeanFactory beanFactory) {
+		String[] postProcessorNames =
+				beanFactory.getBeanNamesForType(SnapshotSafeBeanFactoryPostProcessor.class, true, false);
+		if (postProcessorNames.length == 0) {
+			return;
+		}
+		List<SnapshotSafeBeanFactoryPostProcessor> postProcessors =
+				new ArrayList<SnapshotSafeBeanFactoryPostProcessor>(postProcessorNames.length);
+		for (String postProcessorName : postProcessorNames) {
+			postProcessors.add(beanFactory.getBean(postProcessorName, SnapshotSafeBeanFactoryPostProcessor.class));
+		}
+		OrderComparator.sort(postProcessors);
+		for (SnapshotSafeBeanFactoryPostProcessor postProcessor : postProcessors) {
+			if (postProcessor instanceof BeanDefinitionRegistryPostProcessor) {
+				((BeanDefinitionRegistryPostProcessor) postProcessor).postProcessBeanDefinitionRegistry(beanFactory);
+			}
+			postProcessor.postProcessBeanFactory(beanFactory);
+		}
+		for (String postProcessorName : postProcessorNames) {
+			beanFactory.removeBeanDefinition(postProcessorName);
+		}
+	}
+
+	/**
+	 * Write the current bean definitions of the given bean factory to the given
+	 * snapshot file. Failures are logged but do not affect the refresh.
+	 * @param resourceDigests the digests of all XML files that have been parsed
+	 * and all resource patterns that have been resolved, or <code>null</code>
+	 * if not all of them could be digested
+	 */
+	private void saveBeanDefinitionSnapshot(DefaultListableBeanFactory beanFactory, File snapshotFile,
+			Map<String, String> resourceDigests) {
+
+		if (resourceDigests == null) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Not writing bean definition snapshot [" + snapshotFile +
+						"]: bean definitions not exclusively loaded from URL-based resources");
+			}
+			return;
+		}
+		BeanDefinitionSnapshot snapshot = new BeanDefinitionSnapshot();
+		for (Map.Entry<String, String> entry : resourceDigests.entrySet()) {
+			snapshot.addInputDigest(entry.getKey(), entry.getValue());
+		}
+		snapshot.addBeanDefinitions(beanFactory);
+		try {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			snapshot.writeTo(bos);
+			this.beanDefinitionSnapshotDirectory.mkdirs();
+			File tempFile = new File(snapshotFile.getPath() + ".tmp");
+			FileCopyUtils.copy(bos.toByteArray(), tempFile);
+			if (!tempFile.renameTo(snapshotFile)) {
+				snapshotFile.delete();
+				if (!tempFile.renameTo(snapshotFile)) {
+					tempFile.delete();
+					throw new IOException("Could not rename [" + tempFile + "] to [" + snapshotFile + "]");
+				}
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Wrote " + snapshot.getBeanDefinitionCount() +
+						" bean definitions to snapshot [" + snapshotFile + "]");
+			}
+		}
+		catch (IOException ex) {
+			if (logger.isInfoEnabled()) {
+				logger.info("Could not write bean definition snapshot [" + snapshotFile + "]: " + ex);
+			}
+		}
+	}
+
+	private static String computeDigest(Resource resource) throws IOException {
+		return DigestUtils.md5DigestAsHex(FileCopyUtils.copyToByteArray(resource.getInputStream()));
+	}
+
+	/**
+	 * Compute a fingerprint of the given resolved resources, covering the URL,
+	 * last-modified timestamp and content length of every resource.
+	 */
+	private static String computeFingerprint(Resource[] resources) throws IOException {
+		String[] entries = new String[resources.length];
+		for (int i = 0; i < resources.length; i++) {
+			Resource resource = resources[i];
+			entries[i] = resource.getURL() + "|" + resource.lastModified() + "|" + resource.contentLength();
+		}
+		Arrays.sort(entries);
+		return DigestUtils.md5DigestAsHex(StringUtils.arrayToDelimitedString(entries, "\n").getBytes("UTF-8"));
+	}
+
+
+	/**
+	 * XmlBeanDefinitionReader that records the content digest of every
+	 * resource that it loads, including imported resources, as well as
+	 * the fingerprint of every resource pattern and class file resolved through it.
+	 */
+	private static class DigestRecordingXmlBeanDefinitionReader extends XmlBeanDefinitionReader {
+
+		private final Map<String, String> resourceDigests = new LinkedHashMap<String, String>();
+
+		private boolean recordable = true;
+
+		public DigestRecordingXmlBeanDefinitionReader(BeanDefinitionRegistry registry) {
+			super(registry);
+		}
+
+		@Override
+		public void setResourceLoader(ResourceLoader resourceLoader) {
+			super.setResourceLoader(resourceLoader instanceof ResourcePatternResolver ?
+					new PatternRecordingResourceResolver((ResourcePatternResolver) resourceLoader) : resourceLoader);
+		}
+
+		@Override
+		public int loadBeanDefinitions(EncodedResource encodedResource) throws BeanDefinitionStoreException {
+			if (this.recordable) {
+				Resource resource = encodedResource.getResource();
+				try {
+					this.resourceDigests.put(resource.getURL().toString(), computeDigest(resource));
+				}
+				catch (IOException ex) {
+					// Not a URL-based resource -> cannot be validated against a snapshot.
+					this.recordable = false;
+				}
+			}
+			return super.loadBeanDefinitions(encodedResource);
+		}
+
+		@Override
+		public int loadBeanDefinitions(InputSource inputSource, String resourceDescription)
+				throws BeanDefinitionStoreException {
+
+			this.recordable = false;
+			return super.loadBeanDefinitions(inputSource, resourceDescription);
+		}
+
+		/**
+		 * Record the fingerprint of the component index files. Component scanning reads
+		 * those through the ClassLoader rather than through this reader's ResourceLoader,
+		 * only resolving the class files of the indexed candidates through the latter.
+		 * @see CandidateComponentsIndexLoader
+		 */
+		public void recordComponentIndexes() throws IOException {
+			if (this.recordable && getResourceLoader() instanceof ResourcePatternResolver) {
+				((ResourcePatternResolver) getResourceLoader()).getResources(
+						ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX + CandidateComponentsIndexLoader.COMPONENTS_RESOURCE_LOCATION);
+			}
+		}
+
+		/**
+		 * Return the digests of all loaded resources, keyed by resource URL,
+		 * or <code>null</code> if not all of the resources could be digested.
+		 */
+		public Map<String, String> getResourceDigests() {
+			return (this.recordable ? this.resourceDigests : null);
+		}
+
+
+		/**
+		 * ResourcePatternResolver decorator that records the fingerprint of every
+		 * resolved pattern, e.g. for the class files found by component scanning,
+		 * and of every class file resolved by location, e.g. for the candidates
+		 * listed in a component index.
+		 */
+		private class PatternRecordingResourceResolver implements ResourcePatternResolver {
+
+			private final ResourcePatternResolver targetResolver;
+
+			public PatternRecordingResourceResolver(ResourcePatternResolver targetResolver) {
+				this.targetResolver = targetResolver;
+			}
+
+			public Resource getResource(String location) {
+				Resource resource = this.targetResolver.getResource(location);
+				if (recordable && location.endsWith(ClassUtils.CLASS_FILE_SUFFIX)) {
+					try {
+						resourceDigests.put(CLASS_FILE_PREFIX + location, computeFingerprint(new Resource[] {resource}));
+					}
+					catch (IOException ex) {
+						// Resource without URL or timestamp -> cannot be validated against a snapshot.
+						recordable = false;
+					}
+				}
+				return resource;
+			}
+
+			public Resource[] getResources(String locationPattern) throws IOException {
+				Resource[] resources = this.targetResolver.getResources(locationPattern);
+				if (recordable) {
+					try {
+						resourceDigests.put(RESOURCE_PATTERN_PREFIX + locationPattern, computeFingerprint(resources));
+					}
+					catch (IOException ex) {
+						// Resource without URL or timestamp -> cannot be validated against a snapshot.
+						recordable = false;
+					}
+				}
+				return resources;
+			}
+
+			public ClassLoader getClassLoader() {
+				return this.targetResolver.getClassLoader();
+			}
+		}
+	}
+
 }
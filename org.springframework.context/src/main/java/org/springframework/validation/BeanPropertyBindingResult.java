@@ -19,6 +19,7 @@ package org.springframework.validation;
 import java.io.Serializable;
 
 import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.ConfigurablePropertyAccessor;
 import org.springframework.beans.PropertyAccessorFactory;
 import org.springframework.util.Assert;
@@ -49,6 +50,8 @@ public class BeanPropertyBindingResult extends AbstractPropertyBindingResult imp
 
 	private final int autoGrowCollectionLimit;
 
+	private boolean useGeneratedAccessors = false;
+
 	private transient BeanWrapper beanWrapper;
 
 
@@ -76,6 +79,23 @@ public class BeanPropertyBindingResult extends AbstractPropertyBindingResult imp
 	}
 
 
+	/**
+	 * Set whether the underlying BeanWrapper should invoke property accessors
+	 * through generated bytecode instead of reflection. Default is "false".
+	 * <p>Needs to be set before the property accessor is first obtained.
+	 * @see org.springframework.beans.BeanWrapperImpl#setUseGeneratedAccessors
+	 */
+	public void setUseGeneratedAccessors(boolean useGeneratedAccessors) {
+		this.useGeneratedAccessors = useGeneratedAccessors;
+	}
+
+	/**
+	 * Return whether generated property accessors are used.
+	 */
+	public boolean isUseGeneratedAccessors() {
+		return this.useGeneratedAccessors;
+	}
+
 	@Override
 	public final Object getTarget() {
 		return this.target;
@@ -103,7 +123,11 @@ public class BeanPropertyBindingResult extends AbstractPropertyBindingResult imp
 	 */
 	protected BeanWrapper createBeanWrapper() {
 		Assert.state(this.target != null, "Cannot access properties on null bean instance '" + getObjectName() + "'!");
-		return PropertyAccessorFactory.forBeanPropertyAccess(this.target);
+		BeanWrapper bw = PropertyAccessorFactory.forBeanPropertyAccess(this.target);
+		if (this.useGeneratedAccessors && bw instanceof BeanWrapperImpl) {
+			((BeanWrapperImpl) bw).setUseGeneratedAccessors(true);
+		}
+		return bw;
 	}
 
 }
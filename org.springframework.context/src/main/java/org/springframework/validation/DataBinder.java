@@ -132,6 +132,8 @@ public class DataBinder implements PropertyEditorRegistry, TypeConverter {
 
 	private int autoGrowCollectionLimit = DEFAULT_AUTO_GROW_COLLECTION_LIMIT;
 
+	private boolean useGeneratedAccessors = false;
+
 	private String[] allowedFields;
 
 	private String[] disallowedFields;
@@ -220,6 +222,28 @@ public class DataBinder implements PropertyEditorRegistry, TypeConverter {
 		return this.autoGrowCollectionLimit;
 	}
 
+	/**
+	 * Set whether bean property access should invoke property accessors through
+	 * generated bytecode instead of reflection, avoiding reflective overhead for
+	 * binders that are created per request.
+	 * <p>Default is "false". Note that this feature is only supported for bean
+	 * property access (DataBinder's default mode), not for field access.
+	 * @see #initBeanPropertyAccess()
+	 * @see org.springframework.beans.BeanWrapperImpl#setUseGeneratedAccessors
+	 */
+	public void setUseGeneratedAccessors(boolean useGeneratedAccessors) {
+		Assert.state(this.bindingResult == null,
+				"DataBinder is already initialized - call setUseGeneratedAccessors before other configuration methods");
+		this.useGeneratedAccessors = useGeneratedAccessors;
+	}
+
+	/**
+	 * Return whether generated property accessors are used for bean property access.
+	 */
+	public boolean isUseGeneratedAccessors() {
+		return this.useGeneratedAccessors;
+	}
+
 	/**
 	 * Initialize standard JavaBean property access for this DataBinder.
 	 * <p>This is the default; an explicit call just leads to eager initialization.
@@ -228,8 +252,10 @@ public class DataBinder implements PropertyEditorRegistry, TypeConverter {
 	public void initBeanPropertyAccess() {
 		Assert.state(this.bindingResult == null,
 				"DataBinder is already initialized - call initBeanPropertyAccess before other configuration methods");
-		this.bindingResult = new BeanPropertyBindingResult(
+		BeanPropertyBindingResult result = new BeanPropertyBindingResult(
 				getTarget(), getObjectName(), isAutoGrowNestedPaths(), getAutoGrowCollectionLimit());
+		result.setUseGeneratedAccessors(isUseGeneratedAccessors());
+		this.bindingResult = result;
 		if (this.conversionService != null) {
 			this.bindingResult.initConversion(this.conversionService);
 		}
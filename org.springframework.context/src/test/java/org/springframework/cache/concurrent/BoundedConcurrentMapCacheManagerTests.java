@@ -0,0 +1,105 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import org.junit.Test;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ */
+public class BoundedConcurrentMapCacheManagerTests {
+
+	@Test
+	public void testDynamicMode() {
+		CacheManager cm = new BoundedConcurrentMapCacheManager();
+		Cache cache1 = cm.getCache("c1");
+		assertTrue(cache1 instanceof BoundedConcurrentMapCache);
+		assertSame(cache1, cm.getCache("c1"));
+		Cache cache2 = cm.getCache("c2");
+		assertNotSame(cache1, cache2);
+		assertEquals(2, cm.getCacheNames().size());
+	}
+
+	@Test
+	public void testStaticMode() {
+		BoundedConcurrentMapCacheManager cm = new BoundedConcurrentMapCacheManager("c1", "c2");
+		assertEquals(2, cm.getCacheNames().size());
+		Cache cache1 = cm.getCache("c1");
+		assertTrue(cache1 instanceof BoundedConcurrentMapCache);
+		assertSame(cache1, cm.getCache("c1"));
+		assertNull(cm.getCache("c3"));
+	}
+
+	@Test
+	public void testSettingsApplied() {
+		BoundedConcurrentMapCacheManager cm = new BoundedConcurrentMapCacheManager();
+		cm.setMaximumSize(2);
+		cm.setEvictionPolicy(EvictionPolicy.LRU);
+		Cache cache = cm.getCache("c1");
+		cache.put("a", "a");
+		cache.put("b", "b");
+		cache.put("c", "c");
+		assertEquals(2, ((BoundedConcurrentMapCache) cache).size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMaximumWeightRequiresWeigher() {
+		BoundedConcurrentMapCacheManager cm = new BoundedConcurrentMapCacheManager();
+		cm.setMaximumWeight(100);
+		cm.getCache("c1");
+	}
+
+	@Test
+	public void testNamespaceConfiguration() {
+		ClassPathXmlApplicationContext ctx = new ClassPathXmlApplicationContext(
+				"org/springframework/cache/concurrent/boundedCacheManagerNamespace.xml");
+		try {
+			BoundedConcurrentMapCacheManager cm = ctx.getBean("cacheManager", BoundedConcurrentMapCacheManager.class);
+			assertEquals(2, cm.getCacheNames().size());
+			BoundedConcurrentMapCache cache = (BoundedConcurrentMapCache) cm.getCache("books");
+			assertEquals(EvictionPolicy.W_TINY_LFU, cache.getEvictionPolicy());
+			assertFalse(cache.isAllowNullValues());
+			assertNull(cm.getCache("other"));
+
+			BoundedConcurrentMapCacheManager weighted =
+					ctx.getBean("weightedCacheManager", BoundedConcurrentMapCacheManager.class);
+			Cache weightedCache = weighted.getCache("any");
+			weightedCache.put("a", "1234");
+			weightedCache.put("b", "1234");
+			weightedCache.put("c", "1234");
+			assertEquals(2, ((BoundedConcurrentMapCache) weightedCache).size());
+		}
+		finally {
+			ctx.close();
+		}
+	}
+
+
+	public static class LengthWeigher implements CacheEntryWeigher {
+
+		public int weigh(Object key, Object value) {
+			return value.toString().length();
+		}
+	}
+
+}
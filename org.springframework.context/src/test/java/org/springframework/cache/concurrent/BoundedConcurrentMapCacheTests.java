@@ -0,0 +1,260 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.vendor.AbstractNativeCacheTests;
+
+/**
+ * @author agent
+ */
+public class BoundedConcurrentMapCacheTests extends AbstractNativeCacheTests<BoundedConcurrentMapCache> {
+
+	@Override
+	protected Cache createCache(BoundedConcurrentMapCache nativeCache) {
+		return nativeCache;
+	}
+
+	@Override
+	protected BoundedConcurrentMapCache createNativeCache() throws Exception {
+		return new BoundedConcurrentMapCache(CACHE_NAME, 100);
+	}
+
+
+	@Test
+	public void testLruEviction() {
+		BoundedConcurrentMapCache cache = new BoundedConcurrentMapCache("lru", 3);
+		cache.put("a", 1);
+		cache.put("b", 2);
+		cache.put("c", 3);
+		assertEquals(1, cache.get("a").get());
+		cache.put("d", 4);
+		assertEquals(3, cache.size());
+		assertNull(cache.get("b"));
+		assertNotNull(cache.get("a"));
+		assertNotNull(cache.get("c"));
+		assertNotNull(cache.get("d"));
+		assertEquals(1, cache.getStatistics().getEvictionCount());
+	}
+
+	@Test
+	public void testSizeBoundAcrossSegments() {
+		BoundedConcurrentMapCache cache = new BoundedConcurrentMapCache("segmented", 1000);
+		for (int i = 0; i < 10000; i++) {
+			cache.put(i, i);
+		}
+		assertTrue(cache.size() <= 1000);
+		assertEquals(10000 - cache.size(), cache.getStatistics().getEvictionCount());
+	}
+
+	@Test
+	public void testWeightBound() {
+		CacheEntryWeigher weigher = new CacheEntryWeigher() {
+			public int weigh(Object key, Object value) {
+				return ((String) value).length();
+			}
+		};
+		BoundedConcurrentMapCache cache =
+				new BoundedConcurrentMapCache("weighted", 10, weigher, 0, 0, EvictionPolicy.LRU, 1, true);
+		cache.put("a", "12345");
+		cache.put("b", "1234");
+		assertEquals(2, cache.size());
+		cache.put("c", "12");
+		assertNull(cache.get("a"));
+		assertNotNull(cache.get("b"));
+		assertNotNull(cache.get("c"));
+		cache.put("d", "12345678901");
+		assertNull(cache.get("d"));
+		assertNotNull(cache.get("c"));
+	}
+
+	@Test
+	public void testWeightBoundOnReplacementInMainSpace() {
+		CacheEntryWeigher weigher = new CacheEntryWeigher() {
+			public int weigh(Object key, Object value) {
+				return ((String) value).length();
+			}
+		};
+		BoundedConcurrentMapCache cache =
+				new BoundedConcurrentMapCache("weighted", 100, weigher, 0, 0, EvictionPolicy.W_TINY_LFU, 1, true);
+		for (int i = 0; i < 10; i++) {
+			cache.put("key" + i, "0123456789");
+		}
+		assertEquals(10, cache.size());
+		cache.put("key9", "01234567890123456789012345678901234567890123456789");
+		int totalWeight = 0;
+		for (int i = 0; i < 10; i++) {
+			Cache.ValueWrapper wrapper = cache.get("key" + i);
+			if (wrapper != null) {
+				totalWeight += ((String) wrapper.get()).length();
+			}
+		}
+		assertTrue("Maximum weight exceeded: " + totalWeight, totalWeight <= 100);
+		assertNotNull(cache.get("key9"));
+	}
+
+	@Test
+	public void testExpireAfterWrite() {
+		TimedCache cache = new TimedCache(5, 0);
+		cache.put("key", "value");
+		cache.time += 4000000000L;
+		assertEquals("value", cache.get("key").get());
+		cache.time += 1000000000L;
+		assertNull(cache.get("key"));
+		assertEquals(0, cache.size());
+		CacheStatistics stats = cache.getStatistics();
+		assertEquals(1, stats.getHitCount());
+		assertEquals(1, stats.getMissCount());
+		assertEquals(1, stats.getExpirationCount());
+	}
+
+	@Test
+	public void testExpireAfterAccess() {
+		TimedCache cache = new TimedCache(0, 5);
+		cache.put("key", "value");
+		cache.put("other", "value");
+		for (int i = 0; i < 3; i++) {
+			cache.time += 4000000000L;
+			assertNotNull(cache.get("key"));
+		}
+		cache.cleanUp();
+		assertEquals(1, cache.size());
+		cache.time += 5000000000L;
+		assertNull(cache.get("key"));
+		assertEquals(2, cache.getStatistics().getExpirationCount());
+	}
+
+	@Test
+	public void testTinyLfuAdmission() {
+		BoundedConcurrentMapCache cache =
+				new BoundedConcurrentMapCache("tinylfu", 100, null, 0, 0, EvictionPolicy.W_TINY_LFU, 1, true);
+		for (int i = 0; i < 100; i++) {
+			cache.put("hot" + i, i);
+		}
+		for (int round = 0; round < 5; round++) {
+			for (int i = 0; i < 100; i++) {
+				cache.get("hot" + i);
+			}
+		}
+		// one-off accesses should not flush the frequently used entries
+		for (int i = 0; i < 1000; i++) {
+			cache.put("cold" + i, i);
+		}
+		assertEquals(100, cache.size());
+		int retained = 0;
+		for (int i = 0; i < 100; i++) {
+			if (cache.get("hot" + i) != null) {
+				retained++;
+			}
+		}
+		assertTrue("Only " + retained + " frequently used entries retained", retained >= 95);
+	}
+
+	@Test
+	public void testLruIsFlushedByScan() {
+		BoundedConcurrentMapCache cache = new BoundedConcurrentMapCache("lru", 100);
+		for (int i = 0; i < 100; i++) {
+			cache.put("hot" + i, i);
+			cache.get("hot" + i);
+		}
+		for (int i = 0; i < 1000; i++) {
+			cache.put("cold" + i, i);
+		}
+		for (int i = 0; i < 100; i++) {
+			assertNull(cache.get("hot" + i));
+		}
+	}
+
+	@Test
+	public void testStatistics() {
+		BoundedConcurrentMapCache cache = new BoundedConcurrentMapCache("stats", 10);
+		cache.put("key", null);
+		assertNotNull(cache.get("key"));
+		assertNull(cache.get("key").get());
+		assertNull(cache.get("missing"));
+		CacheStatistics stats = cache.getStatistics();
+		assertEquals(new CacheStatistics(2, 1, 0, 0), stats);
+		assertEquals(3, stats.getRequestCount());
+		assertEquals(2.0 / 3, stats.getHitRatio(), 0.0001);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullValueNotAllowed() {
+		BoundedConcurrentMapCache cache =
+				new BoundedConcurrentMapCache("nonull", 10, null, 0, 0, EvictionPolicy.LRU, 1, false);
+		cache.put("key", null);
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception {
+		final BoundedConcurrentMapCache cache =
+				new BoundedConcurrentMapCache("concurrent", 500, null, 0, 0, EvictionPolicy.W_TINY_LFU, 16, true);
+		final AtomicInteger failures = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(8);
+		for (int t = 0; t < 8; t++) {
+			final int offset = t;
+			new Thread() {
+				public void run() {
+					try {
+						for (int i = 0; i < 10000; i++) {
+							Integer key = (i * 7 + offset) % 2000;
+							Cache.ValueWrapper wrapper = cache.get(key);
+							if (wrapper == null) {
+								cache.put(key, key);
+							}
+							else if (!key.equals(wrapper.get())) {
+								failures.incrementAndGet();
+							}
+						}
+					}
+					catch (Throwable ex) {
+						failures.incrementAndGet();
+					}
+					finally {
+						latch.countDown();
+					}
+				}
+			}.start();
+		}
+		latch.await();
+		assertEquals(0, failures.get());
+		assertTrue(cache.size() <= 500);
+		assertEquals(80000, cache.getStatistics().getRequestCount());
+	}
+
+
+	private static class TimedCache extends BoundedConcurrentMapCache {
+
+		private long time;
+
+		public TimedCache(long expireAfterWrite, long expireAfterAccess) {
+			super("timed", 0, null, expireAfterWrite, expireAfterAccess, EvictionPolicy.LRU, 1, true);
+		}
+
+		@Override
+		protected long currentTimeNanos() {
+			return this.time;
+		}
+	}
+
+}
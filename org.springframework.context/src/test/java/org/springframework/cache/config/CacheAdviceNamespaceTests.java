@@ -16,6 +16,9 @@
 
 package org.springframework.cache.config;
 
+import org.junit.Test;
+import org.springframework.beans.factory.parsing.BeanDefinitionParsingException;
+import org.springframework.context.support.GenericXmlApplicationContext;
 
 /**
  * @author Costin Leau
@@ -27,4 +30,9 @@ public class CacheAdviceNamespaceTests extends AbstractAnnotationTests {
 	protected String getConfig() {
 		return "/org/springframework/cache/config/cache-advice.xml";
 	}
+
+	@Test(expected = BeanDefinitionParsingException.class)
+	public void testBulkWithSyncRejected() {
+		new GenericXmlApplicationContext("/org/springframework/cache/config/cache-advice-invalid-bulk.xml");
+	}
 }
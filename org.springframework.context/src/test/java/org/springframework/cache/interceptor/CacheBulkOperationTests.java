@@ -0,0 +1,227 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.annotation.AnnotationCacheOperationSource;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+/**
+ * Tests for bulk {@link Cacheable} operations.
+ *
+ * @author agent
+ */
+public class CacheBulkOperationTests {
+
+	private ConcurrentMapCacheManager cacheManager;
+
+	private ProductService service;
+
+	private DefaultProductService target;
+
+
+	@Before
+	public void setUp() {
+		this.cacheManager = new ConcurrentMapCacheManager();
+		CacheInterceptor interceptor = new CacheInterceptor();
+		interceptor.setCacheManager(this.cacheManager);
+		interceptor.setCacheOperationSource(new AnnotationCacheOperationSource());
+		interceptor.afterPropertiesSet();
+
+		this.target = new DefaultProductService();
+		ProxyFactory pf = new ProxyFactory(this.target);
+		pf.addAdvice(interceptor);
+		this.service = (ProductService) pf.getProxy();
+	}
+
+
+	@Test
+	public void testOnlyMissingKeysLoaded() {
+		Map<Long, String> products = this.service.findProducts(Arrays.asList(1L, 2L));
+		assertEquals(2, products.size());
+		assertEquals("product1", products.get(1L));
+		assertEquals(Arrays.asList(1L, 2L), this.target.requests.get(0));
+
+		products = this.service.findProducts(Arrays.asList(3L, 2L, 1L, 4L));
+		assertEquals(Arrays.asList(3L, 2L, 1L, 4L), new ArrayList<Long>(products.keySet()));
+		assertEquals("product4", products.get(4L));
+		assertEquals(Arrays.asList(3L, 4L), this.target.requests.get(1));
+
+		products = this.service.findProducts(Arrays.asList(4L, 1L));
+		assertEquals(2, products.size());
+		assertEquals(2, this.target.requests.size());
+
+		Cache cache = this.cacheManager.getCache("products");
+		assertEquals("product3", cache.get(3L).get());
+	}
+
+	@Test
+	public void testKeysNotReturnedAreNotCached() {
+		Map<Long, String> products = this.service.findProducts(Arrays.asList(1L, -1L));
+		assertEquals(1, products.size());
+		assertNull(this.cacheManager.getCache("products").get(-1L));
+		this.service.findProducts(Arrays.asList(1L, -1L));
+		assertEquals(Arrays.asList(-1L), this.target.requests.get(1));
+	}
+
+	@Test
+	public void testKeyExpressionAndMapReturnType() {
+		Map<Long, String> products = this.service.findSortedProducts("ignored", Arrays.asList(2L, 1L));
+		assertTrue(products instanceof TreeMap);
+		assertEquals(Arrays.asList(1L, 2L), new ArrayList<Long>(products.keySet()));
+		products = this.service.findSortedProducts("ignored", Arrays.asList(3L, 2L));
+		assertEquals(Arrays.asList(2L, 3L), new ArrayList<Long>(products.keySet()));
+		assertEquals(Arrays.asList(3L), this.target.requests.get(1));
+	}
+
+	@Test
+	public void testSetArgument() {
+		Set<Long> ids = new LinkedHashSet<Long>(Arrays.asList(5L, 6L));
+		assertEquals(2, this.service.findProductSet(ids).size());
+		ids.add(7L);
+		assertEquals(3, this.service.findProductSet(ids).size());
+		assertEquals(Arrays.asList(7L), this.target.requests.get(1));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testNonCollectionArgument() {
+		this.service.findInvalid(1L);
+	}
+
+	@Test
+	public void testCallerArgumentsNotModified() {
+		CacheInterceptor interceptor = new CacheInterceptor();
+		interceptor.setCacheManager(this.cacheManager);
+		interceptor.setCacheOperationSource(new AnnotationCacheOperationSource());
+		interceptor.afterPropertiesSet();
+		ProxyFactory pf = new ProxyFactory(this.target);
+		pf.addAdvice(new MethodInterceptor() {
+			public Object invoke(MethodInvocation invocation) throws Throwable {
+				target.callerArgs = invocation.getArguments();
+				return invocation.proceed();
+			}
+		});
+		pf.addAdvice(interceptor);
+		ProductService service = (ProductService) pf.getProxy();
+		List<Long> ids = Arrays.asList(1L, 2L);
+		service.findProducts(Arrays.asList(1L));
+		service.findProducts(ids);
+		assertEquals(Arrays.asList(2L), this.target.requests.get(1));
+		assertSame(ids, this.target.callerArgsSeen.get(1));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBulkWithSyncRejected() throws Exception {
+		new AnnotationCacheOperationSource().getCacheOperation(
+				InvalidProductService.class.getMethod("findProducts", List.class), InvalidProductService.class);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBulkWithRefreshAfterRejected() throws Exception {
+		new AnnotationCacheOperationSource().getCacheOperation(
+				InvalidProductService.class.getMethod("findSortedProducts", String.class, Collection.class),
+				InvalidProductService.class);
+	}
+
+
+	public interface ProductService {
+
+		Map<Long, String> findProducts(List<Long> ids);
+
+		TreeMap<Long, String> findSortedProducts(String category, Collection<Long> ids);
+
+		Map<Long, String> findProductSet(Set<Long> ids);
+
+		Map<Long, String> findInvalid(Long id);
+	}
+
+
+	public static class DefaultProductService implements ProductService {
+
+		private final List<List<Long>> requests = new ArrayList<List<Long>>();
+
+		private final List<Object> callerArgsSeen = new ArrayList<Object>();
+
+		private Object[] callerArgs;
+
+		@Cacheable(value = "products", bulk = true)
+		public Map<Long, String> findProducts(List<Long> ids) {
+			return load(ids, new LinkedHashMap<Long, String>());
+		}
+
+		@Cacheable(value = "sortedProducts", key = "#p1", bulk = true)
+		public TreeMap<Long, String> findSortedProducts(String category, Collection<Long> ids) {
+			return (TreeMap<Long, String>) load(ids, new TreeMap<Long, String>());
+		}
+
+		@Cacheable(value = "products", bulk = true)
+		public Map<Long, String> findProductSet(Set<Long> ids) {
+			return load(ids, new LinkedHashMap<Long, String>());
+		}
+
+		@Cacheable(value = "products", bulk = true)
+		public Map<Long, String> findInvalid(Long id) {
+			return null;
+		}
+
+		private Map<Long, String> load(Collection<Long> ids, Map<Long, String> result) {
+			this.requests.add(new ArrayList<Long>(ids));
+			if (this.callerArgs != null) {
+				this.callerArgsSeen.add(this.callerArgs[0]);
+			}
+			for (Long id : ids) {
+				if (id > 0) {
+					result.put(id, "product" + id);
+				}
+			}
+			return result;
+		}
+	}
+
+
+	public static class InvalidProductService {
+
+		@Cacheable(value = "products", bulk = true, sync = true)
+		public Map<Long, String> findProducts(List<Long> ids) {
+			return null;
+		}
+
+		@Cacheable(value = "products", key = "#p1", bulk = true, refreshAfter = 60)
+		public Map<Long, String> findSortedProducts(String category, Collection<Long> ids) {
+			return null;
+		}
+	}
+
+}
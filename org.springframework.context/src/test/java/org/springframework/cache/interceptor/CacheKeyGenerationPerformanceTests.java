@@ -0,0 +1,117 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cache.interceptor;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.cache.annotation.AnnotationCacheOperationSource;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.util.StopWatch;
+
+/**
+ * @author agent
+ */
+public class CacheKeyGenerationPerformanceTests {
+
+	private static final Log interceptorLog = LogFactory.getLog(CacheInterceptor.class);
+
+	private Service service;
+
+	private ServiceImpl target;
+
+
+	@Before
+	public void setUp() {
+		CacheInterceptor interceptor = new CacheInterceptor();
+		interceptor.setCacheManager(new ConcurrentMapCacheManager());
+		interceptor.setCacheOperationSource(new AnnotationCacheOperationSource());
+		interceptor.afterPropertiesSet();
+
+		this.target = new ServiceImpl();
+		ProxyFactory pf = new ProxyFactory(this.target);
+		pf.addAdvice(interceptor);
+		this.service = (Service) pf.getProxy();
+	}
+
+	@Test
+	public void testCachedInvocationWithArgumentKeyIsFastEnough() {
+		if (interceptorLog.isTraceEnabled()) {
+			// Skip this test: Trace logging blows the time limit.
+			return;
+		}
+		StopWatch sw = new StopWatch();
+		sw.start("argumentKey");
+		for (int i = 0; i < 100000; i++) {
+			assertEquals(Long.valueOf(i % 10), this.service.find(Long.valueOf(i % 10), "name"));
+		}
+		sw.stop();
+		assertEquals(10, this.target.counter.get());
+		assertTrue("Cached invocation took too long: " + sw.getTotalTimeMillis(), sw.getTotalTimeMillis() < 4000);
+	}
+
+	@Test
+	public void testCachedInvocationWithParameterNameKeyIsFastEnough() {
+		if (interceptorLog.isTraceEnabled()) {
+			// Skip this test: Trace logging blows the time limit.
+			return;
+		}
+		StopWatch sw = new StopWatch();
+		sw.start("parameterNameKey");
+		for (int i = 0; i < 100000; i++) {
+			assertEquals(Long.valueOf(i % 10), this.service.findByName(Long.valueOf(i % 10), "name"));
+		}
+		sw.stop();
+		assertEquals(10, this.target.counter.get());
+		assertTrue("Cached invocation took too long: " + sw.getTotalTimeMillis(), sw.getTotalTimeMillis() < 4000);
+	}
+
+
+	public interface Service {
+
+		Object find(Long id, String name);
+
+		Object findByName(Long id, String name);
+	}
+
+
+	public static class ServiceImpl implements Service {
+
+		private final AtomicInteger counter = new AtomicInteger();
+
+		@Cacheable(value = "byId", key = "#p0")
+		public Object find(Long id, String name) {
+			this.counter.incrementAndGet();
+			return id;
+		}
+
+		@Cacheable(value = "byName", key = "#id")
+		public Object findByName(Long id, String name) {
+			this.counter.incrementAndGet();
+			return id;
+		}
+	}
+
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.cache.annotation.AnnotationCacheOperationSource;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.TimestampedValueWrapper;
+import org.springframework.core.task.SyncTaskExecutor;
+
+/**
+ * Tests for synchronized loading and refresh-ahead of {@link Cacheable} operations.
+ *
+ * @author agent
+ */
+public class CacheSyncTests {
+
+	private ConcurrentMapCacheManager cacheManager;
+
+	private CacheInterceptor interceptor;
+
+	private SimpleService service;
+
+	private SlowService target;
+
+
+	@Before
+	public void setUp() {
+		this.cacheManager = new ConcurrentMapCacheManager() {
+			@Override
+			protected ConcurrentMapCache createConcurrentMapCache(String name) {
+				return ("aged".equals(name) ? new AgedCache(name) : new ConcurrentMapCache(name));
+			}
+		};
+		this.interceptor = new CacheInterceptor();
+		this.interceptor.setCacheManager(this.cacheManager);
+		this.interceptor.setCacheOperationSource(new AnnotationCacheOperationSource());
+		this.interceptor.setRefreshExecutor(new SyncTaskExecutor());
+		this.interceptor.afterPropertiesSet();
+
+		this.target = new SlowService();
+		ProxyFactory pf = new ProxyFactory(this.target);
+		pf.addAdvice(this.interceptor);
+		this.service = (SimpleService) pf.getProxy();
+	}
+
+
+	@Test
+	public void testSingleLoadForConcurrentMisses() throws Exception {
+		List<Object> results = runConcurrently(new Task() {
+			public Object run() {
+				return service.syncLoad(1);
+			}
+		});
+		assertEquals(1, this.target.counter.get());
+		for (Object result : results) {
+			assertEquals(1, result);
+		}
+	}
+
+	@Test
+	public void testExceptionPropagatedToWaitingThreads() throws Exception {
+		List<Object> results = runConcurrently(new Task() {
+			public Object run() {
+				try {
+					return service.syncFailure(1);
+				}
+				catch (UnsupportedOperationException ex) {
+					return ex;
+				}
+			}
+		});
+		for (Object result : results) {
+			assertTrue(result instanceof UnsupportedOperationException);
+		}
+		assertTrue(this.target.counter.get() < results.size());
+	}
+
+	@Test
+	public void testRefreshAhead() {
+		assertEquals(1, this.service.refreshAhead(1));
+		assertEquals(1, this.target.counter.get());
+		// returns the current value, refreshing it in the background
+		assertEquals(1, this.service.refreshAhead(1));
+		assertEquals(2, this.target.counter.get());
+		assertEquals(2, this.service.refreshAhead(1));
+	}
+
+	@Test
+	public void testRefreshDoesNotProceedWithCallerInvocation() {
+		final AtomicInteger proceedCount = new AtomicInteger();
+		ProxyFactory pf = new ProxyFactory(this.target);
+		pf.addAdvice(this.interceptor);
+		pf.addAdvice(new MethodInterceptor() {
+			public Object invoke(MethodInvocation invocation) throws Throwable {
+				proceedCount.incrementAndGet();
+				return invocation.proceed();
+			}
+		});
+		SimpleService service = (SimpleService) pf.getProxy();
+		assertEquals(1, service.refreshAhead(1));
+		assertEquals(1, service.refreshAhead(1));
+		assertEquals(2, this.target.counter.get());
+		assertEquals(2, service.refreshAhead(1));
+		// the refreshes invoked the target directly, not the interceptor chain
+		assertEquals(1, proceedCount.get());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRefreshRequiresExecutor() {
+		CacheInterceptor interceptor = new CacheInterceptor();
+		interceptor.setCacheManager(this.cacheManager);
+		interceptor.setCacheOperationSource(new AnnotationCacheOperationSource());
+		interceptor.afterPropertiesSet();
+		ProxyFactory pf = new ProxyFactory(this.target);
+		pf.addAdvice(interceptor);
+		((SimpleService) pf.getProxy()).refreshAhead(1);
+	}
+
+	@Test
+	public void testNoRefreshWithoutTimestamps() {
+		assertEquals(1, this.service.syncLoad(1));
+		assertEquals(1, this.service.refreshAheadUntimed(1));
+		assertEquals(1, this.service.refreshAheadUntimed(1));
+		assertEquals(1, this.target.counter.get());
+	}
+
+	private List<Object> runConcurrently(final Task task) throws Exception {
+		int threadCount = 10;
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threadCount);
+		final List<Object> results = new ArrayList<Object>();
+		for (int i = 0; i < threadCount; i++) {
+			new Thread() {
+				public void run() {
+					try {
+						start.await();
+						Object result = task.run();
+						synchronized (results) {
+							results.add(result);
+						}
+					}
+					catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+					finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+		start.countDown();
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(threadCount, results.size());
+		return results;
+	}
+
+
+	private interface Task {
+
+		Object run();
+	}
+
+
+	public interface SimpleService {
+
+		Object syncLoad(Object arg);
+
+		Object syncFailure(Object arg);
+
+		Object refreshAhead(Object arg);
+
+		Object refreshAheadUntimed(Object arg);
+	}
+
+
+	public static class SlowService implements SimpleService {
+
+		private final AtomicInteger counter = new AtomicInteger();
+
+		@Cacheable(value = "default", sync = true)
+		public Object syncLoad(Object arg) {
+			pause();
+			return this.counter.incrementAndGet();
+		}
+
+		@Cacheable(value = "default", sync = true)
+		public Object syncFailure(Object arg) {
+			this.counter.incrementAndGet();
+			pause();
+			throw new UnsupportedOperationException();
+		}
+
+		@Cacheable(value = "aged", refreshAfter = 60)
+		public Object refreshAhead(Object arg) {
+			return this.counter.incrementAndGet();
+		}
+
+		@Cacheable(value = "default", refreshAfter = 60)
+		public Object refreshAheadUntimed(Object arg) {
+			return this.counter.incrementAndGet();
+		}
+
+		private void pause() {
+			try {
+				Thread.sleep(200);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+
+	/**
+	 * Cache that reports all of its values as written an hour ago.
+	 */
+	private static class AgedCache extends ConcurrentMapCache {
+
+		public AgedCache(String name) {
+			super(name);
+		}
+
+		@Override
+		public ValueWrapper get(Object key) {
+			ValueWrapper wrapper = super.get(key);
+			return (wrapper != null ?
+					new TimestampedValueWrapper(wrapper.get(), System.currentTimeMillis() - 3600 * 1000) : null);
+		}
+	}
+
+}
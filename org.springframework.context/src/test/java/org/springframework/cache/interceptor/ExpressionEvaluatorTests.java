@@ -0,0 +1,150 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.springframework.cache.Cache;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Tests for the key argument resolution of {@link ExpressionEvaluator}.
+ *
+ * @author agent
+ */
+public class ExpressionEvaluatorTests {
+
+	private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+
+
+	@Test
+	public void testIndexedVariable() throws Exception {
+		assertEquals(0, keyArgumentIndex("#p0", "multipleArgs"));
+		assertEquals(1, keyArgumentIndex(" #p1 ", "multipleArgs"));
+	}
+
+	@Test
+	public void testRootArgs() throws Exception {
+		assertEquals(1, keyArgumentIndex("#root.args[1]", "multipleArgs"));
+		assertEquals(0, keyArgumentIndex("args[0]", "multipleArgs"));
+	}
+
+	@Test
+	public void testParameterName() throws Exception {
+		assertEquals(0, keyArgumentIndex("#id", "multipleArgs"));
+		assertEquals(1, keyArgumentIndex("#name", "multipleArgs"));
+	}
+
+	@Test
+	public void testParameterNameTakesPrecedence() throws Exception {
+		assertEquals(1, keyArgumentIndex("#p0", "shadowingArgs"));
+	}
+
+	@Test
+	public void testOutOfRange() throws Exception {
+		assertEquals(ExpressionEvaluator.NO_ARGUMENT_INDEX, keyArgumentIndex("#p2", "multipleArgs"));
+		assertEquals(ExpressionEvaluator.NO_ARGUMENT_INDEX, keyArgumentIndex("args[5]", "multipleArgs"));
+		assertEquals(ExpressionEvaluator.NO_ARGUMENT_INDEX, keyArgumentIndex("#p0", "noArgs"));
+	}
+
+	@Test
+	public void testExpressionsRequiringEvaluation() throws Exception {
+		assertEquals(ExpressionEvaluator.NO_ARGUMENT_INDEX, keyArgumentIndex("#root", "multipleArgs"));
+		assertEquals(ExpressionEvaluator.NO_ARGUMENT_INDEX, keyArgumentIndex("#this", "multipleArgs"));
+		assertEquals(ExpressionEvaluator.NO_ARGUMENT_INDEX, keyArgumentIndex("#unknown", "multipleArgs"));
+		assertEquals(ExpressionEvaluator.NO_ARGUMENT_INDEX, keyArgumentIndex("#p0 + #p1", "multipleArgs"));
+		assertEquals(ExpressionEvaluator.NO_ARGUMENT_INDEX, keyArgumentIndex("#name.length()", "multipleArgs"));
+		assertEquals(ExpressionEvaluator.NO_ARGUMENT_INDEX, keyArgumentIndex("#root.method.name", "multipleArgs"));
+	}
+
+	@Test
+	public void testResolvedIndexMatchesEvaluatedKey() throws Exception {
+		Method method = ReflectionUtils.findMethod(SampleMethods.class, "multipleArgs", Long.class, String.class);
+		Object[] args = new Object[] {5L, "five"};
+		EvaluationContext context = this.evaluator.createEvaluationContext(
+				Collections.<Cache>emptyList(), method, args, new SampleMethods(), SampleMethods.class);
+		String[] expressions = new String[] {"#p0", "#root.args[1]", "#name"};
+		for (String expression : expressions) {
+			ExpressionEvaluator evaluator = new ExpressionEvaluator();
+			int index = evaluator.keyArgumentIndex(expression, method, SampleMethods.class);
+			assertEquals(evaluator.key(expression, method, context), args[index]);
+		}
+	}
+
+	@Test
+	public void testParameterNamePerTargetClass() throws Exception {
+		Method method = ReflectionUtils.findMethod(SampleService.class, "find", Long.class, Long.class);
+		assertEquals(0, this.evaluator.keyArgumentIndex("#id", method, IdFirstService.class));
+		assertEquals(1, this.evaluator.keyArgumentIndex("#id", method, IdSecondService.class));
+		assertEquals(0, this.evaluator.keyArgumentIndex("#id", method, IdFirstService.class));
+	}
+
+	private int keyArgumentIndex(String expression, String methodName) {
+		Method method = null;
+		for (Method candidate : SampleMethods.class.getDeclaredMethods()) {
+			if (candidate.getName().equals(methodName)) {
+				method = candidate;
+			}
+		}
+		// fresh evaluator, since resolved indexes are cached per method
+		return new ExpressionEvaluator().keyArgumentIndex(expression, method, SampleMethods.class);
+	}
+
+
+	public static class SampleMethods {
+
+		public Object multipleArgs(Long id, String name) {
+			return null;
+		}
+
+		public Object shadowingArgs(String p1, String p0) {
+			return null;
+		}
+
+		public Object noArgs() {
+			return null;
+		}
+	}
+
+
+	public interface SampleService {
+
+		Object find(Long first, Long second);
+	}
+
+
+	public static class IdFirstService implements SampleService {
+
+		public Object find(Long id, Long version) {
+			return null;
+		}
+	}
+
+
+	public static class IdSecondService implements SampleService {
+
+		public Object find(Long version, Long id) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.util.ErrorHandler;
+import org.springframework.util.ObjectUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link QueueingApplicationEventMulticaster}.
+ *
+ * @author agent
+ */
+public final class QueueingApplicationEventMulticasterTests {
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+
+	@After
+	public void shutdownExecutor() {
+		this.executor.shutdownNow();
+	}
+
+
+	@Test
+	public void perListenerOrdering() throws Exception {
+		QueueingApplicationEventMulticaster multicaster = new QueueingApplicationEventMulticaster();
+		multicaster.setTaskExecutor(this.executor);
+		multicaster.setMaxBatchSize(7);
+		CollectingListener listener1 = new CollectingListener(1000);
+		CollectingListener listener2 = new CollectingListener(1000);
+		multicaster.addApplicationListener(listener1);
+		multicaster.addApplicationListener(listener2);
+		for (int i = 0; i < 1000; i++) {
+			multicaster.multicastEvent(new NumberEvent(i));
+		}
+		assertTrue(listener1.latch.await(10, TimeUnit.SECONDS));
+		assertTrue(listener2.latch.await(10, TimeUnit.SECONDS));
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, listener1.received.get(i).getSource());
+			assertEquals(i, listener2.received.get(i).getSource());
+		}
+		assertEquals(0, multicaster.getDroppedEventCount());
+	}
+
+	@Test
+	public void batchDelivery() throws Exception {
+		QueueingApplicationEventMulticaster multicaster = new QueueingApplicationEventMulticaster();
+		multicaster.setTaskExecutor(this.executor);
+		multicaster.setMaxBatchSize(10);
+		BlockingBatchListener listener = new BlockingBatchListener();
+		multicaster.addApplicationListener(listener);
+		multicaster.multicastEvent(new NumberEvent(0));
+		assertTrue(listener.firstBatchEntered.await(10, TimeUnit.SECONDS));
+		for (int i = 1; i <= 25; i++) {
+			multicaster.multicastEvent(new NumberEvent(i));
+		}
+		assertEquals(25, multicaster.getTotalQueueDepth());
+		assertEquals(Collections.singletonList(25), new ArrayList<Integer>(multicaster.getQueueDepths().values()));
+		listener.release.countDown();
+		assertTrue(listener.allReceived.await(10, TimeUnit.SECONDS));
+		assertEquals(4, listener.batchSizes.size());
+		assertEquals(Integer.valueOf(1), listener.batchSizes.get(0));
+		assertEquals(Integer.valueOf(10), listener.batchSizes.get(1));
+		assertEquals(Integer.valueOf(10), listener.batchSizes.get(2));
+		assertEquals(Integer.valueOf(5), listener.batchSizes.get(3));
+		assertEquals(0, multicaster.getTotalQueueDepth());
+	}
+
+	@Test
+	public void dropNewestWhenQueueFull() throws Exception {
+		QueueingApplicationEventMulticaster multicaster = new QueueingApplicationEventMulticaster();
+		multicaster.setTaskExecutor(this.executor);
+		multicaster.setQueueCapacity(5);
+		multicaster.setOverflowPolicy(QueueingApplicationEventMulticaster.OverflowPolicy.DROP_NEWEST);
+		BlockingBatchListener listener = new BlockingBatchListener();
+		multicaster.addApplicationListener(listener);
+		multicaster.multicastEvent(new NumberEvent(0));
+		assertTrue(listener.firstBatchEntered.await(10, TimeUnit.SECONDS));
+		for (int i = 1; i <= 8; i++) {
+			multicaster.multicastEvent(new NumberEvent(i));
+		}
+		assertEquals(3, multicaster.getDroppedEventCount());
+		assertEquals(5, multicaster.getTotalQueueDepth());
+	}
+
+	@Test
+	public void dropOldestWhenQueueFull() throws Exception {
+		QueueingApplicationEventMulticaster multicaster = new QueueingApplicationEventMulticaster();
+		multicaster.setTaskExecutor(this.executor);
+		multicaster.setQueueCapacity(5);
+		multicaster.setOverflowPolicy(QueueingApplicationEventMulticaster.OverflowPolicy.DROP_OLDEST);
+		BlockingBatchListener listener = new BlockingBatchListener();
+		listener.expectedEvents = 6;
+		multicaster.addApplicationListener(listener);
+		multicaster.multicastEvent(new NumberEvent(0));
+		assertTrue(listener.firstBatchEntered.await(10, TimeUnit.SECONDS));
+		for (int i = 1; i <= 8; i++) {
+			multicaster.multicastEvent(new NumberEvent(i));
+		}
+		assertEquals(3, multicaster.getDroppedEventCount());
+		listener.release.countDown();
+		assertTrue(listener.allReceived.await(10, TimeUnit.SECONDS));
+		assertEquals(4, listener.received.get(1).getSource());
+		assertEquals(8, listener.received.get(5).getSource());
+	}
+
+	@Test
+	public void listenerExceptionDoesNotStopDelivery() {
+		QueueingApplicationEventMulticaster multicaster = new QueueingApplicationEventMulticaster();
+		multicaster.setTaskExecutor(new SyncTaskExecutor());
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		multicaster.setErrorHandler(new ErrorHandler() {
+			public void handleError(Throwable t) {
+				errors.add(t);
+			}
+		});
+		final List<Object> received = new ArrayList<Object>();
+		multicaster.addApplicationListener(new ApplicationListener<NumberEvent>() {
+			public void onApplicationEvent(NumberEvent event) {
+				if (event.getSource().equals(1)) {
+					throw new IllegalStateException();
+				}
+				received.add(event.getSource());
+			}
+		});
+		multicaster.multicastEvent(new ContextClosedEvent(new StaticApplicationContext()));
+		for (int i = 0; i < 3; i++) {
+			multicaster.multicastEvent(new NumberEvent(i));
+		}
+		assertEquals(2, received.size());
+		assertEquals(1, errors.size());
+		assertTrue(errors.get(0) instanceof IllegalStateException);
+	}
+
+	@Test
+	public void queuesOnlyForSingletonListenerBeans() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		bf.registerBeanDefinition("singletonListener", new RootBeanDefinition(CountingListener.class));
+		RootBeanDefinition prototypeDefinition = new RootBeanDefinition(CountingListener.class);
+		prototypeDefinition.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		bf.registerBeanDefinition("prototypeListener", prototypeDefinition);
+		QueueingApplicationEventMulticaster multicaster = new QueueingApplicationEventMulticaster(bf);
+		multicaster.setTaskExecutor(new SyncTaskExecutor());
+		multicaster.addApplicationListenerBean("singletonListener");
+		multicaster.addApplicationListenerBean("prototypeListener");
+		CountingListener.eventCount.set(0);
+		for (int i = 0; i < 3; i++) {
+			multicaster.multicastEvent(new NumberEvent(i));
+		}
+		assertEquals(6, CountingListener.eventCount.get());
+		assertEquals(1, multicaster.getQueueDepths().size());
+		assertEquals(ObjectUtils.identityToString(bf.getBean("singletonListener")),
+				multicaster.getQueueDepths().keySet().iterator().next());
+	}
+
+	@Test
+	public void destroyDeliversPendingEvents() throws Exception {
+		QueueingApplicationEventMulticaster multicaster = new QueueingApplicationEventMulticaster();
+		multicaster.setTaskExecutor(this.executor);
+		multicaster.setMaxBatchSize(1);
+		final BlockingBatchListener listener = new BlockingBatchListener();
+		listener.expectedEvents = 3;
+		multicaster.addApplicationListener(listener);
+		for (int i = 0; i < 3; i++) {
+			multicaster.multicastEvent(new NumberEvent(i));
+		}
+		assertTrue(listener.firstBatchEntered.await(10, TimeUnit.SECONDS));
+		this.executor.execute(new Runnable() {
+			public void run() {
+				try {
+					Thread.sleep(100);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				listener.release.countDown();
+			}
+		});
+		multicaster.destroy();
+		assertEquals(3, listener.received.size());
+		assertEquals(0, multicaster.getTotalQueueDepth());
+	}
+
+	@Test
+	public void destroyDiscardsPendingEventsAfterTimeout() throws Exception {
+		QueueingApplicationEventMulticaster multicaster = new QueueingApplicationEventMulticaster();
+		multicaster.setTaskExecutor(this.executor);
+		multicaster.setMaxBatchSize(1);
+		multicaster.setAwaitTerminationSeconds(0);
+		BlockingBatchListener listener = new BlockingBatchListener();
+		multicaster.addApplicationListener(listener);
+		for (int i = 0; i < 3; i++) {
+			multicaster.multicastEvent(new NumberEvent(i));
+		}
+		assertTrue(listener.firstBatchEntered.await(10, TimeUnit.SECONDS));
+		multicaster.destroy();
+		assertEquals(0, multicaster.getTotalQueueDepth());
+		listener.release.countDown();
+		assertEquals(1, listener.received.size());
+	}
+
+
+	@SuppressWarnings("serial")
+	public static class NumberEvent extends ApplicationEvent {
+
+		public NumberEvent(Integer number) {
+			super(number);
+		}
+	}
+
+
+	private static class CollectingListener implements ApplicationListener<NumberEvent> {
+
+		private final List<NumberEvent> received = Collections.synchronizedList(new ArrayList<NumberEvent>());
+
+		private final CountDownLatch latch;
+
+		public CollectingListener(int expectedEvents) {
+			this.latch = new CountDownLatch(expectedEvents);
+		}
+
+		public void onApplicationEvent(NumberEvent event) {
+			this.received.add(event);
+			this.latch.countDown();
+		}
+	}
+
+
+	public static class CountingListener implements ApplicationListener<NumberEvent> {
+
+		private static final AtomicInteger eventCount = new AtomicInteger();
+
+		public void onApplicationEvent(NumberEvent event) {
+			eventCount.incrementAndGet();
+		}
+	}
+
+
+	private static class BlockingBatchListener implements BatchApplicationListener<NumberEvent> {
+
+		private final List<NumberEvent> received = Collections.synchronizedList(new ArrayList<NumberEvent>());
+
+		private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+
+		private final CountDownLatch firstBatchEntered = new CountDownLatch(1);
+
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		private final CountDownLatch allReceived = new CountDownLatch(1);
+
+		private volatile int expectedEvents = 26;
+
+		public void onApplicationEvents(List<NumberEvent> events) {
+			this.batchSizes.add(events.size());
+			this.received.addAll(events);
+			this.firstBatchEntered.countDown();
+			try {
+				this.release.await(10, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			if (this.received.size() == this.expectedEvents) {
+				this.allReceived.countDown();
+			}
+		}
+
+		public void onApplicationEvent(NumberEvent event) {
+			onApplicationEvents(Collections.singletonList(event));
+		}
+	}
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.context.index;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.FileSystemUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CandidateComponentsIndexer}, {@link CandidateComponentsIndexLoader}
+ * and their use in component scanning.
+ *
+ * @author agent
+ * @since 3.1
+ */
+public class CandidateComponentsIndexTests {
+
+	private static final String PACKAGE = "org.springframework.context.index.sample";
+
+	private JavaCompiler compiler;
+
+	private File workDir;
+
+
+	@Before
+	public void setUp() throws IOException {
+		this.compiler = ToolProvider.getSystemJavaCompiler();
+		Assume.assumeTrue(this.compiler != null);
+		this.workDir = File.createTempFile("index", "");
+		this.workDir.delete();
+		this.workDir.mkdirs();
+	}
+
+	@After
+	public void tearDown() {
+		if (this.workDir != null) {
+			FileSystemUtils.deleteRecursively(this.workDir);
+		}
+	}
+
+
+	@Test
+	public void testIndexGeneration() throws IOException {
+		File output = compileSamples("indexed", true);
+		Properties index = PropertiesLoaderUtils.loadProperties(
+				new FileSystemResource(new File(output, CandidateComponentsIndexLoader.COMPONENTS_RESOURCE_LOCATION)));
+		assertEquals("org.springframework.stereotype.Component", index.getProperty(PACKAGE + ".SampleComponent"));
+		assertEquals("org.springframework.stereotype.Component,org.springframework.stereotype.Service",
+				index.getProperty(PACKAGE + ".SampleService"));
+		assertEquals(PACKAGE + ".SampleStereotype,org.springframework.stereotype.Component",
+				index.getProperty(PACKAGE + ".SampleCustomComponent"));
+		assertEquals("org.springframework.stereotype.Component", index.getProperty(PACKAGE + ".SampleComponent$Nested"));
+		assertNull(index.getProperty(PACKAGE + ".SamplePlain"));
+		assertNull(index.getProperty(PACKAGE + ".SampleStereotype"));
+	}
+
+	@Test
+	public void testScanningWithIndexAndFallback() throws IOException {
+		File indexed = compileSamples("indexed", true);
+		// Not listed in the index, hence not to be found
+		compile(indexed, false, source("SampleUnlisted", "@org.springframework.stereotype.Component"));
+		File plain = new File(this.workDir, "plain");
+		compile(plain, false, source("SampleScanned", "@org.springframework.stereotype.Component"));
+
+		ClassLoader classLoader = new URLClassLoader(
+				new URL[] {indexed.toURI().toURL(), plain.toURI().toURL()}, getClass().getClassLoader());
+		CandidateComponentsIndex index = CandidateComponentsIndexLoader.loadIndex(classLoader);
+		assertNotNull(index);
+		assertTrue(index.isIndexed(indexed.toURI().toURL().toString()));
+		assertFalse(index.isIndexed(plain.toURI().toURL().toString()));
+
+		ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(true);
+		provider.setResourceLoader(new DefaultResourceLoader(classLoader));
+		Set<String> beanClassNames = new TreeSet<String>();
+		for (BeanDefinition bd : provider.findCandidateComponents(PACKAGE)) {
+			beanClassNames.add(bd.getBeanClassName());
+		}
+		assertEquals(new TreeSet<String>(Arrays.asList(PACKAGE + ".SampleComponent", PACKAGE + ".SampleComponent$Nested",
+				PACKAGE + ".SampleCustomComponent", PACKAGE + ".SampleScanned", PACKAGE + ".SampleService")),
+				beanClassNames);
+	}
+
+	@Test
+	public void testNoIndex() throws IOException {
+		File plain = new File(this.workDir, "plain");
+		compile(plain, false, source("SampleScanned", "@org.springframework.stereotype.Component"));
+		ClassLoader classLoader = new URLClassLoader(new URL[] {plain.toURI().toURL()}, null);
+		assertNull(CandidateComponentsIndexLoader.loadIndex(classLoader));
+	}
+
+
+	private File compileSamples(String name, boolean withIndexer) throws IOException {
+		File output = new File(this.workDir, name);
+		compile(output, withIndexer,
+				source("SampleComponent", "@org.springframework.stereotype.Component",
+						"@org.springframework.stereotype.Component public static class Nested {}"),
+				source("SampleService", "@org.springframework.stereotype.Service"),
+				source("SampleCustomComponent", "@SampleStereotype"),
+				source("SamplePlain", ""),
+				"package " + PACKAGE + ";\n@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n" +
+						"@org.springframework.stereotype.Component\npublic @interface SampleStereotype {}\n");
+		return output;
+	}
+
+	private String source(String className, String annotation, String... members) {
+		StringBuilder source = new StringBuilder("package ").append(PACKAGE).append(";\n");
+		source.append(annotation).append("\npublic class ").append(className).append(" {\n");
+		for (String member : members) {
+			source.append(member).append("\n");
+		}
+		return source.append("}\n").toString();
+	}
+
+	private void compile(File output, boolean withIndexer, String... sources) throws IOException {
+		File sourceDir = new File(this.workDir, "src-" + output.getName() + "-" + System.nanoTime());
+		File packageDir = new File(sourceDir, PACKAGE.replace('.', File.separatorChar));
+		packageDir.mkdirs();
+		output.mkdirs();
+		List<String> args = new ArrayList<String>(Arrays.asList(
+				"-d", output.getPath(), "-classpath", System.getProperty("java.class.path"), "-nowarn"));
+		if (withIndexer) {
+			args.add("-processor");
+			args.add(CandidateComponentsIndexer.class.getName());
+		}
+		else {
+			args.add("-proc:none");
+		}
+		for (String source : sources) {
+			String typeName = source.replaceFirst("(?s).*public (?:@interface|class) (\\w+).*", "$1");
+			File sourceFile = new File(packageDir, typeName + ".java");
+			FileCopyUtils.copy(source, new FileWriter(sourceFile));
+			args.add(sourceFile.getPath());
+		}
+		assertEquals(0, this.compiler.run(null, null, null, args.toArray(new String[args.size()])));
+	}
+
+}
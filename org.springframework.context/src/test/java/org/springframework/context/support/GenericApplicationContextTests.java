@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,13 +16,25 @@
 
 package org.springframework.context.support;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import org.junit.Test;
 
+import org.springframework.beans.FatalBeanException;
+import org.springframework.beans.TestBean;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.metrics.RecordingApplicationStartup;
+
+import static org.junit.Assert.*;
 
 /**
  * @author Juergen Hoeller
  * @author Chris Beams
+ * @author agent
  */
 public class GenericApplicationContextTests {
 
@@ -33,4 +45,76 @@ public class GenericApplicationContextTests {
 			new GenericApplicationContext(bf).refresh();
 	}
 
+	@Test
+	public void applicationStartupRecording() {
+		GenericApplicationContext ac = new GenericApplicationContext();
+		RecordingApplicationStartup startup = new RecordingApplicationStartup();
+		ac.setApplicationStartup(startup);
+		ac.registerBeanDefinition("testBean", new RootBeanDefinition(TestBean.class));
+		ac.registerBeanDefinition("configurer", new RootBeanDefinition(PropertySourcesPlaceholderConfigurer.class));
+		ac.refresh();
+
+		Set<String> stacks = new HashSet<String>();
+		for (RecordingApplicationStartup.RecordedStep step : startup.getRecordedSteps()) {
+			stacks.add(step.getStack());
+		}
+		assertTrue(stacks.contains("spring.context.refresh"));
+		assertTrue(stacks.contains("spring.context.refresh;spring.context.beans.post-process;" +
+				"spring.context.bean-factory.post-process(postProcessor=" +
+				PropertySourcesPlaceholderConfigurer.class.getName() + ")"));
+		assertTrue(stacks.contains("spring.context.refresh;spring.context.beans.instantiate-singletons;" +
+				"spring.beans.instantiate(beanName=testBean);spring.beans.initialize(beanName=testBean)"));
+		boolean testBeanFound = false;
+		for (String slowBean : startup.getSlowestBeans()) {
+			testBeanFound |= slowBean.startsWith("testBean: ");
+		}
+		assertTrue(testBeanFound);
+		assertSame(startup, ac.getDefaultListableBeanFactory().getApplicationStartup());
+		ac.close();
+	}
+
+	@Test
+	public void applicationStartupNotRecordingAfterRefresh() {
+		GenericApplicationContext ac = new GenericApplicationContext();
+		RecordingApplicationStartup startup = new RecordingApplicationStartup();
+		ac.setApplicationStartup(startup);
+		RootBeanDefinition prototypeDefinition = new RootBeanDefinition(TestBean.class);
+		prototypeDefinition.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		ac.registerBeanDefinition("prototype", prototypeDefinition);
+		ac.refresh();
+
+		int stepCount = startup.getStepCount();
+		for (int i = 0; i < 10; i++) {
+			ac.getBean("prototype");
+		}
+		assertEquals(stepCount, startup.getStepCount());
+		ac.close();
+	}
+
+	@Test
+	public void applicationStartupStepsEndedOnRefreshFailure() {
+		GenericApplicationContext ac = new GenericApplicationContext();
+		RecordingApplicationStartup startup = new RecordingApplicationStartup();
+		ac.setApplicationStartup(startup);
+		ac.addBeanFactoryPostProcessor(new BeanFactoryPostProcessor() {
+			public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+				throw new FatalBeanException("failed");
+			}
+		});
+		try {
+			ac.refresh();
+			fail("Should have thrown FatalBeanException");
+		}
+		catch (FatalBeanException ex) {
+			// expected
+		}
+
+		Set<String> stacks = new HashSet<String>();
+		for (RecordingApplicationStartup.RecordedStep step : startup.getRecordedSteps()) {
+			stacks.add(step.getStack());
+		}
+		assertTrue(stacks.contains("spring.context.refresh"));
+		assertTrue(stacks.contains("spring.context.refresh;spring.context.beans.post-process"));
+	}
+
 }
@@ -0,0 +1,387 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.context.support;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import test.beans.TestBean;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.SnapshotSafeBeanFactoryPostProcessor;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.annotation.componentscan.simple.SimpleComponent;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.FileSystemUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for bean definition snapshots in {@link AbstractXmlApplicationContext}.
+ *
+ * @author agent
+ * @since 3.1
+ */
+public class XmlApplicationContextSnapshotTests {
+
+	private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+			"<beans xmlns=\"http://www.springframework.org/schema/beans\"\n" +
+			"\txmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n" +
+			"\txsi:schemaLocation=\"http://www.springframework.org/schema/beans " +
+			"http://www.springframework.org/schema/beans/spring-beans-3.1.xsd\">\n";
+
+	private static final String SCAN_XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+			"<beans xmlns=\"http://www.springframework.org/schema/beans\"\n" +
+			"\txmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n" +
+			"\txmlns:context=\"http://www.springframework.org/schema/context\"\n" +
+			"\txsi:schemaLocation=\"http://www.springframework.org/schema/beans " +
+			"http://www.springframework.org/schema/beans/spring-beans-3.1.xsd " +
+			"http://www.springframework.org/schema/context " +
+			"http://www.springframework.org/schema/context/spring-context-3.1.xsd\">\n";
+
+	private File workDir;
+
+	private File snapshotDir;
+
+
+	@Before
+	public void setUp() throws IOException {
+		this.workDir = File.createTempFile("snapshot", "");
+		this.workDir.delete();
+		this.workDir.mkdirs();
+		this.snapshotDir = new File(this.workDir, "snapshots");
+		writeConfig("main.xml", "<import resource=\"imported.xml\"/>\n" +
+				"<bean id=\"tb\" class=\"test.beans.TestBean\"><property name=\"name\" value=\"main\"/></bean>\n" +
+				"<alias name=\"tb\" alias=\"tbAlias\"/>\n" +
+				"<bean id=\"pp\" class=\"" + AgeSettingPostProcessor.class.getName() + "\"/>\n");
+		writeConfig("imported.xml",
+				"<bean id=\"other\" class=\"test.beans.TestBean\"><property name=\"spouse\" ref=\"tb\"/></bean>\n");
+		AgeSettingPostProcessor.invocationCount = 0;
+		AgeSettingPostProcessor.contextAvailable = false;
+	}
+
+	@After
+	public void tearDown() {
+		AgeSettingPostProcessor.applicationContext = null;
+		ScanningXmlApplicationContext.extraResource = null;
+		FileSystemUtils.deleteRecursively(this.workDir);
+	}
+
+
+	@Test
+	public void snapshotWrittenAndUsed() {
+		FileSystemXmlApplicationContext ctx = createContext();
+		assertContextContent(ctx, "main");
+		assertEquals(1, AgeSettingPostProcessor.invocationCount);
+		assertFalse(ctx.containsBean("pp"));
+		assertEquals(1, this.snapshotDir.list().length);
+		ctx.close();
+
+		ctx = createContext();
+		assertContextContent(ctx, "main");
+		assertEquals(1, AgeSettingPostProcessor.invocationCount);
+		assertFalse(ctx.containsBean("pp"));
+		ctx.close();
+	}
+
+	@Test
+	public void postProcessorReceivesContextCallbacks() {
+		FileSystemXmlApplicationContext ctx = createContext();
+		assertTrue(AgeSettingPostProcessor.contextAvailable);
+		assertSame(ctx, AgeSettingPostProcessor.applicationContext);
+		ctx.close();
+	}
+
+	@Test
+	public void snapshotInvalidatedByChangedImport() throws IOException {
+		createContext().close();
+		writeConfig("imported.xml",
+				"<bean id=\"other\" class=\"test.beans.TestBean\"><property name=\"spouse\" ref=\"tb\"/>" +
+				"<property name=\"name\" value=\"changed\"/></bean>\n");
+
+		FileSystemXmlApplicationContext ctx = createContext();
+		assertContextContent(ctx, "main");
+		assertEquals("changed", ctx.getBean("other", TestBean.class).getName());
+		assertEquals(2, AgeSettingPostProcessor.invocationCount);
+		ctx.close();
+	}
+
+	@Test
+	public void snapshotInvalidatedByAddedWildcardImport() throws IOException {
+		writeConfig("main.xml", "<import resource=\"imported*.xml\"/>\n" +
+				"<bean id=\"tb\" class=\"test.beans.TestBean\"><property name=\"name\" value=\"main\"/></bean>\n" +
+				"<alias name=\"tb\" alias=\"tbAlias\"/>\n" +
+				"<bean id=\"pp\" class=\"" + AgeSettingPostProcessor.class.getName() + "\"/>\n");
+		createContext().close();
+		FileSystemXmlApplicationContext ctx = createContext();
+		assertContextContent(ctx, "main");
+		assertEquals(1, AgeSettingPostProcessor.invocationCount);
+		ctx.close();
+
+		writeConfig("imported2.xml", "<bean id=\"third\" class=\"test.beans.TestBean\"/>\n");
+		ctx = createContext();
+		assertContextContent(ctx, "main");
+		assertTrue(ctx.containsBean("third"));
+		assertEquals(2, AgeSettingPostProcessor.invocationCount);
+		ctx.close();
+	}
+
+	@Test
+	public void snapshotInvalidatedByAddedScannedClass() throws IOException {
+		FileCopyUtils.copy((SCAN_XML_HEADER + "<context:component-scan base-package=\"" +
+				SimpleComponent.class.getPackage().getName() + "\"/>\n" +
+				"<bean id=\"pp\" class=\"" + AgeSettingPostProcessor.class.getName() + "\"/>\n" +
+				"<bean id=\"tb\" class=\"test.beans.TestBean\"/>\n</beans>\n").getBytes("UTF-8"),
+				new File(this.workDir, "scan.xml"));
+		createScanningContext().close();
+		ScanningXmlApplicationContext ctx = createScanningContext();
+		assertEquals(1, AgeSettingPostProcessor.invocationCount);
+		assertEquals(1, ctx.getBeansOfType(SimpleComponent.class).size());
+		assertEquals(0, ctx.getBeansOfType(ExtraComponent.class).size());
+		ctx.close();
+
+		ScanningXmlApplicationContext.extraResource = new ClassPathResource(
+				ClassUtils.convertClassNameToResourcePath(ExtraComponent.class.getName()) + ClassUtils.CLASS_FILE_SUFFIX);
+		ctx = createScanningContext();
+		assertEquals(2, AgeSettingPostProcessor.invocationCount);
+		assertEquals(1, ctx.getBeansOfType(SimpleComponent.class).size());
+		assertEquals(1, ctx.getBeansOfType(ExtraComponent.class).size());
+		ctx.close();
+	}
+
+	@Test
+	public void snapshotInvalidatedByChangedComponentIndex() throws IOException {
+		File root = new File(this.workDir, "indexed");
+		copyClassFile(ExtraComponent.class, root);
+		copyClassFile(IndexedComponent.class, root);
+		writeComponentIndex(root, ExtraComponent.class);
+		FileCopyUtils.copy((SCAN_XML_HEADER + "<context:component-scan base-package=\"" +
+				getClass().getPackage().getName() + "\"/>\n" +
+				"<bean id=\"pp\" class=\"" + AgeSettingPostProcessor.class.getName() + "\"/>\n" +
+				"<bean id=\"tb\" class=\"test.beans.TestBean\"/>\n</beans>\n").getBytes("UTF-8"),
+				new File(this.workDir, "scan.xml"));
+		createIndexedContext(root).close();
+		FileSystemXmlApplicationContext ctx = createIndexedContext(root);
+		assertEquals(1, AgeSettingPostProcessor.invocationCount);
+		assertEquals(1, ctx.getBeansOfType(ExtraComponent.class).size());
+		assertEquals(0, ctx.getBeansOfType(IndexedComponent.class).size());
+		ctx.close();
+
+		writeComponentIndex(root, ExtraComponent.class, IndexedComponent.class);
+		ctx = createIndexedContext(root);
+		assertEquals(2, AgeSettingPostProcessor.invocationCount);
+		assertEquals(1, ctx.getBeansOfType(IndexedComponent.class).size());
+		ctx.close();
+
+		File classFile = new File(root, toClassFilePath(IndexedComponent.class));
+		classFile.setLastModified(classFile.lastModified() + 10000);
+		ctx = createIndexedContext(root);
+		assertEquals(3, AgeSettingPostProcessor.invocationCount);
+		assertEquals(1, ctx.getBeansOfType(IndexedComponent.class).size());
+		ctx.close();
+	}
+
+	@Test
+	public void corruptSnapshotIgnored() throws IOException {
+		createContext().close();
+		for (File snapshotFile : this.snapshotDir.listFiles()) {
+			FileCopyUtils.copy(new byte[] {1, 2, 3}, snapshotFile);
+		}
+		FileSystemXmlApplicationContext ctx = createContext();
+		assertContextContent(ctx, "main");
+		assertEquals(2, AgeSettingPostProcessor.invocationCount);
+		ctx.close();
+	}
+
+	@Test
+	public void snapshotPerActiveProfiles() {
+		createContext().close();
+		FileSystemXmlApplicationContext ctx = new FileSystemXmlApplicationContext();
+		ctx.setConfigLocation(new File(this.workDir, "main.xml").toURI().toString());
+		ctx.setBeanDefinitionSnapshotDirectory(this.snapshotDir);
+		ctx.getEnvironment().setActiveProfiles("dev");
+		ctx.refresh();
+		assertContextContent(ctx, "main");
+		assertEquals(2, this.snapshotDir.list().length);
+		ctx.close();
+	}
+
+
+	private FileSystemXmlApplicationContext createContext() {
+		FileSystemXmlApplicationContext ctx = new FileSystemXmlApplicationContext();
+		ctx.setConfigLocation(new File(this.workDir, "main.xml").toURI().toString());
+		ctx.setBeanDefinitionSnapshotDirectory(this.snapshotDir);
+		ctx.refresh();
+		return ctx;
+	}
+
+	private ScanningXmlApplicationContext createScanningContext() {
+		ScanningXmlApplicationContext ctx = new ScanningXmlApplicationContext();
+		ctx.setConfigLocation(new File(this.workDir, "scan.xml").toURI().toString());
+		ctx.setBeanDefinitionSnapshotDirectory(this.snapshotDir);
+		ctx.refresh();
+		return ctx;
+	}
+
+	private FileSystemXmlApplicationContext createIndexedContext(File root) {
+		FileSystemXmlApplicationContext ctx = new FileSystemXmlApplicationContext();
+		ctx.setConfigLocation(new File(this.workDir, "scan.xml").toURI().toString());
+		ctx.setBeanDefinitionSnapshotDirectory(this.snapshotDir);
+		// A new ClassLoader each time, since component indexes get cached per ClassLoader
+		ctx.setClassLoader(new IndexedRootClassLoader(root, getClass().getClassLoader()));
+		ctx.refresh();
+		return ctx;
+	}
+
+	private void copyClassFile(Class<?> clazz, File root) throws IOException {
+		File classFile = new File(root, toClassFilePath(clazz));
+		classFile.getParentFile().mkdirs();
+		FileCopyUtils.copy(new ClassPathResource(toClassFilePath(clazz)).getInputStream(), new FileOutputStream(classFile));
+	}
+
+	private void writeComponentIndex(File root, Class<?>... components) throws IOException {
+		StringBuilder index = new StringBuilder();
+		for (Class<?> component : components) {
+			index.append(component.getName()).append('=').append(Component.class.getName()).append('\n');
+		}
+		File indexFile = new File(root, CandidateComponentsIndexLoader.COMPONENTS_RESOURCE_LOCATION);
+		indexFile.getParentFile().mkdirs();
+		FileCopyUtils.copy(index.toString().getBytes("ISO-8859-1"), indexFile);
+	}
+
+	private String toClassFilePath(Class<?> clazz) {
+		return ClassUtils.convertClassNameToResourcePath(clazz.getName()) + ClassUtils.CLASS_FILE_SUFFIX;
+	}
+
+	private void assertContextContent(FileSystemXmlApplicationContext ctx, String name) {
+		TestBean tb = ctx.getBean("tb", TestBean.class);
+		assertEquals(name, tb.getName());
+		assertEquals(42, tb.getAge());
+		assertSame(tb, ctx.getBean("tbAlias"));
+		assertSame(tb, ctx.getBean("other", TestBean.class).getSpouse());
+	}
+
+	private void writeConfig(String fileName, String content) throws IOException {
+		FileCopyUtils.copy((XML_HEADER + content + "</beans>\n").getBytes("UTF-8"), new File(this.workDir, fileName));
+	}
+
+
+	public static class AgeSettingPostProcessor
+			implements SnapshotSafeBeanFactoryPostProcessor, ApplicationContextAware {
+
+		static int invocationCount;
+
+		static boolean contextAvailable;
+
+		static ApplicationContext applicationContext;
+
+		public void setApplicationContext(ApplicationContext applicationContext) {
+			AgeSettingPostProcessor.applicationContext = applicationContext;
+		}
+
+		public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+			invocationCount++;
+			contextAvailable = (applicationContext != null);
+			beanFactory.getBeanDefinition("tb").getPropertyValues().add("age", 42);
+		}
+	}
+
+
+	/**
+	 * Simulates a class file being added to the scanned package.
+	 */
+	private static class ScanningXmlApplicationContext extends FileSystemXmlApplicationContext {
+
+		static Resource extraResource;
+
+		@Override
+		public Resource[] getResources(String locationPattern) throws IOException {
+			Resource[] resources = super.getResources(locationPattern);
+			if (extraResource != null && locationPattern.endsWith("**/*.class")) {
+				List<Resource> result = new ArrayList<Resource>(Arrays.asList(resources));
+				result.add(extraResource);
+				resources = result.toArray(new Resource[result.size()]);
+			}
+			return resources;
+		}
+	}
+
+
+	/**
+	 * Exposes the given directory as the only classpath root for the resources that it contains,
+	 * e.g. a component index along with the class files of the components listed in it.
+	 */
+	private static class IndexedRootClassLoader extends ClassLoader {
+
+		private final File root;
+
+		public IndexedRootClassLoader(File root, ClassLoader parent) {
+			super(parent);
+			this.root = root;
+		}
+
+		@Override
+		public URL getResource(String name) {
+			File file = new File(this.root, name);
+			return (file.exists() ? toUrl(file) : super.getResource(name));
+		}
+
+		@Override
+		public Enumeration<URL> getResources(String name) throws IOException {
+			File file = new File(this.root, name);
+			return (file.exists() ? Collections.enumeration(Collections.singleton(toUrl(file))) : super.getResources(name));
+		}
+
+		private URL toUrl(File file) {
+			try {
+				return file.toURI().toURL();
+			}
+			catch (IOException ex) {
+				throw new IllegalStateException(ex);
+			}
+		}
+	}
+
+
+	@Component
+	public static class ExtraComponent {
+	}
+
+
+	@Component
+	public static class IndexedComponent {
+	}
+
+}
@@ -31,6 +31,7 @@ import java.util.TreeSet;
 import junit.framework.TestCase;
 
 import org.springframework.beans.BeanWithObjectProperty;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.DerivedTestBean;
 import org.springframework.beans.ITestBean;
 import org.springframework.beans.IndexedTestBean;
@@ -105,6 +106,30 @@ public class DataBinderTests extends TestCase {
 		assertTrue(rod.isJedi());
 	}
 
+	public void testBindingWithGeneratedAccessors() throws Exception {
+		TestBean rod = new TestBean(new TestBean());
+		DataBinder binder = new DataBinder(rod, "person");
+		binder.setUseGeneratedAccessors(true);
+		MutablePropertyValues pvs = new MutablePropertyValues();
+		pvs.add("name", "Rod");
+		pvs.add("age", "32x");
+		pvs.add("spouse.name", "Kerry");
+
+		binder.bind(pvs);
+
+		assertEquals("Rod", rod.getName());
+		assertEquals("Kerry", rod.getSpouse().getName());
+		assertTrue(binder.getBindingResult().hasFieldErrors("age"));
+		assertTrue(((BeanWrapperImpl) binder.getInternalBindingResult().getPropertyAccessor()).isUseGeneratedAccessors());
+		try {
+			binder.setUseGeneratedAccessors(false);
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+	}
+
 	public void testedNestedBindingWithDefaultConversionNoErrors() throws Exception {
 		TestBean rod = new TestBean(new TestBean());
 		DataBinder binder = new DataBinder(rod, "person");
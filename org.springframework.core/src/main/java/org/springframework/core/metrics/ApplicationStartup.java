@@ -0,0 +1,47 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics;
+
+/**
+ * Strategy interface for instrumenting the startup of an application with
+ * {@link StartupStep steps}, recording their timing and nesting.
+ *
+ * <p>The {@link #DEFAULT default implementation} does not record anything:
+ * it returns a shared no-op step, so that instrumented code paths incur
+ * close to no overhead unless a recording implementation is configured.
+ *
+ * @author agent
+ * @since 3.1
+ * @see RecordingApplicationStartup
+ */
+public interface ApplicationStartup {
+
+	/**
+	 * Default no-op ApplicationStartup implementation.
+	 */
+	ApplicationStartup DEFAULT = new DefaultApplicationStartup();
+
+
+	/**
+	 * Start a new step with the given name, nested within the step that
+	 * is currently active in the calling thread, if any.
+	 * @param name the name of the step, e.g. "spring.context.refresh"
+	 * @return the started step, to be ended by the caller
+	 */
+	StartupStep start(String name);
+
+}
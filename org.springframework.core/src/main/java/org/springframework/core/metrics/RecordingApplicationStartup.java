@@ -0,0 +1,421 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.util.Assert;
+
+/**
+ * {@link ApplicationStartup} implementation that records all steps in memory,
+ * including their nesting per thread, their tags and their timing.
+ *
+ * <p>Recorded steps can be written out in the "folded stacks" format understood
+ * by common flame graph tools, with each step as a frame labelled with its name
+ * and tags, and its self time in microseconds as sample count. This class also
+ * serves as a JMX MBean, summarizing the slowest beans: that is, the steps
+ * named {@link #setBeanStepName "spring.beans.instantiate"}, with the time
+ * spent in the creation of nested beans subtracted.
+ *
+ * <p>Recording stops once the {@link #setRefreshStepName refresh} of the application
+ * context has completed, so that beans created later on - e.g. prototypes or
+ * request-scoped beans - do not accumulate; another refresh resumes it. Beyond
+ * that, at most the {@link #setCapacity capacity} of most recently ended steps
+ * is kept.
+ *
+ * @author agent
+ * @since 3.1
+ * @see #writeFlameGraph(Writer)
+ * @see #getSlowestBeans()
+ */
+public class RecordingApplicationStartup implements ApplicationStartup, RecordingApplicationStartupMBean {
+
+	/** Default name of the steps that cover the creation of a bean */
+	public static final String DEFAULT_BEAN_STEP_NAME = "spring.beans.instantiate";
+
+	/** Default tag key for the bean name on bean creation steps */
+	public static final String DEFAULT_BEAN_NAME_TAG = "beanName";
+
+	/** Default name of the steps that cover the refresh of an application context */
+	public static final String DEFAULT_REFRESH_STEP_NAME = "spring.context.refresh";
+
+	/** Default maximum number of recorded steps: 10000 */
+	public static final int DEFAULT_CAPACITY = 10000;
+
+
+	private final AtomicLong idGenerator = new AtomicLong();
+
+	private final ThreadLocal<RecordedStep> currentStep = new ThreadLocal<RecordedStep>();
+
+	private volatile BlockingQueue<RecordedStep> recordedSteps = new ArrayBlockingQueue<RecordedStep>(DEFAULT_CAPACITY);
+
+	/** Number of refresh steps in progress, guarded by refreshMonitor */
+	private int activeRefreshCount;
+
+	private volatile boolean refreshCompleted;
+
+	private final Object refreshMonitor = new Object();
+
+	private String refreshStepName = DEFAULT_REFRESH_STEP_NAME;
+
+	private String beanStepName = DEFAULT_BEAN_STEP_NAME;
+
+	private String beanNameTag = DEFAULT_BEAN_NAME_TAG;
+
+	private int slowestBeanCount = 10;
+
+
+	/**
+	 * Set the maximum number of steps to keep. Default is 10000.
+	 * <p>Once reached, the oldest steps get discarded for newly ended ones.
+	 * Discards all steps recorded so far.
+	 */
+	public void setCapacity(int capacity) {
+		Assert.isTrue(capacity > 0, "Capacity must be greater than 0");
+		this.recordedSteps = new ArrayBlockingQueue<RecordedStep>(capacity);
+	}
+
+	/**
+	 * Set the name of the steps that cover the refresh of an application context.
+	 * Once all such steps have ended, no further steps get recorded until the
+	 * next refresh starts. Default is "spring.context.refresh".
+	 */
+	public void setRefreshStepName(String refreshStepName) {
+		Assert.notNull(refreshStepName, "Refresh step name must not be null");
+		this.refreshStepName = refreshStepName;
+	}
+
+	/**
+	 * Set the name of the steps that cover the creation of a bean,
+	 * as considered by {@link #getSlowestBeans()}.
+	 * Default is "spring.beans.instantiate".
+	 */
+	public void setBeanStepName(String beanStepName) {
+		Assert.notNull(beanStepName, "Bean step name must not be null");
+		this.beanStepName = beanStepName;
+	}
+
+	/**
+	 * Set the tag key for the bean name on bean creation steps.
+	 * Default is "beanName".
+	 */
+	public void setBeanNameTag(String beanNameTag) {
+		Assert.notNull(beanNameTag, "Bean name tag must not be null");
+		this.beanNameTag = beanNameTag;
+	}
+
+	/**
+	 * Set the number of entries to return from {@link #getSlowestBeans()}.
+	 * Default is 10.
+	 */
+	public void setSlowestBeanCount(int slowestBeanCount) {
+		this.slowestBeanCount = slowestBeanCount;
+	}
+
+
+	public StartupStep start(String name) {
+		boolean refresh = this.refreshStepName.equals(name);
+		if (refresh) {
+			synchronized (this.refreshMonitor) {
+				this.activeRefreshCount++;
+				this.refreshCompleted = false;
+			}
+		}
+		else if (this.refreshCompleted) {
+			return ApplicationStartup.DEFAULT.start(name);
+		}
+		RecordedStep parent = this.currentStep.get();
+		RecordedStep step = new RecordedStep(this.idGenerator.incrementAndGet(), name, parent, refresh);
+		this.currentStep.set(step);
+		return step;
+	}
+
+	/**
+	 * Return all steps that have ended so far, in the order of their end.
+	 */
+	public List<RecordedStep> getRecordedSteps() {
+		return new ArrayList<RecordedStep>(this.recordedSteps);
+	}
+
+	public int getStepCount() {
+		return this.recordedSteps.size();
+	}
+
+	public void clear() {
+		this.recordedSteps.clear();
+	}
+
+	public String[] getSlowestBeans() {
+		List<RecordedStep> steps = getRecordedSteps();
+		Map<Long, RecordedStep> beanSteps = new HashMap<Long, RecordedStep>();
+		for (RecordedStep step : steps) {
+			if (this.beanStepName.equals(step.getName())) {
+				beanSteps.put(step.getId(), step);
+			}
+		}
+		// Subtract the creation time of nested beans from the enclosing bean.
+		final Map<RecordedStep, Long> beanTimes = new HashMap<RecordedStep, Long>();
+		for (RecordedStep step : beanSteps.values()) {
+			beanTimes.put(step, step.getDuration());
+		}
+		for (RecordedStep step : beanSteps.values()) {
+			RecordedStep enclosing = step.parent;
+			while (enclosing != null && !beanSteps.containsKey(enclosing.getId())) {
+				enclosing = enclosing.parent;
+			}
+			if (enclosing != null) {
+				beanTimes.put(enclosing, beanTimes.get(enclosing) - step.getDuration());
+			}
+		}
+		List<RecordedStep> sorted = new ArrayList<RecordedStep>(beanSteps.values());
+		Collections.sort(sorted, new Comparator<RecordedStep>() {
+			public int compare(RecordedStep step1, RecordedStep step2) {
+				return beanTimes.get(step2).compareTo(beanTimes.get(step1));
+			}
+		});
+		int count = Math.min(this.slowestBeanCount, sorted.size());
+		String[] result = new String[count];
+		for (int i = 0; i < count; i++) {
+			RecordedStep step = sorted.get(i);
+			result[i] = step.getTags().get(this.beanNameTag) + ": " + formatMillis(beanTimes.get(step)) +
+					" ms (" + formatMillis(step.getDuration()) + " ms including dependencies)";
+		}
+		return result;
+	}
+
+	private static String formatMillis(long nanos) {
+		long micros = nanos / 1000;
+		StringBuilder sb = new StringBuilder().append(micros / 1000).append('.');
+		long fraction = micros % 1000;
+		if (fraction < 100) {
+			sb.append('0');
+		}
+		if (fraction < 10) {
+			sb.append('0');
+		}
+		return sb.append(fraction).toString();
+	}
+
+	/**
+	 * Write all recorded steps to the given Writer, in the "folded stacks"
+	 * format of flame graph tools: one line per distinct stack of nested steps,
+	 * followed by the self time spent in that stack, in microseconds.
+	 * <p>Does not close the Writer.
+	 * @param writer the Writer to write to
+	 * @throws IOException in case of I/O errors
+	 */
+	public void writeFlameGraph(Writer writer) throws IOException {
+		Map<String, Long> stacks = new LinkedHashMap<String, Long>();
+		for (RecordedStep step : this.recordedSteps) {
+			String stack = step.getStack();
+			Long time = stacks.get(stack);
+			stacks.put(stack, (time != null ? time : 0) + step.getSelfTime() / 1000);
+		}
+		for (Map.Entry<String, Long> entry : stacks.entrySet()) {
+			if (entry.getValue() > 0) {
+				writer.write(entry.getKey() + " " + entry.getValue() + "\n");
+			}
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Write all recorded steps to the given file, in the "folded stacks"
+	 * format of flame graph tools.
+	 * @param file the file to write to
+	 * @throws IOException in case of I/O errors
+	 * @see #writeFlameGraph(Writer)
+	 */
+	public void writeFlameGraph(File file) throws IOException {
+		Writer writer = new FileWriter(file);
+		try {
+			writeFlameGraph(writer);
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+
+	/**
+	 * A step recorded by a RecordingApplicationStartup.
+	 */
+	public class RecordedStep implements StartupStep {
+
+		private final long id;
+
+		private final String name;
+
+		private final RecordedStep parent;
+
+		private final boolean refresh;
+
+		private final Map<String, String> tags = new LinkedHashMap<String, String>(4);
+
+		private final long startTime;
+
+		private volatile long endTime;
+
+		private volatile boolean ended;
+
+		private final AtomicLong childTime = new AtomicLong();
+
+		private String stack;
+
+		private RecordedStep(long id, String name, RecordedStep parent, boolean refresh) {
+			this.id = id;
+			this.name = name;
+			this.parent = parent;
+			this.refresh = refresh;
+			this.startTime = System.nanoTime();
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public long getId() {
+			return this.id;
+		}
+
+		public Long getParentId() {
+			return (this.parent != null ? this.parent.getId() : null);
+		}
+
+		public StartupStep tag(String key, String value) {
+			synchronized (this.tags) {
+				this.tags.put(key, value);
+			}
+			return this;
+		}
+
+		/**
+		 * Return the tags attached to this step.
+		 */
+		public Map<String, String> getTags() {
+			synchronized (this.tags) {
+				return new LinkedHashMap<String, String>(this.tags);
+			}
+		}
+
+		public void end() {
+			if (this.ended) {
+				return;
+			}
+			this.endTime = System.nanoTime();
+			this.ended = true;
+			if (this.parent != null) {
+				this.parent.childTime.addAndGet(getDuration());
+			}
+			this.stack = buildStack();
+			// Also pops nested steps that have not been ended, e.g. after an exception.
+			RecordedStep current = currentStep.get();
+			while (current != null && current != this) {
+				current = current.parent;
+			}
+			if (current != null) {
+				if (this.parent != null) {
+					currentStep.set(this.parent);
+				}
+				else {
+					currentStep.remove();
+				}
+			}
+			BlockingQueue<RecordedStep> steps = recordedSteps;
+			while (!steps.offer(this)) {
+				steps.poll();
+			}
+			if (this.refresh) {
+				synchronized (refreshMonitor) {
+					activeRefreshCount--;
+					refreshCompleted = (activeRefreshCount == 0);
+				}
+			}
+		}
+
+		/**
+		 * Return the time of the start of this step, as returned by {@link System#nanoTime()}.
+		 */
+		public long getStartTime() {
+			return this.startTime;
+		}
+
+		/**
+		 * Return the duration of this step in nanoseconds, including nested steps.
+		 */
+		public long getDuration() {
+			return this.endTime - this.startTime;
+		}
+
+		/**
+		 * Return the duration of this step in nanoseconds, excluding nested steps.
+		 */
+		public long getSelfTime() {
+			return Math.max(getDuration() - this.childTime.get(), 0);
+		}
+
+		/**
+		 * Return the stack of frames for this step and its parents, separated by ';'.
+		 */
+		public String getStack() {
+			return this.stack;
+		}
+
+		private String buildStack() {
+			StringBuilder sb = new StringBuilder(getFrame());
+			for (RecordedStep step = this.parent; step != null; step = step.parent) {
+				sb.insert(0, ';').insert(0, step.getFrame());
+			}
+			return sb.toString();
+		}
+
+		private String getFrame() {
+			StringBuilder sb = new StringBuilder(this.name);
+			Map<String, String> tags = getTags();
+			if (!tags.isEmpty()) {
+				sb.append('(');
+				for (Map.Entry<String, String> entry : tags.entrySet()) {
+					if (sb.charAt(sb.length() - 1) != '(') {
+						sb.append(',');
+					}
+					sb.append(entry.getKey()).append('=').append(entry.getValue());
+				}
+				sb.append(')');
+			}
+			return sb.toString().replace(';', ',');
+		}
+
+		@Override
+		public String toString() {
+			return getFrame() + " [" + formatMillis(getDuration()) + " ms]";
+		}
+	}
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics;
+
+/**
+ * JMX management interface for a {@link RecordingApplicationStartup},
+ * following the standard MBean naming convention.
+ *
+ * @author agent
+ * @since 3.1
+ */
+public interface RecordingApplicationStartupMBean {
+
+	/**
+	 * Return the number of steps recorded so far.
+	 */
+	int getStepCount();
+
+	/**
+	 * Return a summary of the slowest beans, each entry consisting of
+	 * the bean name and its creation time in milliseconds.
+	 */
+	String[] getSlowestBeans();
+
+	/**
+	 * Discard all recorded steps.
+	 */
+	void clear();
+
+}
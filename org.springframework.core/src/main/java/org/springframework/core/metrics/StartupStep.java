@@ -0,0 +1,62 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics;
+
+/**
+ * A step of the application startup, started through an {@link ApplicationStartup}
+ * and covering the time until {@link #end()} is called.
+ *
+ * <p>Steps started while another step is active in the same thread are nested
+ * within that step, as indicated by their {@link #getParentId() parent id}.
+ * Tags attach further information such as the name of the bean being created.
+ *
+ * @author agent
+ * @since 3.1
+ * @see ApplicationStartup#start
+ */
+public interface StartupStep {
+
+	/**
+	 * Return the name of this step, e.g. "spring.beans.instantiate".
+	 */
+	String getName();
+
+	/**
+	 * Return the unique id of this step within the application startup.
+	 */
+	long getId();
+
+	/**
+	 * Return the id of the step that this step is nested in, if any.
+	 * @return the parent step id, or <code>null</code> for a top-level step
+	 */
+	Long getParentId();
+
+	/**
+	 * Attach the given tag to this step.
+	 * @param key the tag key
+	 * @param value the tag value
+	 * @return this step, for call chaining
+	 */
+	StartupStep tag(String key, String value);
+
+	/**
+	 * Mark the end of this step.
+	 */
+	void end();
+
+}
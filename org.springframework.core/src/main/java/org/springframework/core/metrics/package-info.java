@@ -0,0 +1,9 @@
+
+/**
+ *
+ * Support for recording the timing of steps in the startup of an application,
+ * such as the phases of an application context refresh and the creation of beans.
+ *
+ */
+package org.springframework.core.metrics;
+
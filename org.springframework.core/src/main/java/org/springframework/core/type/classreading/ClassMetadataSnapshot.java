@@ -0,0 +1,296 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.core.type.classreading;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.springframework.asm.AnnotationVisitor;
+import org.springframework.asm.Attribute;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.FieldVisitor;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Type;
+import org.springframework.asm.commons.EmptyVisitor;
+
+/**
+ * ASM class visitor which records the subset of a class file that is relevant
+ * for {@link org.springframework.core.type.AnnotationMetadata} introspection:
+ * the class header, enclosing and inner class information as well as the
+ * annotations declared on the class and on its methods.
+ *
+ * <p>A recorded snapshot does not hold on to any {@link ClassLoader} and can
+ * therefore be shared across class loaders and serialized. It gets replayed
+ * into a fresh {@link AnnotationMetadataReadingVisitor} for each class loader,
+ * avoiding the need to parse the class file again.
+ *
+ * @author agent
+ * @since 3.1
+ * @see SharedMetadataReaderFactory
+ */
+final class ClassMetadataSnapshot implements ClassVisitor, Serializable {
+
+	private int version;
+
+	private int access;
+
+	private String name;
+
+	private String superName;
+
+	private String[] interfaces;
+
+	private String[] outerClass;
+
+	private final List<InnerClassRecord> innerClasses = new ArrayList<InnerClassRecord>(4);
+
+	private final List<AnnotationRecord> annotations = new ArrayList<AnnotationRecord>(4);
+
+	private final List<MethodRecord> methods = new ArrayList<MethodRecord>();
+
+
+	public void visit(int version, int access, String name, String signature, String supername, String[] interfaces) {
+		this.version = version;
+		this.access = access;
+		this.name = name;
+		this.superName = supername;
+		this.interfaces = interfaces;
+	}
+
+	public void visitSource(String source, String debug) {
+		// no-op
+	}
+
+	public void visitOuterClass(String owner, String name, String desc) {
+		this.outerClass = new String[] {owner, name, desc};
+	}
+
+	public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+		AnnotationRecord annotation = new AnnotationRecord(desc, visible);
+		this.annotations.add(annotation);
+		return annotation;
+	}
+
+	public void visitAttribute(Attribute attr) {
+		// no-op
+	}
+
+	public void visitInnerClass(String name, String outerName, String innerName, int access) {
+		this.innerClasses.add(new InnerClassRecord(name, outerName, innerName, access));
+	}
+
+	public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+		return new EmptyVisitor();
+	}
+
+	public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+		MethodRecord method = new MethodRecord(access, name, desc);
+		this.methods.add(method);
+		return method;
+	}
+
+	public void visitEnd() {
+		// Only annotated methods are of interest for metadata introspection.
+		for (Iterator<MethodRecord> it = this.methods.iterator(); it.hasNext();) {
+			if (it.next().annotations.isEmpty()) {
+				it.remove();
+			}
+		}
+	}
+
+
+	/**
+	 * Replay the recorded class structure into the given visitor,
+	 * in the same order that a {@link org.springframework.asm.ClassReader} would use.
+	 * @param visitor the visitor to replay into
+	 */
+	public void accept(ClassVisitor visitor) {
+		visitor.visit(this.version, this.access, this.name, null, this.superName, this.interfaces);
+		if (this.outerClass != null) {
+			visitor.visitOuterClass(this.outerClass[0], this.outerClass[1], this.outerClass[2]);
+		}
+		for (AnnotationRecord annotation : this.annotations) {
+			annotation.accept(visitor.visitAnnotation(annotation.desc, annotation.visible));
+		}
+		for (InnerClassRecord innerClass : this.innerClasses) {
+			visitor.visitInnerClass(innerClass.name, innerClass.outerName, innerClass.innerName, innerClass.access);
+		}
+		for (MethodRecord method : this.methods) {
+			MethodVisitor mv = visitor.visitMethod(method.access, method.name, method.desc, null, null);
+			if (mv != null) {
+				for (AnnotationRecord annotation : method.annotations) {
+					annotation.accept(mv.visitAnnotation(annotation.desc, annotation.visible));
+				}
+				mv.visitEnd();
+			}
+		}
+		visitor.visitEnd();
+	}
+
+
+	/**
+	 * Recorded inner class attribute.
+	 */
+	private static class InnerClassRecord implements Serializable {
+
+		private final String name;
+
+		private final String outerName;
+
+		private final String innerName;
+
+		private final int access;
+
+		public InnerClassRecord(String name, String outerName, String innerName, int access) {
+			this.name = name;
+			this.outerName = outerName;
+			this.innerName = innerName;
+			this.access = access;
+		}
+	}
+
+
+	/**
+	 * Recorded method, keeping the annotations declared on it.
+	 */
+	private static class MethodRecord extends EmptyVisitor implements Serializable {
+
+		private final int access;
+
+		private final String name;
+
+		private final String desc;
+
+		private final List<AnnotationRecord> annotations = new ArrayList<AnnotationRecord>(2);
+
+		public MethodRecord(int access, String name, String desc) {
+			this.access = access;
+			this.name = name;
+			this.desc = desc;
+		}
+
+		@Override
+		public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+			AnnotationRecord annotation = new AnnotationRecord(desc, visible);
+			this.annotations.add(annotation);
+			return annotation;
+		}
+	}
+
+
+	/**
+	 * Recorded annotation (or annotation array value), keeping its attribute
+	 * values in declaration order. Class references are kept as type descriptors.
+	 */
+	private static class AnnotationRecord implements AnnotationVisitor, Serializable {
+
+		private static final int VALUE = 0;
+
+		private static final int ENUM = 1;
+
+		private static final int ANNOTATION = 2;
+
+		private static final int ARRAY = 3;
+
+		private final String desc;
+
+		private final boolean visible;
+
+		private final List<Object[]> values = new ArrayList<Object[]>(4);
+
+		public AnnotationRecord(String desc, boolean visible) {
+			this.desc = desc;
+			this.visible = visible;
+		}
+
+		public void visit(String name, Object value) {
+			Object valueToStore = value;
+			if (value instanceof Type) {
+				valueToStore = new TypeReference(((Type) value).getDescriptor());
+			}
+			this.values.add(new Object[] {VALUE, name, valueToStore});
+		}
+
+		public void visitEnum(String name, String desc, String value) {
+			this.values.add(new Object[] {ENUM, name, new String[] {desc, value}});
+		}
+
+		public AnnotationVisitor visitAnnotation(String name, String desc) {
+			AnnotationRecord annotation = new AnnotationRecord(desc, true);
+			this.values.add(new Object[] {ANNOTATION, name, annotation});
+			return annotation;
+		}
+
+		public AnnotationVisitor visitArray(String name) {
+			AnnotationRecord array = new AnnotationRecord(null, true);
+			this.values.add(new Object[] {ARRAY, name, array});
+			return array;
+		}
+
+		public void visitEnd() {
+			// no-op
+		}
+
+		public void accept(AnnotationVisitor visitor) {
+			if (visitor == null) {
+				return;
+			}
+			for (Object[] entry : this.values) {
+				int kind = (Integer) entry[0];
+				String name = (String) entry[1];
+				Object value = entry[2];
+				switch (kind) {
+					case VALUE:
+						if (value instanceof TypeReference) {
+							value = Type.getType(((TypeReference) value).descriptor);
+						}
+						visitor.visit(name, value);
+						break;
+					case ENUM:
+						String[] enumValue = (String[]) value;
+						visitor.visitEnum(name, enumValue[0], enumValue[1]);
+						break;
+					case ANNOTATION:
+						AnnotationRecord annotation = (AnnotationRecord) value;
+						annotation.accept(visitor.visitAnnotation(name, annotation.desc));
+						break;
+					case ARRAY:
+						((AnnotationRecord) value).accept(visitor.visitArray(name));
+						break;
+				}
+			}
+			visitor.visitEnd();
+		}
+	}
+
+
+	/**
+	 * Serializable stand-in for an ASM {@link Type} attribute value.
+	 */
+	private static class TypeReference implements Serializable {
+
+		private final String descriptor;
+
+		public TypeReference(String descriptor) {
+			this.descriptor = descriptor;
+		}
+	}
+
+}
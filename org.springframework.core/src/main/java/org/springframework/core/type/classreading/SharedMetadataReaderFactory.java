@@ -0,0 +1,294 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.core.type.classreading;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.ClassReader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+/**
+ * {@link MetadataReaderFactory} implementation that shares parsed class metadata
+ * across all factory instances for the same ClassLoader, keyed by the URL of the
+ * ".class" resource and its last-modified timestamp. Each class file is parsed
+ * only once, even if many application contexts (e.g. a root context plus several
+ * DispatcherServlet contexts, or the contexts of a test suite) scan it.
+ *
+ * <p>The shared caches are held per ClassLoader, with the ClassLoader referenced
+ * weakly: once an application's ClassLoader is discarded, e.g. on redeployment,
+ * the metadata of the classes scanned through it becomes eligible for garbage
+ * collection as well. {@link #clearCache(ClassLoader)} releases the metadata
+ * for a ClassLoader explicitly.
+ *
+ * <p>The shared cache holds class loader independent snapshots of the
+ * annotation-relevant parts of each class file. Every MetadataReader returned
+ * is built from such a snapshot for this factory's ClassLoader, so annotation
+ * attribute values still get resolved against the ClassLoader in use.
+ * Resources which cannot be resolved to a URL are parsed without sharing.
+ *
+ * <p>The shared cache for a ClassLoader can be written to a snapshot file via
+ * {@link #saveSnapshot} and restored on a subsequent startup via {@link #loadSnapshot}, skipping
+ * bytecode parsing for all classes that have not been modified in the meantime.
+ * Note that snapshot files use Java serialization: only load snapshot files
+ * written by a trusted process.
+ *
+ * @author agent
+ * @since 3.1
+ * @see CachingMetadataReaderFactory
+ */
+public class SharedMetadataReaderFactory extends SimpleMetadataReaderFactory {
+
+	private static final int SNAPSHOT_FORMAT_VERSION = 1;
+
+	private static final Log logger = LogFactory.getLog(SharedMetadataReaderFactory.class);
+
+	/** Shared caches keyed by ClassLoader: ClassLoader --> (class file URL --> SharedEntry) */
+	private static final Map<ClassLoader, Map<String, SharedEntry>> sharedCaches =
+			new WeakHashMap<ClassLoader, Map<String, SharedEntry>>();
+
+
+	private final Map<String, SharedEntry> sharedCache;
+
+
+	/**
+	 * Create a new SharedMetadataReaderFactory for the default class loader.
+	 */
+	public SharedMetadataReaderFactory() {
+		super();
+		this.sharedCache = getSharedCache(getResourceLoader().getClassLoader());
+	}
+
+	/**
+	 * Create a new SharedMetadataReaderFactory for the given resource loader.
+	 * @param resourceLoader the Spring ResourceLoader to use
+	 * (also determines the ClassLoader to use)
+	 */
+	public SharedMetadataReaderFactory(ResourceLoader resourceLoader) {
+		super(resourceLoader);
+		this.sharedCache = getSharedCache(getResourceLoader().getClassLoader());
+	}
+
+	/**
+	 * Create a new SharedMetadataReaderFactory for the given class loader.
+	 * @param classLoader the ClassLoader to use
+	 */
+	public SharedMetadataReaderFactory(ClassLoader classLoader) {
+		super(classLoader);
+		this.sharedCache = getSharedCache(getResourceLoader().getClassLoader());
+	}
+
+
+	@Override
+	public MetadataReader getMetadataReader(Resource resource) throws IOException {
+		String key;
+		long lastModified;
+		try {
+			key = resource.getURL().toExternalForm();
+			lastModified = resource.lastModified();
+		}
+		catch (IOException ex) {
+			// Not resolvable to a URL with a timestamp -> cannot safely share.
+			return super.getMetadataReader(resource);
+		}
+		SharedEntry entry = this.sharedCache.get(key);
+		if (entry == null || entry.lastModified != lastModified) {
+			entry = new SharedEntry(lastModified, readSnapshot(resource));
+			this.sharedCache.put(key, entry);
+		}
+		return new SimpleMetadataReader(resource, getResourceLoader().getClassLoader(), entry.snapshot);
+	}
+
+	private ClassMetadataSnapshot readSnapshot(Resource resource) throws IOException {
+		InputStream is = resource.getInputStream();
+		ClassReader classReader;
+		try {
+			classReader = new ClassReader(is);
+		}
+		finally {
+			is.close();
+		}
+		ClassMetadataSnapshot snapshot = new ClassMetadataSnapshot();
+		classReader.accept(snapshot, true);
+		return snapshot;
+	}
+
+
+	/**
+	 * Return the shared cache for the given ClassLoader, creating it if necessary.
+	 */
+	private static Map<String, SharedEntry> getSharedCache(ClassLoader classLoader) {
+		synchronized (sharedCaches) {
+			Map<String, SharedEntry> sharedCache = sharedCaches.get(classLoader);
+			if (sharedCache == null) {
+				sharedCache = new ConcurrentHashMap<String, SharedEntry>(256);
+				sharedCaches.put(classLoader, sharedCache);
+			}
+			return sharedCache;
+		}
+	}
+
+	/**
+	 * Return the number of class files currently held in the shared cache
+	 * for the given ClassLoader.
+	 * @param classLoader the ClassLoader to check
+	 */
+	public static int getCacheSize(ClassLoader classLoader) {
+		synchronized (sharedCaches) {
+			Map<String, SharedEntry> sharedCache = sharedCaches.get(classLoader);
+			return (sharedCache != null ? sharedCache.size() : 0);
+		}
+	}
+
+	/**
+	 * Clear the shared cache for the given ClassLoader, forcing its class files
+	 * to be parsed again.
+	 * @param classLoader the ClassLoader to clear the cache for
+	 */
+	public static void clearCache(ClassLoader classLoader) {
+		synchronized (sharedCaches) {
+			Map<String, SharedEntry> sharedCache = sharedCaches.get(classLoader);
+			if (sharedCache != null) {
+				sharedCache.clear();
+			}
+		}
+	}
+
+	/**
+	 * Clear the shared caches for all ClassLoaders, forcing all class files
+	 * to be parsed again.
+	 */
+	public static void clearCache() {
+		synchronized (sharedCaches) {
+			for (Map<String, SharedEntry> sharedCache : sharedCaches.values()) {
+				sharedCache.clear();
+			}
+		}
+	}
+
+	/**
+	 * Populate the shared cache for the given ClassLoader from the given snapshot file, as previously
+	 * written by {@link #saveSnapshot}. Entries are only used for class files
+	 * whose last-modified timestamp still matches; entries that are already
+	 * present in the shared cache take precedence.
+	 * <p>A non-existent or unreadable snapshot file will simply be ignored,
+	 * since the snapshot is an optimization only.
+	 * @param snapshotFile the snapshot file to read
+	 * @param classLoader the ClassLoader that the class files get scanned through
+	 * @return the number of entries read from the snapshot file
+	 */
+	@SuppressWarnings("unchecked")
+	public static int loadSnapshot(File snapshotFile, ClassLoader classLoader) {
+		if (!snapshotFile.isFile()) {
+			return 0;
+		}
+		try {
+			ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)));
+			try {
+				if (ois.readInt() != SNAPSHOT_FORMAT_VERSION) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Ignoring metadata snapshot file [" + snapshotFile + "] with unsupported format");
+					}
+					return 0;
+				}
+				Map<String, SharedEntry> entries = (Map<String, SharedEntry>) ois.readObject();
+				Map<String, SharedEntry> sharedCache = getSharedCache(classLoader);
+				for (Map.Entry<String, SharedEntry> entry : entries.entrySet()) {
+					if (!sharedCache.containsKey(entry.getKey())) {
+						sharedCache.put(entry.getKey(), entry.getValue());
+					}
+				}
+				if (logger.isDebugEnabled()) {
+					logger.debug("Loaded " + entries.size() + " class metadata entries from snapshot file [" +
+							snapshotFile + "]");
+				}
+				return entries.size();
+			}
+			finally {
+				ois.close();
+			}
+		}
+		catch (Exception ex) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("Could not read metadata snapshot file [" + snapshotFile + "] - ignoring it", ex);
+			}
+			return 0;
+		}
+	}
+
+	/**
+	 * Write the current content of the shared cache for the given ClassLoader to the
+	 * given snapshot file, for use with {@link #loadSnapshot} on a subsequent startup.
+	 * <p>The file gets written to a temporary file next to it first and then
+	 * renamed, so that a concurrently starting process never sees a partial file.
+	 * @param snapshotFile the snapshot file to write
+	 * @param classLoader the ClassLoader that the class files got scanned through
+	 * @throws IOException if the snapshot file could not be written
+	 */
+	public static void saveSnapshot(File snapshotFile, ClassLoader classLoader) throws IOException {
+		File tempFile = new File(snapshotFile.getPath() + ".tmp");
+		ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+		try {
+			oos.writeInt(SNAPSHOT_FORMAT_VERSION);
+			oos.writeObject(new HashMap<String, SharedEntry>(getSharedCache(classLoader)));
+		}
+		finally {
+			oos.close();
+		}
+		if (!tempFile.renameTo(snapshotFile)) {
+			snapshotFile.delete();
+			if (!tempFile.renameTo(snapshotFile)) {
+				tempFile.delete();
+				throw new IOException("Could not rename [" + tempFile + "] to [" + snapshotFile + "]");
+			}
+		}
+	}
+
+
+	/**
+	 * Shared cache entry: a class metadata snapshot for a specific last-modified timestamp.
+	 */
+	private static class SharedEntry implements Serializable {
+
+		private final long lastModified;
+
+		private final ClassMetadataSnapshot snapshot;
+
+		public SharedEntry(long lastModified, ClassMetadataSnapshot snapshot) {
+			this.lastModified = lastModified;
+			this.snapshot = snapshot;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2009 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -59,6 +59,15 @@ final class SimpleMetadataReader implements MetadataReader {
 		this.resource = resource;
 	}
 
+	SimpleMetadataReader(Resource resource, ClassLoader classLoader, ClassMetadataSnapshot snapshot) {
+		AnnotationMetadataReadingVisitor visitor = new AnnotationMetadataReadingVisitor(classLoader);
+		snapshot.accept(visitor);
+
+		this.annotationMetadata = visitor;
+		this.classMetadata = visitor;
+		this.resource = resource;
+	}
+
 	public Resource getResource() {
 		return this.resource;
 	}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2009 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,19 +16,23 @@
 
 package org.springframework.util;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * Package-protected helper class for {@link AntPathMatcher}. Tests whether or not a string matches against a pattern
- * via a {@link Pattern}.
+ * Package-protected helper class for {@link AntPathMatcher}. Tests whether or not a string matches against a pattern.
  *
  * <p>The pattern may contain special characters: '*' means zero or more characters; '?' means one and only one
  * character; '{' and '}' indicate a URI template pattern. For example <tt>/users/{user}</tt>.
  *
+ * <p>Instances are immutable and thread-safe, so that they can be cached and reused for any number of
+ * {@link #matchStrings} calls. Segments consisting of literal text, '*' and '?' only, as well as segments
+ * consisting of a single URI template variable without a custom regex, are matched directly without
+ * creating a {@link Pattern}. All other segments are compiled into a {@link Pattern} once, on construction.
+ *
  * @author Arjen Poutsma
  * @author Rossen Stoyanchev
  * @since 3.0
@@ -39,19 +43,46 @@ class AntPathStringMatcher {
 
 	private static final String DEFAULT_VARIABLE_PATTERN = "(.*)";
 
+	private final String rawPattern;
+
 	private final Pattern pattern;
 
-	private String str;
+	private final String variableName;
 
-	private final List<String> variableNames = new LinkedList<String>();
+	private final List<String> variableNames = new ArrayList<String>();
 
-	private final Map<String, String> uriTemplateVariables;
 
-	/** Construct a new instance of the <code>AntPatchStringMatcher</code>. */
-	AntPathStringMatcher(String pattern, String str, Map<String, String> uriTemplateVariables) {
-		this.str = str;
-		this.uriTemplateVariables = uriTemplateVariables;
-		this.pattern = createPattern(pattern);
+	/** Construct a new instance of the <code>AntPathStringMatcher</code>. */
+	AntPathStringMatcher(String pattern) {
+		this.rawPattern = pattern;
+		if (pattern.indexOf('{') == -1) {
+			// plain glob: literal text, '*' and '?' only
+			this.pattern = null;
+			this.variableName = null;
+		}
+		else if (isSingleVariable(pattern)) {
+			this.pattern = null;
+			this.variableName = pattern.substring(1, pattern.length() - 1);
+			this.variableNames.add(this.variableName);
+		}
+		else {
+			this.pattern = createPattern(pattern);
+			this.variableName = null;
+		}
+	}
+
+	private static boolean isSingleVariable(String pattern) {
+		int length = pattern.length();
+		if (length < 3 || pattern.charAt(0) != '{' || pattern.charAt(length - 1) != '}') {
+			return false;
+		}
+		for (int i = 1; i < length - 1; i++) {
+			char c = pattern.charAt(i);
+			if (c == '{' || c == '}' || c == ':' || c == '/' || c == '\\') {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	private Pattern createPattern(String pattern) {
@@ -71,7 +102,7 @@ class AntPathStringMatcher {
 				int colonIdx = match.indexOf(':');
 				if (colonIdx == -1) {
 					patternBuilder.append(DEFAULT_VARIABLE_PATTERN);
-					variableNames.add(m.group(1));
+					this.variableNames.add(m.group(1));
 				}
 				else {
 					String variablePattern = match.substring(colonIdx + 1, match.length() - 1);
@@ -79,7 +110,7 @@ class AntPathStringMatcher {
 					patternBuilder.append(variablePattern);
 					patternBuilder.append(')');
 					String variableName = match.substring(1, colonIdx);
-					variableNames.add(variableName);
+					this.variableNames.add(variableName);
 				}
 			}
 			end = m.end();
@@ -97,17 +128,30 @@ class AntPathStringMatcher {
 
 	/**
 	 * Main entry point.
-	 *
+	 * @param str the string to match against the pattern
+	 * @param uriTemplateVariables a map to add extracted URI template variables to (may be <code>null</code>)
 	 * @return <code>true</code> if the string matches against the pattern, or <code>false</code> otherwise.
 	 */
-	public boolean matchStrings() {
-		Matcher matcher = pattern.matcher(str);
+	public boolean matchStrings(String str, Map<String, String> uriTemplateVariables) {
+		if (this.pattern == null) {
+			if (this.variableName != null) {
+				if (containsLineTerminator(str)) {
+					return false;
+				}
+				if (uriTemplateVariables != null) {
+					uriTemplateVariables.put(this.variableName, str);
+				}
+				return true;
+			}
+			return matchGlob(this.rawPattern, str);
+		}
+		Matcher matcher = this.pattern.matcher(str);
 		if (matcher.matches()) {
 			if (uriTemplateVariables != null) {
 				// SPR-8455
-				Assert.isTrue(variableNames.size() == matcher.groupCount(), 
-						"The number of capturing groups in the pattern segment " + pattern + 
-						" does not match the number of URI template variables it defines, which can occur if " + 
+				Assert.isTrue(this.variableNames.size() == matcher.groupCount(),
+						"The number of capturing groups in the pattern segment " + this.pattern +
+						" does not match the number of URI template variables it defines, which can occur if " +
 						" capturing groups are used in a URI template regex. Use non-capturing groups instead.");
 				for (int i = 1; i <= matcher.groupCount(); i++) {
 					String name = this.variableNames.get(i - 1);
@@ -122,4 +166,65 @@ class AntPathStringMatcher {
 		}
 	}
 
+	/**
+	 * Match the given string against a pattern that only contains literal text, '*' and '?'.
+	 * <p>Mirrors the semantics of the equivalent regular expression: '?' corresponds to '.'
+	 * and '*' to '.*', neither of which matches line terminators.
+	 */
+	private static boolean matchGlob(String pattern, String str) {
+		int patLength = pattern.length();
+		int strLength = str.length();
+		int patIdx = 0;
+		int strIdx = 0;
+		int starIdx = -1;
+		int starMatchIdx = 0;
+		while (strIdx < strLength) {
+			if (patIdx < patLength) {
+				char patChar = pattern.charAt(patIdx);
+				if (patChar == '*') {
+					starIdx = patIdx++;
+					starMatchIdx = strIdx;
+					continue;
+				}
+				if (patChar == '?') {
+					if (!isLineTerminator(str.charAt(strIdx))) {
+						strIdx += Character.charCount(str.codePointAt(strIdx));
+						patIdx++;
+						continue;
+					}
+				}
+				else if (patChar == str.charAt(strIdx)) {
+					strIdx++;
+					patIdx++;
+					continue;
+				}
+			}
+			if (starIdx != -1 && !isLineTerminator(str.charAt(starMatchIdx))) {
+				// let the last '*' consume one more character and retry from there
+				starMatchIdx += Character.charCount(str.codePointAt(starMatchIdx));
+				strIdx = starMatchIdx;
+				patIdx = starIdx + 1;
+				continue;
+			}
+			return false;
+		}
+		while (patIdx < patLength && pattern.charAt(patIdx) == '*') {
+			patIdx++;
+		}
+		return (patIdx == patLength);
+	}
+
+	private static boolean containsLineTerminator(String str) {
+		for (int i = 0; i < str.length(); i++) {
+			if (isLineTerminator(str.charAt(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isLineTerminator(char c) {
+		return (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029');
+	}
+
 }
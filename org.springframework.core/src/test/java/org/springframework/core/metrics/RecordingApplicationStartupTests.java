@@ -0,0 +1,144 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link RecordingApplicationStartup}.
+ *
+ * @author agent
+ */
+public final class RecordingApplicationStartupTests {
+
+	@Test
+	public void defaultStartupRecordsNothing() {
+		StartupStep step = ApplicationStartup.DEFAULT.start("step");
+		assertSame(step, step.tag("key", "value"));
+		assertSame(step, ApplicationStartup.DEFAULT.start("other"));
+		assertNull(step.getParentId());
+		step.end();
+	}
+
+	@Test
+	public void nestedSteps() {
+		RecordingApplicationStartup startup = new RecordingApplicationStartup();
+		StartupStep outer = startup.start("outer").tag("key", "value");
+		StartupStep inner = startup.start("inner");
+		inner.end();
+		StartupStep sibling = startup.start("sibling");
+		sibling.end();
+		outer.end();
+		StartupStep next = startup.start("next");
+		next.end();
+
+		assertEquals(Long.valueOf(outer.getId()), inner.getParentId());
+		assertEquals(Long.valueOf(outer.getId()), sibling.getParentId());
+		assertNull(outer.getParentId());
+		assertNull(next.getParentId());
+		List<RecordingApplicationStartup.RecordedStep> steps = startup.getRecordedSteps();
+		assertEquals(4, steps.size());
+		assertSame(inner, steps.get(0));
+		assertSame(outer, steps.get(2));
+		assertEquals("outer(key=value);inner", steps.get(0).getStack());
+		RecordingApplicationStartup.RecordedStep outerStep = steps.get(2);
+		assertTrue(outerStep.getSelfTime() <= outerStep.getDuration() - steps.get(0).getDuration());
+
+		startup.clear();
+		assertEquals(0, startup.getStepCount());
+	}
+
+	@Test
+	public void endingOuterStepPopsUnendedNestedSteps() {
+		RecordingApplicationStartup startup = new RecordingApplicationStartup();
+		StartupStep outer = startup.start("outer");
+		startup.start("failed");
+		outer.end();
+		StartupStep next = startup.start("next");
+		assertNull(next.getParentId());
+	}
+
+	@Test
+	public void recordingStopsAfterRefresh() {
+		RecordingApplicationStartup startup = new RecordingApplicationStartup();
+		StartupStep refresh = startup.start(RecordingApplicationStartup.DEFAULT_REFRESH_STEP_NAME);
+		startup.start("inner").end();
+		refresh.end();
+		startup.start("afterRefresh").tag("key", "value").end();
+		assertEquals(2, startup.getStepCount());
+
+		refresh = startup.start(RecordingApplicationStartup.DEFAULT_REFRESH_STEP_NAME);
+		startup.start("inner").end();
+		refresh.end();
+		assertEquals(4, startup.getStepCount());
+	}
+
+	@Test
+	public void capacity() {
+		RecordingApplicationStartup startup = new RecordingApplicationStartup();
+		startup.setCapacity(2);
+		for (int i = 0; i < 5; i++) {
+			startup.start("step" + i).end();
+		}
+		List<RecordingApplicationStartup.RecordedStep> steps = startup.getRecordedSteps();
+		assertEquals(2, steps.size());
+		assertEquals("step3", steps.get(0).getName());
+		assertEquals("step4", steps.get(1).getName());
+	}
+
+	@Test
+	public void flameGraph() throws Exception {
+		RecordingApplicationStartup startup = new RecordingApplicationStartup();
+		StartupStep outer = startup.start("outer");
+		for (int i = 0; i < 2; i++) {
+			StartupStep inner = startup.start("inner").tag("beanName", "a;b");
+			Thread.sleep(2);
+			inner.end();
+		}
+		Thread.sleep(2);
+		outer.end();
+		StringWriter writer = new StringWriter();
+		startup.writeFlameGraph(writer);
+		String[] lines = writer.toString().split("\n");
+		assertEquals(2, lines.length);
+		assertTrue(lines[0].matches("outer;inner\\(beanName=a,b\\) \\d+"));
+		assertTrue(lines[1].matches("outer \\d+"));
+		assertTrue(Long.parseLong(lines[0].substring(lines[0].lastIndexOf(' ') + 1)) >= 4000);
+	}
+
+	@Test
+	public void slowestBeans() throws Exception {
+		RecordingApplicationStartup startup = new RecordingApplicationStartup();
+		startup.setSlowestBeanCount(2);
+		StartupStep outer = startup.start(RecordingApplicationStartup.DEFAULT_BEAN_STEP_NAME).tag("beanName", "outer");
+		StartupStep inner = startup.start(RecordingApplicationStartup.DEFAULT_BEAN_STEP_NAME).tag("beanName", "inner");
+		Thread.sleep(20);
+		inner.end();
+		outer.end();
+		StartupStep fast = startup.start(RecordingApplicationStartup.DEFAULT_BEAN_STEP_NAME).tag("beanName", "fast");
+		fast.end();
+		String[] slowest = startup.getSlowestBeans();
+		assertEquals(2, slowest.length);
+		assertTrue(slowest[0].startsWith("inner: "));
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2009 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -32,6 +32,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.type.classreading.MetadataReader;
 import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SharedMetadataReaderFactory;
 import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
 import org.springframework.stereotype.Component;
 
@@ -53,6 +54,16 @@ public class AnnotationMetadataTests extends TestCase {
 		doTestMethodAnnotationInfo(metadataReader.getAnnotationMetadata());
 	}
 
+	public void testSharedAsmAnnotationMetadata() throws IOException {
+		MetadataReaderFactory metadataReaderFactory = new SharedMetadataReaderFactory();
+		MetadataReader metadataReader = metadataReaderFactory.getMetadataReader(AnnotatedComponent.class.getName());
+		doTestAnnotationInfo(metadataReader.getAnnotationMetadata());
+		doTestMethodAnnotationInfo(metadataReader.getAnnotationMetadata());
+		metadataReader = new SharedMetadataReaderFactory().getMetadataReader(AnnotatedComponent.class.getName());
+		doTestAnnotationInfo(metadataReader.getAnnotationMetadata());
+		doTestMethodAnnotationInfo(metadataReader.getAnnotationMetadata());
+	}
+
 	private void doTestAnnotationInfo(AnnotationMetadata metadata) {
 		assertEquals(AnnotatedComponent.class.getName(), metadata.getClassName());
 		assertFalse(metadata.isInterface());
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.core.type.classreading;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.core.OverridingClassLoader;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.stereotype.Component;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ * @since 3.1
+ */
+public class SharedMetadataReaderFactoryTests {
+
+	@Before
+	@After
+	public void clearCache() {
+		SharedMetadataReaderFactory.clearCache();
+	}
+
+	@Test
+	public void metadataSharedAcrossFactories() throws IOException {
+		CountingClassResource resource = new CountingClassResource(AnnotatedBean.class);
+		MetadataReader reader1 = new SharedMetadataReaderFactory().getMetadataReader(resource);
+		MetadataReader reader2 = new SharedMetadataReaderFactory(getClass().getClassLoader()).getMetadataReader(resource);
+		assertEquals(1, resource.openCount);
+		assertEquals(1, SharedMetadataReaderFactory.getCacheSize(getClass().getClassLoader()));
+		assertNotSame(reader1.getAnnotationMetadata(), reader2.getAnnotationMetadata());
+		doTestMetadata(reader1.getAnnotationMetadata());
+		doTestMetadata(reader2.getAnnotationMetadata());
+	}
+
+	@Test
+	public void metadataNotSharedAcrossClassLoaders() throws IOException {
+		ClassLoader otherClassLoader = new OverridingClassLoader(getClass().getClassLoader());
+		CountingClassResource resource = new CountingClassResource(AnnotatedBean.class);
+		new SharedMetadataReaderFactory(getClass().getClassLoader()).getMetadataReader(resource);
+		doTestMetadata(new SharedMetadataReaderFactory(otherClassLoader).getMetadataReader(resource).getAnnotationMetadata());
+		assertEquals(2, resource.openCount);
+		assertEquals(1, SharedMetadataReaderFactory.getCacheSize(otherClassLoader));
+
+		SharedMetadataReaderFactory.clearCache(otherClassLoader);
+		assertEquals(0, SharedMetadataReaderFactory.getCacheSize(otherClassLoader));
+		assertEquals(1, SharedMetadataReaderFactory.getCacheSize(getClass().getClassLoader()));
+	}
+
+	@Test
+	public void modifiedClassFileParsedAgain() throws IOException {
+		CountingClassResource resource = new CountingClassResource(AnnotatedBean.class);
+		SharedMetadataReaderFactory factory = new SharedMetadataReaderFactory();
+		factory.getMetadataReader(resource);
+		factory.getMetadataReader(resource);
+		assertEquals(1, resource.openCount);
+		resource.lastModified++;
+		doTestMetadata(factory.getMetadataReader(resource).getAnnotationMetadata());
+		assertEquals(2, resource.openCount);
+		assertEquals(1, SharedMetadataReaderFactory.getCacheSize(getClass().getClassLoader()));
+	}
+
+	@Test
+	public void snapshotRoundtrip() throws IOException {
+		File snapshotFile = File.createTempFile("metadata", ".snapshot");
+		try {
+			CountingClassResource resource = new CountingClassResource(AnnotatedBean.class);
+			new SharedMetadataReaderFactory().getMetadataReader(resource);
+			new SharedMetadataReaderFactory().getMetadataReader(new CountingClassResource(getClass()));
+			SharedMetadataReaderFactory.saveSnapshot(snapshotFile, getClass().getClassLoader());
+			SharedMetadataReaderFactory.clearCache();
+
+			assertEquals(2, SharedMetadataReaderFactory.loadSnapshot(snapshotFile, getClass().getClassLoader()));
+			resource = new CountingClassResource(AnnotatedBean.class);
+			doTestMetadata(new SharedMetadataReaderFactory().getMetadataReader(resource).getAnnotationMetadata());
+			assertEquals(0, resource.openCount);
+		}
+		finally {
+			snapshotFile.delete();
+		}
+	}
+
+	@Test
+	public void corruptSnapshotIgnored() throws IOException {
+		File snapshotFile = File.createTempFile("metadata", ".snapshot");
+		try {
+			assertEquals(0, SharedMetadataReaderFactory.loadSnapshot(snapshotFile, getClass().getClassLoader()));
+			assertEquals(0, SharedMetadataReaderFactory.loadSnapshot(
+					new File(snapshotFile.getPath() + ".none"), getClass().getClassLoader()));
+			assertEquals(0, SharedMetadataReaderFactory.getCacheSize(getClass().getClassLoader()));
+		}
+		finally {
+			snapshotFile.delete();
+		}
+	}
+
+	private void doTestMetadata(AnnotationMetadata metadata) {
+		assertEquals(AnnotatedBean.class.getName(), metadata.getClassName());
+		assertTrue(metadata.isIndependent());
+		assertEquals(SharedMetadataReaderFactoryTests.class.getName(), metadata.getEnclosingClassName());
+		assertEquals(Runnable.class.getName(), metadata.getInterfaceNames()[0]);
+		assertTrue(metadata.hasAnnotation(Component.class.getName()));
+		assertTrue(metadata.hasMetaAnnotation(Target.class.getName()));
+		assertEquals("myBean", metadata.getAnnotationAttributes(Component.class.getName()).get("value"));
+
+		Map<String, Object> attrs = metadata.getAnnotationAttributes(SampleAnnotation.class.getName());
+		assertEquals(Integer.class, attrs.get("type"));
+		assertArrayEquals(new Class[] {String.class, Long.class}, (Class[]) attrs.get("types"));
+		assertEquals(RetentionPolicy.CLASS, attrs.get("policy"));
+		assertArrayEquals(new String[] {"a", "b"}, (String[]) attrs.get("names"));
+		assertEquals(5, attrs.get("count"));
+		attrs = metadata.getAnnotationAttributes(SampleAnnotation.class.getName(), true);
+		assertEquals(Integer.class.getName(), attrs.get("type"));
+
+		assertEquals(1, metadata.getAnnotatedMethods(SampleAnnotation.class.getName()).size());
+		MethodMetadata method = metadata.getAnnotatedMethods(SampleAnnotation.class.getName()).iterator().next();
+		assertEquals("run", method.getMethodName());
+		assertTrue(method.isAnnotated(SampleAnnotation.class.getName()));
+	}
+
+
+	@Target({ElementType.TYPE, ElementType.METHOD})
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface SampleAnnotation {
+
+		Class type() default Object.class;
+
+		Class[] types() default {};
+
+		RetentionPolicy policy() default RetentionPolicy.RUNTIME;
+
+		String[] names() default {};
+
+		int count() default 5;
+	}
+
+
+	@Component("myBean")
+	@SampleAnnotation(type = Integer.class, types = {String.class, Long.class}, policy = RetentionPolicy.CLASS,
+			names = {"a", "b"})
+	public static class AnnotatedBean implements Runnable {
+
+		@SampleAnnotation
+		public void run() {
+		}
+
+		public void notAnnotated() {
+		}
+	}
+
+
+	private static class CountingClassResource extends ClassPathResource {
+
+		private int openCount;
+
+		private long lastModified;
+
+		public CountingClassResource(Class<?> clazz) throws IOException {
+			super(clazz.getName().replace('.', '/') + ".class");
+			this.lastModified = super.lastModified();
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			this.openCount++;
+			return super.getInputStream();
+		}
+
+		@Override
+		public long lastModified() {
+			return this.lastModified;
+		}
+	}
+
+}
@@ -538,6 +538,47 @@ public class AntPathMatcherTests {
 		paths.clear();
 	}
 
+	@Test
+	public void globSegmentsWithoutRegex() {
+		assertTrue(pathMatcher.match("/*/a?c*", "/x/abc"));
+		assertTrue(pathMatcher.match("/*/a?c*", "/x/abcdef"));
+		assertTrue(pathMatcher.match("/*a*b*", "/xaxxbx"));
+		assertFalse(pathMatcher.match("/*a*b*", "/xbxxax"));
+		assertTrue(pathMatcher.match("/a.b", "/a.b"));
+		assertFalse(pathMatcher.match("/a.b", "/axb"));
+		assertFalse(pathMatcher.match("/a*", "/a\nb"));
+		assertFalse(pathMatcher.match("/a?b", "/a\nb"));
+		assertTrue(pathMatcher.match("/a?b", "/a\uD83D\uDE00b"));
+		assertFalse(pathMatcher.match("/{id}", "/1\n2"));
+	}
+
+	@Test
+	public void stringMatchersAreCached() {
+		pathMatcher.match("/hotels/{hotel}", "/hotels/1");
+		pathMatcher.match("/hotels/{hotel}", "/hotels/2");
+		assertEquals(2, pathMatcher.stringMatcherCache.size());
+		Map<String, String> result = pathMatcher.extractUriTemplateVariables("/hotels/{hotel}", "/hotels/3");
+		assertEquals(Collections.singletonMap("hotel", "3"), result);
+		assertEquals(2, pathMatcher.stringMatcherCache.size());
+	}
 
+	@Test
+	public void cachePatternsSetToFalse() {
+		pathMatcher.setCachePatterns(false);
+		assertTrue(pathMatcher.match("/hotels/{hotel}", "/hotels/1"));
+		assertTrue(pathMatcher.stringMatcherCache.isEmpty());
+	}
+
+	@Test
+	public void defaultCacheTurnsOffAfterThreshold() {
+		for (int i = 0; i < AntPathMatcher.CACHE_TURNOFF_THRESHOLD; i++) {
+			pathMatcher.match("/" + i, "/" + i);
+		}
+		assertEquals(AntPathMatcher.CACHE_TURNOFF_THRESHOLD, pathMatcher.stringMatcherCache.size());
+		assertTrue(pathMatcher.match("/overflow", "/overflow"));
+		assertTrue(pathMatcher.stringMatcherCache.isEmpty());
+		assertTrue(pathMatcher.match("/hotels/{hotel}", "/hotels/1"));
+		assertTrue(pathMatcher.stringMatcherCache.isEmpty());
+	}
 
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Stack;
+
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Manages the state of the bytecode generation while an expression is being compiled:
+ * the local variables holding the root object, the evaluation context and the
+ * active context objects, the literal values referenced by the generated code, and
+ * the types that the generated code links against.
+ *
+ * <p>All values are passed between generated fragments as objects, with primitive
+ * values boxed. Fragments cast values to the types that were observed during
+ * interpreted evaluation, so that a change of types surfaces as a
+ * {@link ClassCastException} when running the compiled code.
+ *
+ * @author agent
+ * @since 3.1
+ */
+public class CodeFlow implements Opcodes {
+
+	private static final int ROOT_OBJECT_SLOT = 1;
+
+	private static final int EVALUATION_CONTEXT_SLOT = 2;
+
+	private static final String COMPILED_EXPRESSION_NAME = Type.getInternalName(CompiledExpression.class);
+
+
+	private final List<Object> constants = new ArrayList<Object>();
+
+	private final Set<Class<?>> referencedTypes = new LinkedHashSet<Class<?>>();
+
+	private final Stack<Integer> activeContextSlots = new Stack<Integer>();
+
+	private int nextFreeSlot = EVALUATION_CONTEXT_SLOT + 1;
+
+
+	public CodeFlow() {
+		this.activeContextSlots.push(ROOT_OBJECT_SLOT);
+	}
+
+
+	/**
+	 * Load the root object onto the operand stack.
+	 */
+	public void loadRootObject(MethodVisitor mv) {
+		mv.visitVarInsn(ALOAD, ROOT_OBJECT_SLOT);
+	}
+
+	/**
+	 * Load the {@link org.springframework.expression.EvaluationContext} onto the operand stack.
+	 */
+	public void loadEvaluationContext(MethodVisitor mv) {
+		mv.visitVarInsn(ALOAD, EVALUATION_CONTEXT_SLOT);
+	}
+
+	/**
+	 * Load the active context object onto the operand stack.
+	 */
+	public void loadActiveContextObject(MethodVisitor mv) {
+		mv.visitVarInsn(ALOAD, this.activeContextSlots.peek());
+	}
+
+	/**
+	 * Pop the value on top of the operand stack and make it the active context object.
+	 */
+	public void pushActiveContextObject(MethodVisitor mv) {
+		int slot = this.nextFreeSlot++;
+		mv.visitVarInsn(ASTORE, slot);
+		this.activeContextSlots.push(slot);
+	}
+
+	/**
+	 * Make the root object the active context object, e.g. for evaluating method arguments.
+	 */
+	public void pushRootObjectAsActiveContextObject() {
+		this.activeContextSlots.push(ROOT_OBJECT_SLOT);
+	}
+
+	/**
+	 * Restore the previously active context object.
+	 */
+	public void popActiveContextObject() {
+		this.activeContextSlots.pop();
+	}
+
+	/**
+	 * Load the given literal value onto the operand stack.
+	 */
+	public void loadConstant(MethodVisitor mv, Object value) {
+		if (value == null) {
+			mv.visitInsn(ACONST_NULL);
+			return;
+		}
+		int index = this.constants.indexOf(value);
+		if (index == -1) {
+			index = this.constants.size();
+			this.constants.add(value);
+		}
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, COMPILED_EXPRESSION_NAME, "constants", "[Ljava/lang/Object;");
+		mv.visitLdcInsn(index);
+		mv.visitInsn(AALOAD);
+	}
+
+	/**
+	 * Register the given type as referenced by the generated code.
+	 * @return the internal name of the type
+	 */
+	public String registerType(Class<?> type) {
+		if (!type.isPrimitive()) {
+			this.referencedTypes.add(type);
+		}
+		return Type.getInternalName(type);
+	}
+
+	/**
+	 * Register the declaring class, the parameter types and the return type of the
+	 * given method as referenced by the generated code.
+	 * @return the method descriptor
+	 */
+	public String registerMethod(Method method) {
+		registerType(method.getDeclaringClass());
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			registerType(parameterType);
+		}
+		registerType(method.getReturnType());
+		return Type.getMethodDescriptor(method);
+	}
+
+	/**
+	 * Return the literal values referenced by the generated code, in index order.
+	 */
+	public Object[] getConstants() {
+		return this.constants.toArray();
+	}
+
+	/**
+	 * Return the types that the generated code links against.
+	 */
+	public Set<Class<?>> getReferencedTypes() {
+		return this.referencedTypes;
+	}
+
+
+	/**
+	 * Cast the object on top of the operand stack to the given type,
+	 * unboxing it if the type is primitive.
+	 */
+	public void castOrUnbox(MethodVisitor mv, Class<?> type) {
+		if (type.isPrimitive()) {
+			Class<?> wrapperType = ClassUtils.resolvePrimitiveIfNecessary(type);
+			String wrapperName = Type.getInternalName(wrapperType);
+			mv.visitTypeInsn(CHECKCAST, wrapperName);
+			mv.visitMethodInsn(INVOKEVIRTUAL, wrapperName, type.getName() + "Value", "()" + Type.getDescriptor(type));
+		}
+		else if (!Object.class.equals(type)) {
+			mv.visitTypeInsn(CHECKCAST, registerType(type));
+		}
+	}
+
+	/**
+	 * Box the primitive value of the given type on top of the operand stack.
+	 * Void is represented as <code>null</code>; object values are left untouched.
+	 */
+	public void box(MethodVisitor mv, Class<?> type) {
+		if (void.class.equals(type)) {
+			mv.visitInsn(ACONST_NULL);
+		}
+		else if (type.isPrimitive()) {
+			Class<?> wrapperType = ClassUtils.resolvePrimitiveIfNecessary(type);
+			mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(wrapperType), "valueOf",
+					"(" + Type.getDescriptor(type) + ")" + Type.getDescriptor(wrapperType));
+		}
+	}
+
+	/**
+	 * Replace the object on top of the operand stack with its boolean value, failing
+	 * with a {@link ClassCastException} or {@link NullPointerException} in case of a
+	 * value that the interpreter would have to convert or reject.
+	 */
+	public void unboxBoolean(MethodVisitor mv) {
+		castOrUnbox(mv, boolean.class);
+	}
+
+	/**
+	 * Push the canonical Boolean object for the boolean value on top of the operand stack.
+	 */
+	public void boxBoolean(MethodVisitor mv) {
+		box(mv, boolean.class);
+	}
+
+}
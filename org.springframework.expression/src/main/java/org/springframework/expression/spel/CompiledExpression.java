@@ -0,0 +1,50 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel;
+
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.EvaluationException;
+
+/**
+ * Base superclass for compiled expressions. Each generated compiled expression class
+ * extends this class and implements {@link #getValue} through bytecode that mirrors
+ * the interpreted evaluation of the expression's abstract syntax tree.
+ *
+ * @author agent
+ * @since 3.1
+ * @see org.springframework.expression.spel.standard.SpelExpression#compileExpression()
+ */
+public abstract class CompiledExpression {
+
+	/** Literal values referenced by the generated code */
+	protected final Object[] constants;
+
+
+	protected CompiledExpression(Object[] constants) {
+		this.constants = constants;
+	}
+
+
+	/**
+	 * Evaluate the expression against the given root object.
+	 * @param rootObject the root object (may be <code>null</code>)
+	 * @param context the evaluation context to use for variable lookups and comparisons
+	 * @return the value of the expression
+	 */
+	public abstract Object getValue(Object rootObject, EvaluationContext context) throws EvaluationException;
+
+}
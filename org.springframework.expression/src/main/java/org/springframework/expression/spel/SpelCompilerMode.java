@@ -0,0 +1,47 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel;
+
+/**
+ * Captures the possible configuration settings for the SpEL expression compiler.
+ *
+ * @author agent
+ * @since 3.1
+ * @see SpelParserConfiguration#getCompilerMode()
+ */
+public enum SpelCompilerMode {
+
+	/**
+	 * The compiler is switched off; expressions are always interpreted. This is the default.
+	 */
+	OFF,
+
+	/**
+	 * Expressions are compiled right after their first interpreted evaluation.
+	 * A failure of the compiled code is reported to the caller as an exception.
+	 */
+	IMMEDIATE,
+
+	/**
+	 * Expressions are compiled after a configurable number of interpreted evaluations.
+	 * If the compiled code fails later on (typically because the types flowing through
+	 * the expression have changed), the expression silently reverts to interpretation
+	 * and may be compiled again later.
+	 */
+	MIXED
+
+}
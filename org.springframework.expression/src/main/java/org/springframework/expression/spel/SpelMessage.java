@@ -104,6 +104,8 @@ public enum SpelMessage {
 	MISSING_ARRAY_DIMENSION(Kind.ERROR, 1063, "A required array dimension has not been specified"), //
 	INITIALIZER_LENGTH_INCORRECT(
 			Kind.ERROR, 1064, "array initializer size does not match array dimensions"), //
+	EXCEPTION_RUNNING_COMPILED_EXPRESSION(Kind.ERROR, 1065,
+			"An exception occurred whilst evaluating a compiled expression"), //
 	;
 
 	private Kind kind;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2009 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,12 +25,57 @@ package org.springframework.expression.spel;
  */
 public class SpelParserConfiguration {
 
+	/**
+	 * The default number of interpreted evaluations after which an expression
+	 * gets compiled in {@link SpelCompilerMode#MIXED} mode.
+	 */
+	public static final int DEFAULT_COMPILE_THRESHOLD = 100;
+
+
 	private final boolean autoGrowNullReferences;
 
 	private final boolean autoGrowCollections;
 
+	private final SpelCompilerMode compilerMode;
+
+	private final ClassLoader compilerClassLoader;
+
+	private final int compileThreshold;
+
 
 	public SpelParserConfiguration(boolean autoGrowNullReferences, boolean autoGrowCollections) {
+		this(SpelCompilerMode.OFF, null, DEFAULT_COMPILE_THRESHOLD, autoGrowNullReferences, autoGrowCollections);
+	}
+
+	/**
+	 * Create a new SpelParserConfiguration instance with the given compiler settings.
+	 * @param compilerMode the compiler mode for expressions parsed with this configuration
+	 * @param compilerClassLoader the ClassLoader to use as the basis for compiled expressions
+	 * (may be <code>null</code> to use the ClassLoader of the root object, if any, or
+	 * the default ClassLoader otherwise)
+	 */
+	public SpelParserConfiguration(SpelCompilerMode compilerMode, ClassLoader compilerClassLoader) {
+		this(compilerMode, compilerClassLoader, DEFAULT_COMPILE_THRESHOLD, false, false);
+	}
+
+	/**
+	 * Create a new SpelParserConfiguration instance with the given compiler settings.
+	 * @param compilerMode the compiler mode for expressions parsed with this configuration
+	 * @param compilerClassLoader the ClassLoader to use as the basis for compiled expressions
+	 * (may be <code>null</code> to use the ClassLoader of the root object, if any, or
+	 * the default ClassLoader otherwise)
+	 * @param compileThreshold the number of interpreted evaluations after which an
+	 * expression gets compiled in {@link SpelCompilerMode#MIXED} mode
+	 * @param autoGrowNullReferences whether null references should be auto-grown;
+	 * note that this prevents expressions from being compiled
+	 * @param autoGrowCollections whether collections should be auto-grown
+	 */
+	public SpelParserConfiguration(SpelCompilerMode compilerMode, ClassLoader compilerClassLoader,
+			int compileThreshold, boolean autoGrowNullReferences, boolean autoGrowCollections) {
+
+		this.compilerMode = (compilerMode != null ? compilerMode : SpelCompilerMode.OFF);
+		this.compilerClassLoader = compilerClassLoader;
+		this.compileThreshold = compileThreshold;
 		this.autoGrowNullReferences = autoGrowNullReferences;
 		this.autoGrowCollections = autoGrowCollections;
 	}
@@ -44,4 +89,16 @@ public class SpelParserConfiguration {
 		return this.autoGrowCollections;
 	}
 
+	public SpelCompilerMode getCompilerMode() {
+		return this.compilerMode;
+	}
+
+	public ClassLoader getCompilerClassLoader() {
+		return this.compilerClassLoader;
+	}
+
+	public int getCompileThreshold() {
+		return this.compileThreshold;
+	}
+
 }
@@ -16,8 +16,10 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelEvaluationException;
 
@@ -67,6 +69,21 @@ public class CompoundExpression extends SpelNodeImpl {
 		return result;
 	}
 
+	@Override
+	public boolean isCompilable() {
+		return areChildrenCompilable();
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		this.children[0].generateCode(mv, cf);
+		for (int i = 1; i < this.children.length; i++) {
+			cf.pushActiveContextObject(mv);
+			this.children[i].generateCode(mv, cf);
+			cf.popActiveContextObject();
+		}
+	}
+
 	@Override
 	public void setValue(ExpressionState state, Object value) throws EvaluationException {
 		if (getChildCount() == 1) {
@@ -17,9 +17,12 @@
 package org.springframework.expression.spel.ast;
 
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.expression.AccessException;
 import org.springframework.expression.EvaluationContext;
@@ -28,9 +31,11 @@ import org.springframework.expression.ExpressionInvocationTargetException;
 import org.springframework.expression.MethodExecutor;
 import org.springframework.expression.MethodResolver;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelMessage;
+import org.springframework.expression.spel.support.ReflectiveMethodExecutor;
 
 /**
  * @author Andy Clement
@@ -136,6 +141,48 @@ public class MethodReference extends SpelNodeImpl {
 		}
 	}
 
+	/**
+	 * A method reference is compilable if it has been resolved to a public instance method
+	 * on a public class which can be invoked without argument conversion or varargs handling.
+	 * Null-safe references are interpreted, since their arguments are evaluated before the
+	 * null check.
+	 */
+	@Override
+	public boolean isCompilable() {
+		MethodExecutor executor = this.cachedExecutor;
+		if (this.nullSafe || !(executor instanceof ReflectiveMethodExecutor)) {
+			return false;
+		}
+		ReflectiveMethodExecutor reflectiveExecutor = (ReflectiveMethodExecutor) executor;
+		Method method = reflectiveExecutor.getMethod();
+		if (reflectiveExecutor.isArgumentConversionRequired() || method.isVarArgs() ||
+				!Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers()) ||
+				!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+			return false;
+		}
+		return areChildrenCompilable();
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		Method method = ((ReflectiveMethodExecutor) this.cachedExecutor).getMethod();
+		Class<?> declaringClass = method.getDeclaringClass();
+		String owner = cf.registerType(declaringClass);
+		cf.loadActiveContextObject(mv);
+		mv.visitTypeInsn(CHECKCAST, owner);
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		// Make the root object the active context again for evaluating the arguments
+		cf.pushRootObjectAsActiveContextObject();
+		for (int i = 0; i < this.children.length; i++) {
+			this.children[i].generateCode(mv, cf);
+			cf.castOrUnbox(mv, parameterTypes[i]);
+		}
+		cf.popActiveContextObject();
+		mv.visitMethodInsn((declaringClass.isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL),
+				owner, method.getName(), cf.registerMethod(method));
+		cf.box(mv, method.getReturnType());
+	}
+
 	private List<TypeDescriptor> getTypes(Object... arguments) {
 		List<TypeDescriptor> descriptors = new ArrayList<TypeDescriptor>(arguments.length);
 		for (Object argument : arguments) {
@@ -16,9 +16,12 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
 import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelMessage;
@@ -69,6 +72,29 @@ public class OpAnd extends Operator {
 		return /* leftValue && */BooleanTypedValue.forValue(rightValue);
 	}
 
+	@Override
+	public boolean isCompilable() {
+		return areChildrenCompilable();
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		Label falseLabel = new Label();
+		Label endLabel = new Label();
+		getLeftOperand().generateCode(mv, cf);
+		cf.unboxBoolean(mv);
+		mv.visitJumpInsn(IFEQ, falseLabel);
+		getRightOperand().generateCode(mv, cf);
+		cf.unboxBoolean(mv);
+		mv.visitJumpInsn(IFEQ, falseLabel);
+		mv.visitInsn(ICONST_1);
+		mv.visitJumpInsn(GOTO, endLabel);
+		mv.visitLabel(falseLabel);
+		mv.visitInsn(ICONST_0);
+		mv.visitLabel(endLabel);
+		cf.boxBoolean(mv);
+	}
+
 	private void assertTypedValueNotNull(TypedValue typedValue) {
 		if (TypedValue.NULL.equals(typedValue)) {
 			throw new SpelEvaluationException(SpelMessage.TYPE_CONVERSION_ERROR, "null", "boolean");
@@ -16,7 +16,9 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.EvaluationException;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.support.BooleanTypedValue;
 
@@ -36,23 +38,20 @@ public class OpNE extends Operator {
 	public BooleanTypedValue getValueInternal(ExpressionState state) throws EvaluationException {
 		Object left = getLeftOperand().getValueInternal(state).getValue();
 		Object right = getRightOperand().getValueInternal(state).getValue();
-		if (left instanceof Number && right instanceof Number) {
-			Number op1 = (Number) left;
-			Number op2 = (Number) right;
-			if (op1 instanceof Double || op2 instanceof Double) {
-				return BooleanTypedValue.forValue(op1.doubleValue() != op2.doubleValue());
-			} else if (op1 instanceof Long || op2 instanceof Long) {
-				return BooleanTypedValue.forValue(op1.longValue() != op2.longValue());
-			} else {
-				return BooleanTypedValue.forValue(op1.intValue() != op2.intValue());
-			}
-		}
-
-		if (left!=null && (left instanceof Comparable)) {
-			return BooleanTypedValue.forValue(state.getTypeComparator().compare(left, right) != 0);
-		} else {
-			return BooleanTypedValue.forValue(left!=right);
-		}
+		return BooleanTypedValue.forValue(!equalityCheck(state.getEvaluationContext(), left, right));
+	}
+
+	@Override
+	public boolean isCompilable() {
+		return areChildrenCompilable();
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		generateEqualityCheck(mv, cf);
+		mv.visitInsn(ICONST_1);
+		mv.visitInsn(IXOR);
+		cf.boxBoolean(mv);
 	}
 
 }
@@ -16,6 +16,10 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Type;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.spel.CodeFlow;
 
 /**
  * Common supertype for operators that operate on either one or two operands. In the case of multiply or divide there
@@ -45,6 +49,51 @@ public abstract class Operator extends SpelNodeImpl {
 		return operatorName;
 	}
 
+	/**
+	 * Perform an equality check for the given operand values, as used by the
+	 * <code>==</code> and <code>!=</code> operators: numbers are compared by value,
+	 * other comparable values through the context's type comparator.
+	 * <p>Public since it is also invoked from compiled expressions.
+	 * @param context the evaluation context that provides the type comparator
+	 * @param left the left operand value
+	 * @param right the right operand value
+	 * @return whether the operand values are equal
+	 */
+	public static boolean equalityCheck(EvaluationContext context, Object left, Object right) {
+		if (left instanceof Number && right instanceof Number) {
+			Number op1 = (Number) left;
+			Number op2 = (Number) right;
+			if (op1 instanceof Double || op2 instanceof Double) {
+				return (op1.doubleValue() == op2.doubleValue());
+			}
+			else if (op1 instanceof Long || op2 instanceof Long) {
+				return (op1.longValue() == op2.longValue());
+			}
+			else {
+				return (op1.intValue() == op2.intValue());
+			}
+		}
+		if (left != null && (left instanceof Comparable)) {
+			return (context.getTypeComparator().compare(left, right) == 0);
+		}
+		else {
+			return (left == right);
+		}
+	}
+
+	/**
+	 * Generate the bytecode for an equality check of both operands,
+	 * leaving the boolean result (not boxed) on top of the operand stack.
+	 * @see #equalityCheck
+	 */
+	protected void generateEqualityCheck(MethodVisitor mv, CodeFlow cf) {
+		cf.loadEvaluationContext(mv);
+		getLeftOperand().generateCode(mv, cf);
+		getRightOperand().generateCode(mv, cf);
+		mv.visitMethodInsn(INVOKESTATIC, cf.registerType(Operator.class), "equalityCheck",
+				"(" + Type.getDescriptor(EvaluationContext.class) + "Ljava/lang/Object;Ljava/lang/Object;)Z");
+	}
+
 	/**
 	 * String format for all operators is the same '(' [operand] [operator] [operand] ')'
 	 */
@@ -16,9 +16,12 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
 import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelMessage;
@@ -53,6 +56,26 @@ public class OperatorNot extends SpelNodeImpl { // Not is a unary operator so do
 		}
 	}
 
+	@Override
+	public boolean isCompilable() {
+		return areChildrenCompilable();
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		Label trueLabel = new Label();
+		Label endLabel = new Label();
+		this.children[0].generateCode(mv, cf);
+		cf.unboxBoolean(mv);
+		mv.visitJumpInsn(IFEQ, trueLabel);
+		mv.visitInsn(ICONST_0);
+		mv.visitJumpInsn(GOTO, endLabel);
+		mv.visitLabel(trueLabel);
+		mv.visitInsn(ICONST_1);
+		mv.visitLabel(endLabel);
+		cf.boxBoolean(mv);
+	}
+
 	@Override
 	public String toStringAST() {
 		StringBuilder sb = new StringBuilder();
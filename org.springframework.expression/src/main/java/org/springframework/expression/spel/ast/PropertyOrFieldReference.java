@@ -21,12 +21,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
 import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.expression.AccessException;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.PropertyAccessor;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
+import org.springframework.expression.spel.CompilablePropertyAccessor;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelMessage;
@@ -145,6 +149,32 @@ public class PropertyOrFieldReference extends SpelNodeImpl {
 		return isWritableProperty(this.name, state);
 	}
 
+	@Override
+	public boolean isCompilable() {
+		PropertyAccessor accessor = this.cachedReadAccessor;
+		return (accessor instanceof CompilablePropertyAccessor && ((CompilablePropertyAccessor) accessor).isCompilable());
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		CompilablePropertyAccessor accessor = (CompilablePropertyAccessor) this.cachedReadAccessor;
+		cf.loadActiveContextObject(mv);
+		if (this.nullSafe) {
+			Label nullLabel = new Label();
+			Label endLabel = new Label();
+			mv.visitInsn(DUP);
+			mv.visitJumpInsn(IFNULL, nullLabel);
+			accessor.generateCode(this.name, mv, cf);
+			mv.visitJumpInsn(GOTO, endLabel);
+			mv.visitLabel(nullLabel);
+			// the null context object remains on the stack as the result
+			mv.visitLabel(endLabel);
+		}
+		else {
+			accessor.generateCode(this.name, mv, cf);
+		}
+	}
+
 	@Override
 	public String toStringAST() {
 		return this.name;
@@ -16,9 +16,12 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.TypedValue;
 import org.springframework.expression.common.ExpressionUtils;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelMessage;
@@ -32,7 +35,7 @@ import org.springframework.util.Assert;
  * @author Andy Clement
  * @since 3.0
  */
-public abstract class SpelNodeImpl implements SpelNode {
+public abstract class SpelNodeImpl implements SpelNode, Opcodes {
 
 	private static SpelNodeImpl[] NO_CHILDREN = new SpelNodeImpl[0];
 	
@@ -146,6 +149,40 @@ public abstract class SpelNodeImpl implements SpelNode {
 
 	public abstract TypedValue getValueInternal(ExpressionState expressionState) throws EvaluationException;
 
+	/**
+	 * Check whether a node can be compiled to bytecode. The reasoning in each node may
+	 * be different but will typically involve checking whether the information gathered
+	 * by previous interpreted evaluations (e.g. the resolved accessors) allows for it.
+	 * <p>The default implementation returns <code>false</code>.
+	 * @return true if this node can be compiled to bytecode
+	 */
+	public boolean isCompilable() {
+		return false;
+	}
+
+	/**
+	 * Generate the bytecode for this node into the supplied visitor, leaving the
+	 * (boxed) value of the node on top of the operand stack. Only called if
+	 * {@link #isCompilable()} returned <code>true</code>.
+	 * @param mv the method visitor into which code should be generated
+	 * @param cf the current state of the code flow
+	 */
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		throw new IllegalStateException(getClass().getName() + " has no generateCode(..) method");
+	}
+
+	/**
+	 * Return whether all children of this node can be compiled to bytecode.
+	 */
+	protected boolean areChildrenCompilable() {
+		for (SpelNodeImpl child : this.children) {
+			if (!child.isCompilable()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	public abstract String toStringAST();
 
 	public int getStartPosition() {
@@ -16,8 +16,11 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelMessage;
@@ -56,6 +59,25 @@ public class Ternary extends SpelNodeImpl {
 		}
 	}
 
+	@Override
+	public boolean isCompilable() {
+		return areChildrenCompilable();
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		Label elseLabel = new Label();
+		Label endLabel = new Label();
+		this.children[0].generateCode(mv, cf);
+		cf.unboxBoolean(mv);
+		mv.visitJumpInsn(IFEQ, elseLabel);
+		this.children[1].generateCode(mv, cf);
+		mv.visitJumpInsn(GOTO, endLabel);
+		mv.visitLabel(elseLabel);
+		this.children[2].generateCode(mv, cf);
+		mv.visitLabel(endLabel);
+	}
+
 	@Override
 	public String toStringAST() {
 		return new StringBuilder().append(getChild(0).toStringAST()).append(" ? ").append(getChild(1).toStringAST())
@@ -16,7 +16,10 @@
 
 package org.springframework.expression.spel.ast;
 
+import org.springframework.asm.MethodVisitor;
+import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
 import org.springframework.expression.spel.ExpressionState;
 import org.springframework.expression.spel.SpelEvaluationException;
 
@@ -54,6 +57,27 @@ public class VariableReference extends SpelNodeImpl {
 		return result;
 	}
 
+	@Override
+	public boolean isCompilable() {
+		return true;
+	}
+
+	@Override
+	public void generateCode(MethodVisitor mv, CodeFlow cf) {
+		if (this.name.equals(THIS)) {
+			cf.loadActiveContextObject(mv);
+		}
+		else if (this.name.equals(ROOT)) {
+			cf.loadRootObject(mv);
+		}
+		else {
+			cf.loadEvaluationContext(mv);
+			mv.visitLdcInsn(this.name);
+			mv.visitMethodInsn(INVOKEINTERFACE, cf.registerType(EvaluationContext.class), "lookupVariable",
+					"(Ljava/lang/String;)Ljava/lang/Object;");
+		}
+	}
+
 	@Override
 	public void setValue(ExpressionState state, Object value) throws SpelEvaluationException {
 		state.setVariable(this.name, value);
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.expression.spel.standard;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.EvaluationException;
+import org.springframework.expression.spel.CodeFlow;
+import org.springframework.expression.spel.CompiledExpression;
+import org.springframework.expression.spel.ast.SpelNodeImpl;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Compiles the abstract syntax tree of a SpEL expression into a {@link CompiledExpression}
+ * subclass, based on the types and accessors observed during previous interpreted
+ * evaluations of the expression.
+ *
+ * <p>Each compiled expression class is defined in its own ClassLoader, delegating to
+ * the given ClassLoader for the types referenced by the expression and to the SpEL
+ * ClassLoader for the SpEL infrastructure types. A compiled expression class can
+ * therefore be garbage collected along with its expression.
+ *
+ * @author agent
+ * @since 3.1
+ * @see SpelExpression#compileExpression()
+ */
+final class SpelCompiler implements Opcodes {
+
+	private static final Log logger = LogFactory.getLog(SpelCompiler.class);
+
+	private static final String COMPILED_EXPRESSION_NAME = Type.getInternalName(CompiledExpression.class);
+
+	private static final String SPEL_PACKAGE_PREFIX = "org.springframework.expression.";
+
+	private static final AtomicInteger classCount = new AtomicInteger();
+
+
+	/**
+	 * Compile the given expression AST, if possible.
+	 * @param expressionString the expression string, for logging purposes
+	 * @param ast the abstract syntax tree of the expression
+	 * @param classLoader the ClassLoader that the referenced types need to be visible from
+	 * @return the compiled expression, or <code>null</code> if the AST is not compilable
+	 */
+	public static CompiledExpression compile(String expressionString, SpelNodeImpl ast, ClassLoader classLoader) {
+		if (!ast.isCompilable()) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("SpEL: node in expression '" + expressionString + "' is not compilable");
+			}
+			return null;
+		}
+		String className = "spel/Ex" + classCount.incrementAndGet();
+		CodeFlow cf = new CodeFlow();
+		byte[] bytes = generateClass(className, ast, cf);
+		for (Class<?> referencedType : cf.getReferencedTypes()) {
+			if (!referencedType.getName().startsWith(SPEL_PACKAGE_PREFIX) &&
+					!ClassUtils.isVisible(referencedType, classLoader)) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("SpEL: cannot compile expression '" + expressionString + "' since type [" +
+							referencedType.getName() + "] is not visible from ClassLoader [" + classLoader + "]");
+				}
+				return null;
+			}
+		}
+		try {
+			CompilerClassLoader compilerClassLoader = new CompilerClassLoader(classLoader);
+			Class<?> compiledClass = compilerClassLoader.defineCompiledClass(className.replace('/', '.'), bytes);
+			Constructor<?> ctor = compiledClass.getConstructor(Object[].class);
+			return (CompiledExpression) ctor.newInstance(new Object[] {cf.getConstants()});
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("SpEL: failed to load compiled class for expression '" + expressionString + "'", ex);
+			}
+			return null;
+		}
+	}
+
+	private static byte[] generateClass(String className, SpelNodeImpl ast, CodeFlow cf) {
+		ClassWriter cw = new ClassWriter(true);
+		cw.visit(V1_5, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, className, null, COMPILED_EXPRESSION_NAME, null);
+
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "([Ljava/lang/Object;)V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitMethodInsn(INVOKESPECIAL, COMPILED_EXPRESSION_NAME, "<init>", "([Ljava/lang/Object;)V");
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		mv = cw.visitMethod(ACC_PUBLIC, "getValue",
+				"(Ljava/lang/Object;" + Type.getDescriptor(EvaluationContext.class) + ")Ljava/lang/Object;",
+				null, new String[] {Type.getInternalName(EvaluationException.class)});
+		mv.visitCode();
+		ast.generateCode(mv, cf);
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+
+	/**
+	 * ClassLoader for a single compiled expression class: resolves SpEL types
+	 * against the SpEL ClassLoader and all other types against the given parent.
+	 */
+	private static class CompilerClassLoader extends ClassLoader {
+
+		public CompilerClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		public Class<?> defineCompiledClass(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+
+		@Override
+		protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (name.startsWith(SPEL_PACKAGE_PREFIX)) {
+				return Class.forName(name, false, SpelCompiler.class.getClassLoader());
+			}
+			return super.loadClass(name, resolve);
+		}
+	}
+
+}
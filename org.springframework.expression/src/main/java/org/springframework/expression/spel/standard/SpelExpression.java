@@ -22,17 +22,26 @@ import org.springframework.expression.EvaluationException;
 import org.springframework.expression.Expression;
 import org.springframework.expression.TypedValue;
 import org.springframework.expression.common.ExpressionUtils;
+import org.springframework.expression.spel.CompiledExpression;
 import org.springframework.expression.spel.ExpressionState;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelMessage;
 import org.springframework.expression.spel.SpelNode;
 import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.ast.SpelNodeImpl;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 
 /**
  * A SpelExpressions represents a parsed (valid) expression that is ready to be evaluated in a specified context. An
  * expression can be evaluated standalone or in a specified context. During expression evaluation the context may be
  * asked to resolve references to types, beans, properties, methods.
+ *
+ * <p>Depending on the {@link SpelCompilerMode} of the parser configuration, the expression gets compiled to
+ * bytecode once it has been interpreted often enough, with the types observed during interpretation
+ * determining the generated code.
  * 
  * @author Andy Clement
  * @since 3.0
@@ -48,6 +57,18 @@ public class SpelExpression implements Expression {
 	// the default context is used if no override is supplied by the user
 	private EvaluationContext defaultContext;
 
+	// the compiled form of the expression, if it has been compiled
+	private volatile CompiledExpression compiledAst;
+
+	// the number of interpreted evaluations since the last compilation attempt
+	private volatile int interpretedCount = 0;
+
+	// the number of times compilation was attempted and failed
+	private volatile int failedAttempts = 0;
+
+	// after this many failed compilation attempts, the expression stays interpreted
+	private static final int FAILED_ATTEMPTS_THRESHOLD = 100;
+
 
 	/**
 	 * Construct an expression, only used by the parser.
@@ -62,44 +83,139 @@ public class SpelExpression implements Expression {
 	// implementing Expression
 	
 	public Object getValue() throws EvaluationException {
+		CompiledExpression compiledAst = this.compiledAst;
+		if (compiledAst != null) {
+			try {
+				EvaluationContext context = getEvaluationContext();
+				return compiledAst.getValue(context.getRootObject().getValue(), context);
+			}
+			catch (Throwable ex) {
+				handleCompiledExpressionFailure(ex);
+			}
+		}
 		ExpressionState expressionState = new ExpressionState(getEvaluationContext(), configuration);
-		return ast.getValue(expressionState);
+		Object result = ast.getValue(expressionState);
+		checkCompile(expressionState);
+		return result;
 	}
 
 	public Object getValue(Object rootObject) throws EvaluationException {
+		CompiledExpression compiledAst = this.compiledAst;
+		if (compiledAst != null) {
+			try {
+				return compiledAst.getValue(rootObject, getEvaluationContext());
+			}
+			catch (Throwable ex) {
+				handleCompiledExpressionFailure(ex);
+			}
+		}
 		ExpressionState expressionState = new ExpressionState(getEvaluationContext(), toTypedValue(rootObject), configuration);
-		return ast.getValue(expressionState);
+		Object result = ast.getValue(expressionState);
+		checkCompile(expressionState);
+		return result;
 	}
 
 	public <T> T getValue(Class<T> expectedResultType) throws EvaluationException {
+		CompiledExpression compiledAst = this.compiledAst;
+		if (compiledAst != null) {
+			try {
+				EvaluationContext context = getEvaluationContext();
+				Object result = compiledAst.getValue(context.getRootObject().getValue(), context);
+				return ExpressionUtils.convertTypedValue(context, toTypedValue(result), expectedResultType);
+			}
+			catch (Throwable ex) {
+				handleCompiledExpressionFailure(ex);
+			}
+		}
 		ExpressionState expressionState = new ExpressionState(getEvaluationContext(), configuration);
 		TypedValue typedResultValue = ast.getTypedValue(expressionState);
+		checkCompile(expressionState);
 		return ExpressionUtils.convertTypedValue(expressionState.getEvaluationContext(), typedResultValue, expectedResultType);
 	}
 
 	public <T> T getValue(Object rootObject, Class<T> expectedResultType) throws EvaluationException {
+		CompiledExpression compiledAst = this.compiledAst;
+		if (compiledAst != null) {
+			try {
+				EvaluationContext context = getEvaluationContext();
+				Object result = compiledAst.getValue(rootObject, context);
+				return ExpressionUtils.convertTypedValue(context, toTypedValue(result), expectedResultType);
+			}
+			catch (Throwable ex) {
+				handleCompiledExpressionFailure(ex);
+			}
+		}
 		ExpressionState expressionState = new ExpressionState(getEvaluationContext(), toTypedValue(rootObject), configuration);
 		TypedValue typedResultValue = ast.getTypedValue(expressionState);
+		checkCompile(expressionState);
 		return ExpressionUtils.convertTypedValue(expressionState.getEvaluationContext(), typedResultValue, expectedResultType);
 	}
 
 	public Object getValue(EvaluationContext context) throws EvaluationException {
 		Assert.notNull(context, "The EvaluationContext is required");
-		return ast.getValue(new ExpressionState(context, configuration));
+		CompiledExpression compiledAst = this.compiledAst;
+		if (compiledAst != null) {
+			try {
+				return compiledAst.getValue(context.getRootObject().getValue(), context);
+			}
+			catch (Throwable ex) {
+				handleCompiledExpressionFailure(ex);
+			}
+		}
+		ExpressionState expressionState = new ExpressionState(context, configuration);
+		Object result = ast.getValue(expressionState);
+		checkCompile(expressionState);
+		return result;
 	}
 	
 	public Object getValue(EvaluationContext context, Object rootObject) throws EvaluationException {
 		Assert.notNull(context, "The EvaluationContext is required");
-		return ast.getValue(new ExpressionState(context, toTypedValue(rootObject), configuration));
+		CompiledExpression compiledAst = this.compiledAst;
+		if (compiledAst != null) {
+			try {
+				return compiledAst.getValue(rootObject, context);
+			}
+			catch (Throwable ex) {
+				handleCompiledExpressionFailure(ex);
+			}
+		}
+		ExpressionState expressionState = new ExpressionState(context, toTypedValue(rootObject), configuration);
+		Object result = ast.getValue(expressionState);
+		checkCompile(expressionState);
+		return result;
 	}
 
 	public <T> T getValue(EvaluationContext context, Class<T> expectedResultType) throws EvaluationException {
-		TypedValue typedResultValue = ast.getTypedValue(new ExpressionState(context, configuration));
+		CompiledExpression compiledAst = this.compiledAst;
+		if (compiledAst != null) {
+			try {
+				Object result = compiledAst.getValue(context.getRootObject().getValue(), context);
+				return ExpressionUtils.convertTypedValue(context, toTypedValue(result), expectedResultType);
+			}
+			catch (Throwable ex) {
+				handleCompiledExpressionFailure(ex);
+			}
+		}
+		ExpressionState expressionState = new ExpressionState(context, configuration);
+		TypedValue typedResultValue = ast.getTypedValue(expressionState);
+		checkCompile(expressionState);
 		return ExpressionUtils.convertTypedValue(context, typedResultValue, expectedResultType);
 	}
 	
 	public <T> T getValue(EvaluationContext context, Object rootObject, Class<T> expectedResultType) throws EvaluationException {
-		TypedValue typedResultValue = ast.getTypedValue(new ExpressionState(context, toTypedValue(rootObject), configuration));
+		CompiledExpression compiledAst = this.compiledAst;
+		if (compiledAst != null) {
+			try {
+				Object result = compiledAst.getValue(rootObject, context);
+				return ExpressionUtils.convertTypedValue(context, toTypedValue(result), expectedResultType);
+			}
+			catch (Throwable ex) {
+				handleCompiledExpressionFailure(ex);
+			}
+		}
+		ExpressionState expressionState = new ExpressionState(context, toTypedValue(rootObject), configuration);
+		TypedValue typedResultValue = ast.getTypedValue(expressionState);
+		checkCompile(expressionState);
 		return ExpressionUtils.convertTypedValue(context, typedResultValue, expectedResultType);
 	}
 
@@ -179,6 +295,84 @@ public class SpelExpression implements Expression {
 	
 	// impl only
 
+	/**
+	 * Perform expression compilation. This will only succeed once exit descriptors for
+	 * all nodes have been determined, i.e. after the expression has been interpreted at
+	 * least once. If the compilation fails and has failed more than 100 times, the
+	 * expression is no longer considered suitable for compilation.
+	 * @return whether the expression has been compiled successfully
+	 */
+	public boolean compileExpression() {
+		return compileExpression(null);
+	}
+
+	/**
+	 * Cause an expression to revert to being interpreted if it has been using a
+	 * compiled form. It also resets the compilation attempt failure count.
+	 */
+	public void revertToInterpreted() {
+		this.compiledAst = null;
+		this.interpretedCount = 0;
+		this.failedAttempts = 0;
+	}
+
+	private boolean compileExpression(Object rootObject) {
+		if (this.failedAttempts > FAILED_ATTEMPTS_THRESHOLD ||
+				(this.configuration != null && this.configuration.isAutoGrowNullReferences())) {
+			// auto-growing of null references requires the interpreter
+			return false;
+		}
+		CompiledExpression newCompiledAst = SpelCompiler.compile(this.expression, this.ast, getCompilerClassLoader(rootObject));
+		if (newCompiledAst != null) {
+			this.compiledAst = newCompiledAst;
+			return true;
+		}
+		else {
+			this.failedAttempts++;
+			return false;
+		}
+	}
+
+	private ClassLoader getCompilerClassLoader(Object rootObject) {
+		ClassLoader classLoader = (this.configuration != null ? this.configuration.getCompilerClassLoader() : null);
+		if (classLoader == null && rootObject != null) {
+			classLoader = rootObject.getClass().getClassLoader();
+		}
+		return (classLoader != null ? classLoader : ClassUtils.getDefaultClassLoader());
+	}
+
+	/**
+	 * Compile the expression if it has been interpreted often enough
+	 * according to the compiler mode of the parser configuration.
+	 */
+	private void checkCompile(ExpressionState expressionState) {
+		SpelCompilerMode compilerMode =
+				(this.configuration != null ? this.configuration.getCompilerMode() : SpelCompilerMode.OFF);
+		if (compilerMode == SpelCompilerMode.OFF) {
+			return;
+		}
+		int threshold = (compilerMode == SpelCompilerMode.IMMEDIATE ? 1 : this.configuration.getCompileThreshold());
+		this.interpretedCount++;
+		if (this.interpretedCount >= threshold) {
+			this.interpretedCount = 0;
+			compileExpression(expressionState.getRootContextObject().getValue());
+		}
+	}
+
+	/**
+	 * Handle a failure of the compiled expression: in mixed mode, revert to interpretation
+	 * (the caller falls back to the interpreter); otherwise report the failure.
+	 */
+	private void handleCompiledExpressionFailure(Throwable ex) {
+		if (this.configuration != null && this.configuration.getCompilerMode() == SpelCompilerMode.MIXED) {
+			this.compiledAst = null;
+			this.interpretedCount = 0;
+		}
+		else {
+			throw new SpelEvaluationException(ex, SpelMessage.EXCEPTION_RUNNING_COMPILED_EXPRESSION);
+		}
+	}
+
 	/**
 	 * @return return the Abstract Syntax Tree for the expression
 	 */
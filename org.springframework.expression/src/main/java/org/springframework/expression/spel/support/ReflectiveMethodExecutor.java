@@ -31,7 +31,7 @@ import org.springframework.util.ReflectionUtils;
  * @author Juergen Hoeller
  * @since 3.0
  */
-class ReflectiveMethodExecutor implements MethodExecutor {
+public class ReflectiveMethodExecutor implements MethodExecutor {
 
 	private final Method method;
 
@@ -55,6 +55,19 @@ class ReflectiveMethodExecutor implements MethodExecutor {
 	}
 
 
+	public Method getMethod() {
+		return this.method;
+	}
+
+	/**
+	 * Return whether any arguments need to be converted before invoking the method,
+	 * as determined when the method was resolved for the argument types at hand.
+	 */
+	public boolean isArgumentConversionRequired() {
+		return (this.argsRequiringConversion != null && this.argsRequiringConversion.length > 0);
+	}
+
+
 	public TypedValue execute(EvaluationContext context, Object target, Object... arguments) throws AccessException {
 		try {
 			if (arguments != null) {
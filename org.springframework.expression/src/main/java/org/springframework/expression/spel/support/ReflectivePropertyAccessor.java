@@ -24,6 +24,9 @@ import java.lang.reflect.Modifier;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
 import org.springframework.core.MethodParameter;
 import org.springframework.core.convert.Property;
 import org.springframework.core.convert.TypeDescriptor;
@@ -32,6 +35,8 @@ import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.PropertyAccessor;
 import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.CodeFlow;
+import org.springframework.expression.spel.CompilablePropertyAccessor;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 
@@ -439,7 +444,7 @@ public class ReflectivePropertyAccessor implements PropertyAccessor {
 	 * may be invoked to access different properties on different classes.  This optimal accessor exists because looking up
 	 * the appropriate reflective object by class/name on each read is not cheap.
 	 */
-	static class OptimalPropertyAccessor implements PropertyAccessor {
+	static class OptimalPropertyAccessor implements CompilablePropertyAccessor, Opcodes {
 		private final Member member;
 		private final TypeDescriptor typeDescriptor;
 		private final boolean needsToBeMadeAccessible;
@@ -522,6 +527,29 @@ public class ReflectivePropertyAccessor implements PropertyAccessor {
 				throws AccessException {
 			throw new UnsupportedOperationException("Should not be called on an OptimalPropertyAccessor");
 		}
+
+		public boolean isCompilable() {
+			return (Modifier.isPublic(this.member.getModifiers()) && !Modifier.isStatic(this.member.getModifiers()) &&
+					Modifier.isPublic(this.member.getDeclaringClass().getModifiers()));
+		}
+
+		public void generateCode(String propertyName, MethodVisitor mv, CodeFlow cf) {
+			Class<?> declaringClass = this.member.getDeclaringClass();
+			String owner = cf.registerType(declaringClass);
+			mv.visitTypeInsn(CHECKCAST, owner);
+			if (this.member instanceof Method) {
+				Method method = (Method) this.member;
+				mv.visitMethodInsn((declaringClass.isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL),
+						owner, method.getName(), cf.registerMethod(method));
+				cf.box(mv, method.getReturnType());
+			}
+			else {
+				Field field = (Field) this.member;
+				cf.registerType(field.getType());
+				mv.visitFieldInsn(GETFIELD, owner, field.getName(), Type.getDescriptor(field.getType()));
+				cf.box(mv, field.getType());
+			}
+		}
 	}
 
 }
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for compiling SpEL expressions to bytecode.
+ *
+ * @author agent
+ */
+public class SpelCompilationTests {
+
+	@Test
+	public void compilerOffByDefault() throws Exception {
+		SpelExpression expression = (SpelExpression) new SpelExpressionParser().parseExpression("name");
+		for (int i = 0; i < 200; i++) {
+			assertEquals("foo", expression.getValue(new Person("foo", 1)));
+		}
+		assertFalse(isCompiled(expression));
+	}
+
+	@Test
+	public void compiledAfterThreshold() throws Exception {
+		SpelExpression expression = parse(SpelCompilerMode.MIXED, 3, "name.toUpperCase()");
+		Person person = new Person("foo", 1);
+		assertEquals("FOO", expression.getValue(person));
+		assertEquals("FOO", expression.getValue(person));
+		assertFalse(isCompiled(expression));
+		assertEquals("FOO", expression.getValue(person));
+		assertTrue(isCompiled(expression));
+		assertEquals("BAR", expression.getValue(new Person("bar", 2)));
+		assertEquals("BAR", expression.getValue(new Person("bar", 2), String.class));
+	}
+
+	@Test
+	public void literalsFieldsAndMethodArguments() throws Exception {
+		SpelExpression expression = parse(SpelCompilerMode.IMMEDIATE, 1, "pad(name, age, 'x').concat(publicField)");
+		Person person = new Person("foo", 3);
+		assertEquals("fooxxx!", expression.getValue(person));
+		assertTrue(isCompiled(expression));
+		assertEquals("fooxxx!", expression.getValue(person));
+		assertEquals("barx!", expression.getValue(new Person("bar", 1)));
+	}
+
+	@Test
+	public void booleanOperatorsAndEquality() throws Exception {
+		String expressionString = "(active and !(age == 3)) or (name != 'foo' ? true : false)";
+		SpelExpression expression = parse(SpelCompilerMode.IMMEDIATE, 1, expressionString);
+		List<Person> people = Arrays.asList(new Person("foo", 3), new Person("foo", 4), new Person("bar", 3),
+				new Person("foo", 2L), new Person("foo", 3.0d));
+		for (int i = 0; i < 2; i++) {
+			for (Person person : people) {
+				SpelExpression interpreted = (SpelExpression) new SpelExpressionParser().parseExpression(expressionString);
+				assertEquals(interpreted.getValue(person), expression.getValue(person));
+			}
+		}
+		assertTrue(isCompiled(expression));
+	}
+
+	@Test
+	public void variablesAndRoot() throws Exception {
+		SpelExpression expression = parse(SpelCompilerMode.IMMEDIATE, 1, "#flag ? #root.name : #other");
+		StandardEvaluationContext context = new StandardEvaluationContext(new Person("foo", 1));
+		context.setVariable("flag", true);
+		context.setVariable("other", "bar");
+		assertEquals("foo", expression.getValue(context));
+		assertTrue(isCompiled(expression));
+		assertEquals("foo", expression.getValue(context));
+		context.setVariable("flag", false);
+		assertEquals("bar", expression.getValue(context));
+	}
+
+	@Test
+	public void nullSafeNavigation() throws Exception {
+		SpelExpression expression = parse(SpelCompilerMode.IMMEDIATE, 1, "spouse?.name");
+		Person person = new Person("foo", 1);
+		person.setSpouse(new Person("bar", 2));
+		assertEquals("bar", expression.getValue(person));
+		assertTrue(isCompiled(expression));
+		assertEquals("bar", expression.getValue(person));
+		assertNull(expression.getValue(new Person("foo", 1)));
+	}
+
+	@Test
+	public void mixedModeFallsBackWhenTypesChange() throws Exception {
+		SpelExpression expression = parse(SpelCompilerMode.MIXED, 2, "name");
+		assertEquals("foo", expression.getValue(new Person("foo", 1)));
+		assertEquals("foo", expression.getValue(new Person("foo", 1)));
+		assertTrue(isCompiled(expression));
+		assertEquals("bar", expression.getValue(new Pet("bar")));
+		assertFalse(isCompiled(expression));
+		// recompiled against the new type
+		assertEquals("baz", expression.getValue(new Pet("baz")));
+		assertTrue(isCompiled(expression));
+	}
+
+	@Test
+	public void immediateModeReportsFailure() throws Exception {
+		SpelExpression expression = parse(SpelCompilerMode.IMMEDIATE, 1, "name");
+		assertEquals("foo", expression.getValue(new Person("foo", 1)));
+		assertTrue(isCompiled(expression));
+		try {
+			expression.getValue(new Pet("bar"));
+			fail("Should have thrown SpelEvaluationException");
+		}
+		catch (SpelEvaluationException ex) {
+			assertEquals(SpelMessage.EXCEPTION_RUNNING_COMPILED_EXPRESSION, ex.getMessageCode());
+			assertTrue(ex.getCause() instanceof ClassCastException);
+		}
+	}
+
+	@Test
+	public void notCompilable() throws Exception {
+		SpelExpression expression = parse(SpelCompilerMode.MIXED, 1, "name.bytes[0]");
+		assertEquals((byte) 'f', expression.getValue(new Person("foo", 1)));
+		assertFalse(isCompiled(expression));
+		assertFalse(expression.compileExpression());
+	}
+
+	@Test
+	public void revertToInterpreted() throws Exception {
+		SpelExpression expression = parse(SpelCompilerMode.MIXED, 1, "age");
+		assertEquals(1, expression.getValue(new Person("foo", 1)));
+		assertTrue(isCompiled(expression));
+		expression.revertToInterpreted();
+		assertFalse(isCompiled(expression));
+		assertEquals(1, expression.getValue(new Person("foo", 1)));
+		assertTrue(expression.compileExpression());
+	}
+
+
+	private SpelExpression parse(SpelCompilerMode compilerMode, int compileThreshold, String expression) {
+		SpelParserConfiguration configuration =
+				new SpelParserConfiguration(compilerMode, null, compileThreshold, false, false);
+		return (SpelExpression) new SpelExpressionParser(configuration).parseExpression(expression);
+	}
+
+	private boolean isCompiled(SpelExpression expression) throws Exception {
+		Field field = SpelExpression.class.getDeclaredField("compiledAst");
+		field.setAccessible(true);
+		return (field.get(expression) != null);
+	}
+
+
+	public static class Person {
+
+		public String publicField = "!";
+
+		private final String name;
+
+		private final Number age;
+
+		private Person spouse;
+
+		public Person(String name, Number age) {
+			this.name = name;
+			this.age = age;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public Number getAge() {
+			return this.age;
+		}
+
+		public boolean isActive() {
+			return true;
+		}
+
+		public Person getSpouse() {
+			return this.spouse;
+		}
+
+		public void setSpouse(Person spouse) {
+			this.spouse = spouse;
+		}
+
+		public String pad(String value, Number count, String padding) {
+			StringBuilder sb = new StringBuilder(value);
+			for (int i = 0; i < count.intValue(); i++) {
+				sb.append(padding);
+			}
+			return sb.toString();
+		}
+	}
+
+
+	public static class Pet {
+
+		private final String name;
+
+		public Pet(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+	}
+
+}
@@ -30,6 +30,7 @@ import org.apache.commons.logging.LogFactory;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.NotWritablePropertyException;
 import org.springframework.beans.PropertyAccessorFactory;
 import org.springframework.beans.TypeMismatchException;
@@ -82,6 +83,9 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 	/** Whether we're defaulting primitives when mapping a null value */
 	private boolean primitivesDefaultedForNullValue = false;
 
+	/** Whether we're invoking setters through generated accessors */
+	private boolean useGeneratedAccessors = false;
+
 	/** Map of the fields we provide mapping for */
 	private Map<String, PropertyDescriptor> mappedFields;
 
@@ -222,6 +226,24 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 		return primitivesDefaultedForNullValue;
 	}
 
+	/**
+	 * Set whether the setters of the mapped class should be invoked through
+	 * accessors generated at runtime instead of through reflection.
+	 * <p>Default is <code>false</code>. Switch this on when mapping large result sets.
+	 * @see org.springframework.beans.BeanWrapperImpl#setUseGeneratedAccessors
+	 */
+	public void setUseGeneratedAccessors(boolean useGeneratedAccessors) {
+		this.useGeneratedAccessors = useGeneratedAccessors;
+	}
+
+	/**
+	 * Return whether the setters of the mapped class are invoked through
+	 * generated accessors.
+	 */
+	public boolean isUseGeneratedAccessors() {
+		return this.useGeneratedAccessors;
+	}
+
 
 	/**
 	 * Extract the values for all columns in the current row.
@@ -232,6 +254,9 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 		Assert.state(this.mappedClass != null, "Mapped class was not specified");
 		T mappedObject = BeanUtils.instantiate(this.mappedClass);
 		BeanWrapper bw = PropertyAccessorFactory.forBeanPropertyAccess(mappedObject);
+		if (this.useGeneratedAccessors && bw instanceof BeanWrapperImpl) {
+			((BeanWrapperImpl) bw).setUseGeneratedAccessors(true);
+		}
 		initBeanWrapper(bw);
 
 		ResultSetMetaData rsmd = rs.getMetaData();
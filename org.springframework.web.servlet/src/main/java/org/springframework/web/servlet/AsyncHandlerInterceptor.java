@@ -0,0 +1,58 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.web.servlet;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Extends {@link HandlerInterceptor} with a callback method invoked during
+ * asynchronous request handling.
+ *
+ * <p>When a handler starts asynchronous request handling, the DispatcherServlet
+ * exits without invoking <code>postHandle</code> and <code>afterCompletion</code>,
+ * as it normally does, since the results of request handling (e.g. ModelAndView)
+ * are not yet ready and will be produced concurrently from another thread.
+ * In such scenarios, {@link #afterConcurrentHandlingStarted(HttpServletRequest, HttpServletResponse, Object)}
+ * is invoked instead allowing implementations to perform tasks such as cleaning
+ * up thread bound attributes.
+ *
+ * <p>When asynchronous handling completes, the request is dispatched to the
+ * container for further processing. At this stage the DispatcherServlet invokes
+ * <code>preHandle</code>, <code>postHandle</code> and <code>afterCompletion</code>
+ * as usual.
+ *
+ * @author agent
+ * @since 3.1
+ * @see org.springframework.web.context.request.async.WebAsyncManager
+ */
+public interface AsyncHandlerInterceptor extends HandlerInterceptor {
+
+	/**
+	 * Called instead of <code>postHandle</code> and <code>afterCompletion</code>,
+	 * when the handler started concurrent request handling.
+	 * @param request the current request
+	 * @param response the current response
+	 * @param handler handler that started async execution, for type and/or
+	 * instance examination
+	 * @throws Exception in case of errors
+	 */
+	void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler)
+			throws Exception;
+
+}
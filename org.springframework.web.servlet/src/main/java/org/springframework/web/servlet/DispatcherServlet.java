@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -50,6 +50,7 @@ import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.multipart.MultipartException;
 import org.springframework.web.multipart.MultipartHttpServletRequest;
 import org.springframework.web.multipart.MultipartResolver;
@@ -851,6 +852,7 @@ public class DispatcherServlet extends FrameworkServlet {
 		HttpServletRequest processedRequest = request;
 		HandlerExecutionChain mappedHandler = null;
 		int interceptorIndex = -1;
+		boolean asyncStarted = false;
 
 		try {
 			ModelAndView mv;
@@ -899,6 +901,13 @@ public class DispatcherServlet extends FrameworkServlet {
 				// Actually invoke the handler.
 				mv = ha.handle(processedRequest, response, mappedHandler.getHandler());
 
+				// Did the handler start concurrent handling? Then the response stays open.
+				if (WebAsyncUtils.isConcurrentHandlingStarted(processedRequest)) {
+					asyncStarted = true;
+					triggerAfterConcurrentHandlingStarted(mappedHandler, interceptorIndex, processedRequest, response);
+					return;
+				}
+
 				// Do we need view name translation?
 				if (mv != null && !mv.hasView()) {
 					mv.setViewName(getDefaultViewName(request));
@@ -953,8 +962,9 @@ public class DispatcherServlet extends FrameworkServlet {
 		}
 
 		finally {
-			// Clean up any resources used by a multipart request.
-			if (processedRequest != request) {
+			// Clean up any resources used by a multipart request,
+			// unless they are still needed for concurrent handling.
+			if (processedRequest != request && !asyncStarted) {
 				cleanupMultipart(processedRequest);
 			}
 		}
@@ -1225,6 +1235,34 @@ public class DispatcherServlet extends FrameworkServlet {
 		}
 	}
 
+	/**
+	 * Trigger afterConcurrentHandlingStarted callbacks on those mapped HandlerInterceptors
+	 * that implement {@link AsyncHandlerInterceptor}, in place of postHandle and afterCompletion.
+	 * @param mappedHandler the mapped HandlerExecutionChain
+	 * @param interceptorIndex index of last interceptor that successfully completed
+	 * @see AsyncHandlerInterceptor#afterConcurrentHandlingStarted
+	 */
+	private void triggerAfterConcurrentHandlingStarted(HandlerExecutionChain mappedHandler,
+			int interceptorIndex,
+			HttpServletRequest request,
+			HttpServletResponse response) {
+
+		HandlerInterceptor[] interceptors = mappedHandler.getInterceptors();
+		if (interceptors != null) {
+			for (int i = interceptorIndex; i >= 0; i--) {
+				if (interceptors[i] instanceof AsyncHandlerInterceptor) {
+					try {
+						((AsyncHandlerInterceptor) interceptors[i]).afterConcurrentHandlingStarted(
+								request, response, mappedHandler.getHandler());
+					}
+					catch (Throwable ex) {
+						logger.error("AsyncHandlerInterceptor.afterConcurrentHandlingStarted threw exception", ex);
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * Restore the request attributes after an include.
 	 * @param request current HTTP request
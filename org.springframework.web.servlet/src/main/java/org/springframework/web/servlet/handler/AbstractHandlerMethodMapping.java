@@ -18,9 +18,12 @@ package org.springframework.web.servlet.handler;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -28,10 +31,12 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.context.ApplicationContextException;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.util.ReflectionUtils.MethodFilter;
+import org.springframework.util.StringUtils;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.method.HandlerMethodSelector;
 import org.springframework.web.servlet.HandlerMapping;
@@ -43,6 +48,12 @@ import org.springframework.web.servlet.HandlerMapping;
  * <p>For each registered handler method, a unique mapping is maintained with 
  * subclasses defining the details of the mapping type {@code <T>}.  
  * 
+ * <p>Mappings are indexed by the literal leading segments of their URL path
+ * patterns, so that a lookup only evaluates the mappings whose literal prefix
+ * is compatible with the lookup path. Optionally, resolved handler methods can
+ * also be cached by HTTP method and lookup path -- see
+ * {@link #setHandlerMethodCacheLimit(int)}.
+ * 
  * @param <T> The mapping for a {@link HandlerMethod} containing the conditions
  * needed to match the handler method to incoming request. 
  * 
@@ -56,6 +67,51 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 	private final MultiValueMap<String, T> urlMap = new LinkedMultiValueMap<String, T>();
 
+	private final PathPrefixIndex<T> pathPrefixIndex = new PathPrefixIndex<T>();
+
+	private boolean usePathPrefixIndex = true;
+
+	private volatile int handlerMethodCacheLimit = 0;
+
+	/** Cache of HTTP method and lookup path to resolved match */
+	private final Map<String, Match> handlerMethodCache = new LinkedHashMap<String, Match>(64, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Match> eldest) {
+			return size() > getHandlerMethodCacheLimit();
+		}
+	};
+
+
+	/**
+	 * Whether to narrow down the mappings to evaluate for a lookup path via an
+	 * index of the literal leading segments of each mapping's URL patterns.
+	 * <p>The default is "true". The index is only used with an
+	 * {@link AntPathMatcher} based {@link #setPathMatcher PathMatcher} that uses
+	 * the default "/" path separator. Set this flag to "false" when plugging in a
+	 * {@code PathMatcher} with different matching semantics for literal segments.
+	 */
+	public void setUsePathPrefixIndex(boolean usePathPrefixIndex) {
+		this.usePathPrefixIndex = usePathPrefixIndex;
+	}
+
+	/**
+	 * Specify the maximum number of entries for the cache of resolved handler
+	 * methods, keyed by HTTP method and lookup path.
+	 * <p>Only lookups for which all candidate mappings depend on nothing but the
+	 * URL path and the HTTP method are cached (see
+	 * {@link #isPathAndMethodOnlyMapping}). The default is 0, meaning no caching.
+	 */
+	public void setHandlerMethodCacheLimit(int handlerMethodCacheLimit) {
+		this.handlerMethodCacheLimit = handlerMethodCacheLimit;
+	}
+
+	/**
+	 * Return the maximum number of entries for the cache of resolved handler methods.
+	 */
+	public int getHandlerMethodCacheLimit() {
+		return this.handlerMethodCacheLimit;
+	}
+
 	/**
 	 * Return a map with all handler methods and their mappings.
 	 */
@@ -174,6 +230,11 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 				urlMap.add(pattern, mapping);
 			}
 		}
+		pathPrefixIndex.add(patterns, mapping);
+
+		synchronized (this.handlerMethodCache) {
+			this.handlerMethodCache.clear();
+		}
 	}
 
 	/**
@@ -217,18 +278,35 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	 * @see #handleNoMatch(Set, String, HttpServletRequest)
 	 */
 	protected HandlerMethod lookupHandlerMethod(String lookupPath, HttpServletRequest request) throws Exception {
-		List<T> mappings = urlMap.get(lookupPath);
+		String cacheKey = null;
+		if (getHandlerMethodCacheLimit() > 0) {
+			cacheKey = request.getMethod() + " " + lookupPath;
+			Match cachedMatch;
+			synchronized (this.handlerMethodCache) {
+				cachedMatch = this.handlerMethodCache.get(cacheKey);
+			}
+			if (cachedMatch != null) {
+				handleMatch(cachedMatch.mapping, lookupPath, request);
+				return cachedMatch.handlerMethod;
+			}
+		}
+
+		Collection<T> mappings = urlMap.get(lookupPath);
 		if (mappings == null) {
-			mappings = new ArrayList<T>(handlerMethods.keySet());
+			mappings = getCandidateMappings(lookupPath);
 		}
 			
 		List<Match> matches = new ArrayList<Match>();
+		boolean cacheable = (cacheKey != null);
 		
 		for (T mapping : mappings) {
 			T match = getMatchingMapping(mapping, request);
 			if (match != null) {
 				matches.add(new Match(match, handlerMethods.get(mapping)));
 			}
+			if (cacheable && !isPathAndMethodOnlyMapping(mapping)) {
+				cacheable = false;
+			}
 		}
 
 		if (!matches.isEmpty()) {
@@ -251,6 +329,12 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 				}
 			}
 
+			if (cacheable) {
+				synchronized (this.handlerMethodCache) {
+					this.handlerMethodCache.put(cacheKey, bestMatch);
+				}
+			}
+
 			handleMatch(bestMatch.mapping, lookupPath, request);
 			return bestMatch.handlerMethod;
 		}
@@ -259,6 +343,33 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 		}
 	}
 
+	/**
+	 * Return the mappings that may match the given lookup path, i.e. all
+	 * mappings whose URL patterns have a literal prefix compatible with the
+	 * lookup path. Falls back to all registered mappings if the prefix index
+	 * is not applicable.
+	 * @param lookupPath mapping lookup path within the current servlet mapping
+	 * @return the candidate mappings, in no particular order
+	 */
+	protected Collection<T> getCandidateMappings(String lookupPath) {
+		if (this.usePathPrefixIndex && getPathMatcher() instanceof AntPathMatcher) {
+			return this.pathPrefixIndex.getCandidates(lookupPath);
+		}
+		return new ArrayList<T>(handlerMethods.keySet());
+	}
+
+	/**
+	 * Whether the given mapping matches a request based on nothing but the
+	 * URL path and the HTTP method. Only lookups for which all candidate mappings
+	 * qualify are eligible for the handler method cache.
+	 * <p>The default implementation returns {@code false}.
+	 * @param mapping the mapping to check
+	 * @see #setHandlerMethodCacheLimit(int)
+	 */
+	protected boolean isPathAndMethodOnlyMapping(T mapping) {
+		return false;
+	}
+
 	/**
 	 * Check if a mapping matches the current request and return a (potentially 
 	 * new) mapping with conditions relevant to the current request.
@@ -331,5 +442,81 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return comparator.compare(match1.mapping, match2.mapping);
 		}
 	}
-	
-}
\ No newline at end of file
+
+
+	/**
+	 * Index of mappings by the literal leading segments of their URL patterns.
+	 * <p>A mapping is registered at the trie node for the literal segments that
+	 * precede the first wildcard or URI template segment of each of its patterns,
+	 * excluding the last segment (which may still match with a suffix or a
+	 * trailing slash). Mappings without patterns are registered at the root.
+	 */
+	private static class PathPrefixIndex<T> {
+
+		private static final String PATH_SEPARATOR = "/";
+
+		private final Node<T> root = new Node<T>();
+
+		public synchronized void add(Set<String> patterns, T mapping) {
+			if (patterns.isEmpty()) {
+				this.root.add(mapping);
+				return;
+			}
+			for (String pattern : patterns) {
+				String[] segments = StringUtils.tokenizeToStringArray(pattern, PATH_SEPARATOR);
+				Node<T> node = this.root;
+				for (int i = 0; i < segments.length - 1 && isLiteral(segments[i]); i++) {
+					node = node.getOrCreateChild(segments[i]);
+				}
+				node.add(mapping);
+			}
+		}
+
+		public Collection<T> getCandidates(String lookupPath) {
+			Set<T> candidates = new LinkedHashSet<T>();
+			Node<T> node = this.root;
+			candidates.addAll(node.mappings);
+			String[] segments = StringUtils.tokenizeToStringArray(lookupPath, PATH_SEPARATOR);
+			for (int i = 0; i < segments.length; i++) {
+				node = node.children.get(segments[i]);
+				if (node == null) {
+					break;
+				}
+				candidates.addAll(node.mappings);
+			}
+			return candidates;
+		}
+
+		private static boolean isLiteral(String segment) {
+			return (segment.indexOf('*') == -1 && segment.indexOf('?') == -1 && segment.indexOf('{') == -1);
+		}
+
+
+		private static class Node<T> {
+
+			private volatile Map<String, Node<T>> children = Collections.emptyMap();
+
+			private volatile List<T> mappings = Collections.emptyList();
+
+			public Node<T> getOrCreateChild(String segment) {
+				Node<T> child = this.children.get(segment);
+				if (child == null) {
+					child = new Node<T>();
+					Map<String, Node<T>> newChildren = new HashMap<String, Node<T>>(this.children);
+					newChildren.put(segment, child);
+					this.children = newChildren;
+				}
+				return child;
+			}
+
+			public void add(T mapping) {
+				if (!this.mappings.contains(mapping)) {
+					List<T> newMappings = new ArrayList<T>(this.mappings);
+					newMappings.add(mapping);
+					this.mappings = newMappings;
+				}
+			}
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2006 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,17 +19,17 @@ package org.springframework.web.servlet.handler;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
 import org.springframework.web.servlet.ModelAndView;
 
 /**
- * Abstract adapter class for the HandlerInterceptor interface,
+ * Abstract adapter class for the {@link AsyncHandlerInterceptor} interface,
  * for simplified implementation of pre-only/post-only interceptors.
  *
  * @author Juergen Hoeller
  * @since 05.12.2003
  */
-public abstract class HandlerInterceptorAdapter implements HandlerInterceptor {
+public abstract class HandlerInterceptorAdapter implements AsyncHandlerInterceptor {
 
 	/**
 	 * This implementation always returns <code>true</code>.
@@ -55,4 +55,12 @@ public abstract class HandlerInterceptorAdapter implements HandlerInterceptor {
 			throws Exception {
 	}
 
+	/**
+	 * This implementation is empty.
+	 */
+	public void afterConcurrentHandlingStarted(
+			HttpServletRequest request, HttpServletResponse response, Object handler)
+			throws Exception {
+	}
+
 }
@@ -34,6 +34,13 @@ public abstract class AbstractRequestCondition<T extends AbstractRequestConditio
 	 * @return a collection of objects, never {@code null}
 	 */
 	protected abstract Collection<?> getContent();
+
+	/**
+	 * Whether this condition is empty, i.e. whether it has no discrete items.
+	 */
+	public boolean isEmpty() {
+		return getContent().isEmpty();
+	}
 	
 	@Override
 	public boolean equals(Object o) {
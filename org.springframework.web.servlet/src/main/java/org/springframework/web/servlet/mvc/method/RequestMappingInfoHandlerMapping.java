@@ -64,6 +64,18 @@ public abstract class RequestMappingInfoHandlerMapping extends AbstractHandlerMe
 		return info.getMatchingCondition(request);
 	}
 
+	/**
+	 * Whether the given RequestMappingInfo has no conditions other than URL
+	 * patterns and HTTP request methods, which makes it eligible for caching
+	 * the result of a lookup by HTTP method and lookup path.
+	 */
+	@Override
+	protected boolean isPathAndMethodOnlyMapping(RequestMappingInfo info) {
+		return (info.getParamsCondition().isEmpty() && info.getHeadersCondition().isEmpty() &&
+				info.getConsumesCondition().isEmpty() && info.getProducesCondition().isEmpty() &&
+				info.getCustomCondition() == null);
+	}
+
 	/**
 	 * Provide a Comparator to sort RequestMappingInfos matched to a request.
 	 */
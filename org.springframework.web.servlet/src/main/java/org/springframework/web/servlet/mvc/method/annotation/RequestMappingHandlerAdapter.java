@@ -35,6 +35,8 @@ import org.springframework.core.LocalVariableTableParameterNameDiscoverer;
 import org.springframework.core.MethodParameter;
 import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.http.converter.ByteArrayHttpMessageConverter;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.StringHttpMessageConverter;
@@ -57,6 +59,9 @@ import org.springframework.web.bind.support.WebBindingInitializer;
 import org.springframework.web.bind.support.WebDataBinderFactory;
 import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.method.HandlerMethodSelector;
 import org.springframework.web.method.annotation.ModelFactory;
@@ -80,17 +85,21 @@ import org.springframework.web.servlet.View;
 import org.springframework.web.servlet.mvc.LastModified;
 import org.springframework.web.servlet.mvc.annotation.ModelAndViewResolver;
 import org.springframework.web.servlet.mvc.method.AbstractHandlerMethodAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.support.CallableMethodReturnValueHandler;
 import org.springframework.web.servlet.mvc.method.annotation.support.DefaultMethodReturnValueHandler;
+import org.springframework.web.servlet.mvc.method.annotation.support.DeferredResultMethodReturnValueHandler;
 import org.springframework.web.servlet.mvc.method.annotation.support.HttpEntityMethodProcessor;
 import org.springframework.web.servlet.mvc.method.annotation.support.ModelAndViewMethodReturnValueHandler;
 import org.springframework.web.servlet.mvc.method.annotation.support.PathVariableMethodArgumentResolver;
 import org.springframework.web.servlet.mvc.method.annotation.support.RedirectAttributesMethodArgumentResolver;
 import org.springframework.web.servlet.mvc.method.annotation.support.RequestPartMethodArgumentResolver;
 import org.springframework.web.servlet.mvc.method.annotation.support.RequestResponseBodyMethodProcessor;
+import org.springframework.web.servlet.mvc.method.annotation.support.ResponseBodyEmitterReturnValueHandler;
 import org.springframework.web.servlet.mvc.method.annotation.support.ServletCookieValueMethodArgumentResolver;
 import org.springframework.web.servlet.mvc.method.annotation.support.ServletModelAttributeMethodProcessor;
 import org.springframework.web.servlet.mvc.method.annotation.support.ServletRequestMethodArgumentResolver;
 import org.springframework.web.servlet.mvc.method.annotation.support.ServletResponseMethodArgumentResolver;
+import org.springframework.web.servlet.mvc.method.annotation.support.StreamingResponseBodyReturnValueHandler;
 import org.springframework.web.servlet.mvc.method.annotation.support.ViewMethodReturnValueHandler;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.web.servlet.mvc.support.RedirectAttributesModelMap;
@@ -115,7 +124,9 @@ import org.springframework.web.util.WebUtils;
  * {@link InitBinder} methods for initializing data binder instances when needed.
  *
  * <p>This class is the central point that assembles all mentioned contributors and invokes the actual
- * {@link RequestMapping} handler method through a {@link ServletInvocableHandlerMethod}.
+ * {@link RequestMapping} handler method through a {@link ServletInvocableHandlerMethod}. The contributors
+ * for a given handler method are assembled once, on first use, with the argument resolvers and the return
+ * value handler already determined, so that subsequent requests only resolve arguments and invoke the method.
  *
  * @author Rossen Stoyanchev
  * @since 3.1
@@ -127,6 +138,8 @@ import org.springframework.web.util.WebUtils;
 public class RequestMappingHandlerAdapter extends AbstractHandlerMethodAdapter implements BeanFactoryAware,
 		InitializingBean {
 
+	private static final String SESSION_STATUS_ATTRIBUTE = RequestMappingHandlerAdapter.class.getName() + ".SESSION_STATUS";
+
 	private List<HandlerMethodArgumentResolver> customArgumentResolvers;
 
 	private List<HandlerMethodReturnValueHandler> customReturnValueHandlers;
@@ -148,6 +161,12 @@ public class RequestMappingHandlerAdapter extends AbstractHandlerMethodAdapter i
 	private SessionAttributeStore sessionAttributeStore = new DefaultSessionAttributeStore();
 	
 	private boolean alwaysUseRedirectAttributes;
+
+	private AsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("MvcAsync");
+
+	private Long asyncRequestTimeout;
+
+	private boolean asyncStreaming = false;
 	
 	private final Map<Class<?>, SessionAttributesHandler> sessionAttributesHandlerCache =
 		new ConcurrentHashMap<Class<?>, SessionAttributesHandler>();
@@ -163,6 +182,9 @@ public class RequestMappingHandlerAdapter extends AbstractHandlerMethodAdapter i
 
 	private final Map<Class<?>, ModelFactory> modelFactoryCache = new ConcurrentHashMap<Class<?>, ModelFactory>();
 
+	private final Map<InvocationPlanKey, InvocationPlan> invocationPlanCache =
+		new ConcurrentHashMap<InvocationPlanKey, InvocationPlan>();
+
 	/**
 	 * Create a {@link RequestMappingHandlerAdapter} instance.
 	 */
@@ -349,6 +371,43 @@ public class RequestMappingHandlerAdapter extends AbstractHandlerMethodAdapter i
 		this.alwaysUseRedirectAttributes = alwaysUseRedirectAttributes;
 	}
 
+	/**
+	 * Set the default {@link AsyncTaskExecutor} to use when a controller method
+	 * returns a {@link java.util.concurrent.Callable}.
+	 * <p>By default a {@link SimpleAsyncTaskExecutor} instance is used. It is
+	 * highly recommended to change that default in production as the simple
+	 * executor does not re-use threads.
+	 */
+	public void setTaskExecutor(AsyncTaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Specify the amount of time, in milliseconds, before concurrent handling
+	 * should time out. In Servlet 3, the timeout begins after the main request
+	 * processing thread has exited and ends when the request is dispatched again
+	 * for further processing of the concurrently produced result.
+	 * <p>If this value is not set, the default timeout of the underlying
+	 * implementation is used, e.g. 10 seconds on Tomcat with Servlet 3.
+	 * A {@link org.springframework.web.context.request.async.DeferredResult}
+	 * may override this value with a timeout of its own.
+	 * @param timeout the timeout value in milliseconds
+	 */
+	public void setAsyncRequestTimeout(long timeout) {
+		this.asyncRequestTimeout = timeout;
+	}
+
+	/**
+	 * Whether to write {@link StreamingResponseBody} return values from a thread of the
+	 * configured {@link #setTaskExecutor task executor}, releasing the container thread
+	 * for the duration of the write. This requires Servlet 3.0 async support to be
+	 * enabled for the request.
+	 * <p>The default is {@code false}, writing the content from the container thread.
+	 */
+	public void setAsyncStreaming(boolean asyncStreaming) {
+		this.asyncStreaming = asyncStreaming;
+	}
+
 	public void setBeanFactory(BeanFactory beanFactory) {
 		if (beanFactory instanceof ConfigurableBeanFactory) {
 			this.beanFactory = (ConfigurableBeanFactory) beanFactory;
@@ -427,6 +486,12 @@ public class RequestMappingHandlerAdapter extends AbstractHandlerMethodAdapter i
 
 		returnValueHandlers = new HandlerMethodReturnValueHandlerComposite();
 
+		// Async and streaming handlers, ahead of annotation-based handlers
+		returnValueHandlers.addHandler(new CallableMethodReturnValueHandler());
+		returnValueHandlers.addHandler(new DeferredResultMethodReturnValueHandler());
+		returnValueHandlers.addHandler(new StreamingResponseBodyReturnValueHandler(asyncStreaming));
+		returnValueHandlers.addHandler(new ResponseBodyEmitterReturnValueHandler(messageConverters));
+
 		// Annotation-based handlers
 		returnValueHandlers.addHandler(new RequestResponseBodyMethodProcessor(messageConverters));
 		returnValueHandlers.addHandler(new ModelAttributeMethodProcessor(false));
@@ -481,7 +546,9 @@ public class RequestMappingHandlerAdapter extends AbstractHandlerMethodAdapter i
 												HttpServletResponse response,
 												HandlerMethod handlerMethod) throws Exception {
 
-		if (getSessionAttributesHandler(handlerMethod).hasSessionAttributes()) {
+		InvocationPlan plan = getInvocationPlan(handlerMethod);
+
+		if (plan.hasSessionAttributes()) {
 			// Always prevent caching in case of session attribute management.
 			checkAndPrepare(request, response, this.cacheSecondsForSessionAttributeHandlers, true);
 		}
@@ -496,12 +563,12 @@ public class RequestMappingHandlerAdapter extends AbstractHandlerMethodAdapter i
 			if (session != null) {
 				Object mutex = WebUtils.getSessionMutex(session);
 				synchronized (mutex) {
-					return invokeHandlerMethod(request, response, handlerMethod);
+					return invokeHandlerMethod(request, response, handlerMethod, plan);
 				}
 			}
 		}
 		
-		return invokeHandlerMethod(request, response, handlerMethod);
+		return invokeHandlerMethod(request, response, handlerMethod, plan);
 	}
 
 	/**
@@ -525,28 +592,61 @@ public class RequestMappingHandlerAdapter extends AbstractHandlerMethodAdapter i
 
 	/**
 	 * Invoke the {@link RequestMapping} handler method preparing a {@link ModelAndView} if view resolution is required.
+	 * <p>If the handler method starts concurrent handling, {@code null} is returned and the response remains open.
+	 * When the request is dispatched again with the concurrently produced result, the model and session status
+	 * saved at the start of concurrent handling are restored and the result is handled as if the handler method
+	 * had returned it.
 	 */
 	private ModelAndView invokeHandlerMethod(HttpServletRequest request, HttpServletResponse response,
-			HandlerMethod handlerMethod) throws Exception {
+			HandlerMethod handlerMethod, InvocationPlan plan) throws Exception {
 		
 		ServletWebRequest webRequest = new ServletWebRequest(request, response);
 
-		WebDataBinderFactory binderFactory = getDataBinderFactory(handlerMethod);
-		ServletInvocableHandlerMethod requestMappingMethod = createRequestMappingMethod(handlerMethod, binderFactory);
-		ModelFactory modelFactory = getModelFactory(handlerMethod, binderFactory);
+		WebDataBinderFactory binderFactory = plan.getBinderFactory();
+		ServletInvocableHandlerMethod requestMappingMethod = plan.getRequestMappingMethod(handlerMethod);
+		ModelFactory modelFactory = plan.getModelFactory();
+
+		AsyncWebRequest asyncWebRequest = WebAsyncUtils.createAsyncWebRequest(request, response);
+		asyncWebRequest.setTimeout(this.asyncRequestTimeout);
+
+		WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+		asyncManager.setTaskExecutor(this.taskExecutor);
+		asyncManager.setAsyncWebRequest(asyncWebRequest);
+
+		ModelAndViewContainer mavContainer;
+		SessionStatus sessionStatus;
+
+		if (asyncManager.hasConcurrentResult()) {
+			// Resume with the result produced by concurrent handling.
+			Object result = asyncManager.getConcurrentResult();
+			mavContainer = (ModelAndViewContainer) asyncManager.getConcurrentResultContext()[0];
+			mavContainer.setResolveView(true);
+			sessionStatus = (SessionStatus) request.getAttribute(SESSION_STATUS_ATTRIBUTE);
+			request.removeAttribute(SESSION_STATUS_ATTRIBUTE);
+			asyncManager.clearConcurrentResult();
+			requestMappingMethod = requestMappingMethod.wrapConcurrentResult(result);
+		}
+		else {
+			mavContainer = new ModelAndViewContainer();
+			mavContainer.addAllAttributes(RequestContextUtils.getInputFlashMap(request));
+			modelFactory.initModel(webRequest, mavContainer, requestMappingMethod);
 
-		ModelAndViewContainer mavContainer = new ModelAndViewContainer();
-		mavContainer.addAllAttributes(RequestContextUtils.getInputFlashMap(request));
-		modelFactory.initModel(webRequest, mavContainer, requestMappingMethod);
+			if (this.alwaysUseRedirectAttributes) {
+				DataBinder dataBinder = binderFactory.createBinder(webRequest, null, null);
+				mavContainer.setRedirectModel(new RedirectAttributesModelMap(dataBinder));
+			}
 
-		if (this.alwaysUseRedirectAttributes) {
-			DataBinder dataBinder = binderFactory.createBinder(webRequest, null, null);
-			mavContainer.setRedirectModel(new RedirectAttributesModelMap(dataBinder));
+			sessionStatus = new SimpleSessionStatus();
 		}
 		
-		SessionStatus sessionStatus = new SimpleSessionStatus();
-		
 		requestMappingMethod.invokeAndHandle(webRequest, mavContainer, sessionStatus);
+
+		if (asyncManager.isConcurrentHandlingStarted()) {
+			// Keep the session status for when the request is dispatched with the concurrent result.
+			request.setAttribute(SESSION_STATUS_ATTRIBUTE, sessionStatus);
+			return null;
+		}
+
 		modelFactory.updateModel(webRequest, mavContainer, sessionStatus);
 
 		if (!mavContainer.isResolveView()) {
@@ -566,6 +666,26 @@ public class RequestMappingHandlerAdapter extends AbstractHandlerMethodAdapter i
 		}
 	}
 
+	/**
+	 * Return the {@link InvocationPlan} for the given handler method, building it on first use.
+	 */
+	private InvocationPlan getInvocationPlan(HandlerMethod handlerMethod) {
+		// An inherited method may be mapped for several handler types, each with its own plan
+		InvocationPlanKey key = new InvocationPlanKey(handlerMethod.getBeanType(), handlerMethod.getMethod());
+		InvocationPlan plan = this.invocationPlanCache.get(key);
+		if (plan == null) {
+			WebDataBinderFactory binderFactory = getDataBinderFactory(handlerMethod);
+			ModelFactory modelFactory = getModelFactory(handlerMethod, binderFactory);
+			ServletInvocableHandlerMethod requestMappingMethod = createRequestMappingMethod(handlerMethod, binderFactory);
+			requestMappingMethod.prepareArgumentResolution();
+			requestMappingMethod.prepareReturnValueHandling();
+			plan = new InvocationPlan(requestMappingMethod, binderFactory, modelFactory,
+					getSessionAttributesHandler(handlerMethod).hasSessionAttributes());
+			this.invocationPlanCache.put(key, plan);
+		}
+		return plan;
+	}
+
 	private ServletInvocableHandlerMethod createRequestMappingMethod(HandlerMethod handlerMethod, 
 																	 WebDataBinderFactory binderFactory) {
 		ServletInvocableHandlerMethod requestMethod;
@@ -588,6 +708,7 @@ public class RequestMappingHandlerAdapter extends AbstractHandlerMethodAdapter i
 				attrMethod.setHandlerMethodArgumentResolvers(this.argumentResolvers);
 				attrMethod.setParameterNameDiscoverer(this.parameterNameDiscoverer);
 				attrMethod.setDataBinderFactory(binderFactory);
+				attrMethod.prepareArgumentResolution();
 				attrMethods.add(attrMethod);
 			}
 			modelFactory = new ModelFactory(attrMethods, binderFactory, sessionAttrHandler);
@@ -606,6 +727,7 @@ public class RequestMappingHandlerAdapter extends AbstractHandlerMethodAdapter i
 				binderMethod.setHandlerMethodArgumentResolvers(this.initBinderArgumentResolvers);
 				binderMethod.setDataBinderFactory(new DefaultDataBinderFactory(this.webBindingInitializer));
 				binderMethod.setParameterNameDiscoverer(this.parameterNameDiscoverer);
+				binderMethod.prepareArgumentResolution();
 				binderMethods.add(binderMethod);
 			}
 			binderFactory = new ServletRequestDataBinderFactory(binderMethods, this.webBindingInitializer);
@@ -635,4 +757,86 @@ public class RequestMappingHandlerAdapter extends AbstractHandlerMethodAdapter i
 		}
 	};
 
+
+	/**
+	 * Immutable invocation metadata for a {@link RequestMapping} method, built once on first use: a prepared
+	 * {@link ServletInvocableHandlerMethod} along with the {@link WebDataBinderFactory} and the
+	 * {@link ModelFactory} that hold the {@link InitBinder} and {@link ModelAttribute} methods of its handler type.
+	 */
+	private static final class InvocationPlan {
+
+		private final ServletInvocableHandlerMethod requestMappingMethod;
+
+		private final WebDataBinderFactory binderFactory;
+
+		private final ModelFactory modelFactory;
+
+		private final boolean sessionAttributes;
+
+		public InvocationPlan(ServletInvocableHandlerMethod requestMappingMethod,
+				WebDataBinderFactory binderFactory, ModelFactory modelFactory, boolean sessionAttributes) {
+			this.requestMappingMethod = requestMappingMethod;
+			this.binderFactory = binderFactory;
+			this.modelFactory = modelFactory;
+			this.sessionAttributes = sessionAttributes;
+		}
+
+		/**
+		 * Return the prepared handler method, copied for the bean of the given handler method
+		 * if that is not the instance the plan was built for, e.g. with prototype-scoped controllers.
+		 */
+		public ServletInvocableHandlerMethod getRequestMappingMethod(HandlerMethod handlerMethod) {
+			Object bean = handlerMethod.getBean();
+			if (bean == this.requestMappingMethod.getBean()) {
+				return this.requestMappingMethod;
+			}
+			return new ServletInvocableHandlerMethod(this.requestMappingMethod, bean);
+		}
+
+		public WebDataBinderFactory getBinderFactory() {
+			return this.binderFactory;
+		}
+
+		public ModelFactory getModelFactory() {
+			return this.modelFactory;
+		}
+
+		public boolean hasSessionAttributes() {
+			return this.sessionAttributes;
+		}
+	}
+
+
+	/**
+	 * Cache key for {@link InvocationPlan InvocationPlans}, based on handler type and method.
+	 */
+	private static final class InvocationPlanKey {
+
+		private final Class<?> handlerType;
+
+		private final Method method;
+
+		public InvocationPlanKey(Class<?> handlerType, Method method) {
+			this.handlerType = handlerType;
+			this.method = method;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof InvocationPlanKey)) {
+				return false;
+			}
+			InvocationPlanKey otherKey = (InvocationPlanKey) other;
+			return (this.handlerType.equals(otherKey.handlerType) && this.method.equals(otherKey.method));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.handlerType.hashCode() * 29 + this.method.hashCode();
+		}
+	}
+
 }
\ No newline at end of file
@@ -17,9 +17,15 @@
 package org.springframework.web.servlet.mvc.method.annotation;
 
 import java.io.IOException;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.concurrent.Callable;
 
+import org.springframework.core.MethodParameter;
 import org.springframework.http.HttpStatus;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.context.request.NativeWebRequest;
@@ -30,6 +36,7 @@ import org.springframework.web.method.support.HandlerMethodReturnValueHandlerCom
 import org.springframework.web.method.support.InvocableHandlerMethod;
 import org.springframework.web.method.support.ModelAndViewContainer;
 import org.springframework.web.servlet.View;
+import org.springframework.web.util.NestedServletException;
 
 /**
  * Extends {@link InvocableHandlerMethod} with the ability to handle the value returned from the method through
@@ -39,18 +46,28 @@ import org.springframework.web.servlet.View;
  * <p>If the underlying method has a {@link ResponseStatus} instruction, the status on the response is set
  * accordingly after the method is invoked but before the return value is handled.
  *
+ * <p>A fully configured instance may be prepared once via {@link #prepareArgumentResolution()} and
+ * {@link #prepareReturnValueHandling()}, and then shared across requests, or copied for another
+ * instance of the same handler type, since no per-request state is kept.
+ *
  * @author Rossen Stoyanchev
  * @since 3.1
  * @see #invokeAndHandle(NativeWebRequest, ModelAndViewContainer, Object...)
  */
 public class ServletInvocableHandlerMethod extends InvocableHandlerMethod {
 
+	private static final Method CALLABLE_METHOD = ClassUtils.getMethodIfAvailable(Callable.class, "call");
+
 	private HttpStatus responseStatus;
 
 	private String responseReason;
 
 	private HandlerMethodReturnValueHandlerComposite returnValueHandlers;
 
+	private MethodParameter preparedReturnType;
+
+	private HandlerMethodReturnValueHandler preparedReturnValueHandler;
+
 	public void setHandlerMethodReturnValueHandlers(HandlerMethodReturnValueHandlerComposite returnValueHandlers) {
 		this.returnValueHandlers = returnValueHandlers;
 	}
@@ -70,6 +87,32 @@ public class ServletInvocableHandlerMethod extends InvocableHandlerMethod {
 		}
 	}
 
+	/**
+	 * Creates a {@link ServletInvocableHandlerMethod} for the given bean that shares the configuration and
+	 * the prepared argument resolution and return value handling of the given handler method.
+	 * @param handlerMethod the handler method to copy from
+	 * @param bean the bean instance, which must be of the same type as the bean of the given handler method
+	 */
+	protected ServletInvocableHandlerMethod(ServletInvocableHandlerMethod handlerMethod, Object bean) {
+		super(handlerMethod, bean);
+		this.responseStatus = handlerMethod.responseStatus;
+		this.responseReason = handlerMethod.responseReason;
+		this.returnValueHandlers = handlerMethod.returnValueHandlers;
+		this.preparedReturnType = handlerMethod.preparedReturnType;
+		this.preparedReturnValueHandler = handlerMethod.preparedReturnValueHandler;
+	}
+
+	/**
+	 * Look up the {@link HandlerMethodReturnValueHandler} for the return type of the method ahead of the first
+	 * invocation, so that subsequent invocations hand the return value straight to it.
+	 * <p>Must be called after the return value handlers have been set.
+	 */
+	public void prepareReturnValueHandling() {
+		MethodParameter returnType = getReturnType();
+		this.preparedReturnValueHandler = this.returnValueHandlers.getReturnValueHandler(returnType);
+		this.preparedReturnType = returnType;
+	}
+
 	/**
 	 * Invokes the method and handles the return value through a registered {@link HandlerMethodReturnValueHandler}.
 	 * <p>Return value handling may be skipped entirely when the method returns {@code null} (also possibly due
@@ -107,7 +150,12 @@ public class ServletInvocableHandlerMethod extends InvocableHandlerMethod {
 		mavContainer.setResolveView(true);
 
 		try {
-			returnValueHandlers.handleReturnValue(returnValue, getReturnType(), mavContainer, request);
+			if (this.preparedReturnValueHandler != null) {
+				this.preparedReturnValueHandler.handleReturnValue(returnValue, this.preparedReturnType, mavContainer, request);
+			}
+			else {
+				returnValueHandlers.handleReturnValue(returnValue, getReturnType(), mavContainer, request);
+			}
 		} catch (Exception ex) {
 			if (logger.isTraceEnabled()) {
 				logger.trace(getReturnValueHandlingErrorMessage("Error handling return value", returnValue), ex);
@@ -157,4 +205,144 @@ public class ServletInvocableHandlerMethod extends InvocableHandlerMethod {
 	private boolean hasResponseStatus() {
 		return responseStatus != null;
 	}
+
+	/**
+	 * Create a ServletInvocableHandlerMethod that returns the given value produced by concurrent
+	 * handling instead of invoking the underlying method again. The value is handled as if the
+	 * underlying method had returned it, so method annotations such as @{@link ResponseStatus}
+	 * and {@code @ResponseBody} still apply. If the value is an {@link Exception} or another
+	 * {@link Throwable}, it is raised as if the underlying method had thrown it.
+	 * @param result the value produced by concurrent handling
+	 */
+	ServletInvocableHandlerMethod wrapConcurrentResult(Object result) {
+		return new ConcurrentResultHandlerMethod(result, new ConcurrentResultMethodParameter(result));
+	}
+
+
+	/**
+	 * A nested subclass of {@code ServletInvocableHandlerMethod} that uses a simple {@link Callable}
+	 * instead of the original controller as the handler in order to return the fixed (concurrent)
+	 * result value given to it. Effectively "resumes" processing with the asynchronously produced
+	 * return value.
+	 */
+	private class ConcurrentResultHandlerMethod extends ServletInvocableHandlerMethod {
+
+		private final MethodParameter returnType;
+
+		public ConcurrentResultHandlerMethod(final Object result, ConcurrentResultMethodParameter returnType) {
+			super(new Callable<Object>() {
+				public Object call() throws Exception {
+					if (result instanceof Exception) {
+						throw (Exception) result;
+					}
+					else if (result instanceof Throwable) {
+						throw new NestedServletException("Async processing failed", (Throwable) result);
+					}
+					return result;
+				}
+			}, CALLABLE_METHOD);
+			setHandlerMethodReturnValueHandlers(ServletInvocableHandlerMethod.this.returnValueHandlers);
+			this.returnType = returnType;
+		}
+
+		/**
+		 * Return the type of the concurrently produced value rather than {@code Object}.
+		 */
+		@Override
+		public MethodParameter getReturnType() {
+			return this.returnType;
+		}
+
+		/**
+		 * Bridge to the annotations of the original controller method.
+		 */
+		@Override
+		public <A extends Annotation> A getMethodAnnotation(Class<A> annotationType) {
+			return ServletInvocableHandlerMethod.this.getMethodAnnotation(annotationType);
+		}
+	}
+
+
+	/**
+	 * A MethodParameter for the value produced by concurrent handling: exposes the actual type of
+	 * the value, or the declared type argument of e.g. {@code Callable<T>} if the value is {@code null},
+	 * while delegating method annotation lookups to the original controller method.
+	 */
+	private class ConcurrentResultMethodParameter extends MethodParameter {
+
+		private final Class<?> returnType;
+
+		private final Type genericReturnType;
+
+		public ConcurrentResultMethodParameter(Object returnValue) {
+			super(ServletInvocableHandlerMethod.this.getReturnType());
+			Type nestedType = getNestedType(super.getGenericParameterType());
+			if (returnValue != null) {
+				this.returnType = returnValue.getClass();
+				this.genericReturnType = (nestedType != null && getRawType(nestedType).isAssignableFrom(this.returnType) ?
+						nestedType : this.returnType);
+			}
+			else {
+				this.returnType = (nestedType != null ? getRawType(nestedType) : Object.class);
+				this.genericReturnType = (nestedType != null ? nestedType : Object.class);
+			}
+		}
+
+		private Type getNestedType(Type type) {
+			if (type instanceof ParameterizedType) {
+				Type[] typeArguments = ((ParameterizedType) type).getActualTypeArguments();
+				if (typeArguments.length == 1 && getRawType(typeArguments[0]) != null) {
+					return typeArguments[0];
+				}
+			}
+			return null;
+		}
+
+		private Class<?> getRawType(Type type) {
+			if (type instanceof Class) {
+				return (Class<?>) type;
+			}
+			else if (type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() instanceof Class) {
+				return (Class<?>) ((ParameterizedType) type).getRawType();
+			}
+			return null;
+		}
+
+		@Override
+		public Class<?> getParameterType() {
+			return this.returnType;
+		}
+
+		@Override
+		public Type getGenericParameterType() {
+			return this.genericReturnType;
+		}
+
+		@Override
+		public <T extends Annotation> T getMethodAnnotation(Class<T> annotationType) {
+			return ServletInvocableHandlerMethod.this.getMethodAnnotation(annotationType);
+		}
+
+		/**
+		 * Take the type of the concurrent result into account, so that return value handlers
+		 * cached for the original return type (or for other result types) are not reused.
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof ConcurrentResultMethodParameter)) {
+				return false;
+			}
+			ConcurrentResultMethodParameter other = (ConcurrentResultMethodParameter) obj;
+			return (super.equals(other) && this.returnType.equals(other.returnType));
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * super.hashCode() + this.returnType.hashCode();
+		}
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.web.servlet.mvc.method.annotation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A controller method return value type for writing directly to the response
+ * {@code OutputStream}, without materializing the content in memory first.
+ * May also be used as the body of an {@link org.springframework.http.HttpEntity}
+ * or {@link org.springframework.http.ResponseEntity} return value, in order to
+ * set the response status and headers.
+ *
+ * <pre class="code">
+ * &#064;RequestMapping("/export.csv")
+ * public StreamingResponseBody export() {
+ *     return new StreamingResponseBody() {
+ *         public void writeTo(OutputStream outputStream) throws IOException {
+ *             // write rows one at a time...
+ *         }
+ *     };
+ * }</pre>
+ *
+ * <p>The response headers are written before {@link #writeTo} is invoked, and
+ * the response is flushed once it returns. The content is written from the
+ * container thread by default, or from a thread of the configured
+ * {@link org.springframework.core.task.AsyncTaskExecutor} if
+ * {@link RequestMappingHandlerAdapter#setAsyncStreaming asynchronous streaming}
+ * is enabled, releasing the container thread for the duration of the write.
+ *
+ * @author agent
+ * @since 3.1
+ * @see org.springframework.web.servlet.mvc.method.annotation.support.StreamingResponseBodyReturnValueHandler
+ */
+public interface StreamingResponseBody {
+
+	/**
+	 * A callback for writing to the response body.
+	 * @param outputStream the stream for the response body
+	 * @throws IOException an exception while writing
+	 */
+	void writeTo(OutputStream outputStream) throws IOException;
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.web.servlet.mvc.method.annotation.support;
+
+import java.util.concurrent.Callable;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Handles return values of type {@link Callable} by starting concurrent request
+ * handling, executing the {@code Callable} with the configured task executor.
+ * The request is dispatched again once the {@code Callable} produces a value,
+ * which is then handled as if the controller method had returned it.
+ *
+ * @author agent
+ * @since 3.1
+ * @see org.springframework.web.context.request.async.WebAsyncManager#startCallableProcessing
+ */
+public class CallableMethodReturnValueHandler implements HandlerMethodReturnValueHandler {
+
+	public boolean supportsReturnType(MethodParameter returnType) {
+		return Callable.class.isAssignableFrom(returnType.getParameterType());
+	}
+
+	public void handleReturnValue(Object returnValue,
+								  MethodParameter returnType,
+								  ModelAndViewContainer mavContainer,
+								  NativeWebRequest webRequest) throws Exception {
+		mavContainer.setResolveView(false);
+		if (returnValue == null) {
+			return;
+		}
+		Callable<?> callable = (Callable<?>) returnValue;
+		WebAsyncUtils.getAsyncManager(webRequest).startCallableProcessing(callable, mavContainer);
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.web.servlet.mvc.method.annotation.support;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Handles return values of type {@link DeferredResult} by starting concurrent
+ * request handling. The request is dispatched again once the application sets
+ * the result, or the {@code DeferredResult} times out and has a timeout result,
+ * and the value is then handled as if the controller method had returned it.
+ *
+ * @author agent
+ * @since 3.1
+ * @see org.springframework.web.context.request.async.WebAsyncManager#startDeferredResultProcessing
+ */
+public class DeferredResultMethodReturnValueHandler implements HandlerMethodReturnValueHandler {
+
+	public boolean supportsReturnType(MethodParameter returnType) {
+		return DeferredResult.class.isAssignableFrom(returnType.getParameterType());
+	}
+
+	public void handleReturnValue(Object returnValue,
+								  MethodParameter returnType,
+								  ModelAndViewContainer mavContainer,
+								  NativeWebRequest webRequest) throws Exception {
+		mavContainer.setResolveView(false);
+		if (returnValue == null) {
+			return;
+		}
+		DeferredResult<?> deferredResult = (DeferredResult<?>) returnValue;
+		WebAsyncUtils.getAsyncManager(webRequest).startDeferredResultProcessing(deferredResult, mavContainer);
+	}
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.web.servlet.mvc.method.annotation.support;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.util.Assert;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+/**
+ * Handles return values of type {@link ResponseBodyEmitter}, including its
+ * {@link org.springframework.web.servlet.mvc.method.annotation.SseEmitter}
+ * subclass, as well as {@link HttpEntity} and {@link ResponseEntity} return
+ * values with a {@code ResponseBodyEmitter} body.
+ *
+ * <p>The response status and headers are applied and committed right away.
+ * Request processing then continues asynchronously through a
+ * {@link DeferredResult} that is set once the emitter completes, while each
+ * object sent through the emitter is written with the first compatible
+ * {@link HttpMessageConverter} and flushed to the client.
+ *
+ * @author agent
+ * @since 3.1
+ */
+public class ResponseBodyEmitterReturnValueHandler implements HandlerMethodReturnValueHandler {
+
+	/**
+	 * Concurrent result of a completed emitter, signalling on the subsequent
+	 * dispatch that the response has been written already.
+	 */
+	private static final ResponseBodyEmitter EMITTER_COMPLETED = new ResponseBodyEmitter();
+
+
+	private final List<HttpMessageConverter<?>> messageConverters;
+
+
+	public ResponseBodyEmitterReturnValueHandler(List<HttpMessageConverter<?>> messageConverters) {
+		Assert.notEmpty(messageConverters, "'messageConverters' must not be empty");
+		this.messageConverters = messageConverters;
+	}
+
+
+	public boolean supportsReturnType(MethodParameter returnType) {
+		Class<?> type = returnType.getParameterType();
+		if (ResponseBodyEmitter.class.isAssignableFrom(type)) {
+			return true;
+		}
+		if (HttpEntity.class.isAssignableFrom(type)) {
+			Type genericType = returnType.getGenericParameterType();
+			if (genericType instanceof ParameterizedType) {
+				Type[] typeArguments = ((ParameterizedType) genericType).getActualTypeArguments();
+				return (typeArguments.length == 1 && typeArguments[0] instanceof Class &&
+						ResponseBodyEmitter.class.isAssignableFrom((Class<?>) typeArguments[0]));
+			}
+		}
+		return false;
+	}
+
+	public void handleReturnValue(Object returnValue,
+								  MethodParameter returnType,
+								  ModelAndViewContainer mavContainer,
+								  NativeWebRequest webRequest) throws Exception {
+		mavContainer.setResolveView(false);
+		if (returnValue == null || returnValue == EMITTER_COMPLETED) {
+			return;
+		}
+
+		HttpServletResponse response = webRequest.getNativeResponse(HttpServletResponse.class);
+		ServletServerHttpResponse outputMessage = new ServletServerHttpResponse(response);
+
+		if (returnValue instanceof HttpEntity) {
+			HttpEntity<?> responseEntity = (HttpEntity<?>) returnValue;
+			if (responseEntity instanceof ResponseEntity) {
+				outputMessage.setStatusCode(((ResponseEntity<?>) responseEntity).getStatusCode());
+			}
+			HttpHeaders entityHeaders = responseEntity.getHeaders();
+			if (!entityHeaders.isEmpty()) {
+				outputMessage.getHeaders().putAll(entityHeaders);
+			}
+			returnValue = responseEntity.getBody();
+			if (returnValue == null) {
+				outputMessage.flush();
+				return;
+			}
+		}
+
+		ResponseBodyEmitter emitter = (ResponseBodyEmitter) returnValue;
+		emitter.extendResponse(outputMessage);
+
+		// Commit the response and wrap to ignore further header changes
+		outputMessage.flush();
+		ServerHttpResponse streamingOutputMessage = new StreamingServletServerHttpResponse(outputMessage);
+
+		Long timeout = emitter.getTimeout();
+		DeferredResult<Object> deferredResult =
+				(timeout != null ? new DeferredResult<Object>(timeout) : new DeferredResult<Object>());
+		WebAsyncUtils.getAsyncManager(webRequest).startDeferredResultProcessing(deferredResult, mavContainer);
+
+		emitter.initialize(new HttpMessageConvertingHandler(streamingOutputMessage, outputMessage, deferredResult));
+	}
+
+
+	/**
+	 * ResponseBodyEmitter.Handler that writes with HttpMessageConverter's.
+	 */
+	private class HttpMessageConvertingHandler implements ResponseBodyEmitter.Handler {
+
+		private final ServerHttpResponse outputMessage;
+
+		private final ServletServerHttpResponse servletOutputMessage;
+
+		private final DeferredResult<Object> deferredResult;
+
+		public HttpMessageConvertingHandler(ServerHttpResponse outputMessage,
+				ServletServerHttpResponse servletOutputMessage, DeferredResult<Object> deferredResult) {
+			this.outputMessage = outputMessage;
+			this.servletOutputMessage = servletOutputMessage;
+			this.deferredResult = deferredResult;
+		}
+
+		@SuppressWarnings("unchecked")
+		public void send(Object data, MediaType mediaType) throws IOException {
+			Class<?> dataClass = data.getClass();
+			for (HttpMessageConverter<?> converter : messageConverters) {
+				if (converter.canWrite(dataClass, mediaType)) {
+					((HttpMessageConverter<Object>) converter).write(data, mediaType, this.outputMessage);
+					this.servletOutputMessage.flush();
+					return;
+				}
+			}
+			throw new IllegalArgumentException("No suitable converter for " + dataClass);
+		}
+
+		public void complete() {
+			this.deferredResult.setResult(EMITTER_COMPLETED);
+		}
+
+		public void completeWithError(Throwable failure) {
+			this.deferredResult.setErrorResult(failure);
+		}
+
+		public void onTimeout(Runnable callback) {
+			this.deferredResult.onTimeout(callback);
+		}
+
+		public void onCompletion(Runnable callback) {
+			this.deferredResult.onCompletion(callback);
+		}
+	}
+
+
+	/**
+	 * Wrap the response to ignore header changes by message converters, since
+	 * the headers have been written already, and to keep the response body open
+	 * across individual writes.
+	 */
+	private static class StreamingServletServerHttpResponse implements ServerHttpResponse {
+
+		private final ServerHttpResponse delegate;
+
+		private final HttpHeaders mutableHeaders = new HttpHeaders();
+
+		public StreamingServletServerHttpResponse(ServerHttpResponse delegate) {
+			this.delegate = delegate;
+		}
+
+		public void setStatusCode(HttpStatus status) {
+			throw new UnsupportedOperationException();
+		}
+
+		public HttpHeaders getHeaders() {
+			return this.mutableHeaders;
+		}
+
+		public OutputStream getBody() throws IOException {
+			return new FilterOutputStream(this.delegate.getBody()) {
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					this.out.write(b, off, len);
+				}
+				@Override
+				public void close() throws IOException {
+					flush();
+				}
+			};
+		}
+
+		public void close() {
+		}
+	}
+
+}
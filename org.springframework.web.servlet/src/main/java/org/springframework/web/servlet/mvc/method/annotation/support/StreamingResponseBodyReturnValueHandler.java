@@ -0,0 +1,162 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.web.servlet.mvc.method.annotation.support;
+
+import java.io.OutputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.concurrent.Callable;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Handles return values of type {@link StreamingResponseBody}, as well as
+ * {@link HttpEntity} and {@link ResponseEntity} return values with a
+ * {@code StreamingResponseBody} body, by writing the content straight to the
+ * response {@code OutputStream}.
+ *
+ * <p>The response status and headers are applied before the first byte is written.
+ * If asynchronous writing is enabled, the content is written through
+ * {@link org.springframework.web.context.request.async.WebAsyncManager#startCallableProcessing}
+ * and thus from a thread of the configured task executor.
+ *
+ * @author agent
+ * @since 3.1
+ */
+public class StreamingResponseBodyReturnValueHandler implements HandlerMethodReturnValueHandler {
+
+	/**
+	 * Concurrent result of an asynchronous write, signalling on the subsequent
+	 * dispatch that the response has been written already.
+	 */
+	private static final StreamingResponseBody WRITE_COMPLETED = new StreamingResponseBody() {
+		public void writeTo(OutputStream outputStream) {
+		}
+	};
+
+
+	private final boolean async;
+
+
+	/**
+	 * Create a handler that writes the content from the container thread.
+	 */
+	public StreamingResponseBodyReturnValueHandler() {
+		this(false);
+	}
+
+	/**
+	 * Create a handler that optionally writes the content asynchronously.
+	 * @param async whether to write the content from a thread of the configured
+	 * task executor, which requires Servlet 3.0 async support for the request
+	 */
+	public StreamingResponseBodyReturnValueHandler(boolean async) {
+		this.async = async;
+	}
+
+
+	public boolean supportsReturnType(MethodParameter returnType) {
+		Class<?> type = returnType.getParameterType();
+		if (StreamingResponseBody.class.isAssignableFrom(type)) {
+			return true;
+		}
+		if (HttpEntity.class.isAssignableFrom(type)) {
+			Type genericType = returnType.getGenericParameterType();
+			if (genericType instanceof ParameterizedType) {
+				Type[] typeArguments = ((ParameterizedType) genericType).getActualTypeArguments();
+				return (typeArguments.length == 1 && typeArguments[0] instanceof Class &&
+						StreamingResponseBody.class.isAssignableFrom((Class<?>) typeArguments[0]));
+			}
+		}
+		return false;
+	}
+
+	public void handleReturnValue(Object returnValue,
+								  MethodParameter returnType,
+								  ModelAndViewContainer mavContainer,
+								  NativeWebRequest webRequest) throws Exception {
+		mavContainer.setResolveView(false);
+		if (returnValue == null || returnValue == WRITE_COMPLETED) {
+			return;
+		}
+
+		HttpServletResponse response = webRequest.getNativeResponse(HttpServletResponse.class);
+		ServletServerHttpResponse outputMessage = new ServletServerHttpResponse(response);
+
+		if (returnValue instanceof HttpEntity) {
+			HttpEntity<?> responseEntity = (HttpEntity<?>) returnValue;
+			if (responseEntity instanceof ResponseEntity) {
+				outputMessage.setStatusCode(((ResponseEntity<?>) responseEntity).getStatusCode());
+			}
+			HttpHeaders entityHeaders = responseEntity.getHeaders();
+			if (!entityHeaders.isEmpty()) {
+				outputMessage.getHeaders().putAll(entityHeaders);
+			}
+			returnValue = responseEntity.getBody();
+			if (returnValue == null) {
+				outputMessage.flush();
+				return;
+			}
+		}
+
+		StreamingResponseBody streamingBody = (StreamingResponseBody) returnValue;
+		if (this.async) {
+			Callable<StreamingResponseBody> writeTask = new StreamingResponseBodyTask(outputMessage, streamingBody);
+			WebAsyncUtils.getAsyncManager(webRequest).startCallableProcessing(writeTask, mavContainer);
+		}
+		else {
+			new StreamingResponseBodyTask(outputMessage, streamingBody).call();
+		}
+	}
+
+
+	/**
+	 * Writes the streaming body and flushes the response. Returns a marker result,
+	 * so that no further return value handling takes place after an async dispatch.
+	 */
+	private static class StreamingResponseBodyTask implements Callable<StreamingResponseBody> {
+
+		private final ServletServerHttpResponse outputMessage;
+
+		private final StreamingResponseBody streamingBody;
+
+		public StreamingResponseBodyTask(ServletServerHttpResponse outputMessage, StreamingResponseBody streamingBody) {
+			this.outputMessage = outputMessage;
+			this.streamingBody = streamingBody;
+		}
+
+		public StreamingResponseBody call() throws Exception {
+			OutputStream outputStream = this.outputMessage.getBody();
+			this.streamingBody.writeTo(outputStream);
+			this.outputMessage.flush();
+			return WRITE_COMPLETED;
+		}
+	}
+
+}
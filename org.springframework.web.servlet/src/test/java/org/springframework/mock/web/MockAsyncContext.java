@@ -0,0 +1,160 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.mock.web;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Mock implementation of the {@link AsyncContext} interface.
+ *
+ * <p>Dispatching is only recorded: the dispatch path can be obtained via
+ * {@link #getDispatchedPath()}, and handlers registered via
+ * {@link #addDispatchHandler(Runnable)} are notified, allowing tests to
+ * re-dispatch the request themselves.
+ *
+ * @author agent
+ * @since 3.1
+ */
+public class MockAsyncContext implements AsyncContext {
+
+	private final HttpServletRequest request;
+
+	private final ServletResponse response;
+
+	private final List<AsyncListener> listeners = new ArrayList<AsyncListener>();
+
+	private final List<Runnable> dispatchHandlers = new ArrayList<Runnable>();
+
+	private String dispatchedPath;
+
+	private long timeout = 10 * 1000L;
+
+
+	public MockAsyncContext(ServletRequest request, ServletResponse response) {
+		this.request = (HttpServletRequest) request;
+		this.response = response;
+	}
+
+
+	public ServletRequest getRequest() {
+		return this.request;
+	}
+
+	public ServletResponse getResponse() {
+		return this.response;
+	}
+
+	public boolean hasOriginalRequestAndResponse() {
+		return (this.request instanceof MockHttpServletRequest && this.response instanceof MockHttpServletResponse);
+	}
+
+	public void dispatch() {
+		dispatch(this.request.getRequestURI());
+	}
+
+	public void dispatch(String path) {
+		dispatch(null, path);
+	}
+
+	public void dispatch(ServletContext context, String path) {
+		List<Runnable> handlers;
+		synchronized (this) {
+			this.dispatchedPath = path;
+			handlers = new ArrayList<Runnable>(this.dispatchHandlers);
+		}
+		for (Runnable handler : handlers) {
+			handler.run();
+		}
+	}
+
+	/**
+	 * Register a handler to be notified when the request is dispatched.
+	 * The handler is run immediately if a dispatch already happened.
+	 */
+	public void addDispatchHandler(Runnable handler) {
+		synchronized (this) {
+			if (this.dispatchedPath == null) {
+				this.dispatchHandlers.add(handler);
+				return;
+			}
+		}
+		handler.run();
+	}
+
+	public synchronized String getDispatchedPath() {
+		return this.dispatchedPath;
+	}
+
+	public void complete() {
+		MockHttpServletRequest mockRequest = WebUtils.getNativeRequest(this.request, MockHttpServletRequest.class);
+		if (mockRequest != null) {
+			mockRequest.setAsyncStarted(false);
+		}
+		for (AsyncListener listener : this.listeners) {
+			try {
+				listener.onComplete(new AsyncEvent(this, this.request, this.response));
+			}
+			catch (IOException ex) {
+				throw new IllegalStateException("AsyncListener failure", ex);
+			}
+		}
+	}
+
+	public void start(Runnable runnable) {
+		runnable.run();
+	}
+
+	public void addListener(AsyncListener listener) {
+		this.listeners.add(listener);
+	}
+
+	public void addListener(AsyncListener listener, ServletRequest request, ServletResponse response) {
+		this.listeners.add(listener);
+	}
+
+	public List<AsyncListener> getListeners() {
+		return this.listeners;
+	}
+
+	public <T extends AsyncListener> T createListener(Class<T> clazz) throws ServletException {
+		return BeanUtils.instantiateClass(clazz);
+	}
+
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	public long getTimeout() {
+		return this.timeout;
+	}
+
+}
@@ -56,8 +56,10 @@ import org.springframework.util.LinkedCaseInsensitiveMap;
 
 /**
  * Mock implementation of the {@link javax.servlet.http.HttpServletRequest}
- * interface. Supports the Servlet 2.5 API level; throws
- * {@link UnsupportedOperationException} for all methods introduced in Servlet 3.0.
+ * interface. Supports the Servlet 2.5 API level plus simulated Servlet 3.0
+ * async processing via {@link MockAsyncContext}; throws
+ * {@link UnsupportedOperationException} for the remaining methods introduced
+ * in Servlet 3.0.
  *
  * <p>Used for testing the web framework; also useful for testing
  * application controllers.
@@ -104,6 +106,14 @@ public class MockHttpServletRequest implements HttpServletRequest {
 
 	private boolean active = true;
 
+	private boolean asyncStarted = false;
+
+	private boolean asyncSupported = false;
+
+	private MockAsyncContext asyncContext;
+
+	private DispatcherType dispatcherType = DispatcherType.REQUEST;
+
 
 	//---------------------------------------------------------------------
 	// ServletRequest properties
@@ -866,27 +876,48 @@ public class MockHttpServletRequest implements HttpServletRequest {
 	//---------------------------------------------------------------------
 
 	public AsyncContext getAsyncContext() {
-		throw new UnsupportedOperationException();
+		return this.asyncContext;
+	}
+
+	public void setAsyncContext(MockAsyncContext asyncContext) {
+		this.asyncContext = asyncContext;
 	}
 
 	public DispatcherType getDispatcherType() {
-		throw new UnsupportedOperationException();
+		return this.dispatcherType;
+	}
+
+	public void setDispatcherType(DispatcherType dispatcherType) {
+		this.dispatcherType = dispatcherType;
 	}
 
 	public boolean isAsyncSupported() {
-		throw new UnsupportedOperationException();
+		return this.asyncSupported;
+	}
+
+	public void setAsyncSupported(boolean asyncSupported) {
+		this.asyncSupported = asyncSupported;
 	}
 
 	public AsyncContext startAsync() {
-		throw new UnsupportedOperationException();
+		return startAsync(this, null);
 	}
 
-	public AsyncContext startAsync(ServletRequest arg0, ServletResponse arg1) {
-		throw new UnsupportedOperationException();
+	public AsyncContext startAsync(ServletRequest request, ServletResponse response) {
+		if (!this.asyncSupported) {
+			throw new IllegalStateException("Async not supported");
+		}
+		this.asyncStarted = true;
+		this.asyncContext = new MockAsyncContext(request, response);
+		return this.asyncContext;
 	}
 
 	public boolean isAsyncStarted() {
-		throw new UnsupportedOperationException();
+		return this.asyncStarted;
+	}
+
+	public void setAsyncStarted(boolean asyncStarted) {
+		this.asyncStarted = asyncStarted;
 	}
 
 	public boolean authenticate(HttpServletResponse arg0) throws IOException, ServletException {
@@ -226,6 +226,73 @@ public class RequestMappingInfoHandlerMappingTests {
 		assertNull(chain);
 	}
 
+	@Test
+	public void pathPrefixIndex() throws Exception {
+		StaticApplicationContext context = new StaticApplicationContext();
+		context.registerSingleton("handler", OrderHandler.class);
+		mapping = new TestRequestMappingInfoHandlerMapping();
+		mapping.setApplicationContext(context);
+
+		assertHandlerMethod("GET", "/orders/new", "newOrder");
+		assertHandlerMethod("GET", "/orders/1", "order");
+		assertHandlerMethod("GET", "/orders/1.json", "order");
+		assertHandlerMethod("GET", "/orders/1/items", "items");
+		assertHandlerMethod("GET", "/orders/1/items/", "items");
+		assertHandlerMethod("GET", "/customers/1/addresses", "customers");
+		assertHandlerMethod("GET", "/customers/summary", "summary");
+		assertHandlerMethod("GET", "/orders/summary", "summary");
+		assertNull(mapping.getHandler(new MockHttpServletRequest("GET", "/invoices/1")));
+	}
+
+	@Test
+	public void handlerMethodCache() throws Exception {
+		mapping.setHandlerMethodCacheLimit(16);
+
+		for (int i = 0; i < 2; i++) {
+			assertHandlerMethod("GET", "/bar", "bar");
+			assertHandlerMethod("HEAD", "/bar", "bar");
+			assertHandlerMethod("GET", "/foo", "foo");
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", "/foo");
+			request.setParameter("p", "anything");
+			HandlerMethod hm = (HandlerMethod) mapping.getHandler(request).getHandler();
+			assertEquals(fooParamMethod.getMethod(), hm.getMethod());
+		}
+
+		try {
+			mapping.getHandler(new MockHttpServletRequest("POST", "/bar"));
+			fail("HttpRequestMethodNotSupportedException expected");
+		}
+		catch (HttpRequestMethodNotSupportedException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void handlerMethodCacheExposesUriTemplateVariables() throws Exception {
+		StaticApplicationContext context = new StaticApplicationContext();
+		context.registerSingleton("handler", OrderHandler.class);
+		mapping = new TestRequestMappingInfoHandlerMapping();
+		mapping.setHandlerMethodCacheLimit(16);
+		mapping.setApplicationContext(context);
+
+		for (int i = 0; i < 2; i++) {
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders/42/items");
+			HandlerMethod hm = (HandlerMethod) mapping.getHandler(request).getHandler();
+			assertEquals("items", hm.getMethod().getName());
+
+			@SuppressWarnings("unchecked")
+			Map<String, String> uriVariables = (Map<String, String>) request.getAttribute(
+					HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+			assertEquals("42", uriVariables.get("id"));
+		}
+	}
+
+	private void assertHandlerMethod(String method, String path, String expectedMethodName) throws Exception {
+		HandlerExecutionChain chain = mapping.getHandler(new MockHttpServletRequest(method, path));
+		assertNotNull("No handler for " + path, chain);
+		assertEquals(expectedMethodName, ((HandlerMethod) chain.getHandler()).getMethod().getName());
+	}
+
 	@SuppressWarnings("unused")
 	@Controller
 	private static class Handler {
@@ -256,6 +323,31 @@ public class RequestMappingInfoHandlerMappingTests {
 		}
 	}
 
+	@SuppressWarnings("unused")
+	@Controller
+	private static class OrderHandler {
+
+		@RequestMapping(value = "/orders/new", method = RequestMethod.GET)
+		public void newOrder() {
+		}
+
+		@RequestMapping(value = "/orders/{id}", method = RequestMethod.GET)
+		public void order() {
+		}
+
+		@RequestMapping(value = "/orders/{id}/items", method = RequestMethod.GET)
+		public void items() {
+		}
+
+		@RequestMapping(value = "/customers/**", method = RequestMethod.GET)
+		public void customers() {
+		}
+
+		@RequestMapping(value = "/{type}/summary", method = RequestMethod.GET)
+		public void summary() {
+		}
+	}
+
 	private static class TestRequestMappingInfoHandlerMapping extends RequestMappingInfoHandlerMapping {
 
 		@Override
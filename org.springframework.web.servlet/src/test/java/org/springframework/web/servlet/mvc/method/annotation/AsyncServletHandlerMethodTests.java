@@ -0,0 +1,377 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.web.servlet.mvc.method.annotation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.support.GenericWebApplicationContext;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.View;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * Tests for asynchronous request processing with {@link RequestMapping} methods
+ * returning {@link Callable}, {@link DeferredResult} or {@link SseEmitter}, using the DispatcherServlet
+ * and HandlerMethod infrastructure classes.
+ *
+ * @author agent
+ */
+public class AsyncServletHandlerMethodTests extends AbstractServletHandlerMethodTests {
+
+	@Test
+	public void callable() throws Exception {
+		CountingInterceptor interceptor = new CountingInterceptor();
+		initServletWithInterceptor(interceptor, AsyncController.class);
+
+		MockHttpServletRequest request = createAsyncRequest("/callable");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		getServlet().service(request, response);
+
+		assertTrue(request.isAsyncStarted());
+		assertEquals(1, interceptor.concurrentHandlingStartedCount);
+		assertEquals(0, interceptor.postHandleCount);
+		assertEquals(0, interceptor.afterCompletionCount);
+
+		redispatch(request, response);
+		assertEquals("callable result", response.getContentAsString());
+		assertEquals(1, interceptor.concurrentHandlingStartedCount);
+		assertEquals(1, interceptor.postHandleCount);
+		assertEquals(1, interceptor.afterCompletionCount);
+	}
+
+	@Test
+	public void callableWithView() throws Exception {
+		initServletWithControllers(AsyncController.class);
+
+		MockHttpServletRequest request = createAsyncRequest("/callableView");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		getServlet().service(request, response);
+		assertTrue(request.isAsyncStarted());
+
+		redispatch(request, response);
+		assertEquals("modelAttr=attrValue", response.getContentAsString());
+	}
+
+	@Test
+	public void callableWithNullResultUsesDefaultView() throws Exception {
+		initServletWithControllers(AsyncController.class);
+
+		MockHttpServletRequest request = createAsyncRequest("/async/callableNull");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		getServlet().service(request, response);
+		assertTrue(request.isAsyncStarted());
+
+		redispatch(request, response);
+		assertEquals("async/callableNull", response.getForwardedUrl());
+	}
+
+	@Test
+	public void callableException() throws Exception {
+		initServletWithControllers(AsyncController.class);
+
+		MockHttpServletRequest request = createAsyncRequest("/callableException");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		getServlet().service(request, response);
+
+		redispatch(request, response);
+		assertEquals("handled: boom", response.getContentAsString());
+	}
+
+	@Test
+	public void deferredResult() throws Exception {
+		WebApplicationContext wac = initServletWithControllers(AsyncController.class);
+		AsyncController controller = wac.getBean(AsyncController.class);
+
+		MockHttpServletRequest request = createAsyncRequest("/deferredResult");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		getServlet().service(request, response);
+
+		assertTrue(request.isAsyncStarted());
+		assertTrue(controller.deferredResult.setResult("deferred result"));
+		assertFalse(controller.deferredResult.setResult("ignored"));
+
+		redispatch(request, response);
+		assertEquals("deferred result", response.getContentAsString());
+	}
+
+	@Test
+	public void deferredResultTimeoutResult() throws Exception {
+		initServletWithControllers(AsyncController.class);
+
+		MockHttpServletRequest request = createAsyncRequest("/deferredResultWithTimeout");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		getServlet().service(request, response);
+
+		MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+		assertEquals(1000, asyncContext.getTimeout());
+		fireTimeout(asyncContext);
+
+		redispatch(request, response);
+		assertEquals("timed out", response.getContentAsString());
+	}
+
+	@Test
+	public void deferredResultTimeoutWithoutResult() throws Exception {
+		initServletWithControllers(AsyncController.class);
+
+		MockHttpServletRequest request = createAsyncRequest("/deferredResult");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		getServlet().service(request, response);
+
+		MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+		fireTimeout(asyncContext);
+
+		assertEquals(503, response.getStatus());
+		assertFalse(request.isAsyncStarted());
+		assertEquals(null, asyncContext.getDispatchedPath());
+	}
+
+	@Test
+	public void asyncStreaming() throws Exception {
+		initServlet(new ApplicationContextInitializer<GenericWebApplicationContext>() {
+			public void initialize(GenericWebApplicationContext wac) {
+				wac.getBeanDefinition("handlerAdapter").getPropertyValues().add("asyncStreaming", true);
+			}
+		}, AsyncController.class);
+
+		MockHttpServletRequest request = createAsyncRequest("/streaming");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		getServlet().service(request, response);
+		assertTrue(request.isAsyncStarted());
+
+		redispatch(request, response);
+		assertEquals("streamed", response.getContentAsString());
+		assertNull(response.getForwardedUrl());
+	}
+
+	@Test
+	public void sseEmitter() throws Exception {
+		WebApplicationContext wac = initServletWithControllers(AsyncController.class);
+		AsyncController controller = wac.getBean(AsyncController.class);
+
+		MockHttpServletRequest request = createAsyncRequest("/sse");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		getServlet().service(request, response);
+
+		assertTrue(request.isAsyncStarted());
+		assertEquals("text/event-stream;charset=UTF-8", response.getHeader("Content-Type"));
+		assertEquals("event:greeting\ndata:hello\n\n", response.getContentAsString());
+
+		controller.sseEmitter.send("world");
+		controller.sseEmitter.complete();
+
+		redispatch(request, response);
+		assertEquals("event:greeting\ndata:hello\n\ndata:world\n\n", response.getContentAsString());
+		assertNull(response.getForwardedUrl());
+	}
+
+	private void initServletWithInterceptor(final Object interceptor, Class<?> controllerClass) throws Exception {
+		initServlet(new ApplicationContextInitializer<GenericWebApplicationContext>() {
+			public void initialize(GenericWebApplicationContext wac) {
+				MutablePropertyValues pvs = wac.getBeanDefinition("handlerMapping").getPropertyValues();
+				pvs.add("interceptors", new Object[] {interceptor});
+			}
+		}, controllerClass);
+	}
+
+	private MockHttpServletRequest createAsyncRequest(String path) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+		request.setAsyncSupported(true);
+		return request;
+	}
+
+	private void redispatch(MockHttpServletRequest request, MockHttpServletResponse response) throws Exception {
+		MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+		final CountDownLatch latch = new CountDownLatch(1);
+		asyncContext.addDispatchHandler(new Runnable() {
+			public void run() {
+				latch.countDown();
+			}
+		});
+		assertTrue("Request was not dispatched", latch.await(5, TimeUnit.SECONDS));
+		request.setAsyncStarted(false);
+		request.setDispatcherType(DispatcherType.ASYNC);
+		getServlet().service(request, response);
+		assertFalse(request.isAsyncStarted());
+	}
+
+	private void fireTimeout(MockAsyncContext asyncContext) throws Exception {
+		AsyncEvent event = new AsyncEvent(asyncContext);
+		for (AsyncListener listener : asyncContext.getListeners()) {
+			listener.onTimeout(event);
+		}
+	}
+
+
+	@Controller
+	static class AsyncController {
+
+		private DeferredResult<String> deferredResult;
+
+		private SseEmitter sseEmitter;
+
+		@ModelAttribute("modelAttr")
+		public String modelAttr() {
+			return "attrValue";
+		}
+
+		@RequestMapping("/callable")
+		@ResponseBody
+		public Callable<String> callable() {
+			return new Callable<String>() {
+				public String call() {
+					return "callable result";
+				}
+			};
+		}
+
+		@RequestMapping("/callableView")
+		public Callable<View> callableView() {
+			return new Callable<View>() {
+				public View call() {
+					return new ModelView();
+				}
+			};
+		}
+
+		@RequestMapping("/async/callableNull")
+		public Callable<String> callableNull() {
+			return new Callable<String>() {
+				public String call() {
+					return null;
+				}
+			};
+		}
+
+		@RequestMapping("/callableException")
+		@ResponseBody
+		public Callable<String> callableException() {
+			return new Callable<String>() {
+				public String call() {
+					throw new IllegalStateException("boom");
+				}
+			};
+		}
+
+		@RequestMapping("/deferredResult")
+		@ResponseBody
+		public DeferredResult<String> deferredResult() {
+			this.deferredResult = new DeferredResult<String>();
+			return this.deferredResult;
+		}
+
+		@RequestMapping("/deferredResultWithTimeout")
+		@ResponseBody
+		public DeferredResult<String> deferredResultWithTimeout() {
+			return new DeferredResult<String>(1000L, "timed out");
+		}
+
+		@RequestMapping("/streaming")
+		public StreamingResponseBody streaming() {
+			return new StreamingResponseBody() {
+				public void writeTo(OutputStream outputStream) throws IOException {
+					outputStream.write("streamed".getBytes("UTF-8"));
+				}
+			};
+		}
+
+		@RequestMapping("/sse")
+		public SseEmitter sse() throws IOException {
+			this.sseEmitter = new SseEmitter();
+			this.sseEmitter.send(SseEmitter.event().name("greeting").data("hello"));
+			return this.sseEmitter;
+		}
+
+		@ExceptionHandler
+		@ResponseBody
+		public String handleException(IllegalStateException ex) {
+			return "handled: " + ex.getMessage();
+		}
+	}
+
+
+	static class ModelView implements View {
+
+		public String getContentType() {
+			return "text/plain";
+		}
+
+		public void render(Map<String, ?> model, HttpServletRequest request, HttpServletResponse response)
+				throws Exception {
+			response.getWriter().write("modelAttr=" + model.get("modelAttr"));
+		}
+	}
+
+
+	static class CountingInterceptor extends HandlerInterceptorAdapter {
+
+		private int concurrentHandlingStartedCount;
+
+		private int postHandleCount;
+
+		private int afterCompletionCount;
+
+		@Override
+		public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+				ModelAndView modelAndView) {
+			this.postHandleCount++;
+		}
+
+		@Override
+		public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+				Exception ex) {
+			this.afterCompletionCount++;
+		}
+
+		@Override
+		public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+				Object handler) {
+			this.concurrentHandlingStartedCount++;
+		}
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.mvc.method.annotation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.Test;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StopWatch;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.support.GenericWebApplicationContext;
+import org.springframework.web.method.HandlerMethod;
+
+/**
+ * @author agent
+ */
+public class RequestMappingHandlerAdapterPerformanceTests {
+
+	private static final Log handlerMethodLog = LogFactory.getLog(ServletInvocableHandlerMethod.class);
+
+	@Test
+	public void testResponseBodyDispatchIsFastEnough() throws Exception {
+		if (handlerMethodLog.isTraceEnabled() || handlerMethodLog.isDebugEnabled()) {
+			// Skip this test: Trace logging blows the time limit.
+			return;
+		}
+		RequestMappingHandlerAdapter handlerAdapter = new RequestMappingHandlerAdapter();
+		handlerAdapter.setApplicationContext(new GenericWebApplicationContext());
+		handlerAdapter.afterPropertiesSet();
+
+		Method method = EchoController.class.getMethod("echo", String.class);
+		HandlerMethod handlerMethod = new HandlerMethod(new EchoController(), method);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/echo");
+		request.setParameter("text", "foo");
+
+		StopWatch sw = new StopWatch();
+		sw.start("dispatch");
+		for (int i = 0; i < 100000; i++) {
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			handlerAdapter.handle(request, response, handlerMethod);
+			assertEquals("foo", response.getContentAsString());
+		}
+		sw.stop();
+		assertTrue("Dispatch took too long: " + sw.getTotalTimeMillis(), sw.getTotalTimeMillis() < 4000);
+
+		Map<?, ?> planCache = (Map<?, ?>) new DirectFieldAccessor(handlerAdapter).getPropertyValue("invocationPlanCache");
+		assertEquals(1, planCache.size());
+	}
+
+
+	public static class EchoController {
+
+		@ResponseBody
+		public String echo(String text) {
+			return text;
+		}
+	}
+
+}
@@ -23,6 +23,9 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -208,6 +211,44 @@ public class RequestMappingHandlerAdapterTests {
 		assertTrue(actual.contains(handler));
 	}
 
+	@Test
+	public void invocationPlanSharedAcrossHandlerInstances() throws Exception {
+		handlerAdapter.afterPropertiesSet();
+
+		CountingHandler handler1 = new CountingHandler();
+		CountingHandler handler2 = new CountingHandler();
+		handlerAdapter.handle(request, response, handlerMethod(handler1, "handle", HttpServletResponse.class));
+		handlerAdapter.handle(request, response, handlerMethod(handler1, "handle", HttpServletResponse.class));
+		handlerAdapter.handle(request, response, handlerMethod(handler2, "handle", HttpServletResponse.class));
+
+		assertEquals(2, handler1.count);
+		assertEquals(1, handler2.count);
+
+		Map<?, ?> planCache = (Map<?, ?>) new DirectFieldAccessor(handlerAdapter).getPropertyValue("invocationPlanCache");
+		assertEquals(1, planCache.size());
+	}
+
+	@Test
+	public void invocationPlanPerHandlerTypeForInheritedMethod() throws Exception {
+		handlerAdapter.afterPropertiesSet();
+
+		Method method = CountingHandler.class.getDeclaredMethod("handle", HttpServletResponse.class);
+		CountingHandler handler = new CountingHandler();
+		SubCountingHandler subHandler = new SubCountingHandler();
+		handlerAdapter.handle(request, response, new InvocableHandlerMethod(handler, method));
+		handlerAdapter.handle(request, response, new InvocableHandlerMethod(subHandler, method));
+
+		Map<?, ?> planCache = (Map<?, ?>) new DirectFieldAccessor(handlerAdapter).getPropertyValue("invocationPlanCache");
+		assertEquals(2, planCache.size());
+
+		handlerAdapter.handle(request, response, new InvocableHandlerMethod(handler, method));
+		handlerAdapter.handle(request, response, new InvocableHandlerMethod(subHandler, method));
+
+		assertEquals(2, handler.count);
+		assertEquals(2, subHandler.count);
+		assertEquals(2, planCache.size());
+	}
+
 	private HandlerMethod handlerMethod(Object handler, String methodName, Class<?>... paramTypes) throws Exception {
 		Method method = handler.getClass().getDeclaredMethod(methodName, paramTypes);
 		return new InvocableHandlerMethod(handler, method);
@@ -241,6 +282,17 @@ public class RequestMappingHandlerAdapterTests {
 		}
 	}
 
+	static class CountingHandler {
+		int count;
+
+		public void handle(HttpServletResponse response) {
+			this.count++;
+		}
+	}
+
+	static class SubCountingHandler extends CountingHandler {
+	}
+
 	@SessionAttributes("attr1")
 	static class SessionAttributeHandler {
 		public void handle() {
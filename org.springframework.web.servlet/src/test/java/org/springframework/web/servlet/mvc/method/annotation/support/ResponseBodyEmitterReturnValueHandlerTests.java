@@ -0,0 +1,255 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.web.servlet.mvc.method.annotation.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Test fixture with {@link ResponseBodyEmitterReturnValueHandler}.
+ *
+ * @author agent
+ */
+public class ResponseBodyEmitterReturnValueHandlerTests {
+
+	private ResponseBodyEmitterReturnValueHandler handler;
+
+	private ModelAndViewContainer mavContainer;
+
+	private MockHttpServletRequest request;
+
+	private MockHttpServletResponse response;
+
+	private ServletWebRequest webRequest;
+
+	private WebAsyncManager asyncManager;
+
+	@Before
+	public void setUp() {
+		List<HttpMessageConverter<?>> converters = new ArrayList<HttpMessageConverter<?>>();
+		converters.add(new StringHttpMessageConverter());
+		handler = new ResponseBodyEmitterReturnValueHandler(converters);
+		mavContainer = new ModelAndViewContainer();
+		request = new MockHttpServletRequest();
+		request.setAsyncSupported(true);
+		response = new MockHttpServletResponse();
+		webRequest = new ServletWebRequest(request, response);
+		asyncManager = WebAsyncUtils.getAsyncManager(webRequest);
+		asyncManager.setAsyncWebRequest(WebAsyncUtils.createAsyncWebRequest(request, response));
+	}
+
+	@Test
+	public void supportsReturnType() throws Exception {
+		assertTrue(handler.supportsReturnType(createMethodParam("emitter")));
+		assertTrue(handler.supportsReturnType(createMethodParam("sseEmitter")));
+		assertTrue(handler.supportsReturnType(createMethodParam("emitterEntity")));
+		assertFalse(handler.supportsReturnType(createMethodParam("stringEntity")));
+		assertFalse(handler.supportsReturnType(createMethodParam("string")));
+	}
+
+	@Test
+	public void responseBodyEmitter() throws Exception {
+		ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+		emitter.send("foo");
+
+		handler.handleReturnValue(emitter, createMethodParam("emitter"), mavContainer, webRequest);
+
+		assertFalse(mavContainer.isResolveView());
+		assertTrue(request.isAsyncStarted());
+		assertTrue(response.isCommitted());
+		assertEquals("foo", response.getContentAsString());
+
+		emitter.send("bar");
+		assertEquals("foobar", response.getContentAsString());
+
+		CountDownLatch latch = awaitDispatch();
+		emitter.complete();
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertTrue(asyncManager.hasConcurrentResult());
+
+		// Concurrent result marks the response as written on the subsequent dispatch
+		ModelAndViewContainer redispatchContainer = new ModelAndViewContainer();
+		Object result = asyncManager.getConcurrentResult();
+		assertNotNull(result);
+		handler.handleReturnValue(result, createMethodParam("emitter"), redispatchContainer, webRequest);
+		assertFalse(redispatchContainer.isResolveView());
+		assertEquals("foobar", response.getContentAsString());
+	}
+
+	@Test
+	public void responseEntity() throws Exception {
+		ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+		ResponseEntity<ResponseBodyEmitter> entity =
+				new ResponseEntity<ResponseBodyEmitter>(emitter, HttpStatus.ACCEPTED);
+
+		handler.handleReturnValue(entity, createMethodParam("emitterEntity"), mavContainer, webRequest);
+		emitter.send("foo");
+
+		assertEquals(202, response.getStatus());
+		assertEquals("foo", response.getContentAsString());
+	}
+
+	@Test
+	public void completeWithError() throws Exception {
+		ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+		handler.handleReturnValue(emitter, createMethodParam("emitter"), mavContainer, webRequest);
+
+		IllegalStateException ex = new IllegalStateException("boom");
+		CountDownLatch latch = awaitDispatch();
+		emitter.completeWithError(ex);
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertSame(ex, asyncManager.getConcurrentResult());
+	}
+
+	@Test
+	public void timeoutAndCompletionCallbacks() throws Exception {
+		ResponseBodyEmitter emitter = new ResponseBodyEmitter(1000L);
+		final List<String> callbacks = new ArrayList<String>();
+		emitter.onTimeout(new Runnable() {
+			public void run() {
+				callbacks.add("timeout");
+			}
+		});
+		emitter.onCompletion(new Runnable() {
+			public void run() {
+				callbacks.add("completion");
+			}
+		});
+		handler.handleReturnValue(emitter, createMethodParam("emitter"), mavContainer, webRequest);
+
+		MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+		assertEquals(1000, asyncContext.getTimeout());
+		AsyncEvent event = new AsyncEvent(asyncContext);
+		for (AsyncListener listener : asyncContext.getListeners()) {
+			listener.onTimeout(event);
+		}
+
+		assertEquals(200, response.getStatus());
+		assertFalse(request.isAsyncStarted());
+		assertEquals(null, asyncContext.getDispatchedPath());
+		assertEquals(2, callbacks.size());
+		assertEquals("timeout", callbacks.get(0));
+		assertEquals("completion", callbacks.get(1));
+	}
+
+	@Test
+	public void sseEmitterEvents() throws Exception {
+		SseEmitter emitter = new SseEmitter();
+		handler.handleReturnValue(emitter, createMethodParam("sseEmitter"), mavContainer, webRequest);
+
+		assertEquals("text/event-stream;charset=UTF-8", response.getHeader("Content-Type"));
+
+		emitter.send(SseEmitter.event().id("1").name("status").data("shipped"));
+		emitter.send("plain");
+		assertEquals("id:1\nevent:status\ndata:shipped\n\ndata:plain\n\n", response.getContentAsString());
+	}
+
+	@Test
+	public void sseEmitterHeartbeat() throws Exception {
+		ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+		taskScheduler.afterPropertiesSet();
+		try {
+			SseEmitter emitter = new SseEmitter();
+			emitter.enableHeartbeat(taskScheduler, 10);
+			handler.handleReturnValue(emitter, createMethodParam("sseEmitter"), mavContainer, webRequest);
+
+			long deadline = System.currentTimeMillis() + 5000;
+			while (!response.getContentAsString().startsWith(":heartbeat\n\n") &&
+					System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertTrue(response.getContentAsString().startsWith(":heartbeat\n\n"));
+			emitter.complete();
+		}
+		finally {
+			taskScheduler.destroy();
+		}
+	}
+
+	private CountDownLatch awaitDispatch() {
+		final CountDownLatch latch = new CountDownLatch(1);
+		((MockAsyncContext) request.getAsyncContext()).addDispatchHandler(new Runnable() {
+			public void run() {
+				latch.countDown();
+			}
+		});
+		return latch;
+	}
+
+	private MethodParameter createMethodParam(String methodName) throws Exception {
+		Method method = getClass().getDeclaredMethod(methodName);
+		return new MethodParameter(method, -1);
+	}
+
+	@SuppressWarnings("unused")
+	private ResponseBodyEmitter emitter() {
+		return null;
+	}
+
+	@SuppressWarnings("unused")
+	private SseEmitter sseEmitter() {
+		return null;
+	}
+
+	@SuppressWarnings("unused")
+	private ResponseEntity<ResponseBodyEmitter> emitterEntity() {
+		return null;
+	}
+
+	@SuppressWarnings("unused")
+	private HttpEntity<String> stringEntity() {
+		return null;
+	}
+
+	@SuppressWarnings("unused")
+	private String string() {
+		return null;
+	}
+
+}
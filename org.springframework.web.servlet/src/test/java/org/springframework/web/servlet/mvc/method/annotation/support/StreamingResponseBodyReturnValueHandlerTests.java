@@ -0,0 +1,187 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.web.servlet.mvc.method.annotation.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Test fixture with {@link StreamingResponseBodyReturnValueHandler}.
+ *
+ * @author agent
+ */
+public class StreamingResponseBodyReturnValueHandlerTests {
+
+	private ModelAndViewContainer mavContainer;
+
+	private MockHttpServletRequest request;
+
+	private MockHttpServletResponse response;
+
+	private ServletWebRequest webRequest;
+
+	@Before
+	public void setUp() {
+		mavContainer = new ModelAndViewContainer();
+		request = new MockHttpServletRequest();
+		response = new MockHttpServletResponse();
+		webRequest = new ServletWebRequest(request, response);
+	}
+
+	@Test
+	public void supportsReturnType() throws Exception {
+		StreamingResponseBodyReturnValueHandler handler = new StreamingResponseBodyReturnValueHandler();
+		assertTrue(handler.supportsReturnType(createMethodParam("streamingBody")));
+		assertTrue(handler.supportsReturnType(createMethodParam("streamingEntity")));
+		assertFalse(handler.supportsReturnType(createMethodParam("stringEntity")));
+		assertFalse(handler.supportsReturnType(createMethodParam("string")));
+	}
+
+	@Test
+	public void writeStreamingBody() throws Exception {
+		StreamingResponseBodyReturnValueHandler handler = new StreamingResponseBodyReturnValueHandler();
+		handler.handleReturnValue(new TextBody("foo"), createMethodParam("streamingBody"), mavContainer, webRequest);
+
+		assertFalse(mavContainer.isResolveView());
+		assertTrue(response.isCommitted());
+		assertEquals("foo", response.getContentAsString());
+	}
+
+	@Test
+	public void writeResponseEntity() throws Exception {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(new MediaType("text", "csv"));
+		headers.set("Content-Disposition", "attachment; filename=export.csv");
+		ResponseEntity<StreamingResponseBody> entity =
+				new ResponseEntity<StreamingResponseBody>(new TextBody("a,b"), headers, HttpStatus.CREATED);
+
+		StreamingResponseBodyReturnValueHandler handler = new StreamingResponseBodyReturnValueHandler();
+		handler.handleReturnValue(entity, createMethodParam("streamingEntity"), mavContainer, webRequest);
+
+		assertEquals(201, response.getStatus());
+		assertEquals("text/csv", response.getHeader("Content-Type"));
+		assertEquals("attachment; filename=export.csv", response.getHeader("Content-Disposition"));
+		assertEquals("a,b", response.getContentAsString());
+	}
+
+	@Test
+	public void writeResponseEntityWithoutBody() throws Exception {
+		ResponseEntity<StreamingResponseBody> entity = new ResponseEntity<StreamingResponseBody>(HttpStatus.NO_CONTENT);
+
+		StreamingResponseBodyReturnValueHandler handler = new StreamingResponseBodyReturnValueHandler();
+		handler.handleReturnValue(entity, createMethodParam("streamingEntity"), mavContainer, webRequest);
+
+		assertEquals(204, response.getStatus());
+		assertTrue(response.isCommitted());
+		assertEquals(0, response.getContentAsByteArray().length);
+	}
+
+	@Test
+	public void writeAsync() throws Exception {
+		request.setAsyncSupported(true);
+		WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(webRequest);
+		asyncManager.setAsyncWebRequest(WebAsyncUtils.createAsyncWebRequest(request, response));
+
+		StreamingResponseBodyReturnValueHandler handler = new StreamingResponseBodyReturnValueHandler(true);
+		handler.handleReturnValue(new TextBody("async"), createMethodParam("streamingBody"), mavContainer, webRequest);
+
+		assertTrue(request.isAsyncStarted());
+		final CountDownLatch latch = new CountDownLatch(1);
+		((MockAsyncContext) request.getAsyncContext()).addDispatchHandler(new Runnable() {
+			public void run() {
+				latch.countDown();
+			}
+		});
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertTrue(asyncManager.hasConcurrentResult());
+		assertEquals("async", response.getContentAsString());
+
+		// Concurrent result marks the response as written on the subsequent dispatch
+		ModelAndViewContainer redispatchContainer = new ModelAndViewContainer();
+		Object result = asyncManager.getConcurrentResult();
+		assertNotNull(result);
+		handler.handleReturnValue(result, createMethodParam("streamingBody"), redispatchContainer, webRequest);
+		assertFalse(redispatchContainer.isResolveView());
+		assertEquals("async", response.getContentAsString());
+	}
+
+	private MethodParameter createMethodParam(String methodName) throws Exception {
+		Method method = getClass().getDeclaredMethod(methodName);
+		return new MethodParameter(method, -1);
+	}
+
+	@SuppressWarnings("unused")
+	private StreamingResponseBody streamingBody() {
+		return null;
+	}
+
+	@SuppressWarnings("unused")
+	private ResponseEntity<StreamingResponseBody> streamingEntity() {
+		return null;
+	}
+
+	@SuppressWarnings("unused")
+	private HttpEntity<String> stringEntity() {
+		return null;
+	}
+
+	@SuppressWarnings("unused")
+	private String string() {
+		return null;
+	}
+
+
+	private static class TextBody implements StreamingResponseBody {
+
+		private final String text;
+
+		public TextBody(String text) {
+			this.text = text;
+		}
+
+		public void writeTo(OutputStream outputStream) throws IOException {
+			outputStream.write(this.text.getBytes("UTF-8"));
+		}
+	}
+
+}
@@ -24,6 +24,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.util.Assert;
 
 /**
@@ -71,10 +72,27 @@ public class ServletServerHttpResponse implements ServerHttpResponse {
 		return this.servletResponse.getOutputStream();
 	}
 
+	/**
+	 * Write the headers, if not written yet, and flush any buffered content,
+	 * committing the underlying response. Useful when the body is written
+	 * incrementally, e.g. when streaming, to send the headers and the content
+	 * produced so far to the client.
+	 * @throws IOException in case of I/O errors
+	 */
+	public void flush() throws IOException {
+		writeHeaders();
+		this.servletResponse.flushBuffer();
+	}
+
 	public void close() {
 		writeHeaders();
 	}
 
+	/**
+	 * Write the headers to the underlying response, once. The content type is also
+	 * applied through {@link HttpServletResponse#setContentType}, unless already set,
+	 * so that the Servlet container takes it (and its charset) into account.
+	 */
 	private void writeHeaders() {
 		if (!this.headersWritten) {
 			for (Map.Entry<String, List<String>> entry : this.headers.entrySet()) {
@@ -83,6 +101,10 @@ public class ServletServerHttpResponse implements ServerHttpResponse {
 					this.servletResponse.addHeader(headerName, headerValue);
 				}
 			}
+			MediaType contentType = this.headers.getContentType();
+			if (this.servletResponse.getContentType() == null && contentType != null) {
+				this.servletResponse.setContentType(contentType.toString());
+			}
 			this.headersWritten = true;
 		}
 	}
@@ -44,6 +44,8 @@ public class ConfigurableWebBindingInitializer implements WebBindingInitializer
 
 	private boolean directFieldAccess = false;
 
+	private boolean useGeneratedAccessors = false;
+
 	private MessageCodesResolver messageCodesResolver;
 
 	private BindingErrorProcessor bindingErrorProcessor;
@@ -94,6 +96,23 @@ public class ConfigurableWebBindingInitializer implements WebBindingInitializer
 		return directFieldAccess;
 	}
 
+	/**
+	 * Set whether binders should invoke bean property accessors through
+	 * generated bytecode instead of reflection.
+	 * <p>Default is <code>false</code>. Has no effect with direct field access.
+	 * @see org.springframework.validation.DataBinder#setUseGeneratedAccessors
+	 */
+	public void setUseGeneratedAccessors(boolean useGeneratedAccessors) {
+		this.useGeneratedAccessors = useGeneratedAccessors;
+	}
+
+	/**
+	 * Return whether binders should use generated property accessors.
+	 */
+	public boolean isUseGeneratedAccessors() {
+		return this.useGeneratedAccessors;
+	}
+
 	/**
 	 * Set the strategy to use for resolving errors into message codes.
 	 * Applies the given strategy to all data binders used by this controller.
@@ -183,6 +202,9 @@ public class ConfigurableWebBindingInitializer implements WebBindingInitializer
 
 	public void initBinder(WebDataBinder binder, WebRequest request) {
 		binder.setAutoGrowNestedPaths(this.autoGrowNestedPaths);
+		if (this.useGeneratedAccessors) {
+			binder.setUseGeneratedAccessors(true);
+		}
 		if (this.directFieldAccess) {
 			binder.initDirectFieldAccess();
 		}
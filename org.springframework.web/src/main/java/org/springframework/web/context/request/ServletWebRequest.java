@@ -175,19 +175,25 @@ public class ServletWebRequest extends ServletRequestAttributes implements Nativ
 	public boolean checkNotModified(String eTag) {
 		if (StringUtils.hasLength(eTag) && !this.notModified &&
 				(this.response == null || !this.response.containsHeader(HEADER_ETAG))) {
+			eTag = padEtagIfNecessary(eTag);
 			String ifNoneMatch = getRequest().getHeader(HEADER_IF_NONE_MATCH);
 			this.notModified = eTag.equals(ifNoneMatch);
 			if (this.response != null) {
 				if (this.notModified && METHOD_GET.equals(getRequest().getMethod())) {
 					this.response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
 				}
-				else {
-					this.response.setHeader(HEADER_ETAG, eTag);
-				}
+				// Also on 304, marking the ETag as set by the handler, e.g. for ShallowEtagHeaderFilter
+				this.response.setHeader(HEADER_ETAG, eTag);
 			}
 		}
 		return this.notModified;
+	}
 
+	private String padEtagIfNecessary(String eTag) {
+		if ((eTag.startsWith("\"") || eTag.startsWith("W/\"")) && eTag.endsWith("\"")) {
+			return eTag;
+		}
+		return "\"" + eTag + "\"";
 	}
 
 	public boolean isNotModified() {
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.web.context.request.async;
+
+/**
+ * {@code DeferredResult} provides an alternative to using a {@link java.util.concurrent.Callable}
+ * for asynchronous request processing. While a {@code Callable} is executed concurrently
+ * on behalf of the application, with a {@code DeferredResult} the application can
+ * produce the result from a thread of its own choice, e.g. in response to some
+ * external event such as a JMS message or a scheduled task.
+ *
+ * <p>The result may be set at most once. Calls made after the result was set or
+ * after the request has timed out or completed are ignored.
+ *
+ * @author agent
+ * @since 3.1
+ * @param <T> the result type
+ */
+public class DeferredResult<T> {
+
+	private static final Object RESULT_NONE = new Object();
+
+
+	private final Long timeout;
+
+	private final Object timeoutResult;
+
+	private Runnable timeoutCallback;
+
+	private Runnable completionCallback;
+
+	private DeferredResultHandler resultHandler;
+
+	private Object result = RESULT_NONE;
+
+	private boolean expired;
+
+
+	/**
+	 * Create a DeferredResult that relies on the default async request timeout.
+	 */
+	public DeferredResult() {
+		this(null, RESULT_NONE);
+	}
+
+	/**
+	 * Create a DeferredResult with a custom timeout value.
+	 * @param timeout timeout value in milliseconds
+	 */
+	public DeferredResult(long timeout) {
+		this(timeout, RESULT_NONE);
+	}
+
+	/**
+	 * Create a DeferredResult with a timeout value and a result to use
+	 * in case of a timeout.
+	 * @param timeout timeout value in milliseconds; {@code null} to rely
+	 * on the default async request timeout
+	 * @param timeoutResult the result to use
+	 */
+	public DeferredResult(Long timeout, Object timeoutResult) {
+		this.timeout = timeout;
+		this.timeoutResult = timeoutResult;
+	}
+
+
+	/**
+	 * Return the configured timeout value in milliseconds, if any.
+	 */
+	public final Long getTimeoutValue() {
+		return this.timeout;
+	}
+
+	/**
+	 * Return {@code true} if this DeferredResult is no longer usable either
+	 * because it was previously set or because the underlying request expired.
+	 */
+	public final synchronized boolean isSetOrExpired() {
+		return (this.result != RESULT_NONE || this.expired);
+	}
+
+	/**
+	 * Register code to invoke when the async request times out, before the
+	 * timeout result, if any, is applied. The callback may also set a result
+	 * on this DeferredResult.
+	 */
+	public void onTimeout(Runnable callback) {
+		this.timeoutCallback = callback;
+	}
+
+	/**
+	 * Register code to invoke when the async request completes, for whatever
+	 * reason: a result was handled, the request timed out, or a network error
+	 * occurred. Useful for detecting that a DeferredResult instance is no
+	 * longer usable.
+	 */
+	public void onCompletion(Runnable callback) {
+		this.completionCallback = callback;
+	}
+
+	/**
+	 * Set the value for the DeferredResult and handle it.
+	 * @param result the value to set
+	 * @return "true" if the result was set and passed on for handling;
+	 * "false" if the result was already set or the async request expired
+	 */
+	public boolean setResult(T result) {
+		return setResultInternal(result);
+	}
+
+	/**
+	 * Set an error value for the DeferredResult and handle it. The value may be
+	 * an {@link Exception} or {@link Throwable} in which case it will be processed
+	 * as if a handler raised the exception.
+	 * @param result the error result value
+	 * @return "true" if the result was set and passed on for handling;
+	 * "false" if the result was already set or the async request expired
+	 */
+	public boolean setErrorResult(Object result) {
+		return setResultInternal(result);
+	}
+
+	private boolean setResultInternal(Object result) {
+		DeferredResultHandler handler;
+		synchronized (this) {
+			if (isSetOrExpired()) {
+				return false;
+			}
+			this.result = result;
+			handler = this.resultHandler;
+		}
+		if (handler != null) {
+			handler.handleResult(result);
+		}
+		return true;
+	}
+
+	/**
+	 * Provide a handler to use to handle the result value. If the result
+	 * was already set, it is handled immediately.
+	 */
+	final void setResultHandler(DeferredResultHandler resultHandler) {
+		Object resultToHandle;
+		synchronized (this) {
+			this.resultHandler = resultHandler;
+			if (this.result == RESULT_NONE || this.expired) {
+				return;
+			}
+			resultToHandle = this.result;
+		}
+		resultHandler.handleResult(resultToHandle);
+	}
+
+	/**
+	 * Invoke the timeout callback, if any, and apply the configured timeout
+	 * result, if any.
+	 * @return whether a timeout result was set
+	 */
+	final boolean applyTimeoutResult() {
+		if (this.timeoutCallback != null) {
+			this.timeoutCallback.run();
+		}
+		return (this.timeoutResult != RESULT_NONE && setResultInternal(this.timeoutResult));
+	}
+
+	/**
+	 * Mark this DeferredResult as expired, ignoring any subsequent results,
+	 * and invoke the completion callback, if any.
+	 */
+	final void expire() {
+		synchronized (this) {
+			this.expired = true;
+		}
+		if (this.completionCallback != null) {
+			this.completionCallback.run();
+		}
+	}
+
+
+	/**
+	 * Handles a DeferredResult value when set.
+	 */
+	interface DeferredResultHandler {
+
+		void handleResult(Object result);
+	}
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2002-2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.web.context.request.async;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.util.Assert;
+import org.springframework.web.context.request.RequestAttributes;
+
+/**
+ * The central class for managing asynchronous request processing, mainly intended
+ * as an SPI and not typically used directly by application classes.
+ *
+ * <p>An async scenario starts with request processing as usual in a thread (T1).
+ * Concurrent request handling can be initiated by calling
+ * {@link #startCallableProcessing startCallableProcessing} or
+ * {@link #startDeferredResultProcessing startDeferredResultProcessing}, both of
+ * which produce a result in a separate thread (T2). The result is saved and the
+ * request dispatched to the container, to resume processing with the saved
+ * result in a third thread (T3). Within the dispatched thread (T3), the saved
+ * result can be accessed via {@link #getConcurrentResult()} or its presence
+ * detected via {@link #hasConcurrentResult()}.
+ *
+ * @author agent
+ * @since 3.1
+ * @see AsyncWebRequest
+ * @see WebAsyncUtils#getAsyncManager
+ */
+public final class WebAsyncManager {
+
+	private static final Object RESULT_NONE = new Object();
+
+	private static final Log logger = LogFactory.getLog(WebAsyncManager.class);
+
+
+	private AsyncWebRequest asyncWebRequest;
+
+	private AsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor(getClass().getSimpleName());
+
+	private volatile Object concurrentResult = RESULT_NONE;
+
+	private volatile Object[] concurrentResultContext;
+
+
+	/**
+	 * Package private constructor.
+	 * @see WebAsyncUtils#getAsyncManager
+	 */
+	WebAsyncManager() {
+	}
+
+
+	/**
+	 * Configure the {@link AsyncWebRequest} to use. This property may be set
+	 * more than once during a single request to accurately reflect the current
+	 * state of the request (e.g. following a forward, request/response
+	 * wrapping, etc). However, it should not be set while concurrent handling
+	 * is in progress, i.e. while {@link #isConcurrentHandlingStarted()} is
+	 * {@code true}.
+	 * @param asyncWebRequest the web request to use
+	 */
+	public void setAsyncWebRequest(final AsyncWebRequest asyncWebRequest) {
+		Assert.notNull(asyncWebRequest, "AsyncWebRequest must not be null");
+		Assert.state(!isConcurrentHandlingStarted(), "Can't set AsyncWebRequest with concurrent handling in progress");
+		this.asyncWebRequest = asyncWebRequest;
+		this.asyncWebRequest.addCompletionHandler(new Runnable() {
+			public void run() {
+				asyncWebRequest.removeAttribute(WebAsyncUtils.WEB_ASYNC_MANAGER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+			}
+		});
+	}
+
+	/**
+	 * Configure an AsyncTaskExecutor for use with concurrent processing via
+	 * {@link #startCallableProcessing(Callable, Object...)}.
+	 * <p>By default a {@link SimpleAsyncTaskExecutor} instance is used.
+	 */
+	public void setTaskExecutor(AsyncTaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Whether the selected handler for the current request chose to handle the
+	 * request asynchronously. A return value of "true" indicates concurrent
+	 * handling is under way and the response will remain open. A return value
+	 * of "false" means concurrent handling was either not started or possibly
+	 * that it has completed and the request was dispatched for further
+	 * processing of the concurrent result.
+	 */
+	public boolean isConcurrentHandlingStarted() {
+		return (this.asyncWebRequest != null && this.asyncWebRequest.isAsyncStarted());
+	}
+
+	/**
+	 * Whether a result value exists as a result of concurrent handling.
+	 */
+	public boolean hasConcurrentResult() {
+		return (this.concurrentResult != RESULT_NONE);
+	}
+
+	/**
+	 * Provides access to the result from concurrent handling.
+	 * @return an Object, possibly an {@code Exception} or {@code Throwable} if
+	 * concurrent handling raised one.
+	 * @see #clearConcurrentResult()
+	 */
+	public Object getConcurrentResult() {
+		return this.concurrentResult;
+	}
+
+	/**
+	 * Provides access to additional processing context saved at the start of
+	 * concurrent handling.
+	 * @see #clearConcurrentResult()
+	 */
+	public Object[] getConcurrentResultContext() {
+		return this.concurrentResultContext;
+	}
+
+	/**
+	 * Clear {@linkplain #getConcurrentResult() concurrentResult} and
+	 * {@linkplain #getConcurrentResultContext() concurrentResultContext}.
+	 */
+	public void clearConcurrentResult() {
+		this.concurrentResult = RESULT_NONE;
+		this.concurrentResultContext = null;
+	}
+
+	/**
+	 * Start concurrent request processing and execute the given task with the
+	 * {@link #setTaskExecutor(AsyncTaskExecutor) configured task executor}.
+	 * The result from the task execution is saved and the request dispatched
+	 * in order to resume processing of that result. If the task raises an
+	 * Exception then the saved result will be the raised Exception.
+	 * @param callable a unit of work to be executed asynchronously
+	 * @param processingContext additional context to save that can be accessed
+	 * via {@link #getConcurrentResultContext()}
+	 * @see #getConcurrentResult()
+	 * @see #getConcurrentResultContext()
+	 */
+	public void startCallableProcessing(final Callable<?> callable, Object... processingContext) {
+		Assert.notNull(callable, "Callable must not be null");
+		Assert.state(this.asyncWebRequest != null, "AsyncWebRequest must not be null");
+		startAsyncProcessing(processingContext);
+		try {
+			this.taskExecutor.submit(new Runnable() {
+				public void run() {
+					Object result;
+					try {
+						result = callable.call();
+					}
+					catch (Throwable ex) {
+						result = ex;
+					}
+					setConcurrentResultAndDispatch(result);
+				}
+			});
+		}
+		catch (RejectedExecutionException ex) {
+			setConcurrentResultAndDispatch(ex);
+		}
+	}
+
+	/**
+	 * Start concurrent request processing and initialize the given
+	 * {@link DeferredResult} with a {@link DeferredResult.DeferredResultHandler}
+	 * that saves the result and dispatches the request to resume processing of
+	 * that result. The {@code AsyncWebRequest} is also updated with the timeout
+	 * value of the {@code DeferredResult}, and a timeout handler is registered
+	 * that applies the timeout result of the {@code DeferredResult}, if any.
+	 * @param deferredResult the DeferredResult instance to initialize
+	 * @param processingContext additional context to save that can be accessed
+	 * via {@link #getConcurrentResultContext()}
+	 * @see #getConcurrentResult()
+	 * @see #getConcurrentResultContext()
+	 */
+	public void startDeferredResultProcessing(final DeferredResult<?> deferredResult, Object... processingContext) {
+		Assert.notNull(deferredResult, "DeferredResult must not be null");
+		Assert.state(this.asyncWebRequest != null, "AsyncWebRequest must not be null");
+		Long timeout = deferredResult.getTimeoutValue();
+		if (timeout != null) {
+			this.asyncWebRequest.setTimeout(timeout);
+		}
+		this.asyncWebRequest.addTimeoutHandler(new Runnable() {
+			public void run() {
+				deferredResult.applyTimeoutResult();
+			}
+		});
+		this.asyncWebRequest.addCompletionHandler(new Runnable() {
+			public void run() {
+				deferredResult.expire();
+			}
+		});
+		startAsyncProcessing(processingContext);
+		deferredResult.setResultHandler(new DeferredResult.DeferredResultHandler() {
+			public void handleResult(Object result) {
+				setConcurrentResultAndDispatch(result);
+			}
+		});
+	}
+
+	private void startAsyncProcessing(Object[] processingContext) {
+		clearConcurrentResult();
+		this.concurrentResultContext = processingContext;
+		this.asyncWebRequest.startAsync();
+		if (logger.isDebugEnabled()) {
+			logger.debug("Concurrent handling starting for " +
+					this.asyncWebRequest.getNativeRequest().getClass().getSimpleName());
+		}
+	}
+
+	private void setConcurrentResultAndDispatch(Object result) {
+		synchronized (this) {
+			if (hasConcurrentResult()) {
+				return;
+			}
+			this.concurrentResult = result;
+		}
+		if (this.asyncWebRequest.isAsyncComplete()) {
+			logger.error("Could not complete async processing due to timeout or network error");
+			return;
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Concurrent result value [" + this.concurrentResult + "] - dispatching request to resume processing");
+		}
+		this.asyncWebRequest.dispatch();
+	}
+
+}
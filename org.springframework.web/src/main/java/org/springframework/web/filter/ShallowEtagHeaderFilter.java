@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -14,14 +14,24 @@
  * limitations under the License.
  */
 
+
 package org.springframework.web.filter;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import javax.servlet.FilterChain;
+import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
@@ -30,6 +40,7 @@ import javax.servlet.http.HttpServletResponseWrapper;
 
 import org.springframework.util.DigestUtils;
 import org.springframework.util.FileCopyUtils;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.springframework.web.util.WebUtils;
 
 /**
@@ -40,6 +51,21 @@ import org.springframework.web.util.WebUtils;
  * <p>Since the ETag is based on the response content, the response (or {@link org.springframework.web.servlet.View})
  * is still rendered. As such, this filter only saves bandwidth, not server performance.
  *
+ * <p>By default, the entire response content is buffered in memory and hashed once the response is complete.
+ * Setting a {@link #setMaxInMemorySize maximum in-memory size} instead has the MD5 digest computed as the
+ * content is written, with content beyond the given size spilled to a temporary file.
+ *
+ * <p>Handlers that can determine a version of the resource up front should call
+ * {@link org.springframework.web.context.request.WebRequest#checkNotModified(String)} before rendering:
+ * such a "deep" ETag produces a <code>304</code> without generating the content at all. If the response
+ * carries an <code>ETag</code> header set by the handler, this filter does not generate one of its own and
+ * writes the content straight through to the response.
+ *
+ * <p>If concurrent handling was started for the request, for example to write the content asynchronously
+ * through a {@code ResponseBodyEmitter}, the response is not complete when the filter chain returns: no ETag
+ * is generated in that case, and content written so far as well as subsequent content is passed through
+ * to the response.
+ *
  * @author Arjen Poutsma
  * @since 3.0
  */
@@ -49,54 +75,124 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 
 	private static String HEADER_IF_NONE_MATCH = "If-None-Match";
 
+	private static final char[] HEX_CHARS =
+			{'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+
+	private int maxInMemorySize = -1;
+
+
+	/**
+	 * Set the maximum number of bytes of response content to hold in memory. Content beyond that size
+	 * is written to a temporary file, in the servlet container's temporary directory if available.
+	 * <p>Setting this property also switches to computing the ETag as the content is written, through
+	 * {@link #isEligibleForEtag(HttpServletRequest, HttpServletResponse, int)} and
+	 * {@link #generateETagHeaderValueFromDigest(byte[])}, since the content is not available as a byte array.
+	 * <p>Default is -1, buffering the entire content in memory.
+	 */
+	public void setMaxInMemorySize(int maxInMemorySize) {
+		this.maxInMemorySize = maxInMemorySize;
+	}
+
 
 	@Override
 	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
 			throws ServletException, IOException {
 
-		ShallowEtagResponseWrapper responseWrapper = new ShallowEtagResponseWrapper(response);
-		filterChain.doFilter(request, responseWrapper);
+		ResponseContent content = (this.maxInMemorySize < 0 ? new ResponseContent() :
+				new ResponseContent(this.maxInMemorySize, getTempDir()));
+		ShallowEtagResponseWrapper responseWrapper = new ShallowEtagResponseWrapper(response, content);
+		try {
+			filterChain.doFilter(request, responseWrapper);
 
-		byte[] body = responseWrapper.toByteArray();
-		int statusCode = responseWrapper.getStatusCode();
-
-		if (isEligibleForEtag(request, responseWrapper, statusCode, body)) {
-			String responseETag = generateETagHeaderValue(body);
-			response.setHeader(HEADER_ETAG, responseETag);
+			if (WebAsyncUtils.isConcurrentHandlingStarted(request)) {
+				if (logger.isTraceEnabled()) {
+					logger.trace("Concurrent handling started, passing response content through without ETag");
+				}
+				responseWrapper.enablePassThrough();
+				return;
+			}
 
-			String requestETag = request.getHeader(HEADER_IF_NONE_MATCH);
-			if (responseETag.equals(requestETag)) {
+			if (responseWrapper.isPassThrough()) {
 				if (logger.isTraceEnabled()) {
-					logger.trace("ETag [" + responseETag + "] equal to If-None-Match, sending 304");
+					logger.trace("Response has ETag [" + response.getHeader(HEADER_ETAG) + "] set by the handler");
+				}
+				return;
+			}
+
+			int statusCode = responseWrapper.getStatusCode();
+			if (content.isDigesting()) {
+				if (isEligibleForEtag(request, responseWrapper, statusCode)) {
+					String responseETag = generateETagHeaderValueFromDigest(content.getDigest());
+					checkETag(request, response, responseETag, content);
+				}
+				else {
+					logNotEligible(statusCode);
+					copyContentToResponse(content, response);
 				}
-				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
 			}
 			else {
-				if (logger.isTraceEnabled()) {
-					logger.trace("ETag [" + responseETag + "] not equal to If-None-Match [" + requestETag +
-							"], sending normal response");
+				byte[] body = content.toByteArray();
+				if (isEligibleForEtag(request, responseWrapper, statusCode, body)) {
+					String responseETag = generateETagHeaderValue(body);
+					checkETag(request, response, responseETag, content);
 				}
-				copyBodyToResponse(body, response);
+				else {
+					logNotEligible(statusCode);
+					copyContentToResponse(content, response);
+				}
+			}
+		}
+		finally {
+			content.delete();
+		}
+	}
+
+	private void checkETag(HttpServletRequest request, HttpServletResponse response, String responseETag,
+			ResponseContent content) throws IOException {
+
+		response.setHeader(HEADER_ETAG, responseETag);
+
+		String requestETag = request.getHeader(HEADER_IF_NONE_MATCH);
+		if (responseETag.equals(requestETag)) {
+			if (logger.isTraceEnabled()) {
+				logger.trace("ETag [" + responseETag + "] equal to If-None-Match, sending 304");
 			}
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
 		}
 		else {
 			if (logger.isTraceEnabled()) {
-				logger.trace("Response with status code [" + statusCode + "] not eligible for ETag");
+				logger.trace("ETag [" + responseETag + "] not equal to If-None-Match [" + requestETag +
+						"], sending normal response");
 			}
-			copyBodyToResponse(body, response);
+			copyContentToResponse(content, response);
 		}
 	}
 
-	private void copyBodyToResponse(byte[] body, HttpServletResponse response) throws IOException {
-		if (body.length > 0) {
-			response.setContentLength(body.length);
-			FileCopyUtils.copy(body, response.getOutputStream());
+	private void logNotEligible(int statusCode) {
+		if (logger.isTraceEnabled()) {
+			logger.trace("Response with status code [" + statusCode + "] not eligible for ETag");
 		}
 	}
 
+	private void copyContentToResponse(ResponseContent content, HttpServletResponse response) throws IOException {
+		long size = content.size();
+		if (size > 0) {
+			if (size <= Integer.MAX_VALUE) {
+				response.setContentLength((int) size);
+			}
+			content.writeTo(response.getOutputStream());
+		}
+	}
+
+	private File getTempDir() {
+		ServletContext servletContext = getServletContext();
+		return (servletContext != null ? WebUtils.getTempDir(servletContext) : null);
+	}
+
 	/**
 	 * Indicates whether the given request and response are eligible for ETag generation.
-	 * <p>The default implementation returns {@code true} for response status codes in the {@code 2xx} series.
+	 * <p>The default implementation delegates to {@link #isEligibleForEtag(HttpServletRequest, HttpServletResponse, int)}.
 	 * @param request the HTTP request
 	 * @param response the HTTP response
 	 * @param responseStatusCode the HTTP response status code
@@ -106,6 +202,22 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 	protected boolean isEligibleForEtag(HttpServletRequest request, HttpServletResponse response,
 			int responseStatusCode, byte[] responseBody) {
 
+		return isEligibleForEtag(request, response, responseStatusCode);
+	}
+
+	/**
+	 * Indicates whether the given request and response are eligible for ETag generation, without access to
+	 * the response body, as is the case when a {@link #setMaxInMemorySize maximum in-memory size} is set.
+	 * <p>The default implementation returns {@code true} for response status codes in the {@code 2xx} series.
+	 * @param request the HTTP request
+	 * @param response the HTTP response
+	 * @param responseStatusCode the HTTP response status code
+	 * @return {@code true} if eligible for ETag generation; {@code false} otherwise
+	 * @since 3.1
+	 */
+	protected boolean isEligibleForEtag(HttpServletRequest request, HttpServletResponse response,
+			int responseStatusCode) {
+
 		return (responseStatusCode >= 200 && responseStatusCode < 300);
 	}
 
@@ -123,15 +235,166 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 		return builder.toString();
 	}
 
+	/**
+	 * Generate the ETag header value from the MD5 digest of the response body, computed as the
+	 * content was written, when a {@link #setMaxInMemorySize maximum in-memory size} is set.
+	 * <p>The default implementation returns the same value as {@link #generateETagHeaderValue(byte[])}.
+	 * @param md5Digest the MD5 digest of the response body
+	 * @return the ETag header value
+	 * @since 3.1
+	 */
+	protected String generateETagHeaderValueFromDigest(byte[] md5Digest) {
+		StringBuilder builder = new StringBuilder(md5Digest.length * 2 + 3);
+		builder.append("\"0");
+		for (byte b : md5Digest) {
+			builder.append(HEX_CHARS[(b >>> 4) & 0xF]).append(HEX_CHARS[b & 0xF]);
+		}
+		builder.append('"');
+		return builder.toString();
+	}
+
+
+	/**
+	 * Buffer for the response content that optionally computes an MD5 digest as content is written,
+	 * and moves the content to a temporary file once a maximum in-memory size is exceeded.
+	 */
+	private static class ResponseContent extends OutputStream {
+
+		private final ByteArrayOutputStream memory = new ByteArrayOutputStream(1024);
+
+		private final int maxInMemorySize;
+
+		private final File tempDir;
+
+		private final MessageDigest digest;
+
+		private File file;
+
+		private OutputStream fileOutputStream;
+
+		private long size;
+
+		/**
+		 * Buffer all content in memory, without computing a digest.
+		 */
+		public ResponseContent() {
+			this.maxInMemorySize = -1;
+			this.tempDir = null;
+			this.digest = null;
+		}
+
+		/**
+		 * Compute an MD5 digest while buffering up to the given number of bytes in memory.
+		 */
+		public ResponseContent(int maxInMemorySize, File tempDir) {
+			this.maxInMemorySize = maxInMemorySize;
+			this.tempDir = tempDir;
+			try {
+				this.digest = MessageDigest.getInstance("MD5");
+			}
+			catch (NoSuchAlgorithmException ex) {
+				throw new IllegalStateException("Could not find MessageDigest with algorithm \"MD5\"", ex);
+			}
+		}
+
+		public boolean isDigesting() {
+			return (this.digest != null);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (this.digest != null) {
+				this.digest.update(b, off, len);
+			}
+			if (this.fileOutputStream == null && this.maxInMemorySize >= 0 &&
+					this.memory.size() + len > this.maxInMemorySize) {
+				this.file = File.createTempFile("etag", null, this.tempDir);
+				this.fileOutputStream = new BufferedOutputStream(new FileOutputStream(this.file));
+				this.memory.writeTo(this.fileOutputStream);
+				this.memory.reset();
+			}
+			if (this.fileOutputStream != null) {
+				this.fileOutputStream.write(b, off, len);
+			}
+			else {
+				this.memory.write(b, off, len);
+			}
+			this.size += len;
+		}
+
+		public long size() {
+			return this.size;
+		}
+
+		public byte[] getDigest() {
+			return this.digest.digest();
+		}
+
+		public byte[] toByteArray() {
+			return this.memory.toByteArray();
+		}
+
+		public void writeTo(OutputStream out) throws IOException {
+			if (this.fileOutputStream != null) {
+				this.fileOutputStream.flush();
+				InputStream in = new FileInputStream(this.file);
+				try {
+					byte[] buffer = new byte[FileCopyUtils.BUFFER_SIZE];
+					int bytesRead;
+					while ((bytesRead = in.read(buffer)) != -1) {
+						out.write(buffer, 0, bytesRead);
+					}
+				}
+				finally {
+					in.close();
+				}
+			}
+			else {
+				this.memory.writeTo(out);
+			}
+		}
+
+		public void reset() {
+			this.memory.reset();
+			if (this.digest != null) {
+				this.digest.reset();
+			}
+			delete();
+			this.size = 0;
+		}
+
+		public void delete() {
+			if (this.fileOutputStream != null) {
+				try {
+					this.fileOutputStream.close();
+				}
+				catch (IOException ex) {
+					// ignore
+				}
+				this.fileOutputStream = null;
+			}
+			if (this.file != null) {
+				this.file.delete();
+				this.file = null;
+			}
+		}
+	}
+
 
 	/**
 	 * {@link HttpServletRequest} wrapper that buffers all content written to the
-	 * {@linkplain #getOutputStream() output stream} and {@linkplain #getWriter() writer},
-	 * and allows this content to be retrieved via a {@link #toByteArray() byte array}.
+	 * {@linkplain #getOutputStream() output stream} and {@linkplain #getWriter() writer}
+	 * in a {@link ResponseContent}, unless the handler sets an <code>ETag</code> header,
+	 * in which case buffered and subsequent content is passed through to the response.
 	 */
 	private static class ShallowEtagResponseWrapper extends HttpServletResponseWrapper {
 
-		private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+		private final ResponseContent content;
 
 		private final ServletOutputStream outputStream = new ResponseServletOutputStream();
 
@@ -139,8 +402,13 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 
 		private int statusCode = HttpServletResponse.SC_OK;
 
-		private ShallowEtagResponseWrapper(HttpServletResponse response) {
+		private volatile boolean passThrough;
+
+		private boolean flushPending;
+
+		private ShallowEtagResponseWrapper(HttpServletResponse response, ResponseContent content) {
 			super(response);
+			this.content = content;
 		}
 
 		@Override
@@ -167,8 +435,54 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 			this.statusCode = sc;
 		}
 
+		@Override
+		public void setHeader(String name, String value) {
+			super.setHeader(name, value);
+			checkETagHeader(name);
+		}
+
+		@Override
+		public void addHeader(String name, String value) {
+			super.addHeader(name, value);
+			checkETagHeader(name);
+		}
+
+		private void checkETagHeader(String name) {
+			if (!this.passThrough && HEADER_ETAG.equalsIgnoreCase(name)) {
+				try {
+					enablePassThrough();
+				}
+				catch (IOException ex) {
+					throw new IllegalStateException("Failed to write buffered content to response", ex);
+				}
+			}
+		}
+
+		/**
+		 * Write the buffered content to the response and pass subsequent content through,
+		 * flushing the response if a flush was requested while content was buffered.
+		 */
+		private synchronized void enablePassThrough() throws IOException {
+			if (this.passThrough) {
+				return;
+			}
+			this.passThrough = true;
+			try {
+				this.content.writeTo(getResponse().getOutputStream());
+			}
+			finally {
+				this.content.reset();
+			}
+			if (this.flushPending) {
+				super.flushBuffer();
+			}
+		}
+
 		@Override
 		public void setContentLength(int len) {
+			if (this.passThrough) {
+				super.setContentLength(len);
+			}
 		}
 
 		@Override
@@ -186,42 +500,68 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 			return this.writer;
 		}
 
+		@Override
+		public void flushBuffer() throws IOException {
+			if (this.passThrough) {
+				super.flushBuffer();
+			}
+			else {
+				this.flushPending = true;
+			}
+		}
+
 		@Override
 		public void resetBuffer() {
-			this.content.reset();
+			if (this.passThrough) {
+				super.resetBuffer();
+			}
+			else {
+				this.content.reset();
+			}
 		}
 
 		@Override
 		public void reset() {
 			super.reset();
-			resetBuffer();
+			if (!this.passThrough) {
+				this.content.reset();
+			}
 		}
 
 		private int getStatusCode() {
-			return statusCode;
+			return this.statusCode;
+		}
+
+		private boolean isPassThrough() {
+			return this.passThrough;
 		}
 
-		private byte[] toByteArray() {
-			return this.content.toByteArray();
+		private synchronized void write(byte[] b, int off, int len) throws IOException {
+			OutputStream target = (this.passThrough ? getResponse().getOutputStream() : this.content);
+			target.write(b, off, len);
 		}
 
+		/**
+		 * Content may be written from another thread once concurrent handling was started, hence writes
+		 * are synchronized with {@link ShallowEtagResponseWrapper#enablePassThrough()}.
+		 */
 		private class ResponseServletOutputStream extends ServletOutputStream {
 
 			@Override
 			public void write(int b) throws IOException {
-				content.write(b);
+				ShallowEtagResponseWrapper.this.write(new byte[] {(byte) b}, 0, 1);
 			}
 
 			@Override
 			public void write(byte[] b, int off, int len) throws IOException {
-				content.write(b, off, len);
+				ShallowEtagResponseWrapper.this.write(b, off, len);
 			}
 		}
 
 		private class ResponsePrintWriter extends PrintWriter {
 
 			private ResponsePrintWriter(String characterEncoding) throws UnsupportedEncodingException {
-				super(new OutputStreamWriter(content, characterEncoding));
+				super(new OutputStreamWriter(outputStream, characterEncoding));
 			}
 
 			@Override
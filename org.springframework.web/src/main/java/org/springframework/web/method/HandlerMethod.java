@@ -105,6 +105,22 @@ public class HandlerMethod {
 		this.bridgedMethod = BridgeMethodResolver.findBridgedMethod(method);
 	}
 
+	/**
+	 * Copy constructor for use in subclasses, creating a handler method for the given bean instance
+	 * that shares the bridged method and the method parameters of the given handler method.
+	 * @param handlerMethod the handler method to copy from
+	 * @param bean the bean instance, which must be of the same type as the bean of the given handler method
+	 */
+	protected HandlerMethod(HandlerMethod handlerMethod, Object bean) {
+		Assert.notNull(handlerMethod, "handlerMethod must not be null");
+		Assert.notNull(bean, "bean must not be null");
+		this.bean = bean;
+		this.beanFactory = handlerMethod.beanFactory;
+		this.method = handlerMethod.method;
+		this.bridgedMethod = handlerMethod.bridgedMethod;
+		this.parameters = handlerMethod.getMethodParameters();
+	}
+
 	/**
 	 * Returns the bean for this handler method.
 	 */
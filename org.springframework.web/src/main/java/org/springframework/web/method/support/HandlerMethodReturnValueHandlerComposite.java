@@ -67,8 +67,9 @@ public class HandlerMethodReturnValueHandlerComposite implements HandlerMethodRe
 
 	/**
 	 * Find a registered {@link HandlerMethodReturnValueHandler} that supports the given return type.
+	 * @return the matching handler, or {@code null} if none supports the return type
 	 */
-	private HandlerMethodReturnValueHandler getReturnValueHandler(MethodParameter returnType) {
+	public HandlerMethodReturnValueHandler getReturnValueHandler(MethodParameter returnType) {
 		HandlerMethodReturnValueHandler result = this.returnValueHandlerCache.get(returnType);
 		if (result == null) {
 			for (HandlerMethodReturnValueHandler returnValueHandler : returnValueHandlers) {
@@ -41,18 +41,25 @@ import org.springframework.web.method.HandlerMethod;
  * 
  * <p>Use {@link #setHandlerMethodArgumentResolvers(HandlerMethodArgumentResolverComposite)} to customize 
  * the list of argument resolvers.
+ * 
+ * <p>Once configured, {@link #prepareArgumentResolution()} may be called to determine the argument resolver 
+ * for each method parameter up front, so that repeated invocations only resolve and pass the argument values.
  *  
  * @author Rossen Stoyanchev
  * @since 3.1
  */
 public class InvocableHandlerMethod extends HandlerMethod {
 
+	private static final Object[] EMPTY_ARGS = new Object[0];
+
 	private HandlerMethodArgumentResolverComposite argumentResolvers = new HandlerMethodArgumentResolverComposite();
 
 	private WebDataBinderFactory dataBinderFactory;
 
 	private ParameterNameDiscoverer parameterNameDiscoverer = new LocalVariableTableParameterNameDiscoverer();
 
+	private HandlerMethodArgumentResolver[] parameterResolvers;
+
 	/**
 	 * Constructs a new handler method with the given bean instance and method.
 	 * @param bean the bean instance
@@ -74,6 +81,20 @@ public class InvocableHandlerMethod extends HandlerMethod {
 		super(bean, methodName, parameterTypes);
 	}
 
+	/**
+	 * Copy constructor for use in subclasses, creating a handler method for the given bean instance
+	 * with the configuration, and the argument resolution prepared if any, of the given handler method.
+	 * @param handlerMethod the handler method to copy from
+	 * @param bean the bean instance, which must be of the same type as the bean of the given handler method
+	 */
+	protected InvocableHandlerMethod(InvocableHandlerMethod handlerMethod, Object bean) {
+		super(handlerMethod, bean);
+		this.argumentResolvers = handlerMethod.argumentResolvers;
+		this.dataBinderFactory = handlerMethod.dataBinderFactory;
+		this.parameterNameDiscoverer = handlerMethod.parameterNameDiscoverer;
+		this.parameterResolvers = handlerMethod.parameterResolvers;
+	}
+
 	/**
 	 * Sets the {@link WebDataBinderFactory} to be passed to argument resolvers allowing them to create
 	 * a {@link WebDataBinder} for data binding and type conversion purposes.
@@ -98,6 +119,25 @@ public class InvocableHandlerMethod extends HandlerMethod {
 		this.parameterNameDiscoverer = parameterNameDiscoverer;
 	}
 
+	/**
+	 * Prepare argument resolution ahead of the first invocation: initialize parameter name discovery and 
+	 * generic type resolution for each method parameter, and look up the {@link HandlerMethodArgumentResolver}
+	 * that supports it. Subsequent invocations use the resolvers found here instead of consulting the 
+	 * {@link HandlerMethodArgumentResolverComposite} for every parameter.
+	 * <p>Must be called after the argument resolvers and the parameter name discoverer have been set.
+	 */
+	public void prepareArgumentResolution() {
+		MethodParameter[] parameters = getMethodParameters();
+		HandlerMethodArgumentResolver[] resolvers = new HandlerMethodArgumentResolver[parameters.length];
+		for (int i = 0; i < parameters.length; i++) {
+			MethodParameter parameter = parameters[i];
+			parameter.initParameterNameDiscovery(parameterNameDiscoverer);
+			GenericTypeResolver.resolveParameterType(parameter, getBean().getClass());
+			resolvers[i] = argumentResolvers.getArgumentResolver(parameter);
+		}
+		this.parameterResolvers = resolvers;
+	}
+
 	/**
 	 * Invoke the method after resolving its argument values in the context of the given request. <p>Argument 
 	 * values are commonly resolved through {@link HandlerMethodArgumentResolver}s. The {@code provideArgs} 
@@ -139,20 +179,28 @@ public class InvocableHandlerMethod extends HandlerMethod {
 											 ModelAndViewContainer mavContainer, 
 											 Object... providedArgs) throws Exception {
 		MethodParameter[] parameters = getMethodParameters();
+		if (parameters.length == 0) {
+			return EMPTY_ARGS;
+		}
+		HandlerMethodArgumentResolver[] resolvers = this.parameterResolvers;
 		Object[] args = new Object[parameters.length];
 		for (int i = 0; i < parameters.length; i++) {
 			MethodParameter parameter = parameters[i];
-			parameter.initParameterNameDiscovery(parameterNameDiscoverer);
-			GenericTypeResolver.resolveParameterType(parameter, getBean().getClass());
+			if (resolvers == null) {
+				parameter.initParameterNameDiscovery(parameterNameDiscoverer);
+				GenericTypeResolver.resolveParameterType(parameter, getBean().getClass());
+			}
 
 			args[i] = resolveProvidedArgument(parameter, providedArgs);
 			if (args[i] != null) {
 				continue;
 			}
 
-			if (argumentResolvers.supportsParameter(parameter)) {
+			HandlerMethodArgumentResolver resolver =
+					(resolvers != null ? resolvers[i] : argumentResolvers.getArgumentResolver(parameter));
+			if (resolver != null) {
 				try {
-					args[i] = argumentResolvers.resolveArgument(parameter, mavContainer, request, dataBinderFactory);
+					args[i] = resolver.resolveArgument(parameter, mavContainer, request, dataBinderFactory);
 					continue;
 				} catch (Exception ex) {
 					if (logger.isTraceEnabled()) {
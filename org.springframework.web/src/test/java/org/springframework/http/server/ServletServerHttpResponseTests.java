@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2009 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,6 +26,7 @@ import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.util.FileCopyUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 
 /**
  * @author Arjen Poutsma
@@ -71,4 +72,24 @@ public class ServletServerHttpResponseTests {
 
 		assertArrayEquals("Invalid content written", content, mockResponse.getContentAsByteArray());
 	}
+
+	@Test
+	public void flush() throws Exception {
+		response.getHeaders().setContentType(new MediaType("text", "csv"));
+		response.getBody().write("a,b".getBytes("UTF-8"));
+		assertFalse(mockResponse.isCommitted());
+
+		response.flush();
+		assertTrue("Response not committed", mockResponse.isCommitted());
+		assertEquals("text/csv", mockResponse.getContentType());
+		assertEquals("a,b", mockResponse.getContentAsString());
+	}
+
+	@Test
+	public void contentTypeAppliedToServletResponse() throws Exception {
+		response.getHeaders().setContentType(MediaType.parseMediaType("text/plain;charset=UTF-8"));
+		response.close();
+		assertEquals("text/plain;charset=UTF-8", mockResponse.getContentType());
+		assertEquals("UTF-8", mockResponse.getCharacterEncoding());
+	}
 }
\ No newline at end of file
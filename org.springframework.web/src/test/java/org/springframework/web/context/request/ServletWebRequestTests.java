@@ -148,6 +148,19 @@ public class ServletWebRequestTests {
 		request.checkNotModified(eTag);
 
 		assertEquals(304, servletResponse.getStatus());
+		assertEquals(eTag, servletResponse.getHeader("ETag"));
+	}
+
+	@Test
+	public void checkNotModifiedUnpaddedETag() {
+		String eTag = "Foo";
+		servletRequest.setMethod("GET");
+		servletRequest.addHeader("If-None-Match", "\"Foo\"");
+
+		assertTrue(request.checkNotModified(eTag));
+
+		assertEquals(304, servletResponse.getStatus());
+		assertEquals("\"Foo\"", servletResponse.getHeader("ETag"));
 	}
 
 	@Test
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2010 the original author or authors.
+ * Copyright 2002-2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,14 +21,21 @@ import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import org.springframework.http.server.ServletServerHttpResponse;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.util.FileCopyUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.NoSupportAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 
 import static org.junit.Assert.*;
 
@@ -126,4 +133,155 @@ public class ShallowEtagHeaderFilterTests {
 		assertArrayEquals("Invalid content", new byte[0], response.getContentAsByteArray());
 	}
 
+	@Test
+	public void filterNoMatchWithMaxInMemorySize() throws Exception {
+		filter.setMaxInMemorySize(4);
+		final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hotels");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		final byte[] responseBody = "Hello World".getBytes("UTF-8");
+		FilterChain filterChain = new FilterChain() {
+
+			public void doFilter(ServletRequest filterRequest, ServletResponse filterResponse)
+					throws IOException, ServletException {
+				filterResponse.getOutputStream().write(responseBody, 0, 3);
+				filterResponse.getOutputStream().write(responseBody, 3, responseBody.length - 3);
+			}
+		};
+
+		filter.doFilter(request, response, filterChain);
+
+		assertEquals("Invalid status", 200, response.getStatus());
+		assertEquals("Invalid ETag header", "\"0b10a8db164e0754105b7a99be72e3fe5\"", response.getHeader("ETag"));
+		assertEquals("Invalid Content-Length header", responseBody.length, response.getContentLength());
+		assertArrayEquals("Invalid content", responseBody, response.getContentAsByteArray());
+	}
+
+	@Test
+	public void filterWriterMatchWithMaxInMemorySize() throws Exception {
+		filter.setMaxInMemorySize(1024);
+		final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hotels");
+		request.addHeader("If-None-Match", "\"0b10a8db164e0754105b7a99be72e3fe5\"");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		FilterChain filterChain = new FilterChain() {
+
+			public void doFilter(ServletRequest filterRequest, ServletResponse filterResponse)
+					throws IOException, ServletException {
+				FileCopyUtils.copy("Hello World", filterResponse.getWriter());
+			}
+		};
+
+		filter.doFilter(request, response, filterChain);
+
+		assertEquals("Invalid status", 304, response.getStatus());
+		assertEquals("Invalid ETag header", "\"0b10a8db164e0754105b7a99be72e3fe5\"", response.getHeader("ETag"));
+		assertArrayEquals("Invalid content", new byte[0], response.getContentAsByteArray());
+	}
+
+	@Test
+	public void filterDeepETagNoMatch() throws Exception {
+		final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hotels");
+		request.addHeader("If-None-Match", "\"v1\"");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		final byte[] responseBody = "Hello World".getBytes("UTF-8");
+		FilterChain filterChain = new FilterChain() {
+
+			public void doFilter(ServletRequest filterRequest, ServletResponse filterResponse)
+					throws IOException, ServletException {
+				filterResponse.getOutputStream().write(responseBody, 0, 5);
+				ServletWebRequest webRequest =
+						new ServletWebRequest((HttpServletRequest) filterRequest, (HttpServletResponse) filterResponse);
+				assertFalse(webRequest.checkNotModified("\"v2\""));
+				filterResponse.getOutputStream().write(responseBody, 5, responseBody.length - 5);
+			}
+		};
+
+		filter.doFilter(request, response, filterChain);
+
+		assertEquals("Invalid status", 200, response.getStatus());
+		assertEquals("Invalid ETag header", "\"v2\"", response.getHeader("ETag"));
+		assertArrayEquals("Invalid content", responseBody, response.getContentAsByteArray());
+	}
+
+	@Test
+	public void filterDeepETagMatch() throws Exception {
+		final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hotels");
+		request.addHeader("If-None-Match", "\"v1\"");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		FilterChain filterChain = new FilterChain() {
+
+			public void doFilter(ServletRequest filterRequest, ServletResponse filterResponse)
+					throws IOException, ServletException {
+				ServletWebRequest webRequest =
+						new ServletWebRequest((HttpServletRequest) filterRequest, (HttpServletResponse) filterResponse);
+				if (!webRequest.checkNotModified("\"v1\"")) {
+					fail("Expected request to be not modified");
+				}
+			}
+		};
+
+		filter.doFilter(request, response, filterChain);
+
+		assertEquals("Invalid status", 304, response.getStatus());
+		assertEquals("Invalid ETag header", "\"v1\"", response.getHeader("ETag"));
+		assertArrayEquals("Invalid content", new byte[0], response.getContentAsByteArray());
+	}
+
+	@Test
+	public void filterConcurrentHandlingStarted() throws Exception {
+		final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hotels");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		final ServletServerHttpResponse[] outputMessage = new ServletServerHttpResponse[1];
+		FilterChain filterChain = new FilterChain() {
+
+			public void doFilter(ServletRequest filterRequest, ServletResponse filterResponse)
+					throws IOException, ServletException {
+				// what the handler does for a ResponseBodyEmitter: start async, write and commit right away
+				WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(filterRequest);
+				asyncManager.setAsyncWebRequest(new StubAsyncWebRequest(
+						(HttpServletRequest) filterRequest, (HttpServletResponse) filterResponse));
+				asyncManager.startDeferredResultProcessing(new DeferredResult<Object>());
+				outputMessage[0] = new ServletServerHttpResponse((HttpServletResponse) filterResponse);
+				outputMessage[0].getBody().write("Hello ".getBytes("UTF-8"));
+				outputMessage[0].flush();
+			}
+		};
+
+		filter.doFilter(request, response, filterChain);
+
+		assertNull("ETag header generated", response.getHeader("ETag"));
+		assertTrue("Response not committed", response.isCommitted());
+		assertEquals("Invalid content", "Hello ", response.getContentAsString());
+
+		outputMessage[0].getBody().write("World".getBytes("UTF-8"));
+		outputMessage[0].flush();
+
+		assertEquals("Invalid content", "Hello World", response.getContentAsString());
+		assertNull("ETag header generated", response.getHeader("ETag"));
+	}
+
+
+	private static class StubAsyncWebRequest extends NoSupportAsyncWebRequest {
+
+		private boolean asyncStarted;
+
+		public StubAsyncWebRequest(HttpServletRequest request, HttpServletResponse response) {
+			super(request, response);
+		}
+
+		@Override
+		public void startAsync() {
+			this.asyncStarted = true;
+		}
+
+		@Override
+		public boolean isAsyncStarted() {
+			return this.asyncStarted;
+		}
+	}
+
 }
\ No newline at end of file
@@ -72,6 +72,57 @@ public class InvocableHandlerMethodTests {
 		assertEquals("stringArg", stringResolver.getResolvedParameters().get(0).getParameterName());
 	}
 
+	@Test
+	public void resolvePreparedArgs() throws Exception {
+		StubArgumentResolver intResolver = new StubArgumentResolver(Integer.class, 99);
+		StubArgumentResolver stringResolver = new StubArgumentResolver(String.class, "value");
+
+		HandlerMethodArgumentResolverComposite composite = new HandlerMethodArgumentResolverComposite();
+		composite.addResolver(intResolver);
+		composite.addResolver(stringResolver);
+		handleMethod.setHandlerMethodArgumentResolvers(composite);
+		handleMethod.prepareArgumentResolution();
+
+		assertEquals("99-value", handleMethod.invokeForRequest(webRequest, null));
+		assertEquals("99-value", handleMethod.invokeForRequest(webRequest, null));
+		assertEquals("2-value", handleMethod.invokeForRequest(webRequest, null, 2));
+
+		assertEquals(2, intResolver.getResolvedParameters().size());
+		assertEquals(3, stringResolver.getResolvedParameters().size());
+		assertEquals("intArg", intResolver.getResolvedParameters().get(0).getParameterName());
+		assertEquals("stringArg", stringResolver.getResolvedParameters().get(0).getParameterName());
+	}
+
+	@Test
+	public void copyPreparedForOtherBean() throws Exception {
+		StubArgumentResolver intResolver = new StubArgumentResolver(Integer.class, 99);
+		StubArgumentResolver stringResolver = new StubArgumentResolver(String.class, "value");
+
+		HandlerMethodArgumentResolverComposite composite = new HandlerMethodArgumentResolverComposite();
+		composite.addResolver(intResolver);
+		composite.addResolver(stringResolver);
+		handleMethod.setHandlerMethodArgumentResolvers(composite);
+		handleMethod.prepareArgumentResolution();
+
+		Handler otherHandler = new Handler();
+		InvocableHandlerMethod copy = new InvocableHandlerMethod(handleMethod, otherHandler);
+
+		assertSame(otherHandler, copy.getBean());
+		assertSame(handleMethod.getMethodParameters(), copy.getMethodParameters());
+		assertEquals("99-value", copy.invokeForRequest(webRequest, null));
+	}
+
+	@Test
+	public void cannotResolvePreparedArg() throws Exception {
+		handleMethod.prepareArgumentResolution();
+		try {
+			handleMethod.invokeForRequest(webRequest, null);
+			fail("Expected exception");
+		} catch (IllegalStateException ex) {
+			assertTrue(ex.getMessage().contains("No suitable resolver for argument [0] [type=java.lang.Integer]"));
+		}
+	}
+
 	@Test
 	public void resolveNullArg() throws Exception {
 		StubArgumentResolver intResolver = new StubArgumentResolver(Integer.class, null);